@@ -16,6 +16,9 @@ plugins {
 
     // Compute version name from git
     id("me.qoomon.git-versioning").version("3.0.0")
+
+    // Microbenchmarks (src/jmh)
+    id("me.champeau.jmh").version("0.6.5")
 }
 
 java.sourceCompatibility = JavaVersion.toVersion("11")
@@ -75,6 +78,9 @@ dependencies {
     // To support zstd compressed dumps
     implementation("com.github.luben:zstd-jni:1.4.0-1")
 
+    // Compressed bitmaps for the property index of snapshots
+    implementation("org.roaringbitmap:RoaringBitmap:0.9.0")
+
     // RDF processing
     runtimeOnly("org.eclipse.rdf4j:rdf4j-rio-ntriples:2.5.4")
 
@@ -274,6 +280,13 @@ tasks.register("generateResources") {
 }
 // endregion
 
+// region Benchmark tasks
+jmh {
+    // report allocation rates, which matter as much as time in the serialization hot path
+    profilers.add("gc")
+}
+// endregion
+
 // region Test tasks
 tasks.named<Test>("test") {
     useJUnitPlatform {
@@ -46,6 +46,8 @@ export interface DumpSpec {
     aliases: boolean;
     meta: boolean;
     sitelinks: boolean;
+
+    compression?: "gzip" | "zstd" | "none";
 }
 
 export interface DumpMetadata {
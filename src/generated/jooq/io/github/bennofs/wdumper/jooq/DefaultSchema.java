@@ -9,6 +9,7 @@ import io.github.bennofs.wdumper.jooq.tables.DB_Databasechangeloglock;
 import io.github.bennofs.wdumper.jooq.tables.DB_Dump;
 import io.github.bennofs.wdumper.jooq.tables.DB_DumpError;
 import io.github.bennofs.wdumper.jooq.tables.DB_Run;
+import io.github.bennofs.wdumper.jooq.tables.DB_RunShard;
 import io.github.bennofs.wdumper.jooq.tables.DB_Zenodo;
 
 import java.util.Arrays;
@@ -57,6 +58,11 @@ public class DefaultSchema extends SchemaImpl {
      */
     public final DB_Run RUN = DB_Run.RUN;
 
+    /**
+     * The table <code>run_shard</code>.
+     */
+    public final DB_RunShard RUN_SHARD = DB_RunShard.RUN_SHARD;
+
     /**
      * The table <code>zenodo</code>.
      */
@@ -83,6 +89,7 @@ public class DefaultSchema extends SchemaImpl {
             DB_Dump.DUMP,
             DB_DumpError.DUMP_ERROR,
             DB_Run.RUN,
+            DB_RunShard.RUN_SHARD,
             DB_Zenodo.ZENODO);
     }
 }
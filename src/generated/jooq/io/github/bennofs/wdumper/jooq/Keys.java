@@ -8,11 +8,13 @@ import io.github.bennofs.wdumper.jooq.tables.DB_Databasechangeloglock;
 import io.github.bennofs.wdumper.jooq.tables.DB_Dump;
 import io.github.bennofs.wdumper.jooq.tables.DB_DumpError;
 import io.github.bennofs.wdumper.jooq.tables.DB_Run;
+import io.github.bennofs.wdumper.jooq.tables.DB_RunShard;
 import io.github.bennofs.wdumper.jooq.tables.DB_Zenodo;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DatabasechangeloglockRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DumpErrorRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DumpRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_RunRecord;
+import io.github.bennofs.wdumper.jooq.tables.records.DB_RunShardRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_ZenodoRecord;
 
 import org.jooq.ForeignKey;
@@ -46,6 +48,7 @@ public class Keys {
     public static final UniqueKey<DB_DumpRecord> KEY_DUMP_PRIMARY = UniqueKeys0.KEY_DUMP_PRIMARY;
     public static final UniqueKey<DB_DumpErrorRecord> KEY_DUMP_ERROR_PRIMARY = UniqueKeys0.KEY_DUMP_ERROR_PRIMARY;
     public static final UniqueKey<DB_RunRecord> KEY_RUN_PRIMARY = UniqueKeys0.KEY_RUN_PRIMARY;
+    public static final UniqueKey<DB_RunShardRecord> KEY_RUN_SHARD_PRIMARY = UniqueKeys0.KEY_RUN_SHARD_PRIMARY;
     public static final UniqueKey<DB_ZenodoRecord> KEY_ZENODO_PRIMARY = UniqueKeys0.KEY_ZENODO_PRIMARY;
     public static final UniqueKey<DB_ZenodoRecord> KEY_ZENODO_DUMP_ID = UniqueKeys0.KEY_ZENODO_DUMP_ID;
 
@@ -57,6 +60,7 @@ public class Keys {
     public static final ForeignKey<DB_DumpErrorRecord, DB_DumpRecord> FK_DUMP_ERROR_DUMP_ID_DUMP = ForeignKeys0.FK_DUMP_ERROR_DUMP_ID_DUMP;
     public static final ForeignKey<DB_DumpErrorRecord, DB_RunRecord> FK_DUMP_ERROR_RUN_ID_RUN = ForeignKeys0.FK_DUMP_ERROR_RUN_ID_RUN;
     public static final ForeignKey<DB_DumpErrorRecord, DB_ZenodoRecord> FK_DUMP_ERROR_ZENODO_ID_ZENODO = ForeignKeys0.FK_DUMP_ERROR_ZENODO_ID_ZENODO;
+    public static final ForeignKey<DB_RunShardRecord, DB_RunRecord> FK_RUN_SHARD_RUN_ID_RUN = ForeignKeys0.FK_RUN_SHARD_RUN_ID_RUN;
     public static final ForeignKey<DB_ZenodoRecord, DB_DumpRecord> FK_ZENODO_DUMP_ID_DUMP = ForeignKeys0.FK_ZENODO_DUMP_ID_DUMP;
 
     // -------------------------------------------------------------------------
@@ -75,6 +79,7 @@ public class Keys {
         public static final UniqueKey<DB_DumpRecord> KEY_DUMP_PRIMARY = Internal.createUniqueKey(DB_Dump.DUMP, "KEY_dump_PRIMARY", new TableField[] { DB_Dump.DUMP.ID }, true);
         public static final UniqueKey<DB_DumpErrorRecord> KEY_DUMP_ERROR_PRIMARY = Internal.createUniqueKey(DB_DumpError.DUMP_ERROR, "KEY_dump_error_PRIMARY", new TableField[] { DB_DumpError.DUMP_ERROR.ID }, true);
         public static final UniqueKey<DB_RunRecord> KEY_RUN_PRIMARY = Internal.createUniqueKey(DB_Run.RUN, "KEY_run_PRIMARY", new TableField[] { DB_Run.RUN.ID }, true);
+        public static final UniqueKey<DB_RunShardRecord> KEY_RUN_SHARD_PRIMARY = Internal.createUniqueKey(DB_RunShard.RUN_SHARD, "KEY_run_shard_PRIMARY", new TableField[] { DB_RunShard.RUN_SHARD.RUN_ID, DB_RunShard.RUN_SHARD.SHARD }, true);
         public static final UniqueKey<DB_ZenodoRecord> KEY_ZENODO_PRIMARY = Internal.createUniqueKey(DB_Zenodo.ZENODO, "KEY_zenodo_PRIMARY", new TableField[] { DB_Zenodo.ZENODO.ID }, true);
         public static final UniqueKey<DB_ZenodoRecord> KEY_ZENODO_DUMP_ID = Internal.createUniqueKey(DB_Zenodo.ZENODO, "KEY_zenodo_dump_id", new TableField[] { DB_Zenodo.ZENODO.DUMP_ID, DB_Zenodo.ZENODO.TARGET }, true);
     }
@@ -84,6 +89,7 @@ public class Keys {
         public static final ForeignKey<DB_DumpErrorRecord, DB_DumpRecord> FK_DUMP_ERROR_DUMP_ID_DUMP = Internal.createForeignKey(Keys.KEY_DUMP_PRIMARY, DB_DumpError.DUMP_ERROR, "fk_dump_error_dump_id_dump", new TableField[] { DB_DumpError.DUMP_ERROR.DUMP_ID }, true);
         public static final ForeignKey<DB_DumpErrorRecord, DB_RunRecord> FK_DUMP_ERROR_RUN_ID_RUN = Internal.createForeignKey(Keys.KEY_RUN_PRIMARY, DB_DumpError.DUMP_ERROR, "fk_dump_error_run_id_run", new TableField[] { DB_DumpError.DUMP_ERROR.RUN_ID }, true);
         public static final ForeignKey<DB_DumpErrorRecord, DB_ZenodoRecord> FK_DUMP_ERROR_ZENODO_ID_ZENODO = Internal.createForeignKey(Keys.KEY_ZENODO_PRIMARY, DB_DumpError.DUMP_ERROR, "fk_dump_error_zenodo_id_zenodo", new TableField[] { DB_DumpError.DUMP_ERROR.ZENODO_ID }, true);
+        public static final ForeignKey<DB_RunShardRecord, DB_RunRecord> FK_RUN_SHARD_RUN_ID_RUN = Internal.createForeignKey(Keys.KEY_RUN_PRIMARY, DB_RunShard.RUN_SHARD, "fk_run_shard_run_id_run", new TableField[] { DB_RunShard.RUN_SHARD.RUN_ID }, true);
         public static final ForeignKey<DB_ZenodoRecord, DB_DumpRecord> FK_ZENODO_DUMP_ID_DUMP = Internal.createForeignKey(Keys.KEY_DUMP_PRIMARY, DB_Zenodo.ZENODO, "fk_zenodo_dump_id_dump", new TableField[] { DB_Zenodo.ZENODO.DUMP_ID }, true);
     }
 }
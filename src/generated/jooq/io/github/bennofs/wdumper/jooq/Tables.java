@@ -9,6 +9,7 @@ import io.github.bennofs.wdumper.jooq.tables.DB_Databasechangeloglock;
 import io.github.bennofs.wdumper.jooq.tables.DB_Dump;
 import io.github.bennofs.wdumper.jooq.tables.DB_DumpError;
 import io.github.bennofs.wdumper.jooq.tables.DB_Run;
+import io.github.bennofs.wdumper.jooq.tables.DB_RunShard;
 import io.github.bennofs.wdumper.jooq.tables.DB_Zenodo;
 
 
@@ -43,6 +44,11 @@ public class Tables {
      */
     public static final DB_Run RUN = DB_Run.RUN;
 
+    /**
+     * The table <code>run_shard</code>.
+     */
+    public static final DB_RunShard RUN_SHARD = DB_RunShard.RUN_SHARD;
+
     /**
      * The table <code>zenodo</code>.
      */
@@ -19,7 +19,7 @@ import org.jooq.Identity;
 import org.jooq.Index;
 import org.jooq.Name;
 import org.jooq.Record;
-import org.jooq.Row10;
+import org.jooq.Row11;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -100,6 +100,11 @@ public class DB_Dump extends TableImpl<DB_DumpRecord> {
      */
     public final TableField<DB_DumpRecord, String> DESCRIPTION = createField(DSL.name("description"), org.jooq.impl.SQLDataType.CLOB.nullable(false).defaultValue(org.jooq.impl.DSL.field("''", org.jooq.impl.SQLDataType.CLOB)), this, "");
 
+    /**
+     * The column <code>dump.compression_millis</code>.
+     */
+    public final TableField<DB_DumpRecord, Long> COMPRESSION_MILLIS = createField(DSL.name("compression_millis"), org.jooq.impl.SQLDataType.BIGINT.nullable(false).defaultValue(org.jooq.impl.DSL.field("0", org.jooq.impl.SQLDataType.BIGINT)), this, "");
+
     /**
      * Create a <code>dump</code> table reference
      */
@@ -194,11 +199,11 @@ public class DB_Dump extends TableImpl<DB_DumpRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row10 type methods
+    // Row11 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row10<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String> fieldsRow() {
-        return (Row10) super.fieldsRow();
+    public Row11<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String, Long> fieldsRow() {
+        return (Row11) super.fieldsRow();
     }
 }
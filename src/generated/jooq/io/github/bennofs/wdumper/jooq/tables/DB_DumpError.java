@@ -18,7 +18,7 @@ import org.jooq.ForeignKey;
 import org.jooq.Identity;
 import org.jooq.Name;
 import org.jooq.Record;
-import org.jooq.Row7;
+import org.jooq.Row8;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -84,6 +84,11 @@ public class DB_DumpError extends TableImpl<DB_DumpErrorRecord> {
      */
     public final TableField<DB_DumpErrorRecord, Integer> ZENODO_ID = createField(DSL.name("zenodo_id"), org.jooq.impl.SQLDataType.INTEGER.defaultValue(org.jooq.impl.DSL.field("NULL", org.jooq.impl.SQLDataType.INTEGER)), this, "");
 
+    /**
+     * The column <code>dump_error.count</code>.
+     */
+    public final TableField<DB_DumpErrorRecord, Integer> COUNT = createField(DSL.name("count"), org.jooq.impl.SQLDataType.INTEGER.nullable(false).defaultValue(org.jooq.impl.DSL.field("1", org.jooq.impl.SQLDataType.INTEGER)), this, "");
+
     /**
      * Create a <code>dump_error</code> table reference
      */
@@ -181,11 +186,11 @@ public class DB_DumpError extends TableImpl<DB_DumpErrorRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row7 type methods
+    // Row8 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row7<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer> fieldsRow() {
-        return (Row7) super.fieldsRow();
+    public Row8<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer, Integer> fieldsRow() {
+        return (Row8) super.fieldsRow();
     }
 }
@@ -17,7 +17,7 @@ import org.jooq.ForeignKey;
 import org.jooq.Identity;
 import org.jooq.Name;
 import org.jooq.Record;
-import org.jooq.Row7;
+import org.jooq.Row11;
 import org.jooq.Schema;
 import org.jooq.Table;
 import org.jooq.TableField;
@@ -83,6 +83,26 @@ public class DB_Run extends TableImpl<DB_RunRecord> {
      */
     public final TableField<DB_RunRecord, String> DUMP_DATE = createField(DSL.name("dump_date"), org.jooq.impl.SQLDataType.CLOB.defaultValue(org.jooq.impl.DSL.field("NULL", org.jooq.impl.SQLDataType.CLOB)), this, "");
 
+    /**
+     * The column <code>run.input_position</code>.
+     */
+    public final TableField<DB_RunRecord, Long> INPUT_POSITION = createField(DSL.name("input_position"), org.jooq.impl.SQLDataType.BIGINT.nullable(false).defaultValue(org.jooq.impl.DSL.field("0", org.jooq.impl.SQLDataType.BIGINT)), this, "");
+
+    /**
+     * The column <code>run.input_size</code>.
+     */
+    public final TableField<DB_RunRecord, Long> INPUT_SIZE = createField(DSL.name("input_size"), org.jooq.impl.SQLDataType.BIGINT.nullable(false).defaultValue(org.jooq.impl.DSL.field("0", org.jooq.impl.SQLDataType.BIGINT)), this, "");
+
+    /**
+     * The column <code>run.failed_at</code>.
+     */
+    public final TableField<DB_RunRecord, LocalDateTime> FAILED_AT = createField(DSL.name("failed_at"), org.jooq.impl.SQLDataType.LOCALDATETIME.defaultValue(org.jooq.impl.DSL.field("NULL", org.jooq.impl.SQLDataType.LOCALDATETIME)), this, "");
+
+    /**
+     * The column <code>run.progress_updated_at</code>.
+     */
+    public final TableField<DB_RunRecord, LocalDateTime> PROGRESS_UPDATED_AT = createField(DSL.name("progress_updated_at"), org.jooq.impl.SQLDataType.LOCALDATETIME.defaultValue(org.jooq.impl.DSL.field("NULL", org.jooq.impl.SQLDataType.LOCALDATETIME)), this, "");
+
     /**
      * Create a <code>run</code> table reference
      */
@@ -163,11 +183,11 @@ public class DB_Run extends TableImpl<DB_RunRecord> {
     }
 
     // -------------------------------------------------------------------------
-    // Row7 type methods
+    // Row11 type methods
     // -------------------------------------------------------------------------
 
     @Override
-    public Row7<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String> fieldsRow() {
-        return (Row7) super.fieldsRow();
+    public Row11<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String, Long, Long, LocalDateTime, LocalDateTime> fieldsRow() {
+        return (Row11) super.fieldsRow();
     }
 }
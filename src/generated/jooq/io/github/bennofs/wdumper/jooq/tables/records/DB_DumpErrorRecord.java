@@ -11,8 +11,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record7;
-import org.jooq.Row7;
+import org.jooq.Record8;
+import org.jooq.Row8;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -20,9 +20,9 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord> implements Record7<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer> {
+public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord> implements Record8<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer, Integer> {
 
-    private static final long serialVersionUID = 1613108553;
+    private static final long serialVersionUID = 440435529;
 
     /**
      * Setter for <code>dump_error.id</code>.
@@ -122,6 +122,20 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         return (Integer) get(6);
     }
 
+    /**
+     * Setter for <code>dump_error.count</code>.
+     */
+    public void setCount(Integer value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>dump_error.count</code>.
+     */
+    public Integer getCount() {
+        return (Integer) get(7);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -132,17 +146,17 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
     }
 
     // -------------------------------------------------------------------------
-    // Record7 type implementation
+    // Record8 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row7<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer> fieldsRow() {
-        return (Row7) super.fieldsRow();
+    public Row8<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer, Integer> fieldsRow() {
+        return (Row8) super.fieldsRow();
     }
 
     @Override
-    public Row7<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer> valuesRow() {
-        return (Row7) super.valuesRow();
+    public Row8<Integer, LocalDateTime, Integer, Integer, DB_DumpErrorLevel, String, Integer, Integer> valuesRow() {
+        return (Row8) super.valuesRow();
     }
 
     @Override
@@ -180,6 +194,11 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         return DB_DumpError.DUMP_ERROR.ZENODO_ID;
     }
 
+    @Override
+    public Field<Integer> field8() {
+        return DB_DumpError.DUMP_ERROR.COUNT;
+    }
+
     @Override
     public Integer component1() {
         return getId();
@@ -215,6 +234,11 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         return getZenodoId();
     }
 
+    @Override
+    public Integer component8() {
+        return getCount();
+    }
+
     @Override
     public Integer value1() {
         return getId();
@@ -250,6 +274,11 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         return getZenodoId();
     }
 
+    @Override
+    public Integer value8() {
+        return getCount();
+    }
+
     @Override
     public DB_DumpErrorRecord value1(Integer value) {
         setId(value);
@@ -293,7 +322,13 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
     }
 
     @Override
-    public DB_DumpErrorRecord values(Integer value1, LocalDateTime value2, Integer value3, Integer value4, DB_DumpErrorLevel value5, String value6, Integer value7) {
+    public DB_DumpErrorRecord value8(Integer value) {
+        setCount(value);
+        return this;
+    }
+
+    @Override
+    public DB_DumpErrorRecord values(Integer value1, LocalDateTime value2, Integer value3, Integer value4, DB_DumpErrorLevel value5, String value6, Integer value7, Integer value8) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -301,6 +336,7 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         value5(value5);
         value6(value6);
         value7(value7);
+        value8(value8);
         return this;
     }
 
@@ -318,7 +354,7 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
     /**
      * Create a detached, initialised DB_DumpErrorRecord
      */
-    public DB_DumpErrorRecord(Integer id, LocalDateTime loggedAt, Integer dumpId, Integer runId, DB_DumpErrorLevel level, String message, Integer zenodoId) {
+    public DB_DumpErrorRecord(Integer id, LocalDateTime loggedAt, Integer dumpId, Integer runId, DB_DumpErrorLevel level, String message, Integer zenodoId, Integer count) {
         super(DB_DumpError.DUMP_ERROR);
 
         set(0, id);
@@ -328,5 +364,6 @@ public class DB_DumpErrorRecord extends UpdatableRecordImpl<DB_DumpErrorRecord>
         set(4, level);
         set(5, message);
         set(6, zenodoId);
+        set(7, count);
     }
 }
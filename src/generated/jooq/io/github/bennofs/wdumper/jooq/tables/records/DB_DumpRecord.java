@@ -10,8 +10,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record10;
-import org.jooq.Row10;
+import org.jooq.Record11;
+import org.jooq.Row11;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -19,7 +19,7 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements Record10<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String> {
+public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements Record11<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String, Long> {
 
     private static final long serialVersionUID = -1466491676;
 
@@ -163,6 +163,20 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         return (String) get(9);
     }
 
+    /**
+     * Setter for <code>dump.compression_millis</code>.
+     */
+    public void setCompressionMillis(Long value) {
+        set(10, value);
+    }
+
+    /**
+     * Getter for <code>dump.compression_millis</code>.
+     */
+    public Long getCompressionMillis() {
+        return (Long) get(10);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -173,17 +187,17 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
     }
 
     // -------------------------------------------------------------------------
-    // Record10 type implementation
+    // Record11 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row10<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String> fieldsRow() {
-        return (Row10) super.fieldsRow();
+    public Row11<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String, Long> fieldsRow() {
+        return (Row11) super.fieldsRow();
     }
 
     @Override
-    public Row10<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String> valuesRow() {
-        return (Row10) super.valuesRow();
+    public Row11<Integer, String, String, LocalDateTime, Integer, Long, Long, Long, Long, String, Long> valuesRow() {
+        return (Row11) super.valuesRow();
     }
 
     @Override
@@ -236,6 +250,11 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         return DB_Dump.DUMP.DESCRIPTION;
     }
 
+    @Override
+    public Field<Long> field11() {
+        return DB_Dump.DUMP.COMPRESSION_MILLIS;
+    }
+
     @Override
     public Integer component1() {
         return getId();
@@ -286,6 +305,11 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         return getDescription();
     }
 
+    @Override
+    public Long component11() {
+        return getCompressionMillis();
+    }
+
     @Override
     public Integer value1() {
         return getId();
@@ -336,6 +360,11 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         return getDescription();
     }
 
+    @Override
+    public Long value11() {
+        return getCompressionMillis();
+    }
+
     @Override
     public DB_DumpRecord value1(Integer value) {
         setId(value);
@@ -397,7 +426,13 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
     }
 
     @Override
-    public DB_DumpRecord values(Integer value1, String value2, String value3, LocalDateTime value4, Integer value5, Long value6, Long value7, Long value8, Long value9, String value10) {
+    public DB_DumpRecord value11(Long value) {
+        setCompressionMillis(value);
+        return this;
+    }
+
+    @Override
+    public DB_DumpRecord values(Integer value1, String value2, String value3, LocalDateTime value4, Integer value5, Long value6, Long value7, Long value8, Long value9, String value10, Long value11) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -408,6 +443,7 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         value8(value8);
         value9(value9);
         value10(value10);
+        value11(value11);
         return this;
     }
 
@@ -425,7 +461,7 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
     /**
      * Create a detached, initialised DB_DumpRecord
      */
-    public DB_DumpRecord(Integer id, String title, String spec, LocalDateTime createdAt, Integer runId, Long compressedSize, Long entityCount, Long statementCount, Long tripleCount, String description) {
+    public DB_DumpRecord(Integer id, String title, String spec, LocalDateTime createdAt, Integer runId, Long compressedSize, Long entityCount, Long statementCount, Long tripleCount, String description, Long compressionMillis) {
         super(DB_Dump.DUMP);
 
         set(0, id);
@@ -438,5 +474,6 @@ public class DB_DumpRecord extends UpdatableRecordImpl<DB_DumpRecord> implements
         set(7, statementCount);
         set(8, tripleCount);
         set(9, description);
+        set(10, compressionMillis);
     }
 }
@@ -10,8 +10,8 @@ import java.time.LocalDateTime;
 
 import org.jooq.Field;
 import org.jooq.Record1;
-import org.jooq.Record7;
-import org.jooq.Row7;
+import org.jooq.Record11;
+import org.jooq.Row11;
 import org.jooq.impl.UpdatableRecordImpl;
 
 
@@ -19,9 +19,9 @@ import org.jooq.impl.UpdatableRecordImpl;
  * This class is generated by jOOQ.
  */
 @SuppressWarnings({ "all", "unchecked", "rawtypes" })
-public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements Record7<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String> {
+public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements Record11<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String, Long, Long, LocalDateTime, LocalDateTime> {
 
-    private static final long serialVersionUID = 1501602552;
+    private static final long serialVersionUID = 1244985845;
 
     /**
      * Setter for <code>run.id</code>.
@@ -121,6 +121,62 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         return (String) get(6);
     }
 
+    /**
+     * Setter for <code>run.input_position</code>.
+     */
+    public void setInputPosition(Long value) {
+        set(7, value);
+    }
+
+    /**
+     * Getter for <code>run.input_position</code>.
+     */
+    public Long getInputPosition() {
+        return (Long) get(7);
+    }
+
+    /**
+     * Setter for <code>run.input_size</code>.
+     */
+    public void setInputSize(Long value) {
+        set(8, value);
+    }
+
+    /**
+     * Getter for <code>run.input_size</code>.
+     */
+    public Long getInputSize() {
+        return (Long) get(8);
+    }
+
+    /**
+     * Setter for <code>run.failed_at</code>.
+     */
+    public void setFailedAt(LocalDateTime value) {
+        set(9, value);
+    }
+
+    /**
+     * Getter for <code>run.failed_at</code>.
+     */
+    public LocalDateTime getFailedAt() {
+        return (LocalDateTime) get(9);
+    }
+
+    /**
+     * Setter for <code>run.progress_updated_at</code>.
+     */
+    public void setProgressUpdatedAt(LocalDateTime value) {
+        set(10, value);
+    }
+
+    /**
+     * Getter for <code>run.progress_updated_at</code>.
+     */
+    public LocalDateTime getProgressUpdatedAt() {
+        return (LocalDateTime) get(10);
+    }
+
     // -------------------------------------------------------------------------
     // Primary key information
     // -------------------------------------------------------------------------
@@ -131,17 +187,17 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
     }
 
     // -------------------------------------------------------------------------
-    // Record7 type implementation
+    // Record11 type implementation
     // -------------------------------------------------------------------------
 
     @Override
-    public Row7<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String> fieldsRow() {
-        return (Row7) super.fieldsRow();
+    public Row11<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String, Long, Long, LocalDateTime, LocalDateTime> fieldsRow() {
+        return (Row11) super.fieldsRow();
     }
 
     @Override
-    public Row7<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String> valuesRow() {
-        return (Row7) super.valuesRow();
+    public Row11<Integer, LocalDateTime, LocalDateTime, Integer, String, String, String, Long, Long, LocalDateTime, LocalDateTime> valuesRow() {
+        return (Row11) super.valuesRow();
     }
 
     @Override
@@ -179,6 +235,26 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         return DB_Run.RUN.DUMP_DATE;
     }
 
+    @Override
+    public Field<Long> field8() {
+        return DB_Run.RUN.INPUT_POSITION;
+    }
+
+    @Override
+    public Field<Long> field9() {
+        return DB_Run.RUN.INPUT_SIZE;
+    }
+
+    @Override
+    public Field<LocalDateTime> field10() {
+        return DB_Run.RUN.FAILED_AT;
+    }
+
+    @Override
+    public Field<LocalDateTime> field11() {
+        return DB_Run.RUN.PROGRESS_UPDATED_AT;
+    }
+
     @Override
     public Integer component1() {
         return getId();
@@ -214,6 +290,26 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         return getDumpDate();
     }
 
+    @Override
+    public Long component8() {
+        return getInputPosition();
+    }
+
+    @Override
+    public Long component9() {
+        return getInputSize();
+    }
+
+    @Override
+    public LocalDateTime component10() {
+        return getFailedAt();
+    }
+
+    @Override
+    public LocalDateTime component11() {
+        return getProgressUpdatedAt();
+    }
+
     @Override
     public Integer value1() {
         return getId();
@@ -249,6 +345,26 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         return getDumpDate();
     }
 
+    @Override
+    public Long value8() {
+        return getInputPosition();
+    }
+
+    @Override
+    public Long value9() {
+        return getInputSize();
+    }
+
+    @Override
+    public LocalDateTime value10() {
+        return getFailedAt();
+    }
+
+    @Override
+    public LocalDateTime value11() {
+        return getProgressUpdatedAt();
+    }
+
     @Override
     public DB_RunRecord value1(Integer value) {
         setId(value);
@@ -292,7 +408,31 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
     }
 
     @Override
-    public DB_RunRecord values(Integer value1, LocalDateTime value2, LocalDateTime value3, Integer value4, String value5, String value6, String value7) {
+    public DB_RunRecord value8(Long value) {
+        setInputPosition(value);
+        return this;
+    }
+
+    @Override
+    public DB_RunRecord value9(Long value) {
+        setInputSize(value);
+        return this;
+    }
+
+    @Override
+    public DB_RunRecord value10(LocalDateTime value) {
+        setFailedAt(value);
+        return this;
+    }
+
+    @Override
+    public DB_RunRecord value11(LocalDateTime value) {
+        setProgressUpdatedAt(value);
+        return this;
+    }
+
+    @Override
+    public DB_RunRecord values(Integer value1, LocalDateTime value2, LocalDateTime value3, Integer value4, String value5, String value6, String value7, Long value8, Long value9, LocalDateTime value10, LocalDateTime value11) {
         value1(value1);
         value2(value2);
         value3(value3);
@@ -300,6 +440,10 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         value5(value5);
         value6(value6);
         value7(value7);
+        value8(value8);
+        value9(value9);
+        value10(value10);
+        value11(value11);
         return this;
     }
 
@@ -317,7 +461,7 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
     /**
      * Create a detached, initialised DB_RunRecord
      */
-    public DB_RunRecord(Integer id, LocalDateTime startedAt, LocalDateTime finishedAt, Integer count, String toolVersion, String wdtkVersion, String dumpDate) {
+    public DB_RunRecord(Integer id, LocalDateTime startedAt, LocalDateTime finishedAt, Integer count, String toolVersion, String wdtkVersion, String dumpDate, Long inputPosition, Long inputSize, LocalDateTime failedAt, LocalDateTime progressUpdatedAt) {
         super(DB_Run.RUN);
 
         set(0, id);
@@ -327,5 +471,9 @@ public class DB_RunRecord extends UpdatableRecordImpl<DB_RunRecord> implements R
         set(4, toolVersion);
         set(5, wdtkVersion);
         set(6, dumpDate);
+        set(7, inputPosition);
+        set(8, inputSize);
+        set(9, failedAt);
+        set(10, progressUpdatedAt);
     }
 }
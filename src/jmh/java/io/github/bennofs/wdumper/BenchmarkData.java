@@ -0,0 +1,117 @@
+package io.github.bennofs.wdumper;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.luben.zstd.ZstdInputStream;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.DumpSpecJson;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input data shared by the benchmarks: the entities of the slice of the wikidata dump in {@code data/} and the specs
+ * in {@code examples/}. Like the full runner tests, this needs the slice from git-lfs.
+ */
+public final class BenchmarkData {
+    public static final Path SLICE = Path.of("data/slice.json.zst");
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Reads the first items of the slice. If the slice has fewer items, they are repeated.
+     *
+     * @param count number of items to return
+     * @return the items, in the order of the slice
+     */
+    public static List<ItemDocument> loadItems(int count) {
+        final List<ItemDocument> items = new ArrayList<>();
+        for (EntityDocument document : loadDocuments()) {
+            if (document instanceof ItemDocument) items.add((ItemDocument) document);
+        }
+        if (items.isEmpty()) {
+            throw new IllegalStateException("slice " + SLICE + " does not contain any items");
+        }
+
+        final List<ItemDocument> result = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i) {
+            result.add(items.get(i % items.size()));
+        }
+        return result;
+    }
+
+    /**
+     * Reads all documents of the slice.
+     */
+    public static List<EntityDocument> loadDocuments() {
+        final ObjectReader reader = new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+        final List<EntityDocument> documents = new ArrayList<>();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(new ZstdInputStream(Files.newInputStream(SLICE)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                line = line.strip();
+                if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+                if (line.length() <= 1) continue;
+
+                documents.add(reader.readValue(line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to read " + SLICE, e);
+        }
+        return documents;
+    }
+
+    /**
+     * Reads a spec from {@code examples/}, applying the migrations of the JSON representation.
+     *
+     * @param name file name of the spec without the extension, for example {@code humans}
+     */
+    public static DumpSpec loadSpec(String name) {
+        final ObjectMapper mapper = new ObjectMapper();
+        try {
+            final DumpSpecJson specJson = mapper.readValue(Path.of("examples", name + ".json").toFile(), DumpSpecJson.class);
+            return mapper.convertValue(specJson, DumpSpec.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("failed to read spec " + name, e);
+        }
+    }
+
+    /**
+     * Registers the types of all properties, so that the register does not fetch them while a benchmark is measured.
+     *
+     * The types of the properties in the slice are known from their documents, the others are fetched from the
+     * wikidata query service once.
+     */
+    public static void registerPropertyTypes(PropertyRegister propertyRegister) {
+        try {
+            propertyRegister.fetchUsingSPARQL(new URI("https://query.wikidata.org/sparql"));
+        } catch (Exception e) {
+            System.err.println("failed to fetch property types: " + e.toString());
+        }
+        for (EntityDocument document : loadDocuments()) {
+            if (document instanceof PropertyDocument) {
+                final PropertyDocument property = (PropertyDocument) document;
+                propertyRegister.setPropertyType(property.getEntityId(), property.getDatatype().getIri());
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.bennofs.wdumper;
+
+import io.github.bennofs.wdumper.ext.ZstdDumpFile;
+import io.github.bennofs.wdumper.spec.OutputCompression;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of the output stack that {@link DumpRunner} opens for a dump: asynchronous writing,
+ * compression with the level of a run and buffered writing to the dump file.
+ *
+ * The data are N-Triples that resemble the output for items. The score is the number of uncompressed megabytes
+ * written per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DumpOutputBenchmark {
+    static final int MEGABYTES = 64;
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    @Param({"GZIP", "ZSTD"})
+    public OutputCompression compression;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path directory;
+    private DumpRunner runner;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("wdumper-benchmark");
+        final int threadCount = threads;
+        this.runner = DumpRunner.create(0, new DumpRunner.Config() {
+            @Override
+            public Path dumpStorageDirectory() {
+                return directory;
+            }
+
+            @Override
+            public Duration runProgressInterval() {
+                return Duration.ofSeconds(10);
+            }
+
+            @Override
+            public int runThreads() {
+                return threadCount;
+            }
+
+            @Override
+            public int compressionThreads() {
+                return threadCount;
+            }
+        }, new ZstdDumpFile(BenchmarkData.SLICE.toString()));
+
+        // triples are written in chunks, like the output of a batch of documents
+        final ByteArrayOutputStream chunk = new ByteArrayOutputStream(CHUNK_SIZE);
+        for (int i = 0; chunk.size() < CHUNK_SIZE; ++i) {
+            final String item = "<http://www.wikidata.org/entity/Q" + (42 + i * 7919) + ">";
+            final String triples = item + " <http://www.w3.org/2000/01/rdf-schema#label> \"Douglas Adams " + i + "\"@en .\n"
+                    + item + " <http://www.wikidata.org/prop/direct/P31> <http://www.wikidata.org/entity/Q5> .\n"
+                    + item + " <http://www.wikidata.org/prop/direct/P569> \"1952-03-11T00:00:00Z\"^^<http://www.w3.org/2001/XMLSchema#dateTime> .\n";
+            chunk.writeBytes(triples.getBytes(StandardCharsets.UTF_8));
+        }
+        this.data = chunk.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MEGABYTES)
+    public long writeOutput() throws IOException {
+        final DumpRunner.DumpOutput output = runner.openOutput(0, directory.resolve("output" + compression.getExtension()), compression);
+        final OutputStream stream = output.getStream();
+        for (long written = 0; written < MEGABYTES * 1024L * 1024L; written += data.length) {
+            stream.write(data);
+        }
+        stream.close();
+        return output.getCompressedSize();
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.bennofs.wdumper;
+
+import io.github.bennofs.wdumper.ext.ZstdDumpFile;
+import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.processors.ProgressSnapshot;
+import org.openjdk.jmh.annotations.*;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures complete runs over the slice of the wikidata dump in {@code data/}, from reading the compressed dump
+ * to writing the compressed output.
+ *
+ * The score is the number of entities of the input processed per second, reported by the {@link Entities} counter.
+ * The setup needs network access to fetch the sites and property types from wikidata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RunnerBenchmark {
+    @Param({"humans", "english-labels"})
+    public String specName;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path directory;
+    private DumpRunner runner;
+
+    /**
+     * Counts the entities read from the input, which JMH reports as a rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Entities {
+        public long entities;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            entities = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws IOException {
+        this.directory = Files.createTempDirectory("wdumper-benchmark");
+        BenchmarkData.registerPropertyTypes(PropertyRegister.getWikidataPropertyRegister());
+    }
+
+    @Setup(Level.Invocation)
+    public void setupRunner() throws IOException {
+        final int threadCount = threads;
+        this.runner = DumpRunner.create(1, new DumpRunner.Config() {
+            @Override
+            public Path dumpStorageDirectory() {
+                return directory;
+            }
+
+            @Override
+            public Duration runProgressInterval() {
+                return Duration.ofSeconds(10);
+            }
+
+            @Override
+            public int runThreads() {
+                return threadCount;
+            }
+
+            @Override
+            public int compressionThreads() {
+                return threadCount;
+            }
+        }, new ZstdDumpFile(BenchmarkData.SLICE.toString()));
+        runner.addDumpTask(1, BenchmarkData.loadSpec(specName), (level, message) -> {});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void run(Entities counter) {
+        final long[] processed = new long[1];
+        runner.run(new RunnerStatusHandler() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void reportProgress(ProgressSnapshot progress) {
+                processed[0] = progress.getEntities();
+            }
+
+            @Override
+            public void done() {
+            }
+        });
+        counter.entities += processed[0];
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of the N-Triples writer of rdf4j with {@link NTriplesByteWriter}.
+ *
+ * The statements resemble the output for a single item: labels in several languages, direct claims,
+ * full statements with qualifiers and sitelinks. The score is the number of triples written per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NTriplesWriterBenchmark {
+    static final int STATEMENTS = 1000;
+
+    private List<Statement> statements;
+    private OutputStream output;
+
+    @Setup
+    public void setup() {
+        final ValueFactory factory = SimpleValueFactory.getInstance();
+        final IRI label = factory.createIRI("http://www.w3.org/2000/01/rdf-schema#label");
+        final IRI article = factory.createIRI("http://schema.org/about");
+        final String[] languages = {"en", "de", "fr", "ja", "ru"};
+        final String[] texts = {"Douglas Adams", "Douglas Adams", "Douglas Adams", "\u30C0\u30B0\u30E9\u30B9\u30FB\u30A2\u30C0\u30E0\u30BA", "\u0414\u0443\u0433\u043B\u0430\u0441 \u0410\u0434\u0430\u043C\u0441"};
+
+        this.statements = new ArrayList<>();
+        for (int i = 0; statements.size() < STATEMENTS; ++i) {
+            final IRI item = factory.createIRI("http://www.wikidata.org/entity/Q" + (42 + i));
+            final IRI statement = factory.createIRI("http://www.wikidata.org/entity/statement/Q" + (42 + i)
+                    + "-F078E5B3-F9A8-480E-B7AC-D97778CBBEF9");
+
+            statements.add(factory.createStatement(item, label, factory.createLiteral(texts[i % texts.length], languages[i % languages.length])));
+            statements.add(factory.createStatement(item, factory.createIRI("http://www.wikidata.org/prop/direct/P31"),
+                    factory.createIRI("http://www.wikidata.org/entity/Q5")));
+            statements.add(factory.createStatement(item, factory.createIRI("http://www.wikidata.org/prop/P569"), statement));
+            statements.add(factory.createStatement(statement, factory.createIRI("http://www.wikidata.org/prop/statement/P569"),
+                    factory.createLiteral("1952-03-11T00:00:00Z", XMLSchema.DATETIME)));
+            statements.add(factory.createStatement(statement, factory.createIRI("http://www.wikidata.org/prop/qualifier/P1480"),
+                    factory.createLiteral("+" + i, XMLSchema.DECIMAL)));
+            statements.add(factory.createStatement(factory.createIRI("https://en.wikipedia.org/wiki/Douglas_Adams_" + i),
+                    article, item));
+        }
+
+        this.statements = statements.subList(0, STATEMENTS);
+        this.output = OutputStream.nullOutputStream();
+    }
+
+    private void writeAll(RDFWriter writer) {
+        writer.startRDF();
+        for (Statement statement : statements) {
+            writer.handleStatement(statement);
+        }
+        writer.endRDF();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public void rdf4jWriter() {
+        writeAll(Rio.createWriter(RDFFormat.NTRIPLES, output));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATEMENTS)
+    public void byteWriter() {
+        writeAll(new NTriplesByteWriter(output));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.bennofs.wdumper.processors;
+
+import io.github.bennofs.wdumper.BenchmarkData;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import org.openjdk.jmh.annotations.*;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link FilteredRdfSerializer#writeItemDocument(ItemDocument)} for the example specs.
+ *
+ * The items are written without applying the entity filters of the spec, so only the options that control the
+ * output matter. Each invocation writes all items into a new serializer, so references and property declarations
+ * are written as often as in a real dump of the same size. The score is the number of items written per second.
+ *
+ * The setup needs network access to fetch the sites and property types from wikidata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    static final int ITEMS = 1000;
+
+    @Param({"humans", "politicians", "scholarly-articles", "english-labels"})
+    public String specName;
+
+    private DumpSpec spec;
+    private List<ItemDocument> items;
+    private Sites sites;
+    private PropertyRegister propertyRegister;
+    private final PropertyIriCache propertyIris = new PropertyIriCache();
+
+    @Setup
+    public void setup() {
+        this.spec = BenchmarkData.loadSpec(specName);
+        this.items = BenchmarkData.loadItems(ITEMS);
+        this.sites = new DumpProcessingController("wikidatawiki").getSitesInformation();
+        this.propertyRegister = PropertyRegister.getWikidataPropertyRegister();
+        BenchmarkData.registerPropertyTypes(propertyRegister);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long writeItemDocument() {
+        final FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, 0, OutputStream.nullOutputStream(), sites,
+                propertyRegister, propertyIris, (level, message) -> {});
+        serializer.open();
+        for (ItemDocument item : items) {
+            serializer.writeItemDocument(item);
+        }
+        serializer.close();
+        return serializer.getTripleCount();
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.bennofs.wdumper.spec;
+
+import io.github.bennofs.wdumper.BenchmarkData;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast the entity filters and the sample of a spec are evaluated for realistic items.
+ *
+ * The items are the first items of the slice in {@code data/}, the specs are the examples. The score is the number
+ * of items checked per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncludeDocumentBenchmark {
+    static final int ITEMS = 1000;
+
+    @Param({"humans", "politicians", "family-filter", "scholarly-articles", "english-labels"})
+    public String specName;
+
+    private DumpSpec spec;
+    private List<ItemDocument> items;
+
+    @Setup
+    public void setup() {
+        this.spec = BenchmarkData.loadSpec(specName);
+        this.items = BenchmarkData.loadItems(ITEMS);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public void includeDocument(Blackhole blackhole) {
+        for (ItemDocument item : items) {
+            blackhole.consume(spec.includeDocument(item));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.bennofs.wdumper.spec;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookup of statement options by property id with the previous lookup through a string-keyed hash map.
+ *
+ * The property ids are those of the statement groups of a large, realistic item (Q42), in the order in which they
+ * appear in the dump, so each benchmark invocation corresponds to the lookups needed to serialize that item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementOptionsBenchmark {
+    static final String[] Q42_PROPERTIES = {
+            "P31", "P21", "P106", "P27", "P735", "P734", "P569", "P570", "P19", "P20", "P1196", "P509", "P119",
+            "P22", "P25", "P26", "P40", "P3373", "P69", "P512", "P800", "P166", "P463", "P1412", "P103", "P1559",
+            "P18", "P109", "P996", "P373", "P856", "P910", "P935", "P1442", "P1417", "P1343", "P1477", "P2048",
+            "P214", "P213", "P227", "P244", "P268", "P269", "P349", "P396", "P409", "P650", "P651", "P691", "P906",
+            "P949", "P950", "P1006", "P1015", "P1207", "P1273", "P1375", "P345", "P434", "P646", "P1263", "P1284",
+            "P1233", "P1266", "P1441", "P1938", "P2002", "P2019", "P2163", "P2191", "P2387", "P2435", "P2469", "P2605", "P2611", "P2626", "P2734", "P2750", "P2850",
+            "P2963", "P3106", "P3142", "P3222", "P3265", "P3417", "P3430", "P3544", "P3630", "P3762", "P4193",
+            "P4342", "P4823", "P5019", "P5297", "P5361", "P5587", "P6058", "P6886", "P7859", "P8189", "P9984",
+    };
+
+    private DumpSpec spec;
+    private HashMap<String, StatementOptions> hashMapOptions;
+    private StatementOptions hashMapDefault;
+
+    @Setup
+    public void setup() {
+        final StatementFilter defaultFilter = new StatementFilter(null, RankFilter.BEST_RANK, true, false, false, false);
+        final StatementFilter fullFilter = new StatementFilter(Set.of("P569", "P570", "P19", "P20", "P106", "P27", "P735", "P734"),
+                RankFilter.NON_DEPRECATED, false, true, false, false);
+        final StatementFilter referencesFilter = new StatementFilter(Set.of("P31", "P21", "P166", "P69", "P800", "P2048"),
+                RankFilter.ALL, false, true, true, true);
+        this.spec = new DumpSpec("1", new EntityFilter[0], Set.of(defaultFilter, fullFilter, referencesFilter),
+                null, 42L, null, true, true, true, true, true);
+
+        // the string-keyed map as it was used before the array lookup
+        this.hashMapDefault = defaultFilter.getOptions();
+        this.hashMapOptions = new HashMap<>();
+        for (StatementFilter filter : Set.of(fullFilter, referencesFilter)) {
+            for (String property : filter.getProperties()) {
+                hashMapOptions.put(property, filter.getOptions().union(hashMapOptions.get(property)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void hashMapLookup(Blackhole blackhole) {
+        for (String property : Q42_PROPERTIES) {
+            blackhole.consume(hashMapOptions.getOrDefault(property, hashMapDefault));
+        }
+    }
+
+    @Benchmark
+    public void arrayLookup(Blackhole blackhole) {
+        for (String property : Q42_PROPERTIES) {
+            blackhole.consume(spec.findStatementOptions(property));
+        }
+    }
+
+    @Benchmark
+    public void entityIdEquals(Blackhole blackhole) {
+        for (String property : Q42_PROPERTIES) {
+            blackhole.consume(property.equals("P5297"));
+        }
+    }
+
+    @Benchmark
+    public void entityIdNumeric(Blackhole blackhole) {
+        for (String property : Q42_PROPERTIES) {
+            blackhole.consume(EntityIds.numericId(property, 'P') == 5297);
+        }
+    }
+}
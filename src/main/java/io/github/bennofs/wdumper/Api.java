@@ -13,10 +13,15 @@ import com.samskivert.mustache.Mustache;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import io.github.bennofs.wdumper.database.Database;
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
+import io.github.bennofs.wdumper.metrics.MetricsRegistry;
 import io.github.bennofs.wdumper.model.DumpRunZenodo;
 import io.github.bennofs.wdumper.model.ModelExtension;
+import io.github.bennofs.wdumper.processors.DumpEstimator;
+import io.github.bennofs.wdumper.processors.DumpSample;
 import io.github.bennofs.wdumper.templating.*;
 import io.github.bennofs.wdumper.web.DumpResource;
+import io.github.bennofs.wdumper.web.MetricsResource;
 import io.github.bennofs.wdumper.web.ProgressEstimator;
 import io.github.bennofs.wdumper.zenodo.ZenodoApiProvider;
 import io.github.bennofs.wdumper.zenodo.ZenodoApiProviderImpl;
@@ -34,6 +39,8 @@ import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.impl.DSL;
 import org.jooq.impl.DefaultConfiguration;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -55,7 +62,9 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -153,6 +162,38 @@ public class Api extends Application {
             });
         }
 
+        @Provides
+        @Singleton
+        Optional<DumpEstimator> dumpEstimator() throws IOException {
+            if (config.estimateSamplePath().isEmpty()) {
+                return Optional.empty();
+            }
+
+            final DumpSample sample = DumpSample.load(config.estimateSamplePath().get());
+            final Sites sites = new DumpProcessingController("wikidatawiki").getSitesInformation();
+            return Optional.of(new DumpEstimator(sample, sites));
+        }
+
+        @Provides
+        @Singleton
+        Optional<PropertyBitmapIndex> estimateIndex() {
+            if (config.estimateSnapshotPath().isEmpty()) {
+                return Optional.empty();
+            }
+
+            return PropertyBitmapIndex.load(config.estimateSnapshotPath().get());
+        }
+
+        @Provides
+        @Singleton
+        MetricsRegistry metricsRegistry(Optional<DumpEstimator> estimator) {
+            final MetricsRegistry metrics = new MetricsRegistry();
+            metrics.registerJvmMetrics();
+            // estimates run the serialization and compression stages of a run on the sample
+            estimator.ifPresent(e -> e.getMetrics().registerWith(metrics, Map.of("dump", "estimate")));
+            return metrics;
+        }
+
         @Provides
         @Singleton
         ObjectMapper objectMapper() {
@@ -173,8 +214,8 @@ public class Api extends Application {
     private final Set<Object> instances;
 
     @Inject
-    public Api(DumpResource dump, ZenodoResource zenodo, ObjectMapper mapper) {
-        instances = Set.of(dump, zenodo, new ContextResolver<ObjectMapper>() {
+    public Api(DumpResource dump, ZenodoResource zenodo, MetricsResource metrics, ObjectMapper mapper) {
+        instances = Set.of(dump, zenodo, metrics, new ContextResolver<ObjectMapper>() {
             @Override
             public ObjectMapper getContext(Class<?> type) {
                 return mapper;
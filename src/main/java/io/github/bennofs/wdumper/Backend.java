@@ -10,12 +10,20 @@ import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.pool.HikariPool;
 import io.github.bennofs.wdumper.database.Database;
 import io.github.bennofs.wdumper.database.DumpTask;
-import io.github.bennofs.wdumper.database.RunTask;
+import io.github.bennofs.wdumper.database.ShardTask;
+import io.github.bennofs.wdumper.database.StatisticsWriter;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
 import io.github.bennofs.wdumper.ext.ZstdDumpFile;
 import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
 import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
-import io.github.bennofs.wdumper.processors.FilteredRdfSerializer;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+import io.github.bennofs.wdumper.metrics.MetricsRegistry;
+import io.github.bennofs.wdumper.metrics.MetricsServer;
+import io.github.bennofs.wdumper.metrics.RunMetrics;
+import io.github.bennofs.wdumper.processors.ProgressSnapshot;
 import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.DumpSpecJson;
+import io.github.bennofs.wdumper.spec.Shard;
 import io.github.bennofs.wdumper.zenodo.ZenodoApi;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -25,9 +33,13 @@ import picocli.CommandLine;
 import javax.sql.DataSource;
 import java.io.Closeable;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -49,18 +61,23 @@ public class Backend implements Runnable, Closeable {
     private final Database db;
     private final ZenodoApi zenodo;
     private final ZenodoApi zenodoSandbox;
+    private final MetricsRegistry metrics;
+    private final Optional<MetricsServer> metricsServer;
     final Object runCompletedEvent;
 
-    private Backend(Config config, Database db, ZenodoApi zenodo, ZenodoApi zenodoSandbox) {
+    private Backend(Config config, Database db, ZenodoApi zenodo, ZenodoApi zenodoSandbox, MetricsRegistry metrics, Optional<MetricsServer> metricsServer) {
         this.config = config;
         this.db = db;
         this.zenodo = zenodo;
         this.zenodoSandbox = zenodoSandbox;
+        this.metrics = metrics;
+        this.metricsServer = metricsServer;
         this.runCompletedEvent = new Object();
     }
 
     @Override
     public void close() {
+        metricsServer.ifPresent(MetricsServer::close);
     }
 
     private MwDumpFile openDumpFile() {
@@ -73,20 +90,82 @@ public class Backend implements Runnable, Closeable {
         } catch (IOException e) {
             e.printStackTrace();
         }
+
+        // prefer the snapshot of the dump if it has already been converted from the current dump
+        final Path snapshotPath = SnapshotDumpFile.getSnapshotPath(resolvedPath);
+        if (SnapshotDumpFile.isSnapshot(resolvedPath)) {
+            return new SnapshotDumpFile(resolvedPath.toString());
+        }
+        if (Files.exists(snapshotPath)) {
+            final SnapshotDumpFile snapshot = new SnapshotDumpFile(snapshotPath.toString());
+            try {
+                if (snapshot.isConvertedFrom(resolvedPath)) {
+                    return snapshot;
+                }
+                System.out.println("snapshot " + snapshotPath + " was not converted from the current dump, using the JSON dump");
+            } catch (IOException e) {
+                System.out.println("cannot use snapshot " + snapshotPath + ", using the JSON dump: " + e.toString());
+            }
+        }
         return new ZstdDumpFile(resolvedPath.toString());
     }
 
-    private DumpRunner createRunner(int runId, List<DumpTask> tasks, MwDumpFile dumpFile) {
-        final DumpRunner runner = DumpRunner.create(runId, config, dumpFile);
+    private DumpRunner createRunner(int runId, Shard shard, List<DumpTask> tasks, MwDumpFile dumpFile, StatisticsWriter statistics) {
+        final DumpRunner runner = DumpRunner.create(runId, shard, config, dumpFile);
 
         final ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.registerModule(new Jdk8Module());
         mapper.registerModule(new ParameterNamesModule());
 
+        // dumps with the same canonical spec produce the same output, so each output is only generated once
+        final Map<String, Integer> finishedSpecs = new HashMap<>();
+        for (DumpTask finished : db.getReusableDumps(runId)) {
+            try {
+                mapper.readValue(finished.spec, DumpSpecJson.class).canonicalHash()
+                        .filter(hash -> DumpRunner.findOutputPath(config.dumpStorageDirectory(), finished.id).isPresent())
+                        .ifPresent(hash -> finishedSpecs.putIfAbsent(hash, finished.id));
+            } catch (IOException e) {
+                // old specs that cannot be parsed anymore are never reused
+                e.printStackTrace();
+            }
+        }
+        final Map<String, Integer> runSpecs = new HashMap<>();
+
         for (DumpTask task : tasks) {
             try {
-                runner.addDumpTask(task.id, mapper.readValue(task.spec, DumpSpec.class), (level, message) -> db.logDumpMessage(runId, task.id, level, message));
+                final DumpSpec spec = mapper.readValue(task.spec, DumpSpec.class);
+                final Optional<String> hash = mapper.readValue(task.spec, DumpSpecJson.class).canonicalHash();
+                final Optional<Integer> finished = hash.map(finishedSpecs::get);
+                final Optional<Integer> duplicate = hash.map(runSpecs::get);
+
+                if (finished.isPresent()) {
+                    final Path existingOutput = DumpRunner.getOutputPath(config.dumpStorageDirectory(), finished.get(), spec.getCompression());
+                    runner.addReusedDumpTask(task.id, existingOutput, spec.getCompression());
+                    db.copyDumpStatistics(finished.get(), task.id);
+                    System.out.println("dump " + task.id + " reuses the output of dump " + finished.get());
+                } else if (duplicate.isPresent()) {
+                    runner.addDuplicateDumpTask(task.id, duplicate.get(), spec.getCompression());
+                    System.out.println("dump " + task.id + " shares the output of dump " + duplicate.get());
+                } else {
+                    runner.addDumpTask(task.id, spec, new DumpStatusHandler() {
+                        @Override
+                        public void reportError(ErrorLevel level, String message) {
+                            statistics.logDumpMessage(runId, task.id, level, message);
+                        }
+
+                        @Override
+                        public void reportError(ErrorLevel level, String message, int count) {
+                            statistics.logDumpMessage(runId, task.id, level, message, count);
+                        }
+
+                        @Override
+                        public void registerMetrics(DumpMetrics dumpMetrics) {
+                            dumpMetrics.registerWith(metrics, Map.of("run", String.valueOf(runId), "shard", String.valueOf(shard.getIndex()), "dump", String.valueOf(task.id)));
+                        }
+                    });
+                    hash.ifPresent(h -> runSpecs.put(h, task.id));
+                }
             } catch(IOException e) {
                 db.logDumpMessage(runId, task.id, DumpStatusHandler.ErrorLevel.CRITICAL, "initialization failed: " + e.toString());
                 e.printStackTrace();
@@ -100,38 +179,125 @@ public class Backend implements Runnable, Closeable {
     private void processDumps() throws InterruptedException {
         System.out.println("checking for new tasks");
         final MwDumpFile dumpFile = openDumpFile();
-        final Optional<RunTask> maybeRunTask = db.createRun(dumpFile.getDateStamp());
+
+        // first help with runs that other processes have already created, then create a new run
+        Optional<ShardTask> maybeShardTask = db.claimShard(dumpFile.getDateStamp());
+        if (maybeShardTask.isEmpty() && db.createRun(dumpFile.getDateStamp(), config.runShards()).isPresent()) {
+            maybeShardTask = db.claimShard(dumpFile.getDateStamp());
+        }
 
         // no new tasks
-        if (maybeRunTask.isEmpty()) {
+        if (maybeShardTask.isEmpty()) {
             TimeUnit.MILLISECONDS.sleep(config.dumpInterval().toMillis());
             return;
         }
-        final RunTask runTask = maybeRunTask.get();
-        final DumpRunner runner = createRunner(runTask.runId, runTask.dumps, dumpFile);
+        final ShardTask shardTask = maybeShardTask.get();
+        final Shard shard = new Shard(shardTask.shard, shardTask.shardCount);
+        // only the metrics of the current run are exposed
+        metrics.removeLabeled("run");
+        // progress, statistics and errors are written in the background, so that processing never waits for the database
+        final StatisticsWriter statistics = new StatisticsWriter(db, config.runProgressInterval());
+        final DumpRunner runner = createRunner(shardTask.runId, shard, shardTask.dumps, dumpFile, statistics);
+        if (shard.isPartial()) {
+            System.out.println("processing " + shard + " of run " + runner.getId());
+        }
 
+        statistics.open();
+        try {
+            runShard(runner, shard, statistics);
+        } finally {
+            statistics.close();
+        }
+    }
+
+    private void runShard(DumpRunner runner, Shard shard, StatisticsWriter statistics) {
+        try {
+            processShard(runner, shard, statistics);
+        } catch (RuntimeException e) {
+            // the shard can never be finished now, so the run would otherwise wait for it forever
+            db.failRun(runner.getId(), "processing " + shard + " failed: " + e.toString());
+            e.printStackTrace();
+        }
+    }
+
+    private void processShard(DumpRunner runner, Shard shard, StatisticsWriter statistics) {
         runner.run(new RunnerStatusHandler() {
+            // statistics are added to the database in increments, since all shards contribute to the same dumps
+            private final Map<Integer, long[]> reportedStatistics = new HashMap<>();
+            private final Map<Integer, long[]> reportedCompressionStatistics = new HashMap<>();
+
+            @Override
+            public void registerMetrics(RunMetrics runMetrics) {
+                runMetrics.registerWith(metrics, Map.of("run", String.valueOf(runner.getId()), "shard", String.valueOf(shard.getIndex())));
+            }
+
             @Override
             public void start() {
                 db.startRun(runner.getId());
             }
 
             @Override
-            public void reportProgress(int count) {
-                db.setProgress(runner.getId(), count);
+            public void reportProgress(ProgressSnapshot progress) {
+                // the progress column of the database is 32 bit, the entity count of wikidata is far below that
+                statistics.setShardProgress(runner.getId(), shard.getIndex(), (int) Math.min(progress.getEntities(), Integer.MAX_VALUE),
+                        progress.getInputPosition(), progress.getInputSize());
                 // update statistics for all dumps
-                for (FilteredRdfSerializer serializer : runner.getSerializers()) {
-                    db.setDumpStatistics(serializer.getDumpId(), serializer.getEntityCount(), serializer.getStatementCount(), serializer.getTripleCount());
+                for (ProgressSnapshot.DumpProgress dump : progress.getDumps()) {
+                    final long[] reported = reportedStatistics.computeIfAbsent(dump.getDumpId(), id -> new long[3]);
+                    final long[] current = {dump.getEntities(), dump.getStatements(), dump.getTriples()};
+                    statistics.addDumpStatistics(dump.getDumpId(), current[0] - reported[0], current[1] - reported[1], current[2] - reported[2]);
+                    for (int duplicate : runner.getDuplicates(dump.getDumpId())) {
+                        statistics.addDumpStatistics(duplicate, current[0] - reported[0], current[1] - reported[1], current[2] - reported[2]);
+                    }
+                    System.arraycopy(current, 0, reported, 0, current.length);
                 }
+                updateCompressionStatistics();
             }
 
             @Override
             public void done() {
+                // the outputs are closed now, so this records the final size of the dump files
+                updateCompressionStatistics();
+                // all statistics of the shard must be written before the run can be finished.
+                // If that fails, close throws and the run fails instead.
+                statistics.close();
+                if (!db.finishShard(runner.getId(), shard.getIndex())) return;
+
+                // this was the last shard of the run. A run with incomplete outputs must not be finished,
+                // since finished runs are uploaded and their outputs reused by later runs.
+                try {
+                    runner.mergeShardOutputs();
+                } catch (IOException e) {
+                    db.failRun(runner.getId(), "merging the output of the shards failed: " + e.toString());
+                    e.printStackTrace();
+                    return;
+                }
+                try {
+                    runner.linkOutputs();
+                } catch (IOException e) {
+                    db.failRun(runner.getId(), "linking shared outputs failed: " + e.toString());
+                    e.printStackTrace();
+                    return;
+                }
                 synchronized (runCompletedEvent) {
                     db.finishRun(runner.getId());
                     runCompletedEvent.notifyAll();
                 }
             }
+
+            private void updateCompressionStatistics() {
+                for (DumpRunner.DumpOutput output : runner.getOutputs()) {
+                    final long[] reported = reportedCompressionStatistics.computeIfAbsent(output.getDumpId(), id -> new long[2]);
+                    final long size = output.getCompressedSize();
+                    final long millis = output.getCompressionTime().toMillis();
+                    statistics.addDumpCompressionStatistics(output.getDumpId(), size - reported[0], Duration.ofMillis(millis - reported[1]));
+                    for (int duplicate : runner.getDuplicates(output.getDumpId())) {
+                        statistics.addDumpCompressionStatistics(duplicate, size - reported[0], Duration.ofMillis(millis - reported[1]));
+                    }
+                    reported[0] = size;
+                    reported[1] = millis;
+                }
+            }
         });
     }
 
@@ -155,7 +321,7 @@ public class Backend implements Runnable, Closeable {
         }
     }
 
-    private static Backend create(Config config) throws SQLException {
+    private static Backend create(Config config) throws SQLException, IOException {
         HikariConfig hikariConfig = new HikariConfig();
         hikariConfig.setMaxLifetime(config.databaseMaxLifetime().toMillis());
         hikariConfig.setJdbcUrl(config.databaseAddress().toString());
@@ -176,7 +342,13 @@ public class Backend implements Runnable, Closeable {
             throw new RuntimeException("backend requires a token for sandbox zenodo instance");
         }
 
-        return new Backend(config, new Database(config, buildConfig, dataSource), zenodo.get(), zenodoSandbox.get());
+        final MetricsRegistry metrics = new MetricsRegistry();
+        metrics.registerJvmMetrics();
+        final Optional<MetricsServer> metricsServer = config.metricsPort().isPresent()
+                ? Optional.of(MetricsServer.start(metrics, config.metricsPort().get()))
+                : Optional.empty();
+
+        return new Backend(config, new Database(config, buildConfig, dataSource), zenodo.get(), zenodoSandbox.get(), metrics, metricsServer);
     }
 
 
@@ -187,7 +359,7 @@ public class Backend implements Runnable, Closeable {
         int exitCode;
         try (Backend app = Backend.create(new ConfigEnv())) {
             exitCode = new CommandLine(app).execute(args);
-        } catch(SQLException e) {
+        } catch(SQLException | IOException e) {
             exitCode = 1;
             System.err.println("initialization failed: " + e.toString());
             e.printStackTrace();
@@ -1,29 +1,51 @@
 package io.github.bennofs.wdumper;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.ext.DumpIndex;
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
+import io.github.bennofs.wdumper.ext.SnapshotWriter;
 import io.github.bennofs.wdumper.ext.ZstdDumpFile;
 import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.processors.DumpSample;
+import io.github.bennofs.wdumper.processors.IncrementalDump;
+import io.github.bennofs.wdumper.processors.ProgressSnapshot;
 import io.github.bennofs.wdumper.spec.DumpSpec;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
+import org.wikidata.wdtk.dumpfiles.MwLocalDumpFile;
+import org.wikidata.wdtk.rdf.PropertyRegister;
 import picocli.CommandLine;
 
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Provides a simple CLI interface to test the dump generation and generate single dumps from a spec.
  */
 public class Cli implements Runnable {
-    @CommandLine.Parameters(paramLabel = "DUMP", arity = "1", index = "0", description = "JSON dump from wikidata to process")
+    @CommandLine.Parameters(paramLabel = "DUMP", arity = "1", index = "0", description = "JSON dump from wikidata or snapshot (.wdsnap) to process")
     private Path dumpFilePath;
 
     @CommandLine.Parameters(paramLabel = "SPEC", arity = "1", index = "1", description = "Path to the JSON spec for the dump")
     private Path specFilePath;
 
+    @CommandLine.Option(names = {"-t", "--threads"}, paramLabel = "N", description = "number of worker threads", defaultValue = "1")
+    private int threads;
+
+    @CommandLine.Option(names = {"--max-id"}, paramLabel = "ID", description = "only read the parts of a zstd dump with entities up to this numeric id, for quick tests. "
+            + "Requires a dump with multiple zstd frames, which is indexed first if needed, and entities with larger ids from the same parts are still included.")
+    private Integer maxId;
+
     @Override
     public void run() {
         final DumpRunner.Config config = new DumpRunner.Config() {
@@ -36,9 +58,35 @@ public class Cli implements Runnable {
             public Duration runProgressInterval() {
                 return Duration.of(10, ChronoUnit.SECONDS);
             }
+
+            @Override
+            public int runThreads() {
+                return threads;
+            }
+
+            @Override
+            public int compressionThreads() {
+                return Runtime.getRuntime().availableProcessors();
+            }
         };
 
-        final DumpRunner runner = DumpRunner.create(1, config, new ZstdDumpFile(dumpFilePath.toString()));
+        final MwLocalDumpFile dumpFile;
+        if (SnapshotDumpFile.isSnapshot(dumpFilePath)) {
+            dumpFile = new SnapshotDumpFile(dumpFilePath.toString());
+        } else {
+            final ZstdDumpFile zstdDumpFile = new ZstdDumpFile(dumpFilePath.toString());
+            if (maxId != null) {
+                try {
+                    DumpIndex.loadOrBuild(dumpFilePath);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    System.exit(1);
+                }
+                zstdDumpFile.restrictSelection(entry -> entry.getMinId() <= maxId);
+            }
+            dumpFile = zstdDumpFile;
+        }
+        final DumpRunner runner = DumpRunner.create(1, config, dumpFile);
 
         try {
             final ObjectMapper mapper = new ObjectMapper();
@@ -58,19 +106,192 @@ public class Cli implements Runnable {
             }
 
             @Override
-            public void reportProgress(int count) {
-                System.err.println("processed " + count + " items");
+            public void reportProgress(ProgressSnapshot progress) {
+                System.err.println("processed " + progress.getEntities() + " items, " + progress.getInputBytes() / (1024 * 1024) + " MiB");
             }
 
             @Override
             public void done() {
                 final long end = System.currentTimeMillis();
                 System.out.println("time: " + (end - start) / 1000);
+                if (dumpFile instanceof ZstdDumpFile) {
+                    ((ZstdDumpFile) dumpFile).getDecompressionStream().ifPresent(stream -> {
+                        System.out.println("decompression: " + stream.getBytesRead() / (1024 * 1024) + " MiB"
+                                + " at " + (long) (stream.getThroughput() / (1024 * 1024)) + " MiB/s,"
+                                + " waiting for input: " + stream.getConsumerWaitNanos() / 1000000000 + "s,"
+                                + " waiting for processing: " + stream.getProducerWaitNanos() / 1000000000 + "s");
+                    });
+                }
+                for (DumpRunner.DumpOutput output : runner.getOutputs()) {
+                    System.out.println("output: " + output.getCompressedSize() / (1024 * 1024) + " MiB compressed"
+                            + " in " + output.getCompressionTime().toSeconds() + "s");
+                }
+                System.out.println("property IRI cache: " + runner.getPropertyIris().getHits() + " hits, "
+                        + runner.getPropertyIris().getMisses() + " misses");
             }
         });
     }
 
+    /**
+     * Converts a JSON dump to a snapshot, which is faster to process if many runs use the same dump,
+     * and builds the {@link PropertyBitmapIndex} of the snapshot.
+     */
+    @CommandLine.Command(name = "snapshot", description = "convert a JSON dump to a binary snapshot")
+    static class Snapshot implements Runnable {
+        static final String NAME = "snapshot";
+
+        @CommandLine.Parameters(paramLabel = "DUMP", arity = "1", index = "0", description = "JSON dump from wikidata to convert")
+        private Path dumpFilePath;
+
+        @CommandLine.Parameters(paramLabel = "OUTPUT", arity = "0..1", index = "1", description = "where to store the snapshot, by default next to the dump")
+        private Path outputPath;
+
+        @Override
+        public void run() {
+            final Path output = outputPath != null ? outputPath : SnapshotDumpFile.getSnapshotPath(dumpFilePath);
+            final long start = System.currentTimeMillis();
+            try {
+                final long entities = SnapshotWriter.convert(dumpFilePath, output);
+                System.out.println("converted " + entities + " entities to " + output
+                        + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+
+                PropertyBitmapIndex.loadOrBuild(new SnapshotDumpFile(output.toString()));
+                System.out.println("indexed properties in " + (System.currentTimeMillis() - start) / 1000 + "s");
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Builds the {@link DumpIndex} of a zstd compressed JSON dump, so that runs only read the parts of the dump
+     * with the entity types they need. Runs never build the index themselves.
+     */
+    @CommandLine.Command(name = "index", description = "index the frames of a zstd compressed JSON dump")
+    static class Index implements Runnable {
+        static final String NAME = "index";
+
+        @CommandLine.Parameters(paramLabel = "DUMP", arity = "1", index = "0", description = "zstd compressed JSON dump from wikidata to index")
+        private Path dumpFilePath;
+
+        @Override
+        public void run() {
+            final long start = System.currentTimeMillis();
+            try {
+                final DumpIndex index = DumpIndex.loadOrBuild(dumpFilePath);
+                System.out.println("indexed " + index.getEntries().size() + " frames of " + dumpFilePath
+                        + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Samples the entities of a JSON dump, for the estimates of dump sizes in the web frontend.
+     */
+    @CommandLine.Command(name = "sample", description = "sample the entities of a JSON dump to estimate the size of dumps")
+    static class Sample implements Runnable {
+        static final String NAME = "sample";
+
+        @CommandLine.Parameters(paramLabel = "DUMP", arity = "1", index = "0", description = "JSON dump from wikidata to sample")
+        private Path dumpFilePath;
+
+        @CommandLine.Parameters(paramLabel = "OUTPUT", arity = "0..1", index = "1", description = "where to store the sample, by default next to the dump")
+        private Path outputPath;
+
+        @CommandLine.Option(names = {"-r", "--rate"}, paramLabel = "N", description = "sample one in N entities, properties are always included")
+        private int rate = DumpSample.DEFAULT_RATE;
+
+        @Override
+        public void run() {
+            final Path output = outputPath != null ? outputPath : DumpSample.getSamplePath(dumpFilePath);
+            final long start = System.currentTimeMillis();
+            try (InputStream dump = new ZstdDumpFile(dumpFilePath.toString()).getDumpFileStream()) {
+                final long entities = DumpSample.create(dump, output, rate);
+                System.out.println("sampled " + entities + " entities to " + output
+                        + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Creates or refreshes the output of a spec from changed entities, see {@link IncrementalDump}.
+     */
+    @CommandLine.Command(name = "incremental", description = "create a dump that can be refreshed from changed entities, or refresh it")
+    static class Incremental implements Runnable {
+        static final String NAME = "incremental";
+
+        @CommandLine.Parameters(paramLabel = "DIR", arity = "1", index = "0", description = "directory where the segments of the dump are kept")
+        private Path directory;
+
+        @CommandLine.Parameters(paramLabel = "SPEC", arity = "1", index = "1", description = "Path to the JSON spec for the dump")
+        private Path specFilePath;
+
+        @CommandLine.Option(names = {"--dump"}, paramLabel = "DUMP", description = "build the dump from this full JSON dump")
+        private Path dumpFilePath;
+
+        @CommandLine.Option(names = {"--changes"}, paramLabel = "FILE", description = "JSON files with changed entities to apply, in the order of the changes")
+        private List<Path> changesFilePaths = new ArrayList<>();
+
+        @CommandLine.Option(names = {"-o", "--output"}, paramLabel = "OUTPUT", required = true, description = "where to write the complete dump")
+        private Path outputPath;
+
+        @Override
+        public void run() {
+            final long start = System.currentTimeMillis();
+            try {
+                final DumpSpec spec = new ObjectMapper().readValue(specFilePath.toFile(), DumpSpec.class);
+                final Sites sites = new DumpProcessingController("wikidatawiki").getSitesInformation();
+                final IncrementalDump dump = new IncrementalDump(directory, spec, sites, PropertyRegister.getWikidataPropertyRegister(),
+                        (level, message) -> System.err.println("[" + level.toString() + "] " + message));
+
+                if (dumpFilePath != null) {
+                    try (InputStream input = new ZstdDumpFile(dumpFilePath.toString()).getDumpFileStream()) {
+                        dump.build(input);
+                    }
+                    System.out.println("built dump in " + (System.currentTimeMillis() - start) / 1000 + "s");
+                }
+
+                for (Path changesFilePath : changesFilePaths) {
+                    try (InputStream input = new ZstdDumpFile(changesFilePath.toString()).getDumpFileStream()) {
+                        final int segments = dump.update(input);
+                        System.out.println("applied " + changesFilePath + " to " + segments + " segments");
+                    }
+                }
+
+                dump.writeOutput(outputPath);
+                System.out.println("wrote " + outputPath + " in " + (System.currentTimeMillis() - start) / 1000 + "s");
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
     public static void main(String[] args) {
+        // subcommands are dispatched by hand, since the positional parameters of the main command are required
+        if (args.length > 0 && args[0].equals(Snapshot.NAME)) {
+            new CommandLine(new Snapshot()).execute(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Index.NAME)) {
+            new CommandLine(new Index()).execute(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Sample.NAME)) {
+            new CommandLine(new Sample()).execute(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals(Incremental.NAME)) {
+            new CommandLine(new Incremental()).execute(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         new CommandLine(new Cli()).execute(args);
     }
 }
@@ -37,6 +37,42 @@ public interface Config extends
      */
     Duration runProgressInterval();
 
+    /**
+     * The entities of the dump are processed in parallel by this many threads. The output does not depend on the
+     * number of threads.
+     * If a run has more than one dump and at least as many dumps as threads, each dump (or group of dumps with the
+     * same output options) is additionally serialized by its own thread, even with a single worker thread.
+     *
+     * @return number of worker threads used to process a run
+     */
+    int runThreads();
+
+    /**
+     * gzip output is compressed in blocks on a pool of this many threads, which is shared by all dumps of a run.
+     * zstd output uses this many worker threads per dump.
+     *
+     * @return number of threads used to compress the output of a run
+     */
+    int compressionThreads();
+
+    /**
+     * A run can be split into shards, which are processed by separate backend processes.
+     * Each process claims one shard of a run and the last process to finish merges the output of all shards,
+     * so all processes need to use the same dump storage directory.
+     *
+     * @return number of shards that new runs are split into
+     */
+    int runShards();
+
+    /**
+     * A shard which neither finishes nor reports progress for this long is assumed to belong to a dead process.
+     * Its run is then marked as failed, so that it does not stay unfinished forever.
+     * This must be considerably longer than {@link #runProgressInterval()}.
+     *
+     * @return time after which the run of a silent shard fails
+     */
+    Duration shardTimeout();
+
     /**
      * In order to combine multiple dump requests into a single run,
      * dump requests need a minimum age before they trigger a new run.
@@ -73,6 +109,29 @@ public interface Config extends
      */
     Duration databaseMaxLifetime();
 
+    /**
+     * The sample is created with the {@code sample} command of the CLI, see {@link io.github.bennofs.wdumper.processors.DumpSample}.
+     *
+     * @return sample of the input dump used to estimate the size of requested dumps. Empty if not configured.
+     */
+    Optional<Path> estimateSamplePath();
+
+    /**
+     * The snapshot is created with the {@code snapshot} command of the CLI, which also writes the index of the snapshot,
+     * see {@link io.github.bennofs.wdumper.ext.PropertyBitmapIndex}. Only the index is read.
+     *
+     * @return snapshot whose index gives an upper bound on the number of entities of requested dumps. Empty if not configured.
+     */
+    Optional<Path> estimateSnapshotPath();
+
+    /**
+     * The backend serves the metrics of the current run in the text format of Prometheus at {@code /metrics}.
+     * The web frontend serves its metrics on its own port.
+     *
+     * @return port of the metrics server of the backend. Empty if not configured.
+     */
+    Optional<Integer> metricsPort();
+
     /**
      * @return API token for the main zenodo instance. Empty if not configured.
      */
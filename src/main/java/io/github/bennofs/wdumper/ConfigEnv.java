@@ -13,11 +13,18 @@ public class ConfigEnv implements Config {
     private final Duration uploadInterval;
     private final Duration dumpInterval;
     private final Duration runProgressInterval;
+    private final int runThreads;
+    private final int compressionThreads;
+    private final int runShards;
+    private final Duration shardTimeout;
     private final Duration minDumpRequestAge;
     private final Duration maxDumpRequestAge;
     private final int previewSize;
     private final URI databaseAddress;
     private final Duration databaseMaxLifetime;
+    private final @Nullable Path estimateSamplePath;
+    private final @Nullable Path estimateSnapshotPath;
+    private final @Nullable Integer metricsPort;
     private final @Nullable String zenodoReleaseToken;
     private final @Nullable String zenodoSandboxToken;
 
@@ -34,6 +41,10 @@ public class ConfigEnv implements Config {
         this.uploadInterval = Duration.of(intFromEnv("UPLOAD_INTERVAL_MINUTES", 1), ChronoUnit.MINUTES);
         this.dumpInterval = Duration.of(intFromEnv("DUMP_INTERVAL_MINUTES", 10), ChronoUnit.MINUTES);
         this.runProgressInterval = Duration.of(intFromEnv("PROGRESS_INTERVAL", 60), ChronoUnit.SECONDS);
+        this.runThreads = intFromEnv("RUN_THREADS", Runtime.getRuntime().availableProcessors());
+        this.compressionThreads = intFromEnv("COMPRESSION_THREADS", Runtime.getRuntime().availableProcessors());
+        this.runShards = intFromEnv("RUN_SHARDS", 1);
+        this.shardTimeout = Duration.of(intFromEnv("SHARD_TIMEOUT_MINUTES", 30), ChronoUnit.MINUTES);
         this.minDumpRequestAge = Duration.of(intFromEnv("RECENT_MIN_MINUTES", 20), ChronoUnit.MINUTES);
         this.maxDumpRequestAge = Duration.of(intFromEnv("RECENT_MAX_MINUTES", 60), ChronoUnit.MINUTES);
         this.previewSize = 0x1000000;
@@ -50,6 +61,12 @@ public class ConfigEnv implements Config {
         }
         this.databaseMaxLifetime = Duration.of(intFromEnv("DB_MAX_LIFETIME", 500), ChronoUnit.SECONDS);
 
+        final String samplePathFromEnv = System.getenv("ESTIMATE_SAMPLE_PATH");
+        this.estimateSamplePath = samplePathFromEnv == null ? null : Path.of(samplePathFromEnv);
+        final String snapshotPathFromEnv = System.getenv("ESTIMATE_SNAPSHOT_PATH");
+        this.estimateSnapshotPath = snapshotPathFromEnv == null ? null : Path.of(snapshotPathFromEnv);
+        this.metricsPort = System.getenv("METRICS_PORT") == null ? null : intFromEnv("METRICS_PORT", 0);
+
         this.zenodoReleaseToken = System.getenv("ZENODO_TOKEN");
         this.zenodoSandboxToken = System.getenv("ZENODO_SANDBOX_TOKEN");
     }
@@ -74,6 +91,26 @@ public class ConfigEnv implements Config {
         return runProgressInterval;
     }
 
+    @Override
+    public int runThreads() {
+        return runThreads;
+    }
+
+    @Override
+    public int compressionThreads() {
+        return compressionThreads;
+    }
+
+    @Override
+    public int runShards() {
+        return runShards;
+    }
+
+    @Override
+    public Duration shardTimeout() {
+        return shardTimeout;
+    }
+
     @Override
     public Duration minDumpRequestAge() {
         return minDumpRequestAge;
@@ -99,6 +136,21 @@ public class ConfigEnv implements Config {
         return databaseMaxLifetime;
     }
 
+    @Override
+    public Optional<Path> estimateSamplePath() {
+        return Optional.ofNullable(estimateSamplePath);
+    }
+
+    @Override
+    public Optional<Path> estimateSnapshotPath() {
+        return Optional.ofNullable(estimateSnapshotPath);
+    }
+
+    @Override
+    public Optional<Integer> metricsPort() {
+        return Optional.ofNullable(metricsPort);
+    }
+
     @Override
     public Optional<String> zenodoReleaseToken() {
         return Optional.ofNullable(zenodoReleaseToken);
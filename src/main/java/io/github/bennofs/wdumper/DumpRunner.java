@@ -1,36 +1,86 @@
 package io.github.bennofs.wdumper;
 
+import com.github.luben.zstd.ZstdOutputStream;
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.bennofs.wdumper.ext.AsynchronousOutputStream;
+import io.github.bennofs.wdumper.ext.InputProgress;
+import io.github.bennofs.wdumper.ext.ParallelGzipOutputStream;
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
+import io.github.bennofs.wdumper.ext.TimedOutputStream;
+import io.github.bennofs.wdumper.ext.ZstdDumpFile;
 import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
 import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+import io.github.bennofs.wdumper.metrics.RunMetrics;
 import io.github.bennofs.wdumper.processors.FilteredRdfSerializer;
+import io.github.bennofs.wdumper.processors.ParallelDumpProcessor;
 import io.github.bennofs.wdumper.processors.ProgressReporter;
+import io.github.bennofs.wdumper.processors.PropertyIriCache;
+import io.github.bennofs.wdumper.processors.SharedPropertyRegister;
 import io.github.bennofs.wdumper.spec.DumpSpec;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import io.github.bennofs.wdumper.spec.EntityPreselection;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import io.github.bennofs.wdumper.spec.OutputCompression;
+import io.github.bennofs.wdumper.spec.RawDocumentFilter;
+import io.github.bennofs.wdumper.spec.Shard;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
 import org.wikidata.wdtk.dumpfiles.DumpProcessingController;
 import org.wikidata.wdtk.dumpfiles.MwDumpFile;
 import org.wikidata.wdtk.rdf.PropertyRegister;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
 
 public class DumpRunner {
+    private final static Logger logger = LoggerFactory.getLogger(DumpRunner.class);
+
+    /** compression levels of generated dumps, see {@link #openCompressedStream(OutputCompression, OutputStream)} */
+    public static final int GZIP_LEVEL = 1;
+    public static final int ZSTD_LEVEL = 3;
+
     private final int id;
+    private final Shard shard;
     private final Config config;
     private final DumpProcessingController controller;
     private final MwDumpFile dumpFile;
     private final PropertyRegister propertyRegister;
+    private final PropertyIriCache propertyIris = new PropertyIriCache();
 
     private final List<FilteredRdfSerializer> serializers;
+    private final List<DumpOutput> outputs;
+    private final List<DumpMetrics> metrics;
+    private final ExecutorService compressionExecutor;
+
+    /** dumps of this run that have the same spec as another dump of the run, by the id of that dump */
+    private final Map<Integer, List<Integer>> duplicates = new HashMap<>();
+    /** output files that are hard links to the output of another dump, mapped to the file they link to */
+    private final Map<Path, Path> links = new LinkedHashMap<>();
 
     /**
      * For documentation see implementation at {@link io.github.bennofs.wdumper.Config}
@@ -38,144 +88,408 @@ public class DumpRunner {
     public interface Config {
         Path dumpStorageDirectory();
         Duration runProgressInterval();
+        int runThreads();
+        int compressionThreads();
     }
 
-    private DumpRunner(final int id, final Config config, final MwDumpFile dumpFile, DumpProcessingController controller, PropertyRegister propertyRegister) {
+    private DumpRunner(final int id, final Shard shard, final Config config, final MwDumpFile dumpFile, DumpProcessingController controller, PropertyRegister propertyRegister) {
+        Objects.requireNonNull(shard);
         Objects.requireNonNull(dumpFile);
         Objects.requireNonNull(controller);
         Objects.requireNonNull(propertyRegister);
 
         this.id = id;
+        this.shard = shard;
         this.dumpFile = dumpFile;
         this.controller = controller;
         this.propertyRegister = propertyRegister;
         this.config = config;
 
         this.serializers = new ArrayList<>();
+        this.outputs = new ArrayList<>();
+        this.metrics = new ArrayList<>();
+        this.compressionExecutor = Executors.newFixedThreadPool(config.compressionThreads(), new ThreadFactoryBuilder()
+                .setNameFormat("gzip-compression-%d")
+                .setDaemon(true)
+                .build());
     }
 
     static public DumpRunner create(final int id, final Config config, final MwDumpFile dumpFile) {
+        return create(id, Shard.ALL, config, dumpFile);
+    }
+
+    /**
+     * Creates a runner which only processes a single shard of the run.
+     *
+     * If the run has more than one shard, the output of each dump is written to a part file, see
+     * {@link #getPartOutputPath(Path, int, int, OutputCompression)}. Once all shards are done, the parts need to be
+     * merged with {@link #mergeShardOutputs()}.
+     */
+    static public DumpRunner create(final int id, final Shard shard, final Config config, final MwDumpFile dumpFile) {
         final DumpProcessingController controller = new DumpProcessingController("wikidatawiki");
         final PropertyRegister propertyRegister = PropertyRegister.getWikidataPropertyRegister();
 
-        return new DumpRunner(id, config, dumpFile, controller, propertyRegister);
+        return new DumpRunner(id, shard, config, dumpFile, controller, propertyRegister);
     }
 
-    public static Path getOutputPath(Path outputDirectory, final int id) {
-        return outputDirectory.resolve("wdump-" + id + ".nt.gz");
+    public static Path getOutputPath(Path outputDirectory, final int id, OutputCompression compression) {
+        return outputDirectory.resolve("wdump-" + id + compression.getExtension());
     }
 
-    void addDumpTask(int id, DumpSpec spec, DumpStatusHandler statusHandler) throws IOException {
-        final OutputStream output = openGzipOutput(getOutputPath(this.config.dumpStorageDirectory(), id));
+    public static Path getPartOutputPath(Path outputDirectory, final int id, final int shard, OutputCompression compression) {
+        return outputDirectory.resolve("wdump-" + id + ".part-" + shard + compression.getExtension());
+    }
 
-        FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, id, output, controller.getSitesInformation(), propertyRegister, statusHandler);
-        this.serializers.add(serializer);
+    /**
+     * Finds the generated file of a dump, which may use any of the supported compressions.
+     *
+     * @param outputDirectory directory containing the generated dumps
+     * @param id id of the dump
+     * @return path of the dump file, or empty if there is no file for the dump
+     */
+    public static Optional<Path> findOutputPath(Path outputDirectory, final int id) {
+        return Arrays.stream(OutputCompression.values())
+                .map(compression -> getOutputPath(outputDirectory, id, compression))
+                .filter(Files::exists)
+                .findFirst();
     }
 
-    public void run(RunnerStatusHandler runnerStatusHandler) {
-        final EntityDocumentDumpProcessor progressProcessor = new ProgressReporter(config.runProgressInterval(), runnerStatusHandler);
+    void addDumpTask(int id, DumpSpec spec, DumpStatusHandler statusHandler) throws IOException {
+        final Path outputPath = shard.isPartial()
+                ? getPartOutputPath(this.config.dumpStorageDirectory(), id, shard.getIndex(), spec.getCompression())
+                : getOutputPath(this.config.dumpStorageDirectory(), id, spec.getCompression());
+        final DumpOutput output = openOutput(id, outputPath, spec.getCompression());
 
-        Stream.concat(serializers.stream(), Stream.of(progressProcessor)).forEach(processor -> {
-            processor.open();
-            controller.registerEntityDocumentProcessor(processor, null, true);
-        });
+        FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, id, output.stream, controller.getSitesInformation(), propertyRegister,
+                propertyIris, statusHandler);
+        final DumpMetrics dumpMetrics = new DumpMetrics(output::getUncompressedSize, output::getCompressedSize, output::getQueuedChunks);
+        statusHandler.registerMetrics(dumpMetrics);
 
-        runnerStatusHandler.start();
-        controller.processDump(this.dumpFile);
-        Stream.concat(serializers.stream(), Stream.of(progressProcessor)).forEach(EntityDocumentDumpProcessor::close);
-        runnerStatusHandler.done();
+        this.serializers.add(serializer);
+        this.outputs.add(output);
+        this.metrics.add(dumpMetrics);
     }
 
-    public List<FilteredRdfSerializer> getSerializers() {
-        return ImmutableList.copyOf(this.serializers);
+    /**
+     * Adds a dump which has the same spec as a dump that was already added to this run.
+     *
+     * The dump is not processed again, its output is linked to the output of the other dump by {@link #linkOutputs()}.
+     */
+    void addDuplicateDumpTask(int id, int originalId, OutputCompression compression) {
+        final Path directory = this.config.dumpStorageDirectory();
+        duplicates.computeIfAbsent(originalId, k -> new ArrayList<>()).add(id);
+        links.put(getOutputPath(directory, id, compression), getOutputPath(directory, originalId, compression));
     }
 
-    public int getId() {
-        return id;
+    /**
+     * Adds a dump whose output has already been generated by an earlier run, which is linked by {@link #linkOutputs()}.
+     */
+    void addReusedDumpTask(int id, Path existingOutput, OutputCompression compression) {
+        links.put(getOutputPath(this.config.dumpStorageDirectory(), id, compression), existingOutput);
     }
 
-    private static OutputStream openGzipOutput(Path outputPath) throws IOException {
-        final OutputStream fileStream = Files.newOutputStream(outputPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
-        final OutputStream bufferedStream = new BufferedOutputStream(fileStream, 10 * 1024 * 1024);
+    /**
+     * Processes the dump for all dumps added to this runner.
+     *
+     * If processing fails, the output files of the dumps are deleted and the exception is rethrown. The progress
+     * reporter, the writer threads of the outputs and the compression threads are stopped in any case.
+     */
+    public void run(RunnerStatusHandler runnerStatusHandler) {
+        ProgressReporter progressReporter = null;
+        boolean complete = false;
+        try {
+            // all dumps of the run reuse existing outputs, so there is no need to read the dump
+            if (serializers.isEmpty()) {
+                complete = true;
+                runnerStatusHandler.start();
+                runnerStatusHandler.done();
+                return;
+            }
+
+            final InputProgress input = dumpFile instanceof InputProgress ? (InputProgress) dumpFile : null;
+            final ProgressReporter progressProcessor = new ProgressReporter(config.runProgressInterval(), runnerStatusHandler,
+                    serializers, metrics, input);
+            serializers.forEach(EntityDocumentDumpProcessor::open);
+            progressProcessor.open();
+            progressReporter = progressProcessor;
+
+            // with a single worker and a single dump, the shared property register can be used without synchronization.
+            // Otherwise each thread gets its own register, but the property types are only fetched once for all of them.
+            final Supplier<PropertyRegister> propertyRegisterFactory = config.runThreads() == 1 && serializers.size() == 1
+                    ? () -> propertyRegister
+                    : SharedPropertyRegister.factory();
 
-        final GzipParameters gzipParameters = new GzipParameters();
-        gzipParameters.setCompressionLevel(1);
-        final OutputStream compressStream = new GzipCompressorOutputStream(bufferedStream, gzipParameters);
+            // skip the parts of an indexed zstd dump that do not contain entities of the types requested by any dump
+            final List<DumpSpec> specs = serializers.stream()
+                    .map(FilteredRdfSerializer::getSpec)
+                    .collect(Collectors.toList());
+            final Set<EntityTypeFilter> types = RawDocumentFilter.create(specs).getEntityTypes();
+            if (dumpFile instanceof ZstdDumpFile && !types.contains(EntityTypeFilter.ANY)) {
+                ((ZstdDumpFile) dumpFile).restrictSelection(entry -> types.stream().anyMatch(entry::mayContain));
+            }
+
+            // with an index of the snapshot, only the entities that may match some entity filter are read
+            if (dumpFile instanceof SnapshotDumpFile) {
+                final SnapshotDumpFile snapshot = (SnapshotDumpFile) dumpFile;
+                PropertyBitmapIndex.load(snapshot.getPath()).ifPresent(index -> {
+                    final RoaringBitmap selected = EntityPreselection.select(index, specs);
+                    logger.info("preselected " + selected.getLongCardinality() + " of " + index.getEntityCount() + " entities");
+                    snapshot.restrictSelection(selected);
+                });
+            }
+
+            final RunMetrics runMetrics = new RunMetrics();
+            runnerStatusHandler.registerMetrics(runMetrics);
+            runnerStatusHandler.start();
+            final ParallelDumpProcessor processor = new ParallelDumpProcessor(config.runThreads(), serializers,
+                    propertyRegisterFactory, progressProcessor, shard, runMetrics, metrics);
+            processor.processDump(this.dumpFile);
 
-        return asynchronousOutputStream(compressStream);
+            serializers.forEach(EntityDocumentDumpProcessor::close);
+            progressReporter = null;
+            progressProcessor.close();
+            complete = true;
+            runnerStatusHandler.done();
+        } finally {
+            if (!complete) {
+                abort(progressReporter);
+            }
+            // the compression threads must not outlive the run, also if processing fails
+            compressionExecutor.shutdown();
+        }
     }
 
     /**
-     * Helper class that joins a thread on a call to close, to ensure that the output stream has really been closed.
+     * Cleans up after processing failed. Stops the progress reporter, so that it does not report to a status handler
+     * that is not valid anymore, and stops the writers of the outputs and deletes the incomplete output files.
+     *
+     * Errors during the cleanup are only logged, so that they do not hide the error that made the run fail.
+     *
+     * @param progressReporter the reporter of the run, or null if it was not started
      */
-    private static final class SyncCloseOutputStream extends FilterOutputStream {
-        private final Thread worker;
-
-        public SyncCloseOutputStream(OutputStream out, Thread worker) {
-            super(out);
-            this.worker = worker;
+    private void abort(ProgressReporter progressReporter) {
+        if (progressReporter != null) {
+            try {
+                progressReporter.close();
+            } catch (RuntimeException e) {
+                logger.warn("stopping the progress reporter failed", e);
+            }
         }
 
-        @Override
-        public void close() throws IOException {
-            super.close();
+        for (DumpOutput output : outputs) {
+            output.abort();
             try {
-                worker.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+                Files.deleteIfExists(output.path);
+            } catch (IOException e) {
+                logger.warn("failed to delete incomplete output " + output.path, e);
             }
         }
     }
 
     /**
-     * Creates a separate thread for writing into the given output stream and
-     * returns a pipe output stream that can be used to pass data to this
-     * thread.
-     * <p>
-     * This code is inspired by
-     * http://stackoverflow.com/questions/12532073/gzipoutputstream
-     * -that-does-its-compression-in-a-separate-thread
+     * Concatenates the part files written by all shards of the run into the final dump files, and deletes the parts.
      *
-     * @param outputStream
-     *            the stream to write to in the thread
-     * @return a new stream that data should be written to
-     * @throws IOException
-     *             if the pipes could not be created for some reason
+     * The compressed parts are not recompressed: gzip members and zstd frames can be concatenated and are read
+     * as a single stream by the decompressors. This needs to be called by a single process once all shards
+     * of the run are done, and it requires all parts to be in the dump storage directory.
+     *
+     * @throws IOException if a part is missing or writing the dump file failed
      */
-    public static OutputStream asynchronousOutputStream(
-            final OutputStream outputStream) throws IOException {
-        final int SIZE = 1024 * 1024 * 10;
-        final PipedOutputStream pos = new PipedOutputStream();
-        final PipedInputStream pis = new PipedInputStream(pos, SIZE);
-        final Thread worker = new Thread(() -> {
-            try {
-                byte[] bytes = new byte[SIZE];
-                for (int len; (len = pis.read(bytes)) > 0; ) {
-                    outputStream.write(bytes, 0, len);
+    public void mergeShardOutputs() throws IOException {
+        if (!shard.isPartial()) return;
+
+        final Path directory = config.dumpStorageDirectory();
+        for (DumpOutput output : outputs) {
+            final Path target = getOutputPath(directory, output.dumpId, output.compression);
+            final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+
+            try (FileChannel targetChannel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for (int part = 0; part < shard.getCount(); ++part) {
+                    try (FileChannel partChannel = FileChannel.open(getPartOutputPath(directory, output.dumpId, part, output.compression))) {
+                        final long size = partChannel.size();
+                        long position = 0;
+                        while (position < size) {
+                            position += partChannel.transferTo(position, size - position, targetChannel);
+                        }
+                    }
                 }
-            } catch (IOException ioException) {
-                ioException.printStackTrace();
-            } finally {
-                close(pis);
-                close(outputStream);
             }
-        }, "async-output-stream");
-        worker.start();
-        return new SyncCloseOutputStream(pos, worker);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (int part = 0; part < shard.getCount(); ++part) {
+                Files.delete(getPartOutputPath(directory, output.dumpId, part, output.compression));
+            }
+        }
     }
 
     /**
-     * Closes a Closeable and swallows any exceptions that might occur in the
-     * process
+     * Creates the output files of dumps that reuse the output of another dump as hard links to that output.
+     *
+     * Like {@link #mergeShardOutputs()}, this needs to be called by a single process once all shards of the run
+     * are done, after the shard outputs have been merged.
      *
-     * @param closeable The object to close
+     * @throws IOException if a linked output is missing or the link cannot be created
      */
-    static void close(Closeable closeable) {
-        if (closeable != null) {
-            try {
-                closeable.close();
-            } catch (IOException ignored) {
-            }
+    public void linkOutputs() throws IOException {
+        for (Map.Entry<Path, Path> link : links.entrySet()) {
+            Files.deleteIfExists(link.getKey());
+            Files.createLink(link.getKey(), link.getValue());
+        }
+    }
+
+    /**
+     * @return the ids of the dumps that share the output of the given dump
+     */
+    public List<Integer> getDuplicates(int dumpId) {
+        return ImmutableList.copyOf(duplicates.getOrDefault(dumpId, List.of()));
+    }
+
+    public List<FilteredRdfSerializer> getSerializers() {
+        return ImmutableList.copyOf(this.serializers);
+    }
+
+    public List<DumpOutput> getOutputs() {
+        return ImmutableList.copyOf(this.outputs);
+    }
+
+    public PropertyIriCache getPropertyIris() {
+        return propertyIris;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Shard getShard() {
+        return shard;
+    }
+
+    /**
+     * The output file of a single dump, with statistics about its compression.
+     */
+    public static final class DumpOutput {
+        private final int dumpId;
+        private final Path path;
+        private final OutputCompression compression;
+        private final CountingOutputStream stream;
+        private final AsynchronousOutputStream asyncStream;
+        private final CountingOutputStream compressedStream;
+        private final Supplier<Duration> compressionTime;
+
+        private DumpOutput(int dumpId, Path path, OutputCompression compression, AsynchronousOutputStream asyncStream, CountingOutputStream compressedStream, Supplier<Duration> compressionTime) {
+            this.dumpId = dumpId;
+            this.path = path;
+            this.compression = compression;
+            this.stream = new CountingOutputStream(asyncStream);
+            this.asyncStream = asyncStream;
+            this.compressedStream = compressedStream;
+            this.compressionTime = compressionTime;
+        }
+
+        public int getDumpId() {
+            return dumpId;
+        }
+
+        /**
+         * @return the stream that the serializer of the dump writes to
+         */
+        OutputStream getStream() {
+            return stream;
+        }
+
+        /**
+         * @return number of bytes written by the serializer so far, before compression
+         */
+        public long getUncompressedSize() {
+            return stream.getCount();
+        }
+
+        /**
+         * @return number of compressed bytes written so far, the size of the dump file once the run is done
+         */
+        public long getCompressedSize() {
+            return compressedStream.getCount();
+        }
+
+        /**
+         * For gzip, this is the time spent compressing blocks on the compression executor. Otherwise it is the time
+         * the writer thread of the dump spends in the compressor and writing the file.
+         *
+         * @return time spent compressing the output so far
+         */
+        public Duration getCompressionTime() {
+            return compressionTime.get();
+        }
+
+        /**
+         * @return number of chunks of output waiting to be compressed
+         */
+        public int getQueuedChunks() {
+            return asyncStream.getQueuedChunks();
+        }
+
+        /**
+         * Discards the output that has not been written yet and closes the file.
+         */
+        void abort() {
+            asyncStream.abort();
+        }
+    }
+
+    /**
+     * Opens the output file of a dump with the compression of its spec. The output is written asynchronously, and
+     * gzip output is compressed in parallel on the compression executor of the runner.
+     */
+    DumpOutput openOutput(int dumpId, Path outputPath, OutputCompression compression) throws IOException {
+        final OutputStream fileStream = Files.newOutputStream(outputPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        final CountingOutputStream countingStream = new CountingOutputStream(new BufferedOutputStream(fileStream, 10 * 1024 * 1024));
+
+        // the blocks of gzip output are compressed on the shared executor, where waiting for a free thread must not
+        // count as compression time. The other compressors run on the writer thread of the dump (and its zstd workers).
+        if (compression == OutputCompression.GZIP) {
+            final ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(countingStream, compressionExecutor,
+                    GZIP_LEVEL, 2 * config.compressionThreads());
+            return new DumpOutput(dumpId, outputPath, compression, new AsynchronousOutputStream(gzipStream), countingStream,
+                    gzipStream::getCompressionTime);
+        }
+
+        final OutputStream compressStream;
+        switch (compression) {
+            case ZSTD:
+                final ZstdOutputStream zstdStream = new ZstdOutputStream(countingStream, ZSTD_LEVEL);
+                zstdStream.setWorkers(config.compressionThreads());
+                compressStream = zstdStream;
+                break;
+            case NONE:
+                compressStream = countingStream;
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported output compression: " + compression);
+        }
+
+        final TimedOutputStream timedStream = new TimedOutputStream(compressStream);
+        return new DumpOutput(dumpId, outputPath, compression, new AsynchronousOutputStream(timedStream), countingStream, timedStream::getElapsed);
+    }
+
+    /**
+     * Compresses output with the same codec and level as the dumps of a run, but on the calling thread.
+     * This is used for output that is too small to be worth compressing in parallel, such as the samples of
+     * size estimates and the segments of incremental dumps.
+     */
+    public static OutputStream openCompressedStream(OutputCompression compression, OutputStream output) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPOutputStream(output) {
+                    {
+                        def.setLevel(GZIP_LEVEL);
+                    }
+                };
+            case ZSTD:
+                return new ZstdOutputStream(output, ZSTD_LEVEL);
+            case NONE:
+                return output;
+            default:
+                throw new IllegalArgumentException("unsupported output compression: " + compression);
         }
     }
 }
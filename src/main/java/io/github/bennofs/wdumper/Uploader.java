@@ -4,10 +4,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import com.github.luben.zstd.ZstdInputStream;
 import io.github.bennofs.wdumper.database.Database;
 import io.github.bennofs.wdumper.database.DumpInfo;
 import io.github.bennofs.wdumper.database.ZenodoTask;
 import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+import io.github.bennofs.wdumper.spec.OutputCompression;
 import io.github.bennofs.wdumper.zenodo.Deposit;
 import io.github.bennofs.wdumper.zenodo.ZenodoApi;
 
@@ -55,8 +57,24 @@ public class Uploader implements Runnable {
         this.runCompletedEvent = runCompletedEvent;
     }
 
+    private static InputStream openDecompressed(Path dumpPath) throws IOException {
+        final OutputCompression compression = OutputCompression.fromFileName(dumpPath.getFileName().toString())
+                .orElseThrow(() -> new IOException("unknown compression of dump file " + dumpPath));
+        final InputStream raw = Files.newInputStream(dumpPath);
+        switch (compression) {
+            case GZIP:
+                return new GZIPInputStream(raw);
+            case ZSTD:
+                return new ZstdInputStream(raw);
+            case NONE:
+                return raw;
+        }
+
+        throw new RuntimeException("OutputCompression enum has unexpected value: " + compression);
+    }
+
     static String generatePreview(Config config, Path dumpPath) throws IOException {
-        try (final InputStream in = new GZIPInputStream(Files.newInputStream(dumpPath))) {
+        try (final InputStream in = openDecompressed(dumpPath)) {
             final byte[] buffer = new byte[config.previewSize()];
             int end = 0;
             while (end != buffer.length) {
@@ -92,7 +110,8 @@ public class Uploader implements Runnable {
                 System.err.println("starting upload: " + task.toString());
 
                 final ZenodoApi api = task.target.equals("RELEASE") ? this.zenodo : this.zenodoSandbox;
-                final Path outputPath = DumpRunner.getOutputPath(config.dumpStorageDirectory(), task.dump_id);
+                final Path outputPath = DumpRunner.findOutputPath(config.dumpStorageDirectory(), task.dump_id)
+                        .orElseThrow(() -> new IOException("there is no dump file for dump " + task.dump_id));
 
                 final Deposit deposit = api.getDeposit(task.deposit_id);
                 final Deposit.DepositFile[] files = api.getFiles(deposit);
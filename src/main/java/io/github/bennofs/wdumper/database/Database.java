@@ -4,10 +4,12 @@ import io.github.bennofs.wdumper.BuildConfig;
 import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
 import io.github.bennofs.wdumper.jooq.enums.DB_DumpErrorLevel;
 import io.github.bennofs.wdumper.jooq.enums.DB_ZenodoTarget;
+import io.github.bennofs.wdumper.jooq.tables.DB_Run;
 import io.github.bennofs.wdumper.jooq.tables.DB_Zenodo;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DumpErrorRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DumpRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_RunRecord;
+import io.github.bennofs.wdumper.jooq.tables.records.DB_RunShardRecord;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_ZenodoRecord;
 import io.github.bennofs.wdumper.model.*;
 import org.apache.commons.lang3.Range;
@@ -41,6 +43,8 @@ public class Database {
         Duration minDumpRequestAge();
 
         Duration maxDumpRequestAge();
+
+        Duration shardTimeout();
     }
 
     public Database(Config config, BuildConfig buildConfig, DataSource source) {
@@ -54,6 +58,19 @@ public class Database {
     }
 
     public Optional<RunTask> createRun(String dumpVersion) {
+        return createRun(dumpVersion, 1);
+    }
+
+    /**
+     * Creates a new run for all unassigned dumps, which is split into the given number of shards.
+     *
+     * The shards of the run need to be claimed with {@link #claimShard(String)} before processing them.
+     *
+     * @param dumpVersion date of the wikidata dump that is processed by the run
+     * @param shardCount number of shards of the run
+     * @return the created run, or empty if there are no dumps to process
+     */
+    public Optional<RunTask> createRun(String dumpVersion, int shardCount) {
         return context().connectionResult(conn -> {
             conn.setAutoCommit(false);
             final DSLContext transaction = DSL.using(conn, SQLDialect.MARIADB);
@@ -96,16 +113,153 @@ public class Database {
                     .stream()
                     .map(f -> new DumpTask(f.value1(), f.value2()))
                     .collect(Collectors.toList());
+
+            InsertValuesStep2<DB_RunShardRecord, Integer, Integer> insertShards = transaction
+                    .insertInto(RUN_SHARD, RUN_SHARD.RUN_ID, RUN_SHARD.SHARD);
+            for (int shard = 0; shard < shardCount; ++shard) {
+                insertShards = insertShards.values(runId, shard);
+            }
+            insertShards.execute();
             conn.commit();
 
             return Optional.of(new RunTask(runId, tasks));
         });
     }
 
+    /**
+     * Claims a shard of a run that has not been started yet.
+     *
+     * Before claiming, runs with a shard that has not reported progress for longer than the shard timeout are marked
+     * as failed, since the process working on that shard is assumed to be dead.
+     *
+     * @param dumpVersion only shards of runs for this version of the wikidata dump are claimed
+     * @return the claimed shard, or empty if all shards of matching runs have already been started
+     */
+    public Optional<ShardTask> claimShard(String dumpVersion) {
+        failStaleRuns();
+
+        return context().connectionResult(conn -> {
+            conn.setAutoCommit(false);
+            final DSLContext transaction = DSL.using(conn, SQLDialect.MARIADB);
+
+            // lock the shard, so that concurrent processes cannot claim the same shard
+            final Record2<Integer, Integer> claimed = transaction.select(RUN_SHARD.RUN_ID, RUN_SHARD.SHARD)
+                    .from(RUN_SHARD)
+                    .innerJoin(RUN).on(RUN.ID.eq(RUN_SHARD.RUN_ID))
+                    .where(RUN_SHARD.STARTED_AT.isNull())
+                    .and(RUN.FAILED_AT.isNull())
+                    .and(RUN.DUMP_DATE.eq(dumpVersion))
+                    .orderBy(RUN_SHARD.RUN_ID, RUN_SHARD.SHARD)
+                    .limit(1)
+                    .forUpdate()
+                    .fetchOne();
+            if (claimed == null) {
+                conn.rollback();
+                return Optional.empty();
+            }
+            final int runId = claimed.value1();
+            final int shard = claimed.value2();
+
+            transaction.update(RUN_SHARD)
+                    .set(RUN_SHARD.STARTED_AT, DSL.currentLocalDateTime())
+                    .set(RUN_SHARD.UPDATED_AT, DSL.currentLocalDateTime())
+                    .where(RUN_SHARD.RUN_ID.eq(runId))
+                    .and(RUN_SHARD.SHARD.eq(shard))
+                    .execute();
+
+            final int shardCount = transaction.fetchCount(RUN_SHARD, RUN_SHARD.RUN_ID.eq(runId));
+            final List<DumpTask> tasks = transaction.select(DUMP.ID, DUMP.SPEC)
+                    .from(DUMP)
+                    .where(DUMP.RUN_ID.eq(runId))
+                    .stream()
+                    .map(f -> new DumpTask(f.value1(), f.value2()))
+                    .collect(Collectors.toList());
+            conn.commit();
+
+            return Optional.of(new ShardTask(runId, shard, shardCount, tasks));
+        });
+    }
+
+    /**
+     * Marks the runs as failed which have a started shard that has neither finished nor reported progress
+     * within the shard timeout.
+     */
+    private void failStaleRuns() {
+        final Field<LocalDateTime> staleBefore = DSL.localDateTimeSub(DSL.currentLocalDateTime(), config.shardTimeout().toSeconds(), DatePart.SECOND);
+        final List<Integer> staleRuns = context().selectDistinct(RUN_SHARD.RUN_ID)
+                .from(RUN_SHARD)
+                .innerJoin(RUN).on(RUN.ID.eq(RUN_SHARD.RUN_ID))
+                .where(RUN.FINISHED_AT.isNull())
+                .and(RUN.FAILED_AT.isNull())
+                .and(RUN_SHARD.STARTED_AT.isNotNull())
+                .and(RUN_SHARD.FINISHED_AT.isNull())
+                .and(DSL.coalesce(RUN_SHARD.UPDATED_AT, RUN_SHARD.STARTED_AT).lt(staleBefore))
+                .fetch(RUN_SHARD.RUN_ID);
+
+        for (int runId : staleRuns) {
+            if (failRun(runId, "a shard did not report progress for " + config.shardTimeout().toMinutes() + " minutes")) {
+                System.err.println("run " + runId + " failed: shard timed out");
+            }
+        }
+    }
+
+    /**
+     * Marks a run as failed, so that it is never finished. The remaining shards of the run are not claimed anymore.
+     *
+     * @param reason logged as a critical message of the run
+     * @return true if the run was marked as failed, false if it was already finished or failed before
+     */
+    public boolean failRun(int runId, String reason) {
+        return context().transactionResult(configuration -> {
+            final DSLContext transaction = DSL.using(configuration);
+
+            final DB_RunRecord run = transaction.selectFrom(RUN).where(RUN.ID.eq(runId)).forUpdate().fetchOne();
+            if (run == null || run.getFinishedAt() != null || run.getFailedAt() != null) return false;
+
+            transaction.update(RUN)
+                    .set(RUN.FAILED_AT, DSL.currentLocalDateTime())
+                    .where(RUN.ID.eq(runId))
+                    .execute();
+            transaction.insertInto(DUMP_ERROR)
+                    .set(DUMP_ERROR.LOGGED_AT, DSL.currentLocalDateTime())
+                    .set(DUMP_ERROR.RUN_ID, runId)
+                    .set(DUMP_ERROR.LEVEL, DB_DumpErrorLevel.CRITICAL)
+                    .set(DUMP_ERROR.MESSAGE, "run failed: " + reason)
+                    .execute();
+            return true;
+        });
+    }
+
+    /**
+     * Marks a shard of a run as finished.
+     *
+     * @return true if all shards of the run are finished now. This is only returned for one of the shards,
+     *         and never if the run has failed.
+     */
+    public boolean finishShard(int runId, int shard) {
+        return context().transactionResult(configuration -> {
+            final DSLContext transaction = DSL.using(configuration);
+
+            // lock the run, so that only the last shard to finish sees all other shards as finished
+            final DB_RunRecord run = transaction.selectFrom(RUN).where(RUN.ID.eq(runId)).forUpdate().fetchOne();
+
+            transaction.update(RUN_SHARD)
+                    .set(RUN_SHARD.FINISHED_AT, DSL.currentLocalDateTime())
+                    .where(RUN_SHARD.RUN_ID.eq(runId))
+                    .and(RUN_SHARD.SHARD.eq(shard))
+                    .execute();
+
+            if (run.getFailedAt() != null) return false;
+            return transaction.fetchCount(RUN_SHARD, RUN_SHARD.RUN_ID.eq(runId).and(RUN_SHARD.FINISHED_AT.isNull())) == 0;
+        });
+    }
+
     public void startRun(int runId) {
+        // with multiple shards, the run starts when the first shard starts
         context().update(RUN)
                 .set(RUN.STARTED_AT, DSL.currentLocalDateTime())
                 .where(RUN.ID.eq(runId))
+                .and(RUN.STARTED_AT.isNull())
                 .execute();
     }
 
@@ -113,6 +267,7 @@ public class Database {
         context().update(RUN)
                 .set(RUN.FINISHED_AT, DSL.currentLocalDateTime())
                 .where(RUN.ID.eq(runId))
+                .and(RUN.FAILED_AT.isNull())
                 .execute();
     }
 
@@ -144,6 +299,35 @@ public class Database {
                 .execute();
     }
 
+    /**
+     * Records the progress of a shard. The progress of the run is the progress of the slowest shard.
+     *
+     * Every shard reads the whole input file, so the input position of the run is the smallest position of its shards.
+     *
+     * @param count number of entities read by the shard
+     * @param inputPosition number of bytes of the input file consumed by the shard
+     * @param inputSize size of the input file in bytes, 0 if unknown
+     */
+    public void setShardProgress(int runId, int shard, int count, long inputPosition, long inputSize) {
+        context().transaction(configuration -> {
+            final DSLContext transaction = DSL.using(configuration);
+            transaction.update(RUN_SHARD)
+                    .set(RUN_SHARD.COUNT, count)
+                    .set(RUN_SHARD.INPUT_POSITION, inputPosition)
+                    .set(RUN_SHARD.UPDATED_AT, DSL.currentLocalDateTime())
+                    .where(RUN_SHARD.RUN_ID.eq(runId))
+                    .and(RUN_SHARD.SHARD.eq(shard))
+                    .execute();
+            transaction.update(RUN)
+                    .set(RUN.COUNT, transaction.select(DSL.min(RUN_SHARD.COUNT)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(runId)).asField())
+                    .set(RUN.INPUT_POSITION, transaction.select(DSL.min(RUN_SHARD.INPUT_POSITION)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(runId)).asField())
+                    .set(RUN.INPUT_SIZE, inputSize)
+                    .set(RUN.PROGRESS_UPDATED_AT, transaction.select(DSL.max(RUN_SHARD.UPDATED_AT)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(runId)).asField())
+                    .where(RUN.ID.eq(runId))
+                    .execute();
+        });
+    }
+
     public void setDumpStatistics(int dumpId, long entityCount, long statementCount, long tripleCount) {
         context().update(DUMP)
                 .set(DUMP.ENTITY_COUNT, entityCount)
@@ -153,6 +337,130 @@ public class Database {
                 .execute();
     }
 
+    public void setDumpCompressionStatistics(int dumpId, long compressedSize, Duration compressionTime) {
+        context().update(DUMP)
+                .set(DUMP.COMPRESSED_SIZE, compressedSize)
+                .set(DUMP.COMPRESSION_MILLIS, compressionTime.toMillis())
+                .where(DUMP.ID.eq(dumpId))
+                .execute();
+    }
+
+    /**
+     * Adds to the statistics of a dump. Unlike {@link #setDumpStatistics(int, long, long, long)}, this can be used
+     * by multiple shards of a run concurrently.
+     */
+    public void addDumpStatistics(int dumpId, long entityCount, long statementCount, long tripleCount) {
+        context().update(DUMP)
+                .set(DUMP.ENTITY_COUNT, DUMP.ENTITY_COUNT.plus(entityCount))
+                .set(DUMP.STATEMENT_COUNT, DUMP.STATEMENT_COUNT.plus(statementCount))
+                .set(DUMP.TRIPLE_COUNT, DUMP.TRIPLE_COUNT.plus(tripleCount))
+                .where(DUMP.ID.eq(dumpId))
+                .execute();
+    }
+
+    /**
+     * Like {@link #addDumpStatistics(int, long, long, long)}, but for the compression statistics.
+     */
+    public void addDumpCompressionStatistics(int dumpId, long compressedSize, Duration compressionTime) {
+        context().update(DUMP)
+                .set(DUMP.COMPRESSED_SIZE, DUMP.COMPRESSED_SIZE.plus(compressedSize))
+                .set(DUMP.COMPRESSION_MILLIS, DUMP.COMPRESSION_MILLIS.plus(compressionTime.toMillis()))
+                .where(DUMP.ID.eq(dumpId))
+                .execute();
+    }
+
+    /**
+     * Writes the pending updates of a {@link StatisticsWriter} in a single transaction. The updates are sent
+     * as one JDBC batch, so the number of round trips does not depend on the number of dumps.
+     */
+    void writeStatistics(StatisticsWriter.Batch batch) {
+        context().transaction(configuration -> {
+            final DSLContext transaction = DSL.using(configuration);
+            final List<Query> queries = new ArrayList<>();
+            for (StatisticsWriter.ShardProgress progress : batch.progress) {
+                queries.add(transaction.update(RUN_SHARD)
+                        .set(RUN_SHARD.COUNT, progress.count)
+                        .set(RUN_SHARD.INPUT_POSITION, progress.inputPosition)
+                        .set(RUN_SHARD.UPDATED_AT, DSL.currentLocalDateTime())
+                        .where(RUN_SHARD.RUN_ID.eq(progress.runId))
+                        .and(RUN_SHARD.SHARD.eq(progress.shard)));
+                queries.add(transaction.update(RUN)
+                        .set(RUN.COUNT, transaction.select(DSL.min(RUN_SHARD.COUNT)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(progress.runId)).asField())
+                        .set(RUN.INPUT_POSITION, transaction.select(DSL.min(RUN_SHARD.INPUT_POSITION)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(progress.runId)).asField())
+                        .set(RUN.INPUT_SIZE, progress.inputSize)
+                        .set(RUN.PROGRESS_UPDATED_AT, transaction.select(DSL.max(RUN_SHARD.UPDATED_AT)).from(RUN_SHARD).where(RUN_SHARD.RUN_ID.eq(progress.runId)).asField())
+                        .where(RUN.ID.eq(progress.runId)));
+            }
+            batch.statistics.forEach((dumpId, statistics) -> queries.add(transaction.update(DUMP)
+                    .set(DUMP.ENTITY_COUNT, DUMP.ENTITY_COUNT.plus(statistics.entityCount))
+                    .set(DUMP.STATEMENT_COUNT, DUMP.STATEMENT_COUNT.plus(statistics.statementCount))
+                    .set(DUMP.TRIPLE_COUNT, DUMP.TRIPLE_COUNT.plus(statistics.tripleCount))
+                    .set(DUMP.COMPRESSED_SIZE, DUMP.COMPRESSED_SIZE.plus(statistics.compressedSize))
+                    .set(DUMP.COMPRESSION_MILLIS, DUMP.COMPRESSION_MILLIS.plus(statistics.compressionMillis))
+                    .where(DUMP.ID.eq(dumpId))));
+            for (StatisticsWriter.DumpMessage message : batch.messages) {
+                queries.add(transaction.insertInto(DUMP_ERROR)
+                        .set(DUMP_ERROR.LOGGED_AT, DSL.currentLocalDateTime())
+                        .set(DUMP_ERROR.RUN_ID, message.runId)
+                        .set(DUMP_ERROR.DUMP_ID, message.dumpId)
+                        .set(DUMP_ERROR.LEVEL, DB_DumpErrorLevel.valueOf(message.level.toString()))
+                        .set(DUMP_ERROR.MESSAGE, message.message)
+                        .set(DUMP_ERROR.COUNT, message.count));
+            }
+
+            if (!queries.isEmpty()) {
+                transaction.batch(queries).execute();
+            }
+        });
+    }
+
+    /**
+     * Copies the statistics of a dump to another dump that reuses its output.
+     */
+    public void copyDumpStatistics(int fromDumpId, int toDumpId) {
+        final DB_DumpRecord from = context().selectFrom(DUMP).where(DUMP.ID.eq(fromDumpId)).fetchOne();
+        context().update(DUMP)
+                .set(DUMP.ENTITY_COUNT, from.getEntityCount())
+                .set(DUMP.STATEMENT_COUNT, from.getStatementCount())
+                .set(DUMP.TRIPLE_COUNT, from.getTripleCount())
+                .set(DUMP.COMPRESSED_SIZE, from.getCompressedSize())
+                .set(DUMP.COMPRESSION_MILLIS, from.getCompressionMillis())
+                .where(DUMP.ID.eq(toDumpId))
+                .execute();
+    }
+
+    /**
+     * Finds the dumps of earlier runs on the same wikidata dump as the given run, whose output may be reused.
+     *
+     * Only runs that finished before the first shard of the given run was claimed are considered, so that all shards
+     * of the run see the same dumps. The output of runs with a different tool or WDTK version may differ, so such runs
+     * are never reused.
+     *
+     * @param runId id of the run which wants to reuse outputs
+     * @return the finished dumps with their specs
+     */
+    public List<DumpTask> getReusableDumps(int runId) {
+        final DB_Run current = RUN.as("current");
+        final Field<LocalDateTime> claimedAt = DSL.select(DSL.min(RUN_SHARD.STARTED_AT))
+                .from(RUN_SHARD)
+                .where(RUN_SHARD.RUN_ID.eq(runId))
+                .asField();
+
+        return context().select(DUMP.ID, DUMP.SPEC)
+                .from(DUMP)
+                .innerJoin(RUN).on(RUN.ID.eq(DUMP.RUN_ID))
+                .innerJoin(current).on(current.ID.eq(runId))
+                .where(RUN.DUMP_DATE.eq(current.DUMP_DATE))
+                .and(RUN.ID.ne(runId))
+                .and(RUN.FINISHED_AT.lt(claimedAt))
+                .and(RUN.TOOL_VERSION.eq(buildConfig.toolVersion()))
+                .and(RUN.WDTK_VERSION.eq(buildConfig.wdtkVersion()))
+                .orderBy(DUMP.ID)
+                .stream()
+                .map(f -> new DumpTask(f.value1(), f.value2()))
+                .collect(Collectors.toList());
+    }
+
     public List<ZenodoTask> getZenodoTasks(int amount) {
         // find tasks
         final Stream<ZenodoTask> tasks = context().select(ZENODO.ID, ZENODO.DEPOSIT_ID, ZENODO.DUMP_ID, ZENODO.TARGET)
@@ -193,7 +501,8 @@ public class Database {
     }
 
     public DumpInfo getDumpInfo(int  id) {
-        return context().select(DUMP.ID, RUN.WDTK_VERSION, RUN.TOOL_VERSION, RUN.DUMP_DATE, DUMP.TRIPLE_COUNT, DUMP.ENTITY_COUNT, DUMP.STATEMENT_COUNT)
+        return context().select(DUMP.ID, RUN.WDTK_VERSION, RUN.TOOL_VERSION, RUN.DUMP_DATE, DUMP.TRIPLE_COUNT, DUMP.ENTITY_COUNT, DUMP.STATEMENT_COUNT,
+                DUMP.COMPRESSED_SIZE, DUMP.COMPRESSION_MILLIS)
                 .from(DUMP).innerJoin(RUN).on(DUMP.RUN_ID.eq(RUN.ID))
                 .where(DUMP.ID.eq(id))
                 .fetchOne()
@@ -224,6 +533,8 @@ public class Database {
                 .id(record.get(RUN.ID))
                 .count(record.get(RUN.COUNT))
                 .dumpDate(record.get(RUN.DUMP_DATE))
+                .inputPosition(record.get(RUN.INPUT_POSITION))
+                .inputSize(record.get(RUN.INPUT_SIZE))
                 .toolVersion(record.get(RUN.TOOL_VERSION))
                 .wdtkVersion(record.get(RUN.WDTK_VERSION));
 
@@ -237,6 +548,16 @@ public class Database {
             builder.finishedAt(finishedAt.toInstant(ZoneOffset.UTC));
         }
 
+        final LocalDateTime failedAt = record.get(RUN.FAILED_AT);
+        if (failedAt != null) {
+            builder.failedAt(failedAt.toInstant(ZoneOffset.UTC));
+        }
+
+        final LocalDateTime progressUpdatedAt = record.get(RUN.PROGRESS_UPDATED_AT);
+        if (progressUpdatedAt != null) {
+            builder.progressUpdatedAt(progressUpdatedAt.toInstant(ZoneOffset.UTC));
+        }
+
         return builder.build();
     }
 
@@ -251,6 +572,7 @@ public class Database {
                 .level(record.get(DUMP_ERROR.LEVEL, DumpError.Level.class))
                 .loggedAt(record.get(DUMP_ERROR.LOGGED_AT).toInstant(ZoneOffset.UTC))
                 .message(record.get(DUMP_ERROR.MESSAGE))
+                .count(record.get(DUMP_ERROR.COUNT))
                 .build();
     }
 
@@ -8,4 +8,6 @@ public class DumpInfo {
     public long tripleCount;
     public long entityCount;
     public long statementCount;
+    public long compressedSize;
+    public long compressionMillis;
 }
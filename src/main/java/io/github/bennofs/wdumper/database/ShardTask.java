@@ -0,0 +1,17 @@
+package io.github.bennofs.wdumper.database;
+
+import java.util.List;
+
+public class ShardTask {
+    public int runId;
+    public int shard;
+    public int shardCount;
+    public List<DumpTask> dumps;
+
+    public ShardTask(int runId, int shard, int shardCount, List<DumpTask> dumps) {
+        this.runId = runId;
+        this.shard = shard;
+        this.shardCount = shardCount;
+        this.dumps = dumps;
+    }
+}
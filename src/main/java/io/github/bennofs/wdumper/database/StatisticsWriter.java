@@ -0,0 +1,348 @@
+package io.github.bennofs.wdumper.database;
+
+import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the progress, statistics and error messages of a run and writes them to the database in the background.
+ *
+ * The methods only update pending values in memory, so they never wait for the database. Updates of the same dump
+ * or shard are combined until the next write. All pending updates are written periodically in a single transaction,
+ * see {@link Database#writeStatistics(Batch)}. If a write fails, the updates are kept and written with the next batch.
+ *
+ * To avoid filling the database with messages if every entity of a dump fails, only {@link #MAX_MESSAGES_PER_DUMP}
+ * messages of each dump and level are written per batch. The other messages are counted and replaced by
+ * a single message with the number of suppressed messages.
+ */
+public class StatisticsWriter implements Closeable {
+    static final int MAX_MESSAGES_PER_DUMP = 10;
+    /** limit for messages that are retried after a failed write */
+    static final int MAX_PENDING_MESSAGES = 1000;
+    /** number of attempts to write the remaining updates when closing */
+    static final int CLOSE_ATTEMPTS = 3;
+    private static final Duration CLOSE_RETRY_DELAY = Duration.ofSeconds(5);
+
+    /**
+     * The latest progress of a shard.
+     */
+    static final class ShardProgress {
+        final int runId;
+        final int shard;
+        final int count;
+        final long inputPosition;
+        final long inputSize;
+
+        ShardProgress(int runId, int shard, int count, long inputPosition, long inputSize) {
+            this.runId = runId;
+            this.shard = shard;
+            this.count = count;
+            this.inputPosition = inputPosition;
+            this.inputSize = inputSize;
+        }
+    }
+
+    /**
+     * Increments of the statistics of a dump.
+     */
+    static final class DumpStatistics {
+        long entityCount;
+        long statementCount;
+        long tripleCount;
+        long compressedSize;
+        long compressionMillis;
+
+        void add(DumpStatistics other) {
+            entityCount += other.entityCount;
+            statementCount += other.statementCount;
+            tripleCount += other.tripleCount;
+            compressedSize += other.compressedSize;
+            compressionMillis += other.compressionMillis;
+        }
+    }
+
+    static final class DumpMessage {
+        final int runId;
+        final int dumpId;
+        final DumpStatusHandler.ErrorLevel level;
+        final String message;
+        final int count;
+
+        DumpMessage(int runId, int dumpId, DumpStatusHandler.ErrorLevel level, String message, int count) {
+            this.runId = runId;
+            this.dumpId = dumpId;
+            this.level = level;
+            this.message = message;
+            this.count = count;
+        }
+    }
+
+    /**
+     * The pending updates, taken from the writer at once.
+     */
+    static final class Batch {
+        final List<ShardProgress> progress;
+        final Map<Integer, DumpStatistics> statistics;
+        final List<DumpMessage> messages;
+
+        Batch(List<ShardProgress> progress, Map<Integer, DumpStatistics> statistics, List<DumpMessage> messages) {
+            this.progress = progress;
+            this.statistics = statistics;
+            this.messages = messages;
+        }
+
+        boolean isEmpty() {
+            return progress.isEmpty() && statistics.isEmpty() && messages.isEmpty();
+        }
+    }
+
+    /**
+     * Identifies the messages that are limited together.
+     */
+    private static final class MessageKey {
+        final int runId;
+        final int dumpId;
+        final DumpStatusHandler.ErrorLevel level;
+
+        MessageKey(int runId, int dumpId, DumpStatusHandler.ErrorLevel level) {
+            this.runId = runId;
+            this.dumpId = dumpId;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final MessageKey that = (MessageKey) o;
+            return runId == that.runId && dumpId == that.dumpId && level == that.level;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(runId, dumpId, level);
+        }
+    }
+
+    private final Database db;
+    private final Duration interval;
+    private final Object writeLock = new Object();
+
+    // pending updates, guarded by this
+    private final Map<List<Integer>, ShardProgress> progress = new LinkedHashMap<>();
+    private Map<Integer, DumpStatistics> statistics = new LinkedHashMap<>();
+    private List<DumpMessage> messages = new ArrayList<>();
+    private final Map<MessageKey, Integer> messageCounts = new HashMap<>();
+    private final Map<MessageKey, Long> suppressed = new LinkedHashMap<>();
+
+    private Thread thread;
+    private boolean closed = false;
+
+    /**
+     * @param interval time between writes to the database
+     */
+    public StatisticsWriter(Database db, Duration interval) {
+        this.db = db;
+        this.interval = interval;
+    }
+
+    /**
+     * Starts writing the pending updates in the background.
+     */
+    public synchronized void open() {
+        if (thread != null || closed) return;
+
+        thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(interval.toMillis());
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                flush();
+            }
+        }, "statistics-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Sets the progress of a shard, replacing any pending progress of the same shard.
+     *
+     * @see Database#setShardProgress(int, int, int, long, long)
+     */
+    public synchronized void setShardProgress(int runId, int shard, int count, long inputPosition, long inputSize) {
+        progress.put(List.of(runId, shard), new ShardProgress(runId, shard, count, inputPosition, inputSize));
+    }
+
+    /**
+     * @see Database#addDumpStatistics(int, long, long, long)
+     */
+    public synchronized void addDumpStatistics(int dumpId, long entityCount, long statementCount, long tripleCount) {
+        final DumpStatistics pending = statistics.computeIfAbsent(dumpId, id -> new DumpStatistics());
+        pending.entityCount += entityCount;
+        pending.statementCount += statementCount;
+        pending.tripleCount += tripleCount;
+    }
+
+    /**
+     * @see Database#addDumpCompressionStatistics(int, long, Duration)
+     */
+    public synchronized void addDumpCompressionStatistics(int dumpId, long compressedSize, Duration compressionTime) {
+        final DumpStatistics pending = statistics.computeIfAbsent(dumpId, id -> new DumpStatistics());
+        pending.compressedSize += compressedSize;
+        pending.compressionMillis += compressionTime.toMillis();
+    }
+
+    /**
+     * Logs a message for a dump. The message is dropped if too many messages of the dump are already pending.
+     *
+     * @see Database#logDumpMessage(int, int, DumpStatusHandler.ErrorLevel, String)
+     */
+    public synchronized void logDumpMessage(int runId, int dumpId, DumpStatusHandler.ErrorLevel level, String message) {
+        logDumpMessage(runId, dumpId, level, message, 1);
+    }
+
+    /**
+     * Logs a message which stands for multiple occurrences of the same error. Such a message counts like
+     * a single message towards the limit, but if it is suppressed, all of its occurrences are counted.
+     *
+     * @param count number of occurrences
+     */
+    public synchronized void logDumpMessage(int runId, int dumpId, DumpStatusHandler.ErrorLevel level, String message, int count) {
+        final MessageKey key = new MessageKey(runId, dumpId, level);
+        final int logged = messageCounts.merge(key, 1, Integer::sum);
+        if (logged > MAX_MESSAGES_PER_DUMP || messages.size() >= MAX_PENDING_MESSAGES) {
+            suppressed.merge(key, (long) count, Long::sum);
+            return;
+        }
+        messages.add(new DumpMessage(runId, dumpId, level, message, count));
+    }
+
+    /**
+     * Takes all pending updates. The limits of the messages start again after this.
+     */
+    synchronized Batch takeBatch() {
+        final List<DumpMessage> batchMessages = messages;
+        suppressed.forEach((key, count) -> batchMessages.add(new DumpMessage(key.runId, key.dumpId, key.level,
+                count + " similar " + (count == 1 ? "message" : "messages") + " suppressed", 1)));
+        suppressed.clear();
+        messageCounts.clear();
+        messages = new ArrayList<>();
+
+        final Batch batch = new Batch(new ArrayList<>(progress.values()), statistics, batchMessages);
+        progress.clear();
+        statistics = new LinkedHashMap<>();
+        return batch;
+    }
+
+    /**
+     * Returns the updates of a batch that could not be written, so that they are written with the next batch.
+     * Newer progress replaces the progress of the failed batch.
+     */
+    synchronized void restoreBatch(Batch batch) {
+        for (ShardProgress shard : batch.progress) {
+            progress.putIfAbsent(List.of(shard.runId, shard.shard), shard);
+        }
+
+        batch.statistics.forEach((dumpId, failed) ->
+                statistics.computeIfAbsent(dumpId, id -> new DumpStatistics()).add(failed));
+
+        final List<DumpMessage> restored = new ArrayList<>(batch.messages);
+        restored.addAll(messages);
+        messages = restored.size() > MAX_PENDING_MESSAGES
+                ? new ArrayList<>(restored.subList(0, MAX_PENDING_MESSAGES))
+                : restored;
+        if (restored.size() > MAX_PENDING_MESSAGES) {
+            System.err.println("dropped " + (restored.size() - MAX_PENDING_MESSAGES) + " dump messages after failed writes");
+        }
+    }
+
+    /**
+     * Writes all pending updates to the database. This is called periodically after {@link #open()}, but may
+     * also be called directly to make sure that the updates are written.
+     *
+     * @return true if the updates were written, false if writing failed and the updates are still pending
+     */
+    public boolean flush() {
+        try {
+            write();
+            return true;
+        } catch (RuntimeException e) {
+            System.err.println("writing statistics failed, retrying with the next batch: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes all pending updates, keeping them pending if the write fails.
+     */
+    private void write() {
+        // only one batch is written at a time, so that the order of the writes is kept
+        synchronized (writeLock) {
+            final Batch batch = takeBatch();
+            if (batch.isEmpty()) return;
+
+            try {
+                db.writeStatistics(batch);
+            } catch (RuntimeException e) {
+                restoreBatch(batch);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Stops the background thread and writes the remaining updates, retrying up to {@link #CLOSE_ATTEMPTS} times.
+     *
+     * The statistics of a shard are only complete after this returned normally, so a shard must not be finished
+     * if this throws. Only the first call has an effect, later calls return immediately even if the first one failed,
+     * so this can be called both when a shard is done and again in a finally block.
+     *
+     * @throws RuntimeException if the remaining updates could not be written, they are lost then
+     */
+    @Override
+    public void close() {
+        final Thread thread;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            thread = this.thread;
+            this.thread = null;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+        for (int attempt = 1; ; ++attempt) {
+            try {
+                write();
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == CLOSE_ATTEMPTS) throw e;
+                System.err.println("writing statistics failed, retrying: " + e);
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(CLOSE_RETRY_DELAY.toMillis() * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted while writing the remaining statistics", e);
+            }
+        }
+    }
+}
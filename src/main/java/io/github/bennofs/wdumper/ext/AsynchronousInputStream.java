@@ -0,0 +1,192 @@
+package io.github.bennofs.wdumper.ext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Input stream which reads from another stream in a separate thread.
+ *
+ * The data is passed between the threads in a fixed number of chunks, which are recycled after the consumer has read them.
+ * This is used to run decompression of the input dump in parallel with parsing.
+ *
+ * The stream counts the number of bytes read as well as the time that each side spent waiting for the other.
+ * If the consumer waits more than the producer, reading the source stream is the bottleneck.
+ */
+public class AsynchronousInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int CHUNK_COUNT = 16;
+
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /** marks the end of the source stream */
+    private static final Chunk END = new Chunk(0);
+
+    private final InputStream source;
+    private final Thread worker;
+
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(CHUNK_COUNT + 1);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+
+    private volatile IOException failure;
+    private Chunk current;
+    private int position;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+    private final AtomicLong consumerWaitNanos = new AtomicLong();
+    private final long startNanos;
+
+    public AsynchronousInputStream(InputStream source) {
+        this.source = source;
+        for (int i = 0; i < CHUNK_COUNT; ++i) {
+            free.add(new Chunk(CHUNK_SIZE));
+        }
+
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::produce, "async-input-stream");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    private void produce() {
+        try {
+            while (true) {
+                final long waitStart = System.nanoTime();
+                final Chunk chunk = free.take();
+                producerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+
+                chunk.length = readFully(chunk.data);
+                if (chunk.length > 0) {
+                    bytesRead.addAndGet(chunk.length);
+                    filled.put(chunk);
+                }
+                if (chunk.length < chunk.data.length) break;
+            }
+        } catch (InterruptedException ignored) {
+            // the stream was closed, so nobody reads the end marker anymore
+        } catch (IOException e) {
+            failure = e;
+        } catch (Throwable e) {
+            // unchecked errors of the source, like a corrupt compressed block, must not leave the consumer waiting
+            failure = new IOException(e);
+        } finally {
+            // filled has room for all chunks and the end marker, so this never blocks
+            filled.offer(END);
+        }
+    }
+
+    private int readFully(byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            final int n = source.read(buffer, length, buffer.length - length);
+            if (n < 0) break;
+            length += n;
+        }
+        return length;
+    }
+
+    /**
+     * Makes sure that the current chunk has data available.
+     *
+     * @return false if the end of the stream has been reached
+     */
+    private boolean fill() throws IOException {
+        if (current == END) return false;
+        if (current != null && position < current.length) return true;
+
+        try {
+            if (current != null) {
+                free.put(current);
+            }
+
+            final long waitStart = System.nanoTime();
+            current = filled.take();
+            consumerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+            position = 0;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("interrupted while waiting for input");
+        }
+
+        if (current == END) {
+            if (failure != null) {
+                throw new IOException("reading from source stream failed", failure);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return current.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+
+        final int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null || current == END ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        worker.interrupt();
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    /**
+     * @return number of bytes read from the source stream so far
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return time in nanoseconds the reading thread waited for the consumer to free a chunk
+     */
+    public long getProducerWaitNanos() {
+        return producerWaitNanos.get();
+    }
+
+    /**
+     * @return time in nanoseconds the consumer waited for data from the source stream
+     */
+    public long getConsumerWaitNanos() {
+        return consumerWaitNanos.get();
+    }
+
+    /**
+     * @return average throughput of the source stream since the stream was created, in bytes per second
+     */
+    public double getThroughput() {
+        final long elapsed = System.nanoTime() - startNanos;
+        if (elapsed <= 0) return 0;
+        return getBytesRead() * 1e9 / elapsed;
+    }
+}
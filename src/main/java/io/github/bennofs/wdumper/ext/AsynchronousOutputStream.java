@@ -0,0 +1,236 @@
+package io.github.bennofs.wdumper.ext;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream which writes to another stream in a separate thread.
+ *
+ * The data is passed between the threads in a fixed number of chunks, which are recycled after they have been written
+ * to the sink. This is used to run compression of the generated dumps in parallel with serialization.
+ *
+ * If writing to the sink fails, the remaining data is discarded and the error is rethrown to the producer
+ * on the next write, flush or close. Closing the stream waits until all data has been written and the sink is closed.
+ * If the output is not needed anymore, {@link #abort()} stops the writing thread without writing the remaining data.
+ * This stream itself is not thread-safe, it must only be used from one thread at a time.
+ */
+public class AsynchronousOutputStream extends OutputStream {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int CHUNK_COUNT = 8;
+
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+        boolean flush;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+
+    /** marks the end of the data */
+    private static final Chunk END = new Chunk(0);
+
+    private final OutputStream sink;
+    private final Thread worker;
+
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(CHUNK_COUNT + 1);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+
+    private volatile IOException failure;
+    private volatile boolean aborted = false;
+    private Chunk current;
+    private boolean closed = false;
+
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+    private final AtomicLong consumerWaitNanos = new AtomicLong();
+
+    public AsynchronousOutputStream(OutputStream sink) {
+        this.sink = sink;
+        for (int i = 0; i < CHUNK_COUNT; ++i) {
+            free.add(new Chunk(CHUNK_SIZE));
+        }
+
+        this.worker = new Thread(this::consume, "async-output-stream");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    private void consume() {
+        try {
+            while (true) {
+                final long waitStart = System.nanoTime();
+                final Chunk chunk = filled.take();
+                consumerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+                if (chunk == END) break;
+
+                // after a failure, only recycle the chunks so that the producer does not block
+                if (failure == null && !aborted) {
+                    try {
+                        sink.write(chunk.data, 0, chunk.length);
+                        if (chunk.flush) sink.flush();
+                    } catch (Throwable e) {
+                        // also unchecked errors of the sink, so that the chunks keep being recycled
+                        failure = asIOException(e);
+                    }
+                }
+                free.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException("interrupted while writing output");
+        } finally {
+            try {
+                sink.close();
+            } catch (Throwable e) {
+                if (failure == null) failure = asIOException(e);
+            }
+        }
+    }
+
+    private static IOException asIOException(Throwable e) {
+        return e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("writing to the sink stream failed", failure);
+        }
+    }
+
+    /**
+     * Makes sure that the current chunk has space available.
+     */
+    private void ensureChunk() throws IOException {
+        if (closed) throw new IOException("stream is closed");
+        if (current != null && current.length < current.data.length) return;
+
+        if (current != null) {
+            submit(false);
+        }
+
+        try {
+            final long waitStart = System.nanoTime();
+            current = free.take();
+            producerWaitNanos.addAndGet(System.nanoTime() - waitStart);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("interrupted while waiting for output to be written");
+        }
+        current.length = 0;
+        current.flush = false;
+    }
+
+    /**
+     * Passes the current chunk to the writing thread.
+     */
+    private void submit(boolean flush) throws IOException {
+        checkFailure();
+
+        current.flush = flush;
+        try {
+            filled.put(current);
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("interrupted while waiting for output to be written");
+        }
+        current = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureChunk();
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            ensureChunk();
+            final int n = Math.min(len, current.data.length - current.length);
+            System.arraycopy(b, off, current.data, current.length, n);
+            current.length += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Passes all data written so far to the writing thread, which flushes the sink after writing it.
+     *
+     * This does not wait for the data to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (closed) throw new IOException("stream is closed");
+        checkFailure();
+        if (current != null && current.length > 0) {
+            submit(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+
+        try {
+            if (current != null && current.length > 0) {
+                submit(false);
+            }
+        } finally {
+            closed = true;
+            try {
+                filled.put(END);
+                worker.join();
+            } catch (InterruptedException e) {
+                worker.interrupt();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for output to be written");
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * Discards all data that has not been written to the sink yet, stops the writing thread and closes the sink.
+     *
+     * Errors of the sink are ignored. This waits for the chunk that is currently written, but not for the rest.
+     */
+    public void abort() {
+        if (closed) return;
+
+        closed = true;
+        aborted = true;
+        current = null;
+        try {
+            // never blocks, there are fewer chunks than slots in the queue
+            filled.put(END);
+            worker.join();
+        } catch (InterruptedException e) {
+            worker.interrupt();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return time in nanoseconds the producer waited for the writing thread to free a chunk
+     */
+    public long getProducerWaitNanos() {
+        return producerWaitNanos.get();
+    }
+
+    /**
+     * @return time in nanoseconds the writing thread waited for data from the producer
+     */
+    public long getConsumerWaitNanos() {
+        return consumerWaitNanos.get();
+    }
+
+    /**
+     * @return number of chunks waiting to be written by the writing thread, may be called from any thread
+     */
+    public int getQueuedChunks() {
+        return filled.size();
+    }
+}
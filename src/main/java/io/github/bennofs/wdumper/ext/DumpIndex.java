@@ -0,0 +1,631 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.common.io.ByteStreams;
+import io.github.bennofs.wdumper.spec.EntityIds;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Index of the entities in a zstd compressed JSON dump, used to read only the parts of the dump that are needed.
+ *
+ * A zstd file is a sequence of frames, and decompression can start at the beginning of any frame. For each frame,
+ * the index records its offset in the compressed file, the offset of the first line that starts in the frame,
+ * and the types and range of numeric ids of the entities on the lines starting in the frame. Lines are never split:
+ * a line belongs to the frame it starts in, and is read until its end even if that is in the next frame.
+ *
+ * Only dumps with many frames can be read partially, as written by tools like pzstd. A dump compressed as a single
+ * frame gets an index with a single entry, so it is always read completely.
+ */
+public class DumpIndex {
+    private final static Logger logger = LoggerFactory.getLogger(DumpIndex.class);
+
+    private static final int MAGIC = 0x57444958;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    /** number of bytes at the start of each line which are used to determine the type and id of the entity */
+    private static final int HEAD_SIZE = 128;
+
+    private static final int ZSTD_MAGIC = 0xFD2FB528;
+    private static final int ZSTD_SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int ZSTD_SKIPPABLE_MASK = 0xFFFFFFF0;
+    private static final int[] ZSTD_DICTIONARY_ID_SIZE = {0, 1, 2, 4};
+    private static final int ZSTD_BLOCK_RLE = 1;
+    private static final int ZSTD_BLOCK_RESERVED = 3;
+
+    private static final byte[][] TYPE_PREFIXES = new byte[EntityTypeFilter.values().length][];
+
+    static {
+        for (EntityTypeFilter type : EntityTypeFilter.values()) {
+            if (type != EntityTypeFilter.ANY) {
+                TYPE_PREFIXES[type.ordinal()] = ("{\"type\":\"" + type.name().toLowerCase(Locale.ROOT) + "\"").getBytes(StandardCharsets.US_ASCII);
+            }
+        }
+    }
+
+    /**
+     * A single frame of the compressed dump.
+     */
+    public static final class Entry {
+        private final long compressedOffset;
+        private long decompressedSize = 0;
+        private long lineOffset = -1;
+        private int types = 0;
+        private int minId = Integer.MAX_VALUE;
+        private int maxId = -1;
+
+        private Entry(long compressedOffset) {
+            this.compressedOffset = compressedOffset;
+        }
+
+        /**
+         * Checks whether the frame may contain entities of the given type.
+         *
+         * Lines with entities of other types or which could not be classified are counted as {@link EntityTypeFilter#ANY}.
+         * Such lines may contain entities of any type, so frames with these lines are never skipped.
+         *
+         * @param type the type of entities, {@link EntityTypeFilter#ANY} for entities of any type
+         * @return false if the lines starting in this frame do not contain entities of the given type
+         */
+        public boolean mayContain(EntityTypeFilter type) {
+            if (type == EntityTypeFilter.ANY) return types != 0;
+            return (types & (bit(type) | bit(EntityTypeFilter.ANY))) != 0;
+        }
+
+        /**
+         * @return smallest numeric id of the entities starting in this frame, 0 if some id is unknown
+         */
+        public int getMinId() {
+            return minId;
+        }
+
+        /**
+         * @return largest numeric id of the entities starting in this frame, {@link Integer#MAX_VALUE} if some id is unknown
+         */
+        public int getMaxId() {
+            return maxId;
+        }
+
+        private boolean hasLines() {
+            return lineOffset >= 0;
+        }
+
+        private void addEntity(EntityTypeFilter type, int numericId) {
+            types |= bit(type);
+            minId = Math.min(minId, numericId);
+            maxId = Math.max(maxId, numericId);
+        }
+
+        private void addUnknown() {
+            types |= bit(EntityTypeFilter.ANY);
+            minId = 0;
+            maxId = Integer.MAX_VALUE;
+        }
+
+        private static int bit(EntityTypeFilter type) {
+            return 1 << type.ordinal();
+        }
+    }
+
+    private final Path dumpFile;
+    private final long dumpSize;
+    private final long dumpModified;
+    private final List<Entry> entries;
+
+    private DumpIndex(Path dumpFile, long dumpSize, long dumpModified, List<Entry> entries) {
+        this.dumpFile = dumpFile;
+        this.dumpSize = dumpSize;
+        this.dumpModified = dumpModified;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the file where the index of the given dump is stored
+     */
+    public static Path getIndexPath(Path dumpFile) {
+        return dumpFile.resolveSibling(dumpFile.getFileName() + ".idx");
+    }
+
+    /**
+     * Loads the index stored next to the dump, if it exists and is up to date.
+     *
+     * The index is never built here, since that requires decompressing the whole dump. It is built once
+     * for each dump with {@link #loadOrBuild(Path)}, before the dump is processed.
+     *
+     * @param dumpFile the zstd compressed dump
+     * @return the index, or empty if there is no up-to-date index
+     * @throws IOException if reading the attributes of the dump failed
+     */
+    public static Optional<DumpIndex> load(Path dumpFile) throws IOException {
+        final Path indexFile = getIndexPath(dumpFile);
+        if (!Files.exists(indexFile)) return Optional.empty();
+
+        final BasicFileAttributes attributes = Files.readAttributes(dumpFile, BasicFileAttributes.class);
+        try {
+            final DumpIndex index = read(dumpFile, indexFile);
+            if (index.dumpSize == attributes.size() && index.dumpModified == attributes.lastModifiedTime().toMillis()) {
+                return Optional.of(index);
+            }
+            logger.info("index " + indexFile + " is outdated");
+        } catch (IOException e) {
+            logger.warn("failed to read index " + indexFile + ": " + e.toString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Loads the index stored next to the dump, or builds and stores it if there is no up-to-date index.
+     *
+     * Building the index requires decompressing the whole dump once. If the index cannot be stored,
+     * it is still returned, so the dump can be processed anyway.
+     *
+     * @param dumpFile the zstd compressed dump
+     * @return the index
+     * @throws IOException if reading the dump failed
+     */
+    public static DumpIndex loadOrBuild(Path dumpFile) throws IOException {
+        final Optional<DumpIndex> loaded = load(dumpFile);
+        if (loaded.isPresent()) return loaded.get();
+
+        final Path indexFile = getIndexPath(dumpFile);
+        final DumpIndex index = build(dumpFile);
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            logger.warn("failed to store index " + indexFile + ": " + e.toString());
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of a dump.
+     *
+     * @param dumpFile the zstd compressed dump
+     * @return the index
+     * @throws IOException if reading the dump failed or it is not a valid zstd file
+     */
+    public static DumpIndex build(Path dumpFile) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(dumpFile, BasicFileAttributes.class);
+        final List<long[]> frames;
+        try (FileChannel channel = FileChannel.open(dumpFile)) {
+            frames = scanFrames(channel);
+        }
+
+        final List<Entry> entries = new ArrayList<>();
+        if (frames.size() <= 1) {
+            // a single frame cannot be split, so there is no need to decompress it
+            final Entry entry = new Entry(0);
+            entry.lineOffset = 0;
+            entry.addUnknown();
+            entries.add(entry);
+            return new DumpIndex(dumpFile, attributes.size(), attributes.lastModifiedTime().toMillis(), entries);
+        }
+
+        final LineScanner scanner = new LineScanner();
+        try (InputStream raw = new BufferedInputStream(Files.newInputStream(dumpFile), BUFFER_SIZE)) {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            long position = 0;
+            for (long[] frame : frames) {
+                // skip the skippable frames in between
+                ByteStreams.skipFully(raw, frame[0] - position);
+
+                final Entry entry = new Entry(frame[0]);
+                entries.add(entry);
+
+                final InputStream compressed = ByteStreams.limit(raw, frame[1]);
+                final InputStream decompressed = new ZstdInputStream(new FilterInputStream(compressed) {
+                    @Override
+                    public void close() {
+                        // the underlying stream is shared by all frames
+                    }
+                });
+                try (decompressed) {
+                    int n;
+                    while ((n = decompressed.read(buffer)) != -1) {
+                        scanner.scan(entry, buffer, n);
+                    }
+                }
+                ByteStreams.exhaust(compressed);
+                position = frame[0] + frame[1];
+            }
+        }
+        scanner.finish();
+
+        return new DumpIndex(dumpFile, attributes.size(), attributes.lastModifiedTime().toMillis(), entries);
+    }
+
+    /**
+     * Finds the offsets and lengths of the zstd frames in the file, by only reading the frame and block headers.
+     * Skippable frames are not included.
+     */
+    private static List<long[]> scanFrames(FileChannel channel) throws IOException {
+        final List<long[]> frames = new ArrayList<>();
+        final long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            final int magic = (int) readLE(channel, position, 4);
+            if ((magic & ZSTD_SKIPPABLE_MASK) == ZSTD_SKIPPABLE_MAGIC) {
+                position += 8 + readLE(channel, position + 4, 4);
+                continue;
+            }
+            if (magic != ZSTD_MAGIC) {
+                throw new IOException("no zstd frame at offset " + position);
+            }
+
+            final int descriptor = (int) readLE(channel, position + 4, 1);
+            final int contentSizeFlag = descriptor >>> 6;
+            final boolean singleSegment = (descriptor & 0x20) != 0;
+            final boolean checksum = (descriptor & 0x04) != 0;
+            final int contentSizeBytes = contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+
+            long blockPosition = position + 5 + (singleSegment ? 0 : 1) + ZSTD_DICTIONARY_ID_SIZE[descriptor & 0x03] + contentSizeBytes;
+            while (true) {
+                final int blockHeader = (int) readLE(channel, blockPosition, 3);
+                final int blockType = (blockHeader >>> 1) & 0x03;
+                if (blockType == ZSTD_BLOCK_RESERVED) {
+                    throw new IOException("invalid zstd block at offset " + blockPosition);
+                }
+                blockPosition += 3 + (blockType == ZSTD_BLOCK_RLE ? 1 : blockHeader >>> 3);
+                if ((blockHeader & 1) != 0) break;
+            }
+            if (checksum) blockPosition += 4;
+
+            frames.add(new long[]{position, blockPosition - position});
+            position = blockPosition;
+        }
+        return frames;
+    }
+
+    private static long readLE(FileChannel channel, long position, int bytes) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.limit(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("truncated zstd frame at offset " + position);
+            }
+        }
+        buffer.clear();
+        return buffer.getLong();
+    }
+
+    /**
+     * Finds the start of each line and classifies the entity on it.
+     */
+    private static final class LineScanner {
+        private final byte[] head = new byte[HEAD_SIZE];
+        private int headLength = 0;
+        private boolean inHead = false;
+        private boolean atLineStart = true;
+        /** the entry of the frame in which the current line started */
+        private Entry lineEntry;
+
+        void scan(Entry entry, byte[] data, int length) {
+            for (int i = 0; i < length; ++i) {
+                if (atLineStart) {
+                    if (!entry.hasLines()) entry.lineOffset = entry.decompressedSize + i;
+                    lineEntry = entry;
+                    headLength = 0;
+                    inHead = true;
+                    atLineStart = false;
+                }
+
+                if (inHead) {
+                    head[headLength++] = data[i];
+                    if (data[i] == '\n' || headLength == HEAD_SIZE) {
+                        classify();
+                        inHead = false;
+                    }
+                }
+
+                if (data[i] == '\n') {
+                    atLineStart = true;
+                } else if (!inHead) {
+                    // skip to the end of the line
+                    while (i + 1 < length && data[i + 1] != '\n') i += 1;
+                }
+            }
+            entry.decompressedSize += length;
+        }
+
+        void finish() {
+            if (inHead) classify();
+        }
+
+        private void classify() {
+            // skip the lines with the brackets of the top-level array
+            int content = 0;
+            for (int i = 0; i < headLength; ++i) {
+                final byte b = head[i];
+                if (b != ' ' && b != '\t' && b != '\r' && b != '\n' && b != ',') content += 1;
+            }
+            if (content <= 1) return;
+
+            final String id = EntityIds.findEntityId(head, 0, headLength);
+            final int numericId = id == null || id.isEmpty() ? -1 : EntityIds.numericId(id, id.charAt(0));
+            for (EntityTypeFilter type : EntityTypeFilter.values()) {
+                if (type != EntityTypeFilter.ANY && numericId >= 0 && startsWith(head, headLength, TYPE_PREFIXES[type.ordinal()])) {
+                    lineEntry.addEntity(type, numericId);
+                    return;
+                }
+            }
+            lineEntry.addUnknown();
+        }
+
+        private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+            if (length < prefix.length) return false;
+            for (int i = 0; i < prefix.length; ++i) {
+                if (data[i] != prefix[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private static DumpIndex read(Path dumpFile, Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("unsupported index format");
+            }
+
+            final long dumpSize = in.readLong();
+            final long dumpModified = in.readLong();
+            final int count = in.readInt();
+            final List<Entry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                final Entry entry = new Entry(in.readLong());
+                entry.decompressedSize = in.readLong();
+                entry.lineOffset = in.readLong();
+                entry.types = in.readInt();
+                entry.minId = in.readInt();
+                entry.maxId = in.readInt();
+                entries.add(entry);
+            }
+            return new DumpIndex(dumpFile, dumpSize, dumpModified, entries);
+        }
+    }
+
+    /**
+     * Stores the index. The file is replaced atomically, so concurrent readers never see a partial index.
+     * Each writer uses its own temporary file, so processes that store the same index at the same time
+     * do not interfere.
+     *
+     * @param indexFile where to store the index
+     * @throws IOException if writing failed
+     */
+    public void write(Path indexFile) throws IOException {
+        final Path temporary = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temporary);
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeTo(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(dumpSize);
+            out.writeLong(dumpModified);
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeLong(entry.compressedOffset);
+                out.writeLong(entry.decompressedSize);
+                out.writeLong(entry.lineOffset);
+                out.writeInt(entry.types);
+                out.writeInt(entry.minId);
+                out.writeInt(entry.maxId);
+            }
+        }
+    }
+
+    /**
+     * @return the frames of the dump, in order
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Opens the decompressed dump, but only with the lines starting in the selected frames.
+     *
+     * @param selection returns true for the frames which need to be read
+     * @return stream of complete lines
+     */
+    public InputStream openSelected(Predicate<Entry> selection) {
+        return openSelected(selection, new AtomicLong());
+    }
+
+    /**
+     * Opens the decompressed dump, but only with the lines starting in the selected frames.
+     *
+     * The position is set to the compressed offset of each range of frames when the range is opened, and then
+     * advanced by the compressed bytes read. Skipped frames therefore count as read.
+     *
+     * @param selection returns true for the frames which need to be read
+     * @param position receives the position in the compressed dump
+     * @return stream of complete lines
+     */
+    public InputStream openSelected(Predicate<Entry> selection, AtomicLong position) {
+        final List<int[]> ranges = new ArrayList<>();
+        for (int first = 0; first < entries.size(); ) {
+            if (!isSelected(first, selection)) {
+                first += 1;
+                continue;
+            }
+
+            int last = first;
+            while (last + 1 < entries.size() && isSelected(last + 1, selection)) last += 1;
+            ranges.add(new int[]{first, last});
+            first = last + 1;
+        }
+        return new SelectedInputStream(ranges.iterator(), position);
+    }
+
+    private boolean isSelected(int index, Predicate<Entry> selection) {
+        final Entry entry = entries.get(index);
+        return entry.hasLines() && selection.test(entry);
+    }
+
+    /**
+     * Opens the lines starting in a range of consecutive frames.
+     */
+    private InputStream openRange(int first, int last, AtomicLong position) throws IOException {
+        final Entry start = entries.get(first);
+        final FileChannel channel = FileChannel.open(dumpFile);
+        channel.position(start.compressedOffset);
+        position.set(start.compressedOffset);
+        final InputStream raw = new PositionInputStream(Channels.newInputStream(channel), position);
+        final InputStream decompressed = new ZstdInputStream(new BufferedInputStream(raw, BUFFER_SIZE));
+
+        // the last frame is read until the end of the file, since its size is unknown for dumps with a single frame
+        if (last == entries.size() - 1) {
+            return new LineRangeInputStream(decompressed, start.lineOffset, -1);
+        }
+
+        long length = -start.lineOffset;
+        for (int i = first; i <= last; ++i) {
+            length += entries.get(i).decompressedSize;
+        }
+        return new LineRangeInputStream(decompressed, start.lineOffset, length);
+    }
+
+    private final class SelectedInputStream extends InputStream {
+        private final Iterator<int[]> ranges;
+        private final AtomicLong position;
+        private InputStream current = null;
+
+        SelectedInputStream(Iterator<int[]> ranges, AtomicLong position) {
+            this.ranges = ranges;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            while (true) {
+                if (current == null) {
+                    if (!ranges.hasNext()) return -1;
+                    final int[] range = ranges.next();
+                    current = openRange(range[0], range[1], position);
+                }
+
+                final int n = current.read(b, off, len);
+                if (n >= 0) return n;
+
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * Skips to the start of the first line, then passes the given number of bytes and the rest of the last line.
+     */
+    private static final class LineRangeInputStream extends FilterInputStream {
+        private long skip;
+        /** remaining bytes before looking for the end of the line, negative if the input is read until the end */
+        private long remaining;
+        private boolean lastWasNewline = false;
+        private boolean done = false;
+
+        LineRangeInputStream(InputStream in, long skip, long length) {
+            super(in);
+            this.skip = skip;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) return -1;
+            if (len == 0) return 0;
+            if (skip > 0) {
+                ByteStreams.skipFully(in, skip);
+                skip = 0;
+            }
+
+            if (remaining != 0) {
+                final int n = in.read(b, off, remaining < 0 ? len : (int) Math.min(len, remaining));
+                if (n <= 0) return n;
+                if (remaining > 0) remaining -= n;
+                lastWasNewline = b[off + n - 1] == '\n';
+                return n;
+            }
+
+            // finish the last line, which may continue in the following frames
+            if (lastWasNewline) {
+                done = true;
+                return -1;
+            }
+            final int n = in.read(b, off, len);
+            if (n < 0) return n;
+            for (int i = off; i < off + n; ++i) {
+                if (b[i] == '\n') {
+                    done = true;
+                    return i - off + 1;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            final int read = read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
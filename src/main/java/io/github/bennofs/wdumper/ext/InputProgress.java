@@ -0,0 +1,20 @@
+package io.github.bennofs.wdumper.ext;
+
+/**
+ * A dump file which reports how much of the file has been read.
+ *
+ * The position counts bytes of the file as stored on disk, so for compressed dumps it is the compressed position.
+ * Comparing it to the size of the file gives the fraction of the dump that has been processed, independent of the
+ * number of entities in the dump.
+ */
+public interface InputProgress {
+    /**
+     * @return number of bytes of the file consumed by the most recently opened stream
+     */
+    long getInputPosition();
+
+    /**
+     * @return size of the file in bytes, or 0 if the file has not been opened yet
+     */
+    long getInputSize();
+}
@@ -0,0 +1,247 @@
+package io.github.bennofs.wdumper.ext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream that compresses data with gzip, compressing blocks of the input in parallel.
+ *
+ * This works like pigz: the input is split into blocks which are deflated independently on an executor. Each block
+ * uses the last 32 KiB of the previous block as dictionary and ends with a sync flush, so the compressed blocks can
+ * be concatenated into a single deflate stream. The output is a regular gzip file with a single member, which can be
+ * read by any gzip decompressor. The compression ratio is only slightly worse than compressing sequentially.
+ *
+ * The compressed blocks are written to the underlying stream in order. Writing blocks when too many blocks are
+ * pending, flushing and closing wait for the compression to finish. This stream itself is not thread-safe.
+ *
+ * The time spent compressing is measured inside the compression tasks, so time that blocks spend waiting for a
+ * thread of a shared executor is not included.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    private static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final byte[] HEADER = {
+            0x1f, (byte) 0x8b, // magic
+            Deflater.DEFLATED, // compression method
+            0, // flags
+            0, 0, 0, 0, // modification time (unknown)
+            0, // extra flags
+            (byte) 0xff // operating system (unknown)
+    };
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxPendingBlocks;
+
+    private final Queue<Future<byte[]>> pending = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private final AtomicLong compressionNanos = new AtomicLong();
+    private long uncompressedSize = 0;
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength = 0;
+    private byte[] dictionary = null;
+    private boolean closed = false;
+
+    /**
+     * @param out the stream to write the compressed data to
+     * @param executor executor on which the blocks are compressed, may be shared between multiple streams
+     * @param level deflate compression level
+     * @param maxPendingBlocks maximum number of blocks that are queued for compression
+     * @throws IOException if writing the gzip header fails
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int level, int maxPendingBlocks) throws IOException {
+        if (maxPendingBlocks < 1) {
+            throw new IllegalArgumentException("number of pending blocks must be positive, got " + maxPendingBlocks);
+        }
+
+        this.out = out;
+        this.executor = executor;
+        this.level = level;
+        this.maxPendingBlocks = maxPendingBlocks;
+
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == block.length) submitBlock();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            final int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+            if (blockLength == block.length) submitBlock();
+        }
+    }
+
+    /**
+     * Waits for all blocks that have been written so far to be compressed and flushes them to the underlying stream.
+     *
+     * The data written before is not yet a complete gzip stream, it is only completed on close.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitBlock();
+        while (!pending.isEmpty()) {
+            writeCompletedBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+
+        try {
+            flush();
+
+            // an empty final block terminates the deflate stream
+            final long start = System.nanoTime();
+            final Deflater deflater = new Deflater(level, true);
+            try {
+                deflater.finish();
+                final byte[] buffer = new byte[64];
+                while (!deflater.finished()) {
+                    final int n = deflater.deflate(buffer);
+                    out.write(buffer, 0, n);
+                }
+            } finally {
+                deflater.end();
+                compressionNanos.addAndGet(System.nanoTime() - start);
+            }
+
+            writeTrailer();
+            out.flush();
+        } finally {
+            closed = true;
+            pending.forEach(future -> future.cancel(true));
+            out.close();
+        }
+    }
+
+    /**
+     * Can be called from any thread.
+     *
+     * @return total time spent compressing blocks so far, summed over all threads of the executor
+     */
+    public Duration getCompressionTime() {
+        return Duration.ofNanos(compressionNanos.get());
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("stream is closed");
+    }
+
+    private void submitBlock() throws IOException {
+        if (blockLength == 0) return;
+
+        final byte[] input = block;
+        final int length = blockLength;
+        final byte[] previous = dictionary;
+
+        crc.update(input, 0, length);
+        uncompressedSize += length;
+        pending.add(executor.submit(() -> {
+            final long start = System.nanoTime();
+            try {
+                return compressBlock(input, length, previous, level);
+            } finally {
+                compressionNanos.addAndGet(System.nanoTime() - start);
+            }
+        }));
+
+        // the dictionary for the next block is the end of this block, preceded by the previous dictionary if short
+        dictionary = nextDictionary(previous, input, length);
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        while (pending.size() > maxPendingBlocks) {
+            writeCompletedBlock();
+        }
+    }
+
+    private static byte[] nextDictionary(byte[] previous, byte[] input, int length) {
+        if (length >= DICTIONARY_SIZE || previous == null) {
+            return Arrays.copyOfRange(input, Math.max(0, length - DICTIONARY_SIZE), length);
+        }
+
+        final int keep = Math.min(previous.length, DICTIONARY_SIZE - length);
+        final byte[] result = new byte[keep + length];
+        System.arraycopy(previous, previous.length - keep, result, 0, keep);
+        System.arraycopy(input, 0, result, keep, length);
+        return result;
+    }
+
+    private static byte[] compressBlock(byte[] input, int length, byte[] dictionary, int level) {
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(input, 0, length);
+
+            final ByteArrayOutputStream result = new ByteArrayOutputStream(length / 2);
+            final byte[] buffer = new byte[64 * 1024];
+            while (true) {
+                final int n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                result.write(buffer, 0, n);
+
+                // if the buffer was filled completely, there may be more output pending
+                if (n < buffer.length && deflater.needsInput()) break;
+            }
+            return result.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeCompletedBlock() throws IOException {
+        final Future<byte[]> future = pending.remove();
+        try {
+            out.write(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for compression");
+        } catch (ExecutionException e) {
+            throw new IOException("compressing block failed", e.getCause());
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        final byte[] trailer = new byte[8];
+        writeIntLE(trailer, 0, (int) crc.getValue());
+        writeIntLE(trailer, 4, (int) uncompressedSize);
+        out.write(trailer);
+    }
+
+    private static void writeIntLE(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+        buffer[offset + 2] = (byte) (value >>> 16);
+        buffer[offset + 3] = (byte) (value >>> 24);
+    }
+}
@@ -0,0 +1,48 @@
+package io.github.bennofs.wdumper.ext;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Input stream which adds the number of bytes read to a shared position.
+ *
+ * The position is shared so that it can be read from other threads, and so that a sequence of streams over
+ * parts of the same file can report a single position by setting it to their offset when opened.
+ */
+class PositionInputStream extends FilterInputStream {
+    private final AtomicLong position;
+
+    PositionInputStream(InputStream in, AtomicLong position) {
+        super(in);
+        this.position = position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) position.incrementAndGet();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        final int n = super.read(b, off, len);
+        if (n > 0) position.addAndGet(n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final long skipped = super.skip(n);
+        position.addAndGet(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // reset would move the position backwards without the position noticing
+        return false;
+    }
+}
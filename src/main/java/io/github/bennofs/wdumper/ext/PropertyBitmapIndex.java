@@ -0,0 +1,355 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.spec.EntityIds;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Inverted index from properties and their values to the entities of a snapshot, stored next to the snapshot.
+ *
+ * Entities are identified by the number of their record in the {@link SnapshotDumpFile}. For each entity type and
+ * each property, the index has a bitmap of the entities of that type or with statements for that property.
+ * For a few properties which are commonly used in entity filters, like P31 (instance of), there is also a bitmap
+ * for every item that is the value of such a statement. Indexing the values of all properties would need far
+ * more memory than the dump itself, so filters on other values can only be narrowed down to the entities that
+ * have the property.
+ *
+ * Statements of all ranks are indexed, so the entities found with the index are a superset of those that
+ * match a filter with a rank restriction.
+ */
+public class PropertyBitmapIndex {
+    private final static Logger logger = LoggerFactory.getLogger(PropertyBitmapIndex.class);
+
+    private static final int MAGIC = 0x57445042;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    /** properties whose item values are indexed by default: instance of, subclass of, occupation, sex or gender,
+     * country of citizenship, country, located in, country of origin, genre and taxon rank */
+    public static final Set<Integer> DEFAULT_VALUE_PROPERTIES = Set.of(31, 279, 106, 21, 27, 17, 131, 495, 136, 105);
+
+    private static final EntityTypeFilter[] INDEXED_TYPES = {
+            EntityTypeFilter.ITEM, EntityTypeFilter.PROPERTY, EntityTypeFilter.LEXEME
+    };
+
+    private final long snapshotSize;
+    private final long snapshotModified;
+    private final int entityCount;
+    private final Set<Integer> valueProperties;
+    private final Map<EntityTypeFilter, RoaringBitmap> types;
+    private final Map<Integer, RoaringBitmap> properties;
+    /** keyed by the property id in the upper and the item id in the lower half */
+    private final Map<Long, RoaringBitmap> values;
+
+    private PropertyBitmapIndex(long snapshotSize, long snapshotModified, int entityCount, Set<Integer> valueProperties,
+                                Map<EntityTypeFilter, RoaringBitmap> types, Map<Integer, RoaringBitmap> properties,
+                                Map<Long, RoaringBitmap> values) {
+        this.snapshotSize = snapshotSize;
+        this.snapshotModified = snapshotModified;
+        this.entityCount = entityCount;
+        this.valueProperties = valueProperties;
+        this.types = types;
+        this.properties = properties;
+        this.values = values;
+    }
+
+    private static long valueKey(int property, int item) {
+        return ((long) property << 32) | (item & 0xffffffffL);
+    }
+
+    /**
+     * @return the file where the index of the given snapshot is stored
+     */
+    public static Path getIndexPath(Path snapshot) {
+        return snapshot.resolveSibling(snapshot.getFileName() + ".pbi");
+    }
+
+    /**
+     * Loads the index stored next to the snapshot.
+     *
+     * @param snapshot path of the snapshot
+     * @return the index, or empty if there is no index or it is outdated
+     */
+    public static Optional<PropertyBitmapIndex> load(Path snapshot) {
+        final Path indexFile = getIndexPath(snapshot);
+        if (!Files.exists(indexFile)) return Optional.empty();
+
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(snapshot, BasicFileAttributes.class);
+            final PropertyBitmapIndex index = read(indexFile);
+            if (index.snapshotSize == attributes.size() && index.snapshotModified == attributes.lastModifiedTime().toMillis()) {
+                return Optional.of(index);
+            }
+            logger.info("index " + indexFile + " is outdated");
+        } catch (IOException e) {
+            logger.warn("failed to read index " + indexFile + ": " + e.toString());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Builds the index by reading the whole snapshot. Records with statements for one of the value properties
+     * are decoded to find the values.
+     *
+     * @param snapshot the snapshot to index
+     * @param valueProperties numeric ids of the properties whose item values are indexed
+     * @return the index
+     * @throws IOException if reading the snapshot failed
+     */
+    public static PropertyBitmapIndex build(SnapshotDumpFile snapshot, Set<Integer> valueProperties) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(snapshot.getPath(), BasicFileAttributes.class);
+        final ObjectMapper mapper = new ObjectMapper();
+        final SnapshotDumpFile.Decoder decoder = snapshot.createDecoder();
+
+        final Map<EntityTypeFilter, RoaringBitmap> types = new EnumMap<>(EntityTypeFilter.class);
+        for (EntityTypeFilter type : INDEXED_TYPES) {
+            types.put(type, new RoaringBitmap());
+        }
+        final Map<Integer, RoaringBitmap> properties = new HashMap<>();
+        final Map<Long, RoaringBitmap> values = new HashMap<>();
+
+        int ordinal = 0;
+        try (InputStream input = snapshot.getDumpFileStream()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int filled = 0;
+            while (true) {
+                final int n = input.read(buffer, filled, buffer.length - filled);
+                if (n > 0) filled += n;
+
+                final int end = SnapshotDumpFile.completeLength(buffer, filled);
+                for (int offset = 0; offset < end; ++ordinal) {
+                    offset = decoder.next(buffer, offset);
+
+                    final int entity = ordinal;
+                    final RoaringBitmap type = types.get(decoder.getType());
+                    if (type != null) type.add(entity);
+
+                    final boolean[] hasValueProperty = {false};
+                    decoder.forEachProperty(property -> {
+                        properties.computeIfAbsent(property, p -> new RoaringBitmap()).add(entity);
+                        if (valueProperties.contains(property)) hasValueProperty[0] = true;
+                    });
+                    if (hasValueProperty[0]) {
+                        addValues(mapper.readTree(decoder.parse()), entity, valueProperties, values);
+                    }
+                }
+
+                System.arraycopy(buffer, end, buffer, 0, filled - end);
+                filled -= end;
+                if (n < 0) break;
+                if (filled == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+            }
+            if (filled > 0) {
+                throw new IOException("snapshot ends with an incomplete record");
+            }
+        }
+
+        types.values().forEach(RoaringBitmap::runOptimize);
+        properties.values().forEach(RoaringBitmap::runOptimize);
+        values.values().forEach(RoaringBitmap::runOptimize);
+        return new PropertyBitmapIndex(attributes.size(), attributes.lastModifiedTime().toMillis(), ordinal,
+                new TreeSet<>(valueProperties), types, properties, values);
+    }
+
+    private static void addValues(JsonNode entity, int ordinal, Set<Integer> valueProperties, Map<Long, RoaringBitmap> values) {
+        final JsonNode claims = entity.path("claims");
+        for (int property : valueProperties) {
+            for (JsonNode statement : claims.path("P" + property)) {
+                final JsonNode value = statement.path("mainsnak").path("datavalue").path("value");
+
+                int item = -1;
+                if (value.path("id").isTextual()) {
+                    item = EntityIds.numericId(value.path("id").asText(), 'Q');
+                } else if (value.path("entity-type").asText().equals("item") && value.path("numeric-id").canConvertToInt()) {
+                    item = value.path("numeric-id").asInt();
+                }
+                if (item >= 0) {
+                    values.computeIfAbsent(valueKey(property, item), k -> new RoaringBitmap()).add(ordinal);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the index if it is up to date, or builds and stores it.
+     *
+     * @param snapshot the snapshot
+     * @return the index
+     * @throws IOException if reading the snapshot failed
+     */
+    public static PropertyBitmapIndex loadOrBuild(SnapshotDumpFile snapshot) throws IOException {
+        final Optional<PropertyBitmapIndex> loaded = load(snapshot.getPath());
+        if (loaded.isPresent()) return loaded.get();
+
+        final PropertyBitmapIndex index = build(snapshot, DEFAULT_VALUE_PROPERTIES);
+        final Path indexFile = getIndexPath(snapshot.getPath());
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            logger.warn("failed to store index " + indexFile + ": " + e.toString());
+        }
+        return index;
+    }
+
+    /**
+     * Stores the index. The file is replaced atomically, so concurrent readers never see a partial index.
+     * Each writer uses its own temporary file, so processes that store the same index at the same time
+     * do not interfere.
+     *
+     * @param indexFile where to store the index
+     * @throws IOException if writing failed
+     */
+    public void write(Path indexFile) throws IOException {
+        final Path temporary = Files.createTempFile(indexFile.toAbsolutePath().getParent(), indexFile.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temporary);
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void writeTo(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshotSize);
+            out.writeLong(snapshotModified);
+            out.writeInt(entityCount);
+
+            out.writeInt(valueProperties.size());
+            for (int property : valueProperties) {
+                out.writeInt(property);
+            }
+            for (EntityTypeFilter type : INDEXED_TYPES) {
+                types.get(type).serialize(out);
+            }
+            out.writeInt(properties.size());
+            for (Map.Entry<Integer, RoaringBitmap> entry : properties.entrySet()) {
+                out.writeInt(entry.getKey());
+                entry.getValue().serialize(out);
+            }
+            out.writeInt(values.size());
+            for (Map.Entry<Long, RoaringBitmap> entry : values.entrySet()) {
+                out.writeLong(entry.getKey());
+                entry.getValue().serialize(out);
+            }
+        }
+    }
+
+    private static PropertyBitmapIndex read(Path indexFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("unsupported index format");
+            }
+            final long snapshotSize = in.readLong();
+            final long snapshotModified = in.readLong();
+            final int entityCount = in.readInt();
+
+            final Set<Integer> valueProperties = new TreeSet<>();
+            for (int i = in.readInt(); i > 0; --i) {
+                valueProperties.add(in.readInt());
+            }
+            final Map<EntityTypeFilter, RoaringBitmap> types = new EnumMap<>(EntityTypeFilter.class);
+            for (EntityTypeFilter type : INDEXED_TYPES) {
+                types.put(type, readBitmap(in));
+            }
+            final Map<Integer, RoaringBitmap> properties = new HashMap<>();
+            for (int i = in.readInt(); i > 0; --i) {
+                final int property = in.readInt();
+                properties.put(property, readBitmap(in));
+            }
+            final Map<Long, RoaringBitmap> values = new HashMap<>();
+            for (int i = in.readInt(); i > 0; --i) {
+                final long key = in.readLong();
+                values.put(key, readBitmap(in));
+            }
+            return new PropertyBitmapIndex(snapshotSize, snapshotModified, entityCount, valueProperties, types, properties, values);
+        }
+    }
+
+    private static RoaringBitmap readBitmap(DataInputStream in) throws IOException {
+        final RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.deserialize(in);
+        return bitmap;
+    }
+
+    /**
+     * @return the number of entities in the snapshot
+     */
+    public int getEntityCount() {
+        return entityCount;
+    }
+
+    /**
+     * Returns the entities of the given type. The returned bitmap must not be modified.
+     *
+     * @param type the entity type, {@link EntityTypeFilter#ANY} for all entities
+     * @return the entities
+     */
+    public RoaringBitmap getEntities(EntityTypeFilter type) {
+        if (type == EntityTypeFilter.ANY) {
+            final RoaringBitmap all = new RoaringBitmap();
+            all.add(0L, entityCount);
+            return all;
+        }
+        return types.get(type);
+    }
+
+    /**
+     * Returns the entities with statements for the given property. The returned bitmap must not be modified.
+     *
+     * @param property the numeric id of the property
+     * @return the entities
+     */
+    public RoaringBitmap getEntitiesWithStatements(int property) {
+        return properties.getOrDefault(property, new RoaringBitmap());
+    }
+
+    /**
+     * @param property the numeric id of the property
+     * @return true if the item values of the property are indexed
+     */
+    public boolean isValueIndexed(int property) {
+        return valueProperties.contains(property);
+    }
+
+    /**
+     * Returns the entities with a statement for the property that has the given item as value.
+     * The returned bitmap must not be modified.
+     *
+     * @param property the numeric id of the property, which needs to be indexed with values
+     * @param item the numeric id of the item
+     * @return the entities
+     */
+    public RoaringBitmap getEntitiesWithValue(int property, int item) {
+        if (!isValueIndexed(property)) {
+            throw new IllegalArgumentException("values of property P" + property + " are not indexed");
+        }
+        return values.getOrDefault(valueKey(property, item), new RoaringBitmap());
+    }
+}
@@ -0,0 +1,426 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.luben.zstd.ZstdInputStream;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.roaringbitmap.RoaringBitmap;
+import org.wikidata.wdtk.dumpfiles.MwLocalDumpFile;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Dump file in the binary snapshot format written by {@link SnapshotWriter}.
+ *
+ * A snapshot is converted once from the JSON dump and can then be used for all runs on that dump. It starts with
+ * the size and modification time of the JSON dump it was converted from, followed by a dictionary of the strings
+ * that occur in every entity, like field names, language codes and property ids.
+ * The rest of the file is a zstd compressed sequence of records, one per entity. Each record is prefixed with its
+ * length and has a small header with the type, the numeric id and a bitmap of the properties that the entity has
+ * statements for, so entities can be skipped without decoding them. The entity itself is stored as a sequence of
+ * JSON tokens, where strings from the dictionary are replaced by their index.
+ *
+ * The stream returned by {@link #getDumpFileStream()} contains the records, not JSON. Use a {@link Decoder} to split
+ * the stream into records and to parse them. Decoding a record only replays its tokens, which avoids
+ * the tokenization, number parsing and UTF-8 decoding of the JSON dump for most values.
+ *
+ * Records are numbered in the order of the snapshot, starting at zero. If only some of the records are needed,
+ * for example as found with a {@link PropertyBitmapIndex}, the selection can be set on the dump file.
+ */
+public class SnapshotDumpFile extends MwLocalDumpFile implements InputProgress {
+    static final byte[] MAGIC = "WDSNAP02".getBytes(StandardCharsets.US_ASCII);
+
+    static final byte TOKEN_START_OBJECT = 1;
+    static final byte TOKEN_END_OBJECT = 2;
+    static final byte TOKEN_START_ARRAY = 3;
+    static final byte TOKEN_END_ARRAY = 4;
+    static final byte TOKEN_FIELD_NAME = 5;
+    static final byte TOKEN_FIELD_NAME_INLINE = 6;
+    static final byte TOKEN_STRING = 7;
+    static final byte TOKEN_STRING_INLINE = 8;
+    static final byte TOKEN_INT = 9;
+    static final byte TOKEN_BIG_INT = 10;
+    static final byte TOKEN_FLOAT = 11;
+    static final byte TOKEN_TRUE = 12;
+    static final byte TOKEN_FALSE = 13;
+    static final byte TOKEN_NULL = 14;
+
+    /** entity types as stored in the record header, indexed by their code */
+    static final EntityTypeFilter[] ENTITY_TYPES = {
+            EntityTypeFilter.ANY, EntityTypeFilter.ITEM, EntityTypeFilter.PROPERTY, EntityTypeFilter.LEXEME
+    };
+
+    private static final int INPUT_BUFFER_SIZE = 1024 * 1024;
+
+    private String[] dictionary;
+    private RoaringBitmap selection;
+    private final AtomicLong inputPosition = new AtomicLong();
+    private volatile long inputSize = 0;
+
+    public SnapshotDumpFile(String filepath) {
+        super(filepath);
+    }
+
+    /**
+     * @return the default location of the snapshot for the given JSON dump, which keeps the date of the dump in its name
+     */
+    public static Path getSnapshotPath(Path dumpFile) {
+        return dumpFile.resolveSibling(dumpFile.getFileName() + ".wdsnap");
+    }
+
+    /**
+     * @return true if the file name is the name of a snapshot
+     */
+    public static boolean isSnapshot(Path path) {
+        return path.getFileName().toString().endsWith(".wdsnap");
+    }
+
+    /**
+     * Opens the records of the snapshot. The records are decompressed in a separate thread.
+     *
+     * @return the stream of records, without the dictionary
+     * @throws IOException if the snapshot could not be opened or is not a snapshot
+     */
+    @Override
+    public InputStream getDumpFileStream() throws IOException {
+        inputPosition.set(0);
+        inputSize = Files.size(getPath());
+        final InputStream raw = new PositionInputStream(Files.newInputStream(getPath()), inputPosition);
+        final DataInputStream input = new DataInputStream(new BufferedInputStream(raw, INPUT_BUFFER_SIZE));
+        try {
+            final String[] strings = readDictionary(input);
+            synchronized (this) {
+                if (dictionary == null) dictionary = strings;
+            }
+            return new AsynchronousInputStream(new ZstdInputStream(input));
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether this snapshot was converted from the current version of a JSON dump, by comparing the size
+     * and modification time of the dump with those recorded in the snapshot.
+     *
+     * @param dumpFile the JSON dump
+     * @return true if the snapshot can be used in place of the dump
+     * @throws IOException if the snapshot or the attributes of the dump could not be read, or this is not a snapshot
+     */
+    public boolean isConvertedFrom(Path dumpFile) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(dumpFile, BasicFileAttributes.class);
+        try (DataInputStream input = new DataInputStream(Files.newInputStream(getPath()))) {
+            readMagic(input);
+            final long sourceSize = input.readLong();
+            final long sourceModified = input.readLong();
+            return sourceSize != SnapshotWriter.UNKNOWN_SOURCE && sourceSize == attributes.size()
+                    && sourceModified == attributes.lastModifiedTime().toMillis();
+        }
+    }
+
+    private static void readMagic(DataInputStream input) throws IOException {
+        final byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("not a snapshot file, or a snapshot in an older format");
+        }
+    }
+
+    private static String[] readDictionary(DataInputStream input) throws IOException {
+        readMagic(input);
+        // the source of the snapshot is only needed by isConvertedFrom
+        input.readLong();
+        input.readLong();
+
+        final String[] strings = new String[input.readInt()];
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = input.readUTF();
+        }
+        return strings;
+    }
+
+    /**
+     * Returns a decoder for the records of this snapshot. Each thread needs its own decoder.
+     *
+     * @return the decoder
+     * @throws IOException if the dictionary could not be read
+     */
+    public Decoder createDecoder() throws IOException {
+        synchronized (this) {
+            if (dictionary == null) {
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(getPath())))) {
+                    dictionary = readDictionary(input);
+                }
+            }
+            return new Decoder(dictionary);
+        }
+    }
+
+    /**
+     * Restricts the records that are processed, combined with any previous selection.
+     *
+     * @param records the numbers of the records that need to be processed, other records are skipped
+     */
+    public synchronized void restrictSelection(RoaringBitmap records) {
+        this.selection = this.selection == null ? records : RoaringBitmap.and(this.selection, records);
+    }
+
+    /**
+     * @return the numbers of the records that need to be processed, or null if all records are needed
+     */
+    public synchronized RoaringBitmap getSelection() {
+        return selection;
+    }
+
+    @Override
+    public long getInputPosition() {
+        return inputPosition.get();
+    }
+
+    @Override
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Counts the complete records at the start of the buffer.
+     *
+     * @param data buffer containing records
+     * @param length number of bytes in the buffer, must end at the end of a record
+     * @return the number of records
+     */
+    public static int countRecords(byte[] data, int length) {
+        int count = 0;
+        int offset = 0;
+        while (offset < length) {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                final byte b = data[offset++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) break;
+                shift += 7;
+            }
+            offset += (int) value;
+            count += 1;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the length of the complete records at the start of the buffer.
+     *
+     * @param data buffer containing records
+     * @param length number of bytes in the buffer
+     * @return the number of bytes up to the end of the last complete record
+     */
+    public static int completeLength(byte[] data, int length) {
+        int offset = 0;
+        while (offset < length) {
+            long value = 0;
+            int position = offset;
+            int shift = 0;
+            while (true) {
+                if (position == length) return offset;
+                final byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) break;
+                shift += 7;
+            }
+            if (length - position < value) return offset;
+            offset = position + (int) value;
+        }
+        return offset;
+    }
+
+    /**
+     * Reads the records of a snapshot from a buffer. The decoder points at a single record at a time.
+     */
+    public static final class Decoder {
+        private final String[] dictionary;
+
+        private byte[] data;
+        private EntityTypeFilter type;
+        private int numericId;
+        private int bitmapOffset;
+        private int bitmapLength;
+        private int tokensOffset;
+        private int end;
+        private int position;
+
+        Decoder(String[] dictionary) {
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * Reads the header of the record at the given offset.
+         *
+         * @param data buffer of complete records
+         * @param offset start of the record
+         * @return the end of the record, which is the start of the next one
+         */
+        public int next(byte[] data, int offset) {
+            this.data = data;
+            this.position = offset;
+
+            final int length = readVarInt();
+            this.end = position + length;
+            this.type = ENTITY_TYPES[data[position++]];
+            this.numericId = readVarInt() - 1;
+            this.bitmapLength = readVarInt();
+            this.bitmapOffset = position;
+            this.tokensOffset = bitmapOffset + bitmapLength;
+            return end;
+        }
+
+        /**
+         * @return the type of the current entity, {@link EntityTypeFilter#ANY} if it is of some other type
+         */
+        public EntityTypeFilter getType() {
+            return type;
+        }
+
+        /**
+         * @return the numeric part of the id of the current entity, or -1 if the id has no simple numeric part
+         */
+        public int getNumericId() {
+            return numericId;
+        }
+
+        /**
+         * @param propertyId numeric id of a property
+         * @return true if the current entity has statements for the property
+         */
+        public boolean hasStatements(int propertyId) {
+            if (propertyId < 0 || (propertyId >> 3) >= bitmapLength) return false;
+            return (data[bitmapOffset + (propertyId >> 3)] & (1 << (propertyId & 7))) != 0;
+        }
+
+        /**
+         * Passes the numeric ids of all properties that the current entity has statements for to the consumer.
+         *
+         * @param consumer receives the property ids in increasing order
+         */
+        public void forEachProperty(IntConsumer consumer) {
+            for (int i = 0; i < bitmapLength; ++i) {
+                final int bits = data[bitmapOffset + i] & 0xff;
+                for (int bit = 0; bit < 8; ++bit) {
+                    if ((bits & (1 << bit)) != 0) consumer.accept(i * 8 + bit);
+                }
+            }
+        }
+
+        /**
+         * Returns a parser for the current entity, which produces the same tokens as a parser for the JSON
+         * of the entity would.
+         *
+         * @return the parser
+         * @throws IOException if the record is corrupt
+         */
+        public JsonParser parse() throws IOException {
+            final TokenBuffer tokens = new TokenBuffer((ObjectCodec) null, false);
+            position = tokensOffset;
+            while (position < end) {
+                final byte token = data[position++];
+                switch (token) {
+                    case TOKEN_START_OBJECT:
+                        tokens.writeStartObject();
+                        break;
+                    case TOKEN_END_OBJECT:
+                        tokens.writeEndObject();
+                        break;
+                    case TOKEN_START_ARRAY:
+                        tokens.writeStartArray();
+                        break;
+                    case TOKEN_END_ARRAY:
+                        tokens.writeEndArray();
+                        break;
+                    case TOKEN_FIELD_NAME:
+                        tokens.writeFieldName(lookup(readVarInt()));
+                        break;
+                    case TOKEN_FIELD_NAME_INLINE:
+                        tokens.writeFieldName(readString());
+                        break;
+                    case TOKEN_STRING:
+                        tokens.writeString(lookup(readVarInt()));
+                        break;
+                    case TOKEN_STRING_INLINE:
+                        tokens.writeString(readString());
+                        break;
+                    case TOKEN_INT:
+                        final long zigzag = readVarLong();
+                        final long value = (zigzag >>> 1) ^ -(zigzag & 1);
+                        if (value == (int) value) {
+                            tokens.writeNumber((int) value);
+                        } else {
+                            tokens.writeNumber(value);
+                        }
+                        break;
+                    case TOKEN_BIG_INT:
+                        tokens.writeNumber(new BigInteger(readString()));
+                        break;
+                    case TOKEN_FLOAT:
+                        long bits = 0;
+                        for (int i = 0; i < 8; ++i) {
+                            bits = (bits << 8) | (data[position++] & 0xff);
+                        }
+                        tokens.writeNumber(Double.longBitsToDouble(bits));
+                        break;
+                    case TOKEN_TRUE:
+                        tokens.writeBoolean(true);
+                        break;
+                    case TOKEN_FALSE:
+                        tokens.writeBoolean(false);
+                        break;
+                    case TOKEN_NULL:
+                        tokens.writeNull();
+                        break;
+                    default:
+                        throw new IOException("invalid token " + token + " in snapshot record");
+                }
+            }
+            return tokens.asParser();
+        }
+
+        private String lookup(int index) throws IOException {
+            if (index < 0 || index >= dictionary.length) {
+                throw new IOException("invalid dictionary index " + index + " in snapshot record");
+            }
+            return dictionary[index];
+        }
+
+        private String readString() {
+            final int length = readVarInt();
+            final String s = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return s;
+        }
+
+        private int readVarInt() {
+            return (int) readVarLong();
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                final byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return value;
+                shift += 7;
+            }
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.github.bennofs.wdumper.spec.EntityIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Converts a JSON dump to the binary snapshot format read by {@link SnapshotDumpFile}.
+ *
+ * The records are written to a temporary file while the dictionary is collected. When the writer is committed,
+ * the snapshot is assembled from the dictionary and the records and moved to its final location. Closing a writer
+ * that has not been committed deletes the temporary files, so an incomplete snapshot is never stored at the
+ * final location.
+ *
+ * The header of the snapshot records the size and modification time of the JSON dump it was converted from, so that
+ * a snapshot of an older dump at the same path is not used, see {@link SnapshotDumpFile#isConvertedFrom(Path)}.
+ *
+ * Field names are always added to the dictionary. String values are only added for fields with a small set of
+ * distinct values, such as language codes, property ids and data types, so the dictionary stays small even though
+ * it is kept in memory by every reader. Other strings, like labels or entity ids, are stored inline.
+ */
+public class SnapshotWriter implements Closeable {
+    private final static Logger logger = LoggerFactory.getLogger(SnapshotWriter.class);
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int COMPRESSION_LEVEL = 3;
+    private static final int MAX_DICTIONARY_SIZE = 1 << 20;
+    private static final int MAX_DICTIONARY_STRING_LENGTH = 256;
+
+    /** fields whose string values are stored in the dictionary */
+    private static final Set<String> DICTIONARY_FIELDS = Set.of(
+            "type", "datatype", "language", "property", "snaktype", "rank", "entity-type", "site",
+            "calendarmodel", "globe", "unit", "lexicalCategory"
+    );
+
+    /** source size and modification time of a snapshot that was not converted from a file */
+    static final long UNKNOWN_SOURCE = -1;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Path output;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final Path recordsFile;
+    private final OutputStream records;
+
+    private final Map<String, Integer> dictionaryIndex = new HashMap<>();
+    private final List<String> dictionary = new ArrayList<>();
+
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream tokens = new ByteArrayOutputStream();
+    private final BitSet properties = new BitSet();
+    private long entities = 0;
+    private boolean committed = false;
+
+    /**
+     * Creates a writer for a snapshot whose source dump is unknown. Such a snapshot is never used in place of a dump.
+     *
+     * @param output where to store the snapshot
+     * @throws IOException if the temporary file for the records could not be created
+     */
+    public SnapshotWriter(Path output) throws IOException {
+        this(output, UNKNOWN_SOURCE, UNKNOWN_SOURCE);
+    }
+
+    /**
+     * @param output where to store the snapshot
+     * @param sourceSize size of the JSON dump that is converted
+     * @param sourceModified modification time of the JSON dump in milliseconds since the epoch
+     * @throws IOException if the temporary file for the records could not be created
+     */
+    public SnapshotWriter(Path output, long sourceSize, long sourceModified) throws IOException {
+        this.output = output;
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.recordsFile = output.resolveSibling(output.getFileName() + ".records.tmp");
+        this.records = new ZstdOutputStream(new BufferedOutputStream(Files.newOutputStream(recordsFile), BUFFER_SIZE), COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Converts all entities of a JSON dump file, and records the size and modification time of the file in the snapshot.
+     *
+     * @param dumpFile the JSON dump, optionally compressed with zstd or gzip
+     * @param output where to store the snapshot
+     * @return the number of converted entities
+     * @throws IOException if reading the dump or writing the snapshot failed
+     */
+    public static long convert(Path dumpFile, Path output) throws IOException {
+        // read before the conversion, so that a dump which changes while it is converted does not match the snapshot
+        final BasicFileAttributes attributes = Files.readAttributes(dumpFile, BasicFileAttributes.class);
+        try (InputStream dump = new ZstdDumpFile(dumpFile.toString()).getDumpFileStream();
+             SnapshotWriter writer = new SnapshotWriter(output, attributes.size(), attributes.lastModifiedTime().toMillis())) {
+            return writer.convert(dump);
+        }
+    }
+
+    /**
+     * Converts all entities of a JSON dump with one entity per line. The source of the snapshot is unknown.
+     *
+     * @param dump the decompressed JSON dump
+     * @param output where to store the snapshot
+     * @return the number of converted entities
+     * @throws IOException if reading the dump or writing the snapshot failed
+     */
+    public static long convert(InputStream dump, Path output) throws IOException {
+        try (SnapshotWriter writer = new SnapshotWriter(output)) {
+            return writer.convert(dump);
+        }
+    }
+
+    private long convert(InputStream dump) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int filled = 0;
+        while (true) {
+            final int n = dump.read(buffer, filled, buffer.length - filled);
+            if (n < 0) break;
+
+            // the carried over part of the buffer contains no line break
+            final int scanned = filled;
+            filled += n;
+
+            int start = 0;
+            for (int i = scanned; i < filled; ++i) {
+                if (buffer[i] == '\n') {
+                    writeLine(buffer, start, i);
+                    start = i + 1;
+                }
+            }
+
+            // carry over the incomplete line, growing the buffer for lines that do not fit
+            System.arraycopy(buffer, start, buffer, 0, filled - start);
+            filled -= start;
+            if (filled == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        writeLine(buffer, 0, filled);
+        commit();
+        return entities;
+    }
+
+    private void writeLine(byte[] data, int start, int end) throws IOException {
+        // strip whitespace and the separator between entities
+        while (start < end && isWhitespace(data[start])) start += 1;
+        while (end > start && isWhitespace(data[end - 1])) end -= 1;
+        if (end > start && data[end - 1] == ',') end -= 1;
+
+        // skip lines with the opening/closing brackets of the top-level array
+        if (end - start <= 1) return;
+
+        writeEntity(data, start, end - start);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Adds a single entity to the snapshot.
+     *
+     * @param data buffer containing the JSON of the entity
+     * @param offset start of the JSON in the buffer
+     * @param length length of the JSON
+     * @throws IOException if the JSON is invalid or writing failed
+     */
+    public void writeEntity(byte[] data, int offset, int length) throws IOException {
+        tokens.reset();
+        properties.clear();
+
+        String type = null;
+        String id = null;
+        int depth = 0;
+        boolean claimsPending = false;
+        boolean inClaims = false;
+        String field = null;
+
+        try (JsonParser parser = jsonFactory.createParser(data, offset, length)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                final String valueField = field;
+                field = null;
+
+                switch (token) {
+                    case START_OBJECT:
+                        tokens.write(SnapshotDumpFile.TOKEN_START_OBJECT);
+                        depth += 1;
+                        if (depth == 2) inClaims = claimsPending;
+                        claimsPending = false;
+                        break;
+                    case END_OBJECT:
+                        tokens.write(SnapshotDumpFile.TOKEN_END_OBJECT);
+                        if (depth == 2) inClaims = false;
+                        depth -= 1;
+                        break;
+                    case START_ARRAY:
+                        tokens.write(SnapshotDumpFile.TOKEN_START_ARRAY);
+                        depth += 1;
+                        claimsPending = false;
+                        break;
+                    case END_ARRAY:
+                        tokens.write(SnapshotDumpFile.TOKEN_END_ARRAY);
+                        depth -= 1;
+                        break;
+                    case FIELD_NAME:
+                        field = parser.getCurrentName();
+                        writeString(SnapshotDumpFile.TOKEN_FIELD_NAME, SnapshotDumpFile.TOKEN_FIELD_NAME_INLINE, field, true);
+                        claimsPending = depth == 1 && field.equals("claims");
+                        if (depth == 2 && inClaims) {
+                            final int property = EntityIds.numericId(field, 'P');
+                            if (property >= 0) properties.set(property);
+                        }
+                        break;
+                    case VALUE_STRING:
+                        final String text = parser.getText();
+                        if (depth == 1 && "type".equals(valueField)) type = text;
+                        if (depth == 1 && "id".equals(valueField)) id = text;
+                        writeString(SnapshotDumpFile.TOKEN_STRING, SnapshotDumpFile.TOKEN_STRING_INLINE, text,
+                                valueField != null && DICTIONARY_FIELDS.contains(valueField));
+                        break;
+                    case VALUE_NUMBER_INT:
+                        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+                            tokens.write(SnapshotDumpFile.TOKEN_BIG_INT);
+                            writeBytes(tokens, parser.getText().getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            final long value = parser.getLongValue();
+                            tokens.write(SnapshotDumpFile.TOKEN_INT);
+                            writeVarLong(tokens, (value << 1) ^ (value >> 63));
+                        }
+                        break;
+                    case VALUE_NUMBER_FLOAT:
+                        tokens.write(SnapshotDumpFile.TOKEN_FLOAT);
+                        final long bits = Double.doubleToRawLongBits(parser.getDoubleValue());
+                        for (int shift = 56; shift >= 0; shift -= 8) {
+                            tokens.write((int) (bits >>> shift));
+                        }
+                        break;
+                    case VALUE_TRUE:
+                        tokens.write(SnapshotDumpFile.TOKEN_TRUE);
+                        break;
+                    case VALUE_FALSE:
+                        tokens.write(SnapshotDumpFile.TOKEN_FALSE);
+                        break;
+                    case VALUE_NULL:
+                        tokens.write(SnapshotDumpFile.TOKEN_NULL);
+                        break;
+                    default:
+                        throw new IOException("unexpected JSON token " + token);
+                }
+            }
+        }
+
+        record.reset();
+        record.write(typeCode(type));
+        writeVarLong(record, numericId(id) + 1);
+        final byte[] bitmap = properties.toByteArray();
+        writeBytes(record, bitmap);
+        tokens.writeTo(record);
+
+        writeVarLong(records, record.size());
+        record.writeTo(records);
+        entities += 1;
+    }
+
+    private static int typeCode(String type) {
+        if (type != null) {
+            for (int i = 1; i < SnapshotDumpFile.ENTITY_TYPES.length; ++i) {
+                if (SnapshotDumpFile.ENTITY_TYPES[i].name().equalsIgnoreCase(type)) return i;
+            }
+        }
+        return 0;
+    }
+
+    private static int numericId(String id) {
+        if (id == null || id.isEmpty()) return -1;
+        return EntityIds.numericId(id, id.charAt(0));
+    }
+
+    private void writeString(byte dictionaryToken, byte inlineToken, String s, boolean useDictionary) throws IOException {
+        if (useDictionary) {
+            Integer index = dictionaryIndex.get(s);
+            if (index == null && dictionary.size() < MAX_DICTIONARY_SIZE && s.length() <= MAX_DICTIONARY_STRING_LENGTH) {
+                index = dictionary.size();
+                dictionary.add(s);
+                dictionaryIndex.put(s, index);
+            }
+            if (index != null) {
+                tokens.write(dictionaryToken);
+                writeVarLong(tokens, index);
+                return;
+            }
+        }
+
+        tokens.write(inlineToken);
+        writeBytes(tokens, s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeBytes(OutputStream out, byte[] bytes) throws IOException {
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * @return the number of entities written so far
+     */
+    public long getEntities() {
+        return entities;
+    }
+
+    private Path getTemporaryPath() {
+        return output.resolveSibling(output.getFileName() + ".tmp");
+    }
+
+    /**
+     * Finishes the snapshot and moves it to its final location. This must only be called after all entities
+     * have been written.
+     *
+     * @throws IOException if writing the snapshot failed
+     */
+    public void commit() throws IOException {
+        if (committed) return;
+        records.close();
+
+        final Path temporary = getTemporaryPath();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            out.write(SnapshotDumpFile.MAGIC);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeInt(dictionary.size());
+            for (String s : dictionary) {
+                out.writeUTF(s);
+            }
+            Files.copy(recordsFile, out);
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+        Files.delete(recordsFile);
+
+        logger.info("wrote snapshot " + output + " with " + entities + " entities and " + dictionary.size() + " dictionary strings");
+    }
+
+    /**
+     * Deletes the temporary files if the snapshot has not been committed. The snapshot at the final location,
+     * if any, is left unchanged in that case.
+     *
+     * @throws IOException if the temporary files could not be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed) return;
+
+        try {
+            records.close();
+        } catch (IOException e) {
+            // the records are discarded anyway
+            logger.warn("closing the records of an incomplete snapshot failed", e);
+        }
+        Files.deleteIfExists(getTemporaryPath());
+        Files.deleteIfExists(recordsFile);
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.bennofs.wdumper.ext;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output stream which measures the time spent in the wrapped stream.
+ *
+ * Used to measure the time taken by compression. The time can be queried from a different thread than the one
+ * writing to the stream.
+ */
+public class TimedOutputStream extends FilterOutputStream {
+    private final AtomicLong nanos = new AtomicLong();
+
+    public TimedOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            out.write(b);
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            out.write(b, off, len);
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        final long start = System.nanoTime();
+        try {
+            out.flush();
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        final long start = System.nanoTime();
+        try {
+            out.close();
+        } finally {
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return total time spent writing to, flushing and closing the wrapped stream
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(nanos.get());
+    }
+}
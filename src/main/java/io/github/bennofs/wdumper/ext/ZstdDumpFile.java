@@ -8,17 +8,102 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local dump file which also supports zstd compressed dumps.
+ *
+ * Zstd and gzip compressed dumps are decompressed in a separate thread, see {@link AsynchronousInputStream}.
+ *
+ * If only some of the entities are needed, a selection can be set to skip the parts of a zstd dump which do not
+ * contain these entities. This uses the {@link DumpIndex} stored next to the dump, which needs to be built beforehand
+ * with the index command of the {@code Cli}. If there is no up-to-date index, the selection is ignored.
+ *
+ * The position in the compressed file is tracked for zstd and gzip dumps, see {@link InputProgress}. Since the
+ * decompression runs ahead of the consumer, the position may be ahead by the buffer of the decompression stream.
+ */
+public class ZstdDumpFile extends MwLocalDumpFile implements InputProgress {
+    private static final int INPUT_BUFFER_SIZE = 1024 * 1024;
+
+    private AsynchronousInputStream lastStream;
+    private Predicate<DumpIndex.Entry> selection;
+    private final AtomicLong inputPosition = new AtomicLong();
+    private volatile long inputSize = 0;
 
-public class ZstdDumpFile extends MwLocalDumpFile {
     public ZstdDumpFile(String filepath) {
         super(filepath);
     }
 
     @Override
     public InputStream getDumpFileStream() throws IOException {
-        if (!this.getPath().toString().contains(".zst")) {
+        final String path = this.getPath().toString();
+        final InputStream decompressed;
+        final Predicate<DumpIndex.Entry> selection = getSelection();
+        if (path.contains(".zst") || path.endsWith(".gz")) {
+            inputPosition.set(0);
+            inputSize = Files.size(this.getPath());
+        }
+
+        // building the index needs a full pass over the dump, so it is only used if it already exists
+        final Optional<DumpIndex> index = path.contains(".zst") && selection != null ? DumpIndex.load(this.getPath()) : Optional.empty();
+        if (index.isPresent()) {
+            decompressed = index.get().openSelected(selection, inputPosition);
+        } else if (path.contains(".zst")) {
+            decompressed = new ZstdInputStream(openRaw());
+        } else if (path.endsWith(".gz")) {
+            // GZIPInputStream also supports multi-member files
+            decompressed = new GZIPInputStream(openRaw(), INPUT_BUFFER_SIZE);
+        } else {
             return super.getDumpFileStream();
         }
-        return new ZstdInputStream(new BufferedInputStream(Files.newInputStream(this.getPath(), StandardOpenOption.READ)));
+
+        final AsynchronousInputStream stream = new AsynchronousInputStream(decompressed);
+        synchronized (this) {
+            this.lastStream = stream;
+        }
+        return stream;
+    }
+
+    private InputStream openRaw() throws IOException {
+        final InputStream raw = new PositionInputStream(Files.newInputStream(this.getPath(), StandardOpenOption.READ), inputPosition);
+        return new BufferedInputStream(raw, INPUT_BUFFER_SIZE);
+    }
+
+    @Override
+    public long getInputPosition() {
+        return inputPosition.get();
+    }
+
+    @Override
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * Restricts the parts of the dump that are read. Entities outside of the selected parts are skipped, but
+     * the selected parts may still contain other entities. This has no effect on dumps not compressed with zstd,
+     * or if there is no index of the dump.
+     *
+     * @param selection returns true for the parts of the dump that need to be read, combined with
+     *                  any previous selection
+     */
+    public synchronized void restrictSelection(Predicate<DumpIndex.Entry> selection) {
+        this.selection = this.selection == null ? selection : this.selection.and(selection);
+    }
+
+    private synchronized Predicate<DumpIndex.Entry> getSelection() {
+        return selection;
+    }
+
+    /**
+     * Returns the most recently opened decompression stream, which can be used to monitor decompression throughput.
+     *
+     * @return the stream, or empty if the dump is not compressed with zstd or gzip or has not been opened yet
+     */
+    public synchronized Optional<AsynchronousInputStream> getDecompressionStream() {
+        return Optional.ofNullable(lastStream);
     }
-}
\ No newline at end of file
+}
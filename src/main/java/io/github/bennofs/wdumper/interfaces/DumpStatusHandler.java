@@ -1,5 +1,7 @@
 package io.github.bennofs.wdumper.interfaces;
 
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+
 public interface DumpStatusHandler {
     enum ErrorLevel {
         CRITICAL,
@@ -8,4 +10,19 @@ public interface DumpStatusHandler {
     }
 
     void reportError(ErrorLevel level, String message);
+
+    /**
+     * Reports a message that stands for multiple occurrences of the same error.
+     *
+     * @param count number of occurrences
+     */
+    default void reportError(ErrorLevel level, String message, int count) {
+        reportError(level, count == 1 ? message : message + " (" + count + " times)");
+    }
+
+    /**
+     * Called once when the dump is added to a run, with the metrics that are updated while the dump is generated.
+     */
+    default void registerMetrics(DumpMetrics metrics) {
+    }
 }
@@ -1,7 +1,22 @@
 package io.github.bennofs.wdumper.interfaces;
 
+import io.github.bennofs.wdumper.metrics.RunMetrics;
+import io.github.bennofs.wdumper.processors.ProgressSnapshot;
+
 public interface RunnerStatusHandler {
     void start();
-    void reportProgress(int count);
+
+    /**
+     * Called periodically from a separate thread while the run is processed, and once more with the final progress
+     * before {@link #done()}.
+     */
+    void reportProgress(ProgressSnapshot progress);
+
     void done();
+
+    /**
+     * Called before {@link #start()} with the metrics that are updated while the run processes the dump.
+     */
+    default void registerMetrics(RunMetrics metrics) {
+    }
 }
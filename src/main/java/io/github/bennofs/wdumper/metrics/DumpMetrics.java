@@ -0,0 +1,82 @@
+package io.github.bennofs.wdumper.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of the stages of a run that are specific to a single dump: serialization and compression.
+ *
+ * The sizes and the queue depth are read from the output of the dump when the metrics are scraped.
+ */
+public class DumpMetrics {
+    private final LongAdder serializedDocuments = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongSupplier uncompressedBytes;
+    private final LongSupplier compressedBytes;
+    private final IntSupplier compressionQueueDepth;
+
+    /**
+     * @param uncompressedBytes number of bytes written to the output before compression
+     * @param compressedBytes number of bytes written to the dump file
+     * @param compressionQueueDepth number of chunks waiting to be compressed
+     */
+    public DumpMetrics(LongSupplier uncompressedBytes, LongSupplier compressedBytes, IntSupplier compressionQueueDepth) {
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressionQueueDepth = compressionQueueDepth;
+    }
+
+    /**
+     * @return metrics for a dump without an output, for which only the serialization is measured
+     */
+    public static DumpMetrics withoutOutput() {
+        return new DumpMetrics(() -> 0, () -> 0, () -> 0);
+    }
+
+    /**
+     * @param documents number of documents written for the dump
+     * @param nanos time spent serializing the documents
+     */
+    public void addSerializationTime(long documents, long nanos) {
+        serializedDocuments.add(documents);
+        serializationNanos.add(nanos);
+    }
+
+    public long getSerializedDocuments() {
+        return serializedDocuments.sum();
+    }
+
+    public long getSerializationNanos() {
+        return serializationNanos.sum();
+    }
+
+    public long getUncompressedBytes() {
+        return uncompressedBytes.getAsLong();
+    }
+
+    public long getCompressedBytes() {
+        return compressedBytes.getAsLong();
+    }
+
+    public int getCompressionQueueDepth() {
+        return compressionQueueDepth.getAsInt();
+    }
+
+    /**
+     * Registers the metrics of the dump with the given labels.
+     */
+    public void registerWith(MetricsRegistry registry, Map<String, String> labels) {
+        registry.counter("wdumper_dump_serialized_documents_total", "Entity documents serialized for the dump", labels,
+                this::getSerializedDocuments);
+        registry.counter("wdumper_dump_serialization_seconds_total", "Time spent serializing documents for the dump, summed over all threads", labels,
+                () -> getSerializationNanos() / 1e9);
+        registry.counter("wdumper_dump_uncompressed_bytes_total", "Bytes written to the output of the dump before compression", labels,
+                this::getUncompressedBytes);
+        registry.counter("wdumper_dump_written_bytes_total", "Compressed bytes written to the file of the dump", labels,
+                this::getCompressedBytes);
+        registry.gauge("wdumper_dump_compression_queue_chunks", "Chunks of output waiting to be compressed", labels,
+                this::getCompressionQueueDepth);
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.bennofs.wdumper.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * Collects metrics and renders them in the text exposition format of Prometheus.
+ *
+ * Metrics are not stored in the registry, instead each sample is read from a supplier when the metrics are scraped.
+ * This way the hot paths only update plain counters, and the registry does not need to know about them.
+ * A sample is identified by the name of the metric and its labels. Registering a sample again replaces it.
+ */
+public class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final class Family {
+        final String type;
+        final String help;
+        final Map<String, DoubleSupplier> samples = new LinkedHashMap<>();
+
+        Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    private final Map<String, Family> families = new TreeMap<>();
+
+    /**
+     * Registers a sample of a counter, which only increases while the process runs.
+     *
+     * @param name name of the metric, should end with {@code _total}
+     * @param help description of the metric
+     * @param labels labels of the sample
+     * @param value supplier for the current value
+     */
+    public void counter(String name, String help, Map<String, String> labels, DoubleSupplier value) {
+        register(name, "counter", help, labels, value);
+    }
+
+    /**
+     * Registers a sample of a gauge, which may increase and decrease.
+     *
+     * @see #counter(String, String, Map, DoubleSupplier)
+     */
+    public void gauge(String name, String help, Map<String, String> labels, DoubleSupplier value) {
+        register(name, "gauge", help, labels, value);
+    }
+
+    private synchronized void register(String name, String type, String help, Map<String, String> labels, DoubleSupplier value) {
+        final Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("metric " + name + " is already registered as " + family.type);
+        }
+        family.samples.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Removes all samples that have the given label, for example the metrics of a finished run.
+     */
+    public synchronized void removeLabeled(String label) {
+        final String prefix = label + "=\"";
+        for (Family family : families.values()) {
+            family.samples.keySet().removeIf(labels -> labels.startsWith("{" + prefix) || labels.contains("," + prefix));
+        }
+        families.values().removeIf(family -> family.samples.isEmpty());
+    }
+
+    /**
+     * Registers metrics about the memory and threads of the JVM.
+     */
+    public void registerJvmMetrics() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm_memory_used_bytes", "Used memory of the JVM", Map.of("area", "heap"),
+                () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_used_bytes", "Used memory of the JVM", Map.of("area", "nonheap"),
+                () -> memory.getNonHeapMemoryUsage().getUsed());
+        gauge("jvm_memory_max_bytes", "Maximum memory of the JVM", Map.of("area", "heap"),
+                () -> memory.getHeapMemoryUsage().getMax());
+        gauge("jvm_threads_live", "Number of live threads", Map.of(),
+                () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        counter("jvm_gc_collection_seconds_total", "Time spent in garbage collection", Map.of(),
+                () -> ManagementFactory.getGarbageCollectorMXBeans().stream()
+                        .mapToLong(gc -> Math.max(0, gc.getCollectionTime()))
+                        .sum() / 1000.0);
+    }
+
+    /**
+     * @return the current value of all metrics in the text exposition format of Prometheus
+     */
+    public synchronized String scrape() {
+        final StringBuilder output = new StringBuilder();
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            final String name = entry.getKey();
+            final Family family = entry.getValue();
+            output.append("# HELP ").append(name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            output.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, DoubleSupplier> sample : family.samples.entrySet()) {
+                output.append(name).append(sample.getKey()).append(' ')
+                        .append(formatValue(sample.getValue().getAsDouble())).append('\n');
+            }
+        }
+        return output.toString();
+    }
+
+    private static String formatLabels(Map<String, String> labels) {
+        if (labels.isEmpty()) return "";
+
+        return new TreeMap<>(labels).entrySet().stream()
+                .map(label -> label.getKey() + "=\"" + label.getValue()
+                        .replace("\\", "\\\\")
+                        .replace("\"", "\\\"")
+                        .replace("\n", "\\n") + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.bennofs.wdumper.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of the stages of a run that are shared by all dumps: reading the input, parsing and filtering.
+ *
+ * The counters are updated by all workers of the run. Workers should accumulate the values of a batch locally
+ * and add them once per batch.
+ */
+public class RunMetrics {
+    private final LongAdder inputBytes = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder parsedDocuments = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final LongAdder filterNanos = new LongAdder();
+
+    /**
+     * @param bytes number of decompressed bytes read from the input dump
+     * @param nanos time spent reading and decompressing the bytes
+     */
+    public void addInput(long bytes, long nanos) {
+        inputBytes.add(bytes);
+        readNanos.add(nanos);
+    }
+
+    /**
+     * @param documents number of documents that were parsed
+     * @param nanos time spent parsing the documents
+     */
+    public void addParseTime(long documents, long nanos) {
+        parsedDocuments.add(documents);
+        parseNanos.add(nanos);
+    }
+
+    /**
+     * @param nanos time spent evaluating the entity filters of the dumps
+     */
+    public void addFilterTime(long nanos) {
+        filterNanos.add(nanos);
+    }
+
+    public long getInputBytes() {
+        return inputBytes.sum();
+    }
+
+    public long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    public long getParsedDocuments() {
+        return parsedDocuments.sum();
+    }
+
+    public long getParseNanos() {
+        return parseNanos.sum();
+    }
+
+    public long getFilterNanos() {
+        return filterNanos.sum();
+    }
+
+    /**
+     * Registers the metrics of the run with the given labels.
+     */
+    public void registerWith(MetricsRegistry registry, Map<String, String> labels) {
+        registry.counter("wdumper_input_bytes_total", "Decompressed bytes read from the input dump", labels,
+                this::getInputBytes);
+        registry.counter("wdumper_input_read_seconds_total", "Time spent reading and decompressing the input dump", labels,
+                () -> getReadNanos() / 1e9);
+        registry.counter("wdumper_parsed_documents_total", "Entity documents parsed from the input dump", labels,
+                this::getParsedDocuments);
+        registry.counter("wdumper_parse_seconds_total", "Time spent parsing entity documents, summed over all workers", labels,
+                () -> getParseNanos() / 1e9);
+        registry.counter("wdumper_filter_seconds_total", "Time spent evaluating the entity filters of all dumps, summed over all workers", labels,
+                () -> getFilterNanos() / 1e9);
+    }
+}
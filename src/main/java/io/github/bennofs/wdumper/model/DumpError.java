@@ -54,9 +54,15 @@ public abstract class DumpError {
     @JsonProperty
     public abstract String message();
 
+    /**
+     * @return number of occurrences of the error that this message stands for
+     */
+    @JsonProperty
+    public abstract int count();
+
     public abstract Builder toBuilder();
     public static Builder builder() {
-        return new AutoValue_DumpError.Builder();
+        return new AutoValue_DumpError.Builder().count(1);
     }
 
     public String category() {
@@ -85,6 +91,8 @@ public abstract class DumpError {
 
         public abstract Builder message(String message);
 
+        public abstract Builder count(int count);
+
         public abstract DumpError build();
     }
 }
@@ -0,0 +1,30 @@
+package io.github.bennofs.wdumper.model;
+
+import javax.annotation.Nullable;
+
+public class DumpEstimate {
+    public final long entityCount;
+    public final long statementCount;
+    public final long tripleCount;
+    public final long compressedSize;
+    public final int sampledEntities;
+    /** number of entities that may match the entity filters according to the snapshot index, null without an index */
+    public final @Nullable Long maxEntityCount;
+
+    public DumpEstimate(long entityCount, long statementCount, long tripleCount, long compressedSize, int sampledEntities) {
+        this(entityCount, statementCount, tripleCount, compressedSize, sampledEntities, null);
+    }
+
+    public DumpEstimate(long entityCount, long statementCount, long tripleCount, long compressedSize, int sampledEntities, @Nullable Long maxEntityCount) {
+        this.entityCount = entityCount;
+        this.statementCount = statementCount;
+        this.tripleCount = tripleCount;
+        this.compressedSize = compressedSize;
+        this.sampledEntities = sampledEntities;
+        this.maxEntityCount = maxEntityCount;
+    }
+
+    public DumpEstimate withMaxEntityCount(long maxEntityCount) {
+        return new DumpEstimate(entityCount, statementCount, tripleCount, compressedSize, sampledEntities, maxEntityCount);
+    }
+}
@@ -5,7 +5,9 @@ import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A dump with full additional joined information, like run, errors and zenodo status.
@@ -35,6 +37,13 @@ public class DumpFullInfo implements ModelExtension {
     public final @Nullable WithBackref<Zenodo> zenodoSandbox;
     public final @Nullable WithBackref<Zenodo> zenodoRelease;
     public final ImmutableList<WithBackref<DumpError>> errors;
+    /**
+     * The errors with identical messages combined into one, with the total count and the time of the latest error.
+     * Errors that occur for many entities are reported periodically with the same message, see
+     * {@link io.github.bennofs.wdumper.processors.ErrorAggregator}.
+     */
+    @JsonIgnore
+    public final ImmutableList<WithBackref<DumpError>> aggregatedErrors;
 
     public DumpRunZenodo toDumpRunZenodo() {
         return new DumpRunZenodo(dump,
@@ -55,6 +64,18 @@ public class DumpFullInfo implements ModelExtension {
         this.zenodoSandbox = withBackref(zenodoSandbox);
         this.zenodoRelease = withBackref(zenodoRelease);
         this.errors = errors.stream().map(this::withBackref).collect(ImmutableList.toImmutableList());
+        this.aggregatedErrors = aggregate(errors).stream().map(this::withBackref).collect(ImmutableList.toImmutableList());
+    }
+
+    private static List<DumpError> aggregate(List<DumpError> errors) {
+        final Map<List<Object>, DumpError> combined = new LinkedHashMap<>();
+        for (DumpError error : errors) {
+            combined.merge(List.of(error.category(), error.level(), error.message()), error, (a, b) -> a.toBuilder()
+                    .count(a.count() + b.count())
+                    .loggedAt(a.loggedAt().isAfter(b.loggedAt()) ? a.loggedAt() : b.loggedAt())
+                    .build());
+        }
+        return ImmutableList.copyOf(combined.values());
     }
 
     @Override
@@ -34,6 +34,10 @@ public class DumpRunZenodo implements ModelExtension {
         return Optional.ofNullable(this.run).flatMap(Run::finishedAt);
     }
 
+    public Optional<Instant> failedAt() {
+        return Optional.ofNullable(this.run).flatMap(Run::failedAt);
+    }
+
     public Optional<Instant> isQueued() {
         if (this.run == null || this.run.startedAt().isEmpty()) {
             return Optional.of(this.dump.createdAt());
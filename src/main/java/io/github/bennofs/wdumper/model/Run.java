@@ -19,6 +19,12 @@ public abstract class Run {
     @JsonProperty
     public abstract Optional<Instant> finishedAt();
 
+    /**
+     * @return time at which the run was given up, a failed run is never finished
+     */
+    @JsonProperty
+    public abstract Optional<Instant> failedAt();
+
     @JsonProperty
     public abstract Integer count();
 
@@ -31,9 +37,29 @@ public abstract class Run {
     @JsonProperty
     public abstract String dumpDate();
 
+    /**
+     * @return number of bytes of the input file consumed by the slowest shard of the run
+     */
+    @JsonProperty
+    public abstract Long inputPosition();
+
+    /**
+     * @return size of the input file in bytes, 0 if the size is unknown
+     */
+    @JsonProperty
+    public abstract Long inputSize();
+
+    /**
+     * @return time at which the progress of the run was last stored, the time of the latest update of any shard
+     */
+    @JsonProperty
+    public abstract Optional<Instant> progressUpdatedAt();
+
     public abstract Builder toBuilder();
     public static Builder builder() {
-        return new AutoValue_Run.Builder();
+        return new AutoValue_Run.Builder()
+                .inputPosition(0L)
+                .inputSize(0L);
     }
 
     @AutoValue.Builder
@@ -44,6 +70,8 @@ public abstract class Run {
 
         public abstract Builder finishedAt(@Nullable Instant finishedAt);
 
+        public abstract Builder failedAt(@Nullable Instant failedAt);
+
         public abstract Builder count(Integer count);
 
         public abstract Builder toolVersion(String toolVersion);
@@ -52,6 +80,12 @@ public abstract class Run {
 
         public abstract Builder dumpDate(String dumpDate);
 
+        public abstract Builder inputPosition(Long inputPosition);
+
+        public abstract Builder inputSize(Long inputSize);
+
+        public abstract Builder progressUpdatedAt(@Nullable Instant progressUpdatedAt);
+
         public abstract Run build();
     }
 }
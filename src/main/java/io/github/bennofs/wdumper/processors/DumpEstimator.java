@@ -0,0 +1,216 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import io.github.bennofs.wdumper.DumpRunner;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+import io.github.bennofs.wdumper.model.DumpEstimate;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.OutputCompression;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.LexemeDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimates the size of a dump by serializing the entities of a {@link DumpSample}.
+ *
+ * The sample is serialized with the same {@link FilteredRdfSerializer} as a real run, but the output is only counted.
+ * Properties are all part of the sample and are counted once, the counts for the other entities are scaled by the
+ * weight of the sample. Since compressing all of the output would take longer than serializing it, the compression
+ * ratio is only measured on the start of the output. Property documents compress very differently from the other
+ * entities and make up most of the start of the output, so the ratio is measured separately for the output of the
+ * properties and for the output of the other entities.
+ *
+ * The time spent serializing and the size of the output of all estimates are recorded in {@link #getMetrics()}.
+ */
+public class DumpEstimator {
+    /** number of bytes of output that are compressed to measure each compression ratio */
+    private static final long COMPRESSION_SAMPLE_SIZE = 16 * 1024 * 1024;
+
+    private final DumpSample sample;
+    private final Sites sites;
+    private final PropertyRegister propertyRegister;
+    private final PropertyIriCache propertyIris = new PropertyIriCache();
+
+    private final LongAdder outputBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final DumpMetrics metrics = new DumpMetrics(outputBytes::sum, compressedBytes::sum, () -> 0);
+
+    public DumpEstimator(DumpSample sample, Sites sites) {
+        this(sample, sites, new PropertyRegister("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA));
+    }
+
+    DumpEstimator(DumpSample sample, Sites sites, PropertyRegister propertyRegister) {
+        this.sample = sample;
+        this.sites = sites;
+        this.propertyRegister = propertyRegister;
+
+        // all properties are known from the sample, so the register never needs to fetch their types
+        for (PropertyDocument property : sample.getProperties()) {
+            propertyRegister.setPropertyType(property.getEntityId(), property.getDatatype().getIri());
+        }
+    }
+
+    /**
+     * Estimates the size of the dump for a spec.
+     *
+     * The property register is shared by all estimates, so estimates are computed one at a time.
+     *
+     * @param spec the spec of the dump
+     * @return the estimated size of the complete dump
+     * @throws IOException if compressing the output failed
+     */
+    public synchronized DumpEstimate estimate(DumpSpec spec) throws IOException {
+        final CompressionSample propertySample = new CompressionSample(spec.getCompression(), COMPRESSION_SAMPLE_SIZE);
+        final CompressionSample entitySample = new CompressionSample(spec.getCompression(), COMPRESSION_SAMPLE_SIZE);
+        final SwitchingOutputStream sampled = new SwitchingOutputStream(propertySample);
+        final CountingOutputStream output = new CountingOutputStream(sampled);
+
+        final long start = System.nanoTime();
+        final FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, 0, output, sites, propertyRegister,
+                propertyIris, (level, message) -> {});
+        serializer.open();
+        for (PropertyDocument property : sample.getProperties()) {
+            serializer.processPropertyDocument(property);
+        }
+        serializer.flush();
+        final Counts properties = new Counts(serializer, output.getCount());
+        sampled.setOutput(entitySample);
+
+        for (EntityDocument document : sample.getEntities()) {
+            if (document instanceof ItemDocument) {
+                serializer.processItemDocument((ItemDocument) document);
+            } else if (document instanceof LexemeDocument) {
+                serializer.processLexemeDocument((LexemeDocument) document);
+            }
+        }
+        serializer.flush();
+        final Counts all = new Counts(serializer, output.getCount());
+        metrics.addSerializationTime(sample.getProperties().size() + sample.getEntities().size(), System.nanoTime() - start);
+
+        propertySample.close();
+        entitySample.close();
+        outputBytes.add(output.getCount());
+        compressedBytes.add(propertySample.getCompressed() + entitySample.getCompressed());
+
+        final double weight = sample.getWeight();
+        return new DumpEstimate(
+                properties.entities + Math.round((all.entities - properties.entities) * weight),
+                properties.statements + Math.round((all.statements - properties.statements) * weight),
+                properties.triples + Math.round((all.triples - properties.triples) * weight),
+                Math.round(properties.bytes * propertySample.getRatio()
+                        + (all.bytes - properties.bytes) * weight * entitySample.getRatio()),
+                sample.getEntities().size()
+        );
+    }
+
+    /**
+     * @return metrics of all estimates computed so far, the compressed size only includes the compressed prefixes
+     */
+    public DumpMetrics getMetrics() {
+        return metrics;
+    }
+
+    private static final class Counts {
+        final long entities;
+        final long statements;
+        final long triples;
+        final long bytes;
+
+        Counts(FilteredRdfSerializer serializer, long bytes) {
+            this.entities = serializer.getEntityCount();
+            this.statements = serializer.getStatementCount();
+            this.triples = serializer.getTripleCount();
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Output stream which compresses only the first bytes written to it and drops the rest, to measure the
+     * compression ratio of the output.
+     */
+    static final class CompressionSample extends OutputStream {
+        private final CountingOutputStream compressed = new CountingOutputStream(ByteStreams.nullOutputStream());
+        private final OutputStream output;
+        private final long limit;
+        private long forwarded = 0;
+
+        CompressionSample(OutputCompression compression, long limit) throws IOException {
+            this.output = DumpRunner.openCompressedStream(compression, compressed);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (forwarded < limit) {
+                output.write(b);
+                forwarded += 1;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final int n = (int) Math.min(len, limit - forwarded);
+            if (n > 0) {
+                output.write(b, off, n);
+                forwarded += n;
+            }
+        }
+
+        /**
+         * Finishes the compression, must be called before the ratio is read.
+         */
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+
+        /**
+         * @return the size of the compressed sample
+         */
+        long getCompressed() {
+            return compressed.getCount();
+        }
+
+        /**
+         * @return compressed size divided by the size of the sample, or 1 if nothing was written
+         */
+        double getRatio() {
+            return forwarded == 0 ? 1 : (double) compressed.getCount() / forwarded;
+        }
+    }
+
+    /**
+     * Output stream which passes on all bytes to an output that can be replaced between writes.
+     */
+    private static final class SwitchingOutputStream extends OutputStream {
+        private OutputStream output;
+
+        SwitchingOutputStream(OutputStream output) {
+            this.output = output;
+        }
+
+        void setOutput(OutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            output.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            output.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.github.bennofs.wdumper.spec.Shard;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A uniform sample of the entities of a dump, used to estimate the size of dumps before they are generated.
+ *
+ * The sample contains all properties, since they are few and their data types are needed to serialize
+ * the statements of other entities, and every n-th of the other entities. Entities are selected by their
+ * numeric id in the same way as for {@link Shard}s, so the same entities are sampled from every version of the dump.
+ *
+ * The sample is stored as zstd compressed JSON, with one entity per line. The first line is a header
+ * with the number of non-property entities in the whole dump, which is needed to scale the counts of the sample.
+ */
+public class DumpSample {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int COMPRESSION_LEVEL = 3;
+
+    /** by default, one in this many entities is sampled */
+    public static final int DEFAULT_RATE = 10000;
+
+    private final List<PropertyDocument> properties;
+    private final List<EntityDocument> entities;
+    private final long totalEntities;
+
+    DumpSample(List<PropertyDocument> properties, List<EntityDocument> entities, long totalEntities) {
+        this.properties = Collections.unmodifiableList(properties);
+        this.entities = Collections.unmodifiableList(entities);
+        this.totalEntities = totalEntities;
+    }
+
+    /**
+     * @return the default location of the sample for the given dump
+     */
+    public static Path getSamplePath(Path dumpFile) {
+        return dumpFile.resolveSibling(dumpFile.getFileName() + ".sample.zst");
+    }
+
+    /**
+     * Samples the entities of a JSON dump with one entity per line.
+     *
+     * @param dump the decompressed JSON dump
+     * @param output where to store the sample
+     * @param rate one in this many entities that are not properties is sampled
+     * @return the number of sampled entities, including properties
+     * @throws IOException if reading the dump or writing the sample failed
+     */
+    public static long create(InputStream dump, Path output, int rate) throws IOException {
+        final Shard shard = new Shard(0, rate);
+        final Path entitiesFile = output.resolveSibling(output.getFileName() + ".entities.tmp");
+
+        long total = 0;
+        long sampled = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(dump, StandardCharsets.UTF_8));
+             Writer writer = openWriter(entitiesFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+                final String id = findId(line);
+                if (id == null) continue;
+
+                final boolean property = id.startsWith("P");
+                if (!property) total += 1;
+                if (property || shard.includes(id)) {
+                    writer.write(line);
+                    writer.write('\n');
+                    sampled += 1;
+                }
+            }
+        }
+
+        final Path temporary = output.resolveSibling(output.getFileName() + ".tmp");
+        try (Writer writer = openWriter(temporary);
+             BufferedReader reader = openReader(entitiesFile)) {
+            writer.write(mapper.createObjectNode().put("entities", total).toString());
+            writer.write('\n');
+            reader.transferTo(writer);
+        }
+        Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(entitiesFile);
+        return sampled;
+    }
+
+    private static Writer openWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new ZstdOutputStream(new BufferedOutputStream(Files.newOutputStream(path)), COMPRESSION_LEVEL),
+                StandardCharsets.UTF_8));
+    }
+
+    private static BufferedReader openReader(Path path) throws IOException {
+        return new BufferedReader(new InputStreamReader(new ZstdInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Finds the id of the entity at the start of the JSON, without parsing it.
+     *
+     * @return the id, or null if the line is not an entity
+     */
+    static String findId(String line) {
+        final String key = "\"id\":\"";
+        final int start = line.indexOf(key);
+        if (start < 0) return null;
+
+        final int end = line.indexOf('"', start + key.length());
+        if (end < 0) return null;
+        return line.substring(start + key.length(), end);
+    }
+
+    /**
+     * Loads a sample and parses all of its entities.
+     *
+     * @param path the file created by {@link #create(InputStream, Path, int)}
+     * @return the sample
+     * @throws IOException if the sample could not be read or contains invalid entities
+     */
+    public static DumpSample load(Path path) throws IOException {
+        final ObjectReader reader = new DatamodelMapper(Datamodel.SITE_WIKIDATA).readerFor(EntityDocumentImpl.class);
+        final List<PropertyDocument> properties = new ArrayList<>();
+        final List<EntityDocument> entities = new ArrayList<>();
+
+        try (BufferedReader input = openReader(path)) {
+            final String header = input.readLine();
+            if (header == null) {
+                throw new IOException("dump sample " + path + " is empty");
+            }
+            final JsonNode entityCount = mapper.readTree(header).get("entities");
+            if (entityCount == null || !entityCount.canConvertToLong()) {
+                throw new IOException("dump sample " + path + " has an invalid header");
+            }
+
+            String line;
+            while ((line = input.readLine()) != null) {
+                final EntityDocument document = reader.readValue(line);
+                if (document instanceof PropertyDocument) {
+                    properties.add((PropertyDocument) document);
+                } else {
+                    entities.add(document);
+                }
+            }
+            return new DumpSample(properties, entities, entityCount.asLong());
+        }
+    }
+
+    /**
+     * @return all properties of the dump
+     */
+    public List<PropertyDocument> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the sampled entities that are not properties
+     */
+    public List<EntityDocument> getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return the number of entities of the whole dump that are not properties
+     */
+    public long getTotalEntities() {
+        return totalEntities;
+    }
+
+    /**
+     * @return the number of entities of the dump that each sampled entity stands for
+     */
+    public double getWeight() {
+        return entities.isEmpty() ? 0 : (double) totalEntities / entities.size();
+    }
+}
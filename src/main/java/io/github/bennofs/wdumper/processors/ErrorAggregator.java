@@ -0,0 +1,110 @@
+package io.github.bennofs.wdumper.processors;
+
+import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Combines the errors of a dump, so that an error which occurs for many documents is only reported periodically
+ * with the number of occurrences instead of once per document.
+ *
+ * Errors are grouped by what failed, the class of the exception and the message of the exception, where entity ids
+ * and numbers are replaced by placeholders. For each group, the ids of the first few failing documents are kept as
+ * examples. Errors can be added from any thread.
+ */
+public class ErrorAggregator {
+    static final int MAX_EXAMPLES = 5;
+
+    private static final Pattern ENTITY_ID = Pattern.compile("\\b[QPLM][1-9][0-9]*(-[FS][1-9][0-9]*)?\\b");
+    private static final Pattern NUMBER = Pattern.compile("[0-9]+");
+
+    private static final class Key {
+        final String description;
+        final String exceptionClass;
+        final String template;
+
+        Key(String description, String exceptionClass, String template) {
+            this.description = description;
+            this.exceptionClass = exceptionClass;
+            this.template = template;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return description.equals(key.description) && exceptionClass.equals(key.exceptionClass)
+                    && template.equals(key.template);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(description, exceptionClass, template);
+        }
+    }
+
+    private static final class Group {
+        final LongAdder count = new LongAdder();
+        /** ids of the first failing documents, guarded by this */
+        final List<String> examples = new ArrayList<>();
+        /** number of errors that have already been reported, guarded by this */
+        long reported = 0;
+    }
+
+    private final ConcurrentHashMap<Key, Group> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the variable parts of an exception message, so that messages of the same error are equal.
+     */
+    static String template(@Nullable String message) {
+        if (message == null) return "";
+        final String withoutIds = ENTITY_ID.matcher(message).replaceAll("<id>");
+        return NUMBER.matcher(withoutIds).replaceAll("<n>");
+    }
+
+    /**
+     * Adds an error.
+     *
+     * @param description what failed, for example "failed to process document"
+     * @param entityId id of the document that caused the error, or null if the error is not caused by a document
+     * @param e the error
+     */
+    public void add(String description, @Nullable String entityId, Throwable e) {
+        final Key key = new Key(description, e.getClass().getName(), template(e.getMessage()));
+        final Group group = groups.computeIfAbsent(key, k -> new Group());
+        group.count.increment();
+        if (entityId != null) {
+            synchronized (group) {
+                if (group.examples.size() < MAX_EXAMPLES) group.examples.add(entityId);
+            }
+        }
+    }
+
+    /**
+     * Reports the errors added since the last flush, one message per group.
+     */
+    public void flush(DumpStatusHandler statusHandler) {
+        groups.forEach((key, group) -> {
+            final int count;
+            final String message;
+            synchronized (group) {
+                final long total = group.count.sum();
+                if (total == group.reported) return;
+                count = (int) Math.min(total - group.reported, Integer.MAX_VALUE);
+                group.reported = total;
+
+                message = key.description + ": " + key.exceptionClass
+                        + (key.template.isEmpty() ? "" : ": " + key.template)
+                        + (group.examples.isEmpty() ? "" : " (for example " + String.join(", ", group.examples) + ")");
+            }
+            statusHandler.reportError(DumpStatusHandler.ErrorLevel.ERROR, message, count);
+        });
+    }
+}
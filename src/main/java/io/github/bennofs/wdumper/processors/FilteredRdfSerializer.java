@@ -6,6 +6,7 @@ import io.github.bennofs.wdumper.spec.StatementOptions;
 import org.apache.commons.lang3.NotImplementedException;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,7 +19,7 @@ import java.io.OutputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
     private final static Logger logger = LoggerFactory.getLogger(FilteredRdfSerializer.class);
@@ -29,26 +30,62 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
     private final RdfWriter rdfWriter;
     private final Sites sites;
     private final PropertyRegister propertyRegister;
+    private final PropertyIriCache propertyIris;
 
-    private final SnakRdfConverter snakRdfConverter;
-    private final OwlDeclarationBuffer owlDeclarationBuffer = new OwlDeclarationBuffer();
-    private final ReferenceRdfConverter referenceRdfConverter;
+    private SnakRdfConverter snakRdfConverter;
+    private OwlDeclarationBuffer owlDeclarationBuffer;
+    private ReferenceRdfConverter referenceRdfConverter;
     private final RankBuffer rankBuffer = new RankBuffer();
-    private int count = 0;
 
-    private final AtomicLong includedStatements = new AtomicLong();
-    private final AtomicLong includedEntities = new AtomicLong();
+    // shared with the forks of this serializer, so they are updated from multiple threads
+    private final LongAdder includedStatements;
+    private final LongAdder includedEntities;
+    private final LongAdder flushedTriples;
+    private final ErrorAggregator errors;
+    /** shared triples written by a {@link SerializerGroup}, only accessed by the thread writing to this serializer */
+    private final SharedTripleSet writtenSharedTriples = new SharedTripleSet();
+    /** triple count of the RDF writer at the last flush, only accessed by the thread writing to this serializer */
+    private long unflushedTriplesStart = 0;
 
     private final DumpStatusHandler statusHandler;
     private final OutputStream outputStream;
 
-    public FilteredRdfSerializer(DumpSpec spec, int id, OutputStream output, Sites sites, PropertyRegister propertyRegister, DumpStatusHandler statusHandler) {
+    public FilteredRdfSerializer(DumpSpec spec, int id, OutputStream output, Sites sites, PropertyRegister propertyRegister,
+                                 PropertyIriCache propertyIris, DumpStatusHandler statusHandler) {
+        this(spec, id, output, sites, propertyRegister, propertyIris, statusHandler, new LongAdder(), new LongAdder(), new LongAdder(),
+                new ErrorAggregator());
+    }
+
+    private FilteredRdfSerializer(DumpSpec spec, int id, OutputStream output, Sites sites, PropertyRegister propertyRegister,
+                                  PropertyIriCache propertyIris, DumpStatusHandler statusHandler,
+                                  LongAdder includedStatements, LongAdder includedEntities, LongAdder flushedTriples,
+                                  ErrorAggregator errors) {
         this.spec = spec;
         this.id = id;
-        this.rdfWriter = new RdfWriter(spec.getFormat(), output);
+        this.rdfWriter = createRdfWriter(spec.getFormat(), output, propertyIris);
         this.sites = sites;
         this.propertyRegister = propertyRegister;
+        this.propertyIris = propertyIris;
+
+        resetDeclarations();
+        this.statusHandler = statusHandler;
+        this.outputStream = output;
+
+        this.includedStatements = includedStatements;
+        this.includedEntities = includedEntities;
+        this.flushedTriples = flushedTriples;
+        this.errors = errors;
+    }
 
+    /**
+     * Forgets which property declarations, references and complex values have already been written.
+     *
+     * After a reset, the output for the next document contains all triples that the document needs, even if they
+     * were already written for an earlier document. This makes the output of each document self-contained,
+     * at the cost of duplicate triples.
+     */
+    void resetDeclarations() {
+        this.owlDeclarationBuffer = new OwlDeclarationBuffer();
         final AnyValueConverter valueRdfConverter = new AnyValueConverter(rdfWriter,
                 this.owlDeclarationBuffer, this.propertyRegister);
         this.snakRdfConverter = new SnakRdfConverter(rdfWriter,
@@ -56,47 +93,191 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
                 valueRdfConverter);
         this.referenceRdfConverter = new ReferenceRdfConverter(rdfWriter,
                 this.snakRdfConverter, this.propertyRegister.getUriPrefix());
-        this.statusHandler = statusHandler;
-        this.outputStream = output;
+    }
+
+    private static RdfWriter createRdfWriter(RDFFormat format, OutputStream output, PropertyIriCache propertyIris) {
+        if (format.equals(RDFFormat.NTRIPLES)) {
+            return new PropertyCachingRdfWriter(new NTriplesByteWriter(output), propertyIris);
+        }
+        return new PropertyCachingRdfWriter(format, output, propertyIris);
+    }
+
+    /**
+     * Creates a serializer for the same dump which writes to a separate buffer.
+     *
+     * The fork shares the statistics with this serializer, but has its own RDF writer and buffers,
+     * so it can be used from a different thread than this serializer.
+     * Data written to the fork is not part of this dump until it is passed to {@link #writeForkOutput(ForkBuffer.Output)}.
+     *
+     * @param output the buffer which the fork writes to
+     * @param propertyRegister property register for the fork, must not be shared with other threads
+     * @return the forked serializer, already started
+     */
+    FilteredRdfSerializer fork(ForkBuffer output, PropertyRegister propertyRegister) {
+        final FilteredRdfSerializer fork = new FilteredRdfSerializer(spec, id, output, sites, propertyRegister, propertyIris, statusHandler,
+                includedStatements, includedEntities, flushedTriples, errors);
+        fork.rdfWriter.start();
+        return fork;
+    }
+
+    /**
+     * Creates a serializer with the options of this dump, which does not count towards the statistics of the dump.
+     *
+     * This is used to write documents once for multiple dumps, see {@link SerializerGroup}.
+     *
+     * @param output the stream which the serializer writes to
+     * @param propertyRegister property register for the serializer, must not be shared with other threads
+     * @return the detached serializer, already started
+     */
+    FilteredRdfSerializer detach(OutputStream output, PropertyRegister propertyRegister) {
+        final FilteredRdfSerializer detached = new FilteredRdfSerializer(spec, id, output, sites, propertyRegister, propertyIris, statusHandler,
+                new LongAdder(), new LongAdder(), new LongAdder(), errors);
+        detached.rdfWriter.start();
+        return detached;
+    }
+
+    /**
+     * Appends the triples of a document that was written by a {@link SerializerGroup} to the dump.
+     *
+     * The shared triples that the document needs are appended separately with {@link #writeSharedTriple(byte[], int, int)}.
+     *
+     * @param data buffer containing the output
+     * @param offset start of the output in the buffer
+     * @param length length of the output
+     * @param statements number of statements of the document
+     * @param triples number of triples in the output
+     */
+    void writeSharedOutput(byte[] data, int offset, int length, long statements, long triples) {
+        this.includedEntities.increment();
+        this.includedStatements.add(statements);
+        this.flushedTriples.add(triples);
+        try {
+            this.outputStream.write(data, offset, length);
+        } catch(IOException e) {
+            this.errors.add("writing to the output stream failed", null, e);
+        }
+    }
+
+    /**
+     * Appends a single triple for a complex value, property declaration or reference written by a
+     * {@link SerializerGroup} to the dump, unless the dump already contains it.
+     *
+     * A fork does not skip any triples itself. It marks them in its {@link ForkBuffer}, and they are skipped when the
+     * output of the fork is appended to the dump.
+     */
+    void writeSharedTriple(byte[] data, int offset, int length) {
+        if (this.outputStream instanceof ForkBuffer) {
+            ((ForkBuffer) this.outputStream).writeShared(data, offset, length);
+            return;
+        }
+        if (!this.writtenSharedTriples.add(data, offset, length)) return;
+
+        this.flushedTriples.increment();
+        try {
+            this.outputStream.write(data, offset, length);
+        } catch(IOException e) {
+            this.errors.add("writing to the output stream failed", null, e);
+        }
+    }
+
+    /**
+     * Appends output generated by a fork of this serializer to the dump. The shared triples in the output are
+     * skipped if the dump already contains them.
+     *
+     * The serializer needs to be flushed before any fork output is written, so that the data is not interleaved
+     * with data still buffered by the RDF writer.
+     */
+    void writeForkOutput(ForkBuffer.Output output) {
+        try {
+            // write everything up to the next shared triple that the dump already contains
+            int position = 0;
+            for (int line = 0; line < output.getSharedLineCount(); ++line) {
+                if (this.writtenSharedTriples.add(output.sharedHashes[2 * line], output.sharedHashes[2 * line + 1])) {
+                    this.flushedTriples.increment();
+                    continue;
+                }
+
+                final int start = output.sharedRanges[2 * line];
+                this.outputStream.write(output.data, position, start - position);
+                position = output.sharedRanges[2 * line + 1];
+            }
+            this.outputStream.write(output.data, position, output.data.length - position);
+        } catch(IOException e) {
+            this.errors.add("writing to the output stream failed", null, e);
+        }
     }
 
 
     @Override
     public void processItemDocument(ItemDocument itemDocument) {
-        this.count += 1;
         try {
             if (!this.spec.includeDocument(itemDocument)) return;
 
             writeItemDocument(itemDocument);
         } catch(Exception e) {
-            this.statusHandler.reportError(DumpStatusHandler.ErrorLevel.ERROR, "failed to process item, document " + this.count + ": error " + e.toString());
+            reportDocumentError(itemDocument, e);
         }
     }
 
     @Override
     public void processPropertyDocument(PropertyDocument propertyDocument) {
-        this.count += 1;
         try {
             if (!this.spec.includeDocument(propertyDocument)) return;
 
             writePropertyDocument(propertyDocument);
         } catch(Exception e) {
-            this.statusHandler.reportError(DumpStatusHandler.ErrorLevel.ERROR, "failed to process item, document " + this.count + ": error " + e.toString());
+            reportDocumentError(propertyDocument, e);
         }
     }
 
     @Override
     public void processLexemeDocument(LexemeDocument lexemeDocument) {
-        this.count += 1;
         try {
             if (!this.spec.includeDocument(lexemeDocument)) return;
 
             throw new NotImplementedException("serialization of lexemes not implemented yet");
         } catch(Exception e) {
-            this.statusHandler.reportError(DumpStatusHandler.ErrorLevel.ERROR, "failed to process item, document " + this.count + ": error " + e.toString());
+            reportDocumentError(lexemeDocument, e);
         }
     }
 
+    /**
+     * Processes a document that is known to match the entity filters of the spec.
+     *
+     * This is used when the entity filters of all dumps are evaluated at once, see {@link io.github.bennofs.wdumper.spec.RunEntityFilter}.
+     * Only sampling is applied to the document.
+     */
+    void processMatchedDocument(EntityDocument document) {
+        try {
+            if (!this.spec.sampleDocument(document.getEntityId().getId())) return;
+
+            if (document instanceof ItemDocument) {
+                writeItemDocument((ItemDocument) document);
+            } else if (document instanceof PropertyDocument) {
+                writePropertyDocument((PropertyDocument) document);
+            } else if (document instanceof LexemeDocument) {
+                throw new NotImplementedException("serialization of lexemes not implemented yet");
+            }
+        } catch(Exception e) {
+            reportDocumentError(document, e);
+        }
+    }
+
+    /**
+     * Records that a document could not be written. The errors are reported periodically, see {@link #flushErrors()}.
+     */
+    void reportDocumentError(EntityDocument document, Exception e) {
+        this.errors.add("failed to process documents", document.getEntityId().getId(), e);
+    }
+
+    /**
+     * Reports the errors since the last call to the status handler, combining errors with the same cause.
+     *
+     * This is called periodically while the dump is generated, and when the serializer is closed.
+     */
+    public void flushErrors() {
+        this.errors.flush(this.statusHandler);
+    }
 
     /**
      * Writes OWL declarations for all basic vocabulary elements used in the
@@ -132,7 +313,48 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
 
     public void writeItemDocument(ItemDocument document)
             throws RDFHandlerException {
-        this.includedEntities.incrementAndGet();
+        writeItemTriples(document);
+        writeBufferedTriples(spec.hasFullStatements());
+    }
+
+    public void writePropertyDocument(PropertyDocument document)
+            throws RDFHandlerException {
+        writePropertyTriples(document);
+        writeBufferedTriples(true);
+    }
+
+    /**
+     * Writes a document such that the output contains all triples it needs, independent of earlier documents.
+     *
+     * The triples of the document itself are flushed to the output before the triples for complex values, property
+     * declarations and references, which other documents may need as well. This is used to write a document once
+     * for all dumps of a {@link SerializerGroup}.
+     *
+     * @param document the document, which is not checked against the entity filters or the sample
+     * @param afterDocumentTriples called once the triples of the document itself have been flushed
+     */
+    void writeSelfContainedDocument(EntityDocument document, Runnable afterDocumentTriples) {
+        resetDeclarations();
+
+        final boolean fullStatements;
+        if (document instanceof ItemDocument) {
+            writeItemTriples((ItemDocument) document);
+            fullStatements = spec.hasFullStatements();
+        } else if (document instanceof PropertyDocument) {
+            writePropertyTriples((PropertyDocument) document);
+            fullStatements = true;
+        } else {
+            throw new NotImplementedException("serialization of lexemes not implemented yet");
+        }
+        flush();
+        afterDocumentTriples.run();
+
+        writeBufferedTriples(fullStatements);
+        flush();
+    }
+
+    private void writeItemTriples(ItemDocument document) {
+        this.includedEntities.increment();
 
         String subjectUri = document.getEntityId().getIri();
         Resource subject = this.rdfWriter.getUri(subjectUri);
@@ -147,15 +369,10 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
 
         if (spec.isSitelinks())
             writeSiteLinks(subject, document.getSiteLinks());
-
-        this.snakRdfConverter.writeAuxiliaryTriples();
-        this.owlDeclarationBuffer.writePropertyDeclarations(this.rdfWriter, spec.hasFullStatements(), true);
-        this.referenceRdfConverter.writeReferences();
     }
 
-    public void writePropertyDocument(PropertyDocument document)
-            throws RDFHandlerException {
-        this.includedEntities.incrementAndGet();
+    private void writePropertyTriples(PropertyDocument document) {
+        this.includedEntities.increment();
 
         propertyRegister.setPropertyType(document.getEntityId(), document
                 .getDatatype().getIri());
@@ -174,9 +391,15 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
 
         writeStatements(subject, document);
         writeInterPropertyLinks(document);
+    }
 
+    /**
+     * Writes the triples that the converters have buffered: complex values, property declarations and references.
+     * Each of these is only written once by a serializer, even if it is used by multiple documents.
+     */
+    private void writeBufferedTriples(boolean fullStatements) {
         this.snakRdfConverter.writeAuxiliaryTriples();
-        this.owlDeclarationBuffer.writePropertyDeclarations(this.rdfWriter, true, true);
+        this.owlDeclarationBuffer.writePropertyDeclarations(this.rdfWriter, fullStatements, true);
         this.referenceRdfConverter.writeReferences();
     }
 
@@ -192,49 +415,30 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
             throws RDFHandlerException {
         Resource subject = this.rdfWriter.getUri(document.getEntityId()
                 .getIri());
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_DIRECT_CLAIM_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.DIRECT));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_CLAIM_PROP), Vocabulary.getPropertyUri(
-                document.getEntityId(), PropertyContext.STATEMENT));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_STATEMENT_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.VALUE_SIMPLE));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                        .getUri(Vocabulary.WB_STATEMENT_VALUE_PROP),
-                Vocabulary.getPropertyUri(document.getEntityId(),
-                        PropertyContext.VALUE));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_QUALIFIER_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.QUALIFIER_SIMPLE));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_QUALIFIER_VALUE_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.QUALIFIER));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_REFERENCE_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.REFERENCE_SIMPLE));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_REFERENCE_VALUE_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.REFERENCE));
-
-        this.rdfWriter.writeTripleUriObject(subject, this.rdfWriter
-                .getUri(Vocabulary.WB_NO_VALUE_PROP), Vocabulary
-                .getPropertyUri(document.getEntityId(),
-                        PropertyContext.NO_VALUE));
+        writeInterPropertyLink(subject, Vocabulary.WB_DIRECT_CLAIM_PROP,
+                document.getEntityId(), PropertyContext.DIRECT);
+        writeInterPropertyLink(subject, Vocabulary.WB_CLAIM_PROP,
+                document.getEntityId(), PropertyContext.STATEMENT);
+        writeInterPropertyLink(subject, Vocabulary.WB_STATEMENT_PROP,
+                document.getEntityId(), PropertyContext.VALUE_SIMPLE);
+        writeInterPropertyLink(subject, Vocabulary.WB_STATEMENT_VALUE_PROP,
+                document.getEntityId(), PropertyContext.VALUE);
+        writeInterPropertyLink(subject, Vocabulary.WB_QUALIFIER_PROP,
+                document.getEntityId(), PropertyContext.QUALIFIER_SIMPLE);
+        writeInterPropertyLink(subject, Vocabulary.WB_QUALIFIER_VALUE_PROP,
+                document.getEntityId(), PropertyContext.QUALIFIER);
+        writeInterPropertyLink(subject, Vocabulary.WB_REFERENCE_PROP,
+                document.getEntityId(), PropertyContext.REFERENCE_SIMPLE);
+        writeInterPropertyLink(subject, Vocabulary.WB_REFERENCE_VALUE_PROP,
+                document.getEntityId(), PropertyContext.REFERENCE);
+        writeInterPropertyLink(subject, Vocabulary.WB_NO_VALUE_PROP,
+                document.getEntityId(), PropertyContext.NO_VALUE);
+    }
+
+    private void writeInterPropertyLink(Resource subject, String predicate, PropertyIdValue property,
+                                        PropertyContext context) throws RDFHandlerException {
+        this.rdfWriter.writeTripleValueObject(subject, this.rdfWriter.getUri(predicate),
+                this.propertyIris.get(property, context));
     }
 
     void writeStatements(Resource subject, StatementDocument statementDocument)
@@ -326,7 +530,7 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
         Resource statementResource = this.rdfWriter.getUri(statementUri);
 
         if (options.isStatement() || options.isSimple()) {
-            this.includedStatements.incrementAndGet();
+            this.includedStatements.increment();
         }
 
         // simple statement
@@ -340,8 +544,8 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
         }
 
         if (options.isStatement()) {
-            IRI property = this.rdfWriter.getUri(Vocabulary.getPropertyUri(
-                    statement.getMainSnak().getPropertyId(), PropertyContext.STATEMENT));
+            IRI property = this.propertyIris.get(
+                    statement.getMainSnak().getPropertyId(), PropertyContext.STATEMENT);
             this.rdfWriter.writeTripleUriObject(subject, property,
                     Vocabulary.getStatementUri(statement));
         }
@@ -487,12 +691,16 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
 
     @Override
     public void close() {
+        final long triples = this.rdfWriter.getTripleCount();
         this.rdfWriter.finish();
+        this.flushedTriples.add(triples - this.unflushedTriplesStart);
+        this.unflushedTriplesStart = this.rdfWriter.getTripleCount();
         try {
             this.outputStream.close();
         } catch(IOException e) {
-            this.statusHandler.reportError(DumpStatusHandler.ErrorLevel.WARNING, "closing the output stream failed: " + e.toString());
+            this.statusHandler.reportError(DumpStatusHandler.ErrorLevel.ERROR, "closing the output stream failed: " + e.toString());
         }
+        flushErrors();
     }
 
     /**
@@ -501,29 +709,50 @@ public class FilteredRdfSerializer implements EntityDocumentDumpProcessor {
      * A single statement is only counted once, even if both simple and full representations are exported.
      */
     public long getStatementCount() {
-        return this.includedStatements.get();
+        return this.includedStatements.sum();
     }
 
     /**
      * Returns the number of entities written to the dump.
      */
     public long getEntityCount() {
-        return this.includedEntities.get();
+        return this.includedEntities.sum();
     }
 
     /**
      * Returns the number of triples written to the dump.
+     *
+     * This includes the triples still buffered by the RDF writer, so it must only be called by the thread writing to
+     * this serializer. Other threads need to use {@link #getFlushedTripleCount()}.
      */
     public long getTripleCount() {
-        return this.rdfWriter.getTripleCount();
+        return this.flushedTriples.sum() + this.rdfWriter.getTripleCount() - this.unflushedTriplesStart;
+    }
+
+    /**
+     * Returns the number of triples written to the dump up to the last flush, including the output of all forks.
+     *
+     * Unlike {@link #getTripleCount()}, this can be called from any thread. Once the serializer is closed,
+     * both counts are the same.
+     */
+    public long getFlushedTripleCount() {
+        return this.flushedTriples.sum();
     }
 
     public int getDumpId() {
         return this.id;
     }
 
+    public DumpSpec getSpec() {
+        return this.spec;
+    }
+
     void flush() {
+        final long triples = this.rdfWriter.getTripleCount();
         this.rdfWriter.finish();
         this.rdfWriter.start();
+
+        this.flushedTriples.add(triples - this.unflushedTriplesStart);
+        this.unflushedTriplesStart = this.rdfWriter.getTripleCount();
     }
 }
@@ -0,0 +1,87 @@
+package io.github.bennofs.wdumper.processors;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Buffers the output of a fork of a serializer for a batch of documents.
+ *
+ * The triples for complex values, property declarations and references that are shared between documents are
+ * marked in the buffer, together with the hash of their line. They are only deduplicated once the output is appended
+ * to the dump by {@link FilteredRdfSerializer#writeForkOutput(Output)}, in the order of the input. This way the
+ * output of a dump does not depend on how the documents were split between the threads of a run.
+ *
+ * The hashes are computed while the output is buffered, so that this work is done by the thread of the fork.
+ */
+final class ForkBuffer extends OutputStream {
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    /** start and end offsets of the shared lines in the buffer, two ints per line */
+    private int[] sharedRanges = new int[64];
+    /** hashes of the shared lines, see {@link SharedTripleSet#hash(byte[], int, int, long[], int)} */
+    private long[] sharedHashes = new long[64];
+    private int sharedLines = 0;
+
+    /**
+     * The buffered output of a batch.
+     */
+    static final class Output {
+        final byte[] data;
+        final int[] sharedRanges;
+        final long[] sharedHashes;
+
+        private Output(byte[] data, int[] sharedRanges, long[] sharedHashes) {
+            this.data = data;
+            this.sharedRanges = sharedRanges;
+            this.sharedHashes = sharedHashes;
+        }
+
+        int getSharedLineCount() {
+            return sharedRanges.length / 2;
+        }
+    }
+
+    @Override
+    public void write(int b) {
+        data.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        data.write(b, off, len);
+    }
+
+    /**
+     * Appends a single line with a triple that may be shared with other documents.
+     */
+    void writeShared(byte[] b, int off, int len) {
+        if (2 * sharedLines + 2 > sharedRanges.length) {
+            sharedRanges = Arrays.copyOf(sharedRanges, 2 * sharedRanges.length);
+            sharedHashes = Arrays.copyOf(sharedHashes, 2 * sharedHashes.length);
+        }
+
+        sharedRanges[2 * sharedLines] = data.size();
+        data.write(b, off, len);
+        sharedRanges[2 * sharedLines + 1] = data.size();
+        SharedTripleSet.hash(b, off, len, sharedHashes, 2 * sharedLines);
+        sharedLines += 1;
+    }
+
+    /**
+     * @return number of bytes in the buffer
+     */
+    int size() {
+        return data.size();
+    }
+
+    /**
+     * Returns the buffered output and clears the buffer.
+     */
+    Output take() {
+        final Output output = new Output(data.toByteArray(), Arrays.copyOf(sharedRanges, 2 * sharedLines),
+                Arrays.copyOf(sharedHashes, 2 * sharedLines));
+        data.reset();
+        sharedLines = 0;
+        return output;
+    }
+}
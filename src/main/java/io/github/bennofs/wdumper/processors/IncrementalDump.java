@@ -0,0 +1,488 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.luben.zstd.ZstdInputStream;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.github.bennofs.wdumper.DumpRunner;
+import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.EntityIds;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.datamodel.interfaces.LexemeDocument;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
+import org.wikidata.wdtk.datamodel.interfaces.Sites;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Output of a single spec which is kept between runs and refreshed from the entities that changed since.
+ *
+ * The output is split into segments by entity id, where each segment holds the entities of a range of numeric ids.
+ * Segments are compressed separately and stored in the directory of the dump, together with an index of
+ * the entities in each segment and the length of their output. The final dump is the concatenation of the
+ * header and all segments, which is a valid gzip or zstd stream since members and frames can be concatenated.
+ *
+ * The files are replaced such that an interrupted build or update never leaves an inconsistent dump. The data file of
+ * a segment is never modified, a new version is written to a new file. The index names the data file it belongs to
+ * and is replaced atomically after the data file is complete, so the index is the commit point of a segment.
+ * The header is removed before and written after all segments of a build, so a dump without header is incomplete.
+ *
+ * To apply changes, only the segments with changed entities are decompressed. The output of unchanged entities is
+ * copied, the output of changed entities is replaced and the segment is compressed again. For this to work,
+ * the output of each entity must not depend on other entities, so the serializer forgets about property declarations
+ * and references after each entity. The dump therefore contains more duplicate triples than the dump of a normal run.
+ *
+ * Changes are read in the format of the JSON dump, with one entity per line. Deleted entities are given
+ * as objects that only have an id, for example {@code {"id":"Q42"}}.
+ */
+public class IncrementalDump {
+    /** number of numeric ids in each segment */
+    private static final int SEGMENT_SIZE = 1 << 20;
+    /** entities without a numeric id are distributed over this many segments by the hash of their id */
+    private static final int OTHER_SEGMENTS = 16;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path directory;
+    private final DumpSpec spec;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectReader reader = new DatamodelMapper(Datamodel.SITE_WIKIDATA).readerFor(EntityDocumentImpl.class);
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private final FilteredRdfSerializer serializer;
+
+    /**
+     * @param directory where the segments of the dump are stored
+     * @param spec the spec of the dump, which must use the N-Triples format
+     * @param sites site information for the sitelinks of entities
+     * @param propertyRegister property register, must not be shared with other threads
+     * @param statusHandler receives errors for entities that could not be serialized
+     */
+    public IncrementalDump(Path directory, DumpSpec spec, Sites sites, PropertyRegister propertyRegister, DumpStatusHandler statusHandler) {
+        if (!spec.getFormat().equals(RDFFormat.NTRIPLES)) {
+            throw new IllegalArgumentException("incremental dumps are only supported for N-Triples output");
+        }
+
+        this.directory = directory;
+        this.spec = spec;
+        this.serializer = new FilteredRdfSerializer(spec, 0, buffer, sites, propertyRegister, new PropertyIriCache(), statusHandler);
+    }
+
+    /**
+     * Returns the directory for the incremental dump of a spec, so dumps with the same spec share their segments.
+     *
+     * @param storageDirectory directory where generated dumps are stored
+     * @param specJson the JSON of the spec
+     * @return the directory of the incremental dump
+     */
+    public static Path getDirectory(Path storageDirectory, String specJson) {
+        return storageDirectory.resolve("incremental").resolve(Hashing.sha256().hashString(specJson, StandardCharsets.UTF_8).toString());
+    }
+
+    /**
+     * @return true if the dump has been built and can be updated
+     */
+    public boolean exists() {
+        return Files.exists(getHeaderPath());
+    }
+
+    private Path getHeaderPath() {
+        return directory.resolve("header" + spec.getCompression().getExtension());
+    }
+
+    private Path getSegmentPath(String segment, long generation) {
+        return directory.resolve("segment-" + segment + "-" + generation + spec.getCompression().getExtension());
+    }
+
+    private Path getIndexPath(String segment) {
+        return directory.resolve("segment-" + segment + ".idx");
+    }
+
+    private static Path temporary(Path path) {
+        return path.resolveSibling(path.getFileName() + ".tmp");
+    }
+
+    /**
+     * Returns the segment of an entity.
+     *
+     * @param entityId id of the entity, for example Q42
+     * @return name of the segment, which consists of the prefix of the id and the number of the segment
+     */
+    static String segmentOf(String entityId) {
+        final int numericId = entityId.isEmpty() ? -1 : EntityIds.numericId(entityId, entityId.charAt(0));
+        if (numericId >= 0) {
+            return entityId.charAt(0) + Integer.toString(numericId / SEGMENT_SIZE);
+        }
+        return "X" + Math.floorMod(entityId.hashCode(), OTHER_SEGMENTS);
+    }
+
+    /**
+     * Creates the dump from a full JSON dump, replacing any previous segments.
+     *
+     * @param dump the decompressed JSON dump
+     * @throws IOException if reading the dump or writing the segments failed
+     */
+    public void build(InputStream dump) throws IOException {
+        Files.createDirectories(directory);
+        // the dump is incomplete until the new header is written at the end
+        Files.deleteIfExists(getHeaderPath());
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith("segment-")) {
+                    Files.delete(file);
+                }
+            }
+        }
+
+        serializer.open();
+        serializer.flush();
+        try (OutputStream header = openSegmentOutput(temporary(getHeaderPath()))) {
+            buffer.writeTo(header);
+        }
+
+        final Map<String, SegmentWriter> segments = new HashMap<>();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(dump, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                final EntityDocument document = readEntity(line);
+                if (document == null) continue;
+
+                final byte[] output = serialize(document);
+                if (output.length == 0) continue;
+
+                final String id = document.getEntityId().getId();
+                SegmentWriter writer = segments.get(segmentOf(id));
+                if (writer == null) {
+                    writer = new SegmentWriter(segmentOf(id));
+                    segments.put(writer.segment, writer);
+                }
+                writer.write(id, output);
+            }
+        } finally {
+            for (SegmentWriter writer : segments.values()) {
+                writer.close();
+            }
+        }
+
+        for (SegmentWriter writer : segments.values()) {
+            writer.commit();
+        }
+        Files.move(temporary(getHeaderPath()), getHeaderPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Applies changed entities to the dump. Only the segments with changed entities are written again.
+     *
+     * @param changes the changed entities as JSON, one per line, in the order of the changes
+     * @return the number of segments that were written again
+     * @throws IOException if the dump has not been built, or reading the changes or writing the segments failed
+     */
+    public int update(InputStream changes) throws IOException {
+        if (!exists()) {
+            throw new IOException("incremental dump in " + directory + " has not been built");
+        }
+
+        // the output of the changed entities is collected per segment first, so each segment is only written once
+        final Map<String, DataOutputStream> changedSegments = new HashMap<>();
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(changes, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                line = line.strip();
+                if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+                final String id = DumpSample.findId(line);
+                if (id == null) continue;
+
+                // deleted entities and entities that are no longer part of the dump have no output
+                final EntityDocument document = readEntity(line);
+                final byte[] output = document == null ? new byte[0] : serialize(document);
+
+                final String segment = segmentOf(id);
+                DataOutputStream changesOutput = changedSegments.get(segment);
+                if (changesOutput == null) {
+                    changesOutput = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(getChangesPath(segment))));
+                    changedSegments.put(segment, changesOutput);
+                }
+                writeEntry(changesOutput, id, output.length);
+                changesOutput.write(output);
+            }
+        } finally {
+            for (DataOutputStream changesOutput : changedSegments.values()) {
+                changesOutput.close();
+            }
+        }
+
+        for (String segment : changedSegments.keySet()) {
+            updateSegment(segment, readChanges(segment));
+            Files.delete(getChangesPath(segment));
+        }
+        return changedSegments.size();
+    }
+
+    private Path getChangesPath(String segment) {
+        return directory.resolve("segment-" + segment + ".changes.tmp");
+    }
+
+    private Map<String, byte[]> readChanges(String segment) throws IOException {
+        // a later change of the same entity replaces the earlier one
+        final Map<String, byte[]> changes = new LinkedHashMap<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(getChangesPath(segment))))) {
+            while (true) {
+                final String id;
+                try {
+                    id = input.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                final byte[] output = new byte[input.readInt()];
+                input.readFully(output);
+                changes.remove(id);
+                changes.put(id, output);
+            }
+        }
+        return changes;
+    }
+
+    private void updateSegment(String segment, Map<String, byte[]> changes) throws IOException {
+        final SegmentWriter writer = new SegmentWriter(segment);
+        try {
+            if (writer.previousGeneration >= 0) {
+                try (DataInputStream index = openIndex(segment);
+                     InputStream output = openSegmentInput(getSegmentPath(segment, index.readLong()))) {
+                    while (true) {
+                        final String id;
+                        try {
+                            id = index.readUTF();
+                        } catch (EOFException e) {
+                            break;
+                        }
+                        final int length = index.readInt();
+                        if (changes.containsKey(id)) {
+                            ByteStreams.skipFully(output, length);
+                        } else {
+                            writer.copy(id, output, length);
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<String, byte[]> change : changes.entrySet()) {
+                if (change.getValue().length == 0) continue;
+                writer.write(change.getKey(), change.getValue());
+            }
+        } finally {
+            writer.close();
+        }
+        writer.commit();
+    }
+
+    /**
+     * Writes the complete dump by concatenating the header and all segments.
+     *
+     * @param output where to store the dump
+     * @throws IOException if the dump has not been built or writing failed
+     */
+    public void writeOutput(Path output) throws IOException {
+        if (!exists()) {
+            throw new IOException("incremental dump in " + directory + " has not been built");
+        }
+
+        final List<Path> parts = new ArrayList<>();
+        parts.add(getHeaderPath());
+        for (String segment : listSegments()) {
+            parts.add(getSegmentPath(segment, readGeneration(segment)));
+        }
+
+        final Path temporaryOutput = temporary(output);
+        try (FileChannel target = FileChannel.open(temporaryOutput, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Path part : parts) {
+                try (FileChannel partChannel = FileChannel.open(part)) {
+                    final long size = partChannel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += partChannel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        }
+        Files.move(temporaryOutput, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the names of all segments of the dump, in the order of the final dump
+     */
+    List<String> listSegments() throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith("segment-") && name.endsWith(".idx"))
+                    .map(name -> name.substring("segment-".length(), name.length() - ".idx".length()))
+                    .sorted(Comparator.<String, Character>comparing(segment -> segment.charAt(0))
+                            .thenComparing(segment -> Integer.parseInt(segment.substring(1))))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private EntityDocument readEntity(String line) throws IOException {
+        line = line.strip();
+        if (line.endsWith(",")) line = line.substring(0, line.length() - 1);
+
+        // skip the brackets of the top-level array
+        if (line.length() <= 1) return null;
+
+        final JsonNode node = mapper.readTree(line);
+        if (!node.has("type")) return null;
+        return reader.readValue(node);
+    }
+
+    /**
+     * Serializes a single entity, without relying on declarations written for earlier entities.
+     *
+     * @return the output for the entity, empty if the entity is not part of the dump
+     */
+    private byte[] serialize(EntityDocument document) {
+        buffer.reset();
+        serializer.resetDeclarations();
+        if (document instanceof ItemDocument) {
+            serializer.processItemDocument((ItemDocument) document);
+        } else if (document instanceof PropertyDocument) {
+            serializer.processPropertyDocument((PropertyDocument) document);
+        } else if (document instanceof LexemeDocument) {
+            serializer.processLexemeDocument((LexemeDocument) document);
+        }
+        serializer.flush();
+        return buffer.toByteArray();
+    }
+
+    private OutputStream openSegmentOutput(Path path) throws IOException {
+        return DumpRunner.openCompressedStream(spec.getCompression(), new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    private InputStream openSegmentInput(Path path) throws IOException {
+        final InputStream raw = new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        switch (spec.getCompression()) {
+            case GZIP:
+                return new GZIPInputStream(raw);
+            case ZSTD:
+                return new ZstdInputStream(raw);
+            case NONE:
+                return raw;
+            default:
+                throw new IllegalArgumentException("unsupported output compression: " + spec.getCompression());
+        }
+    }
+
+    private DataInputStream openIndex(String segment) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(getIndexPath(segment))));
+    }
+
+    /**
+     * @return the generation of the data file of the committed version of a segment
+     */
+    private long readGeneration(String segment) throws IOException {
+        try (DataInputStream index = openIndex(segment)) {
+            return index.readLong();
+        }
+    }
+
+    private static void writeEntry(DataOutputStream index, String id, int length) throws IOException {
+        index.writeUTF(id);
+        index.writeInt(length);
+    }
+
+    /**
+     * Writes a new version of a segment to a new data file and a temporary index, which replaces the segment
+     * when committed.
+     */
+    private final class SegmentWriter {
+        private final String segment;
+        /** generation of the committed version, -1 if the segment does not exist yet */
+        private final long previousGeneration;
+        private final long generation;
+        private final OutputStream output;
+        private final DataOutputStream index;
+        private boolean empty = true;
+
+        SegmentWriter(String segment) throws IOException {
+            this.segment = segment;
+            this.previousGeneration = Files.exists(getIndexPath(segment)) ? readGeneration(segment) : -1;
+            this.generation = previousGeneration + 1;
+            this.output = openSegmentOutput(getSegmentPath(segment, generation));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary(getIndexPath(segment)))));
+            this.index.writeLong(generation);
+        }
+
+        void write(String id, byte[] data) throws IOException {
+            output.write(data);
+            writeEntry(index, id, data.length);
+            empty = false;
+        }
+
+        void copy(String id, InputStream input, int length) throws IOException {
+            ByteStreams.copy(ByteStreams.limit(input, length), output);
+            writeEntry(index, id, length);
+            empty = false;
+        }
+
+        void close() throws IOException {
+            try {
+                output.close();
+            } finally {
+                index.close();
+            }
+        }
+
+        /**
+         * Replaces the previous version of the segment. Segments without entities are removed.
+         *
+         * Replacing the index is the only step that changes the committed version, the data files are only removed
+         * afterwards, so an interruption at any point leaves either the previous or the new version.
+         */
+        void commit() throws IOException {
+            if (empty) {
+                Files.deleteIfExists(getIndexPath(segment));
+                Files.delete(temporary(getIndexPath(segment)));
+                Files.delete(getSegmentPath(segment, generation));
+            } else {
+                Files.move(temporary(getIndexPath(segment)), getIndexPath(segment), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            if (previousGeneration >= 0) {
+                Files.deleteIfExists(getSegmentPath(segment, previousGeneration));
+            }
+        }
+    }
+}
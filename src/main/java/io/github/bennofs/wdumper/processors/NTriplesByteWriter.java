@@ -0,0 +1,261 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFWriter;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * N-Triples writer which encodes triples directly into a reusable byte buffer.
+ *
+ * The output is byte-identical to the N-Triples writer of rdf4j with default settings, but avoids the intermediate
+ * strings and the character encoder of that writer. IRIs starting with one of the wikidata namespaces are written
+ * from pre-encoded prefixes. Only IRIs and literals which do not need any escaping are handled here, which is the
+ * case for almost all triples of a dump. All other statements, for example those containing blank nodes,
+ * are passed to an rdf4j writer and the result is copied to the buffer.
+ *
+ * Property IRIs from the {@link PropertyIriCache} are written from their cached encoding.
+ */
+public class NTriplesByteWriter extends AbstractRDFWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String WIKIDATA_BASE = "http://www.wikidata.org/";
+    private static final byte[] WIKIDATA_BASE_BYTES = ascii("<" + WIKIDATA_BASE);
+
+    /** namespaces below the wikidata base, longer namespaces must come before their prefixes */
+    private static final String[] WIKIDATA_NAMESPACES = {
+            "entity/statement/",
+            "entity/",
+            "prop/direct/",
+            "prop/statement/value/",
+            "prop/statement/",
+            "prop/qualifier/value/",
+            "prop/qualifier/",
+            "prop/reference/value/",
+            "prop/reference/",
+            "prop/novalue/",
+            "prop/",
+            "reference/",
+            "value/",
+    };
+    private static final byte[][] WIKIDATA_NAMESPACE_BYTES = new byte[WIKIDATA_NAMESPACES.length][];
+
+    static {
+        for (int i = 0; i < WIKIDATA_NAMESPACES.length; ++i) {
+            WIKIDATA_NAMESPACE_BYTES[i] = ascii("<" + WIKIDATA_BASE + WIKIDATA_NAMESPACES[i]);
+        }
+    }
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+
+    private final CharArrayWriter fallbackOutput = new CharArrayWriter();
+    private final RDFWriter fallbackWriter = Rio.createWriter(RDFFormat.NTRIPLES, fallbackOutput);
+
+    public NTriplesByteWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public RDFFormat getRDFFormat() {
+        return RDFFormat.NTRIPLES;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        try {
+            flushBuffer();
+            output.flush();
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) throws RDFHandlerException {
+        fallbackWriter.startRDF();
+        fallbackWriter.handleComment(comment);
+        fallbackWriter.endRDF();
+        copyFallbackOutput();
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        final Value subject = st.getSubject();
+        final IRI predicate = st.getPredicate();
+        final Value object = st.getObject();
+
+        if (!(subject instanceof IRI) || !isSafeIri((IRI) subject) || !isSafeIri(predicate) || !isSafeObject(object)) {
+            fallbackWriter.startRDF();
+            fallbackWriter.handleStatement(st);
+            fallbackWriter.endRDF();
+            copyFallbackOutput();
+            return;
+        }
+
+        try {
+            writeIri((IRI) subject);
+            writeByte((byte) ' ');
+            writeIri(predicate);
+            writeByte((byte) ' ');
+            if (object instanceof IRI) {
+                writeIri((IRI) object);
+            } else {
+                writeLiteral((Literal) object);
+            }
+            writeByte((byte) ' ');
+            writeByte((byte) '.');
+            writeByte((byte) '\n');
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    /**
+     * Checks that a string can be written without escaping.
+     */
+    private static boolean isSafe(String s) {
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\' || c == 0x7f) return false;
+        }
+        return true;
+    }
+
+    private static boolean isSafeIri(IRI iri) {
+        if (iri instanceof PropertyIriCache.CachedIri) return true;
+        return isSafe(iri.stringValue());
+    }
+
+    private static boolean isSafeObject(Value object) {
+        if (object instanceof IRI) {
+            return isSafeIri((IRI) object);
+        }
+
+        if (object instanceof Literal) {
+            final Literal literal = (Literal) object;
+            if (!isSafe(literal.getLabel())) return false;
+            if (literal.getLanguage().isPresent()) return isSafe(literal.getLanguage().get());
+            return isSafeIri(literal.getDatatype());
+        }
+
+        return false;
+    }
+
+    private void writeIri(IRI iri) throws IOException {
+        if (iri instanceof PropertyIriCache.CachedIri) {
+            writeBytes(((PropertyIriCache.CachedIri) iri).ntriples);
+            return;
+        }
+
+        final String value = iri.stringValue();
+        int start = 0;
+        if (value.startsWith(WIKIDATA_BASE)) {
+            byte[] prefix = WIKIDATA_BASE_BYTES;
+            start = WIKIDATA_BASE.length();
+            for (int i = 0; i < WIKIDATA_NAMESPACES.length; ++i) {
+                if (value.startsWith(WIKIDATA_NAMESPACES[i], WIKIDATA_BASE.length())) {
+                    prefix = WIKIDATA_NAMESPACE_BYTES[i];
+                    start += WIKIDATA_NAMESPACES[i].length();
+                    break;
+                }
+            }
+            writeBytes(prefix);
+        } else {
+            writeByte((byte) '<');
+        }
+        writeString(value, start);
+        writeByte((byte) '>');
+    }
+
+    private void writeLiteral(Literal literal) throws IOException {
+        writeByte((byte) '"');
+        writeString(literal.getLabel(), 0);
+        writeByte((byte) '"');
+
+        if (literal.getLanguage().isPresent()) {
+            writeByte((byte) '@');
+            writeString(literal.getLanguage().get(), 0);
+        } else if (!XMLSchema.STRING.equals(literal.getDatatype())) {
+            // xsd:string literals are written as plain literals
+            writeByte((byte) '^');
+            writeByte((byte) '^');
+            writeIri(literal.getDatatype());
+        }
+    }
+
+    private void writeByte(byte b) throws IOException {
+        if (position == buffer.length) flushBuffer();
+        buffer[position++] = b;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        if (buffer.length - position < bytes.length) flushBuffer();
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Encodes the string as UTF-8. Unpaired surrogates are replaced by '?', like the encoder of the rdf4j writer does.
+     */
+    private void writeString(String s, int start) throws IOException {
+        final int length = s.length();
+        for (int i = start; i < length; ++i) {
+            if (buffer.length - position < 4) flushBuffer();
+
+            final char c = s.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                final int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = (byte) '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    private void copyFallbackOutput() throws RDFHandlerException {
+        try {
+            writeString(fallbackOutput.toString(), 0);
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+        fallbackOutput.reset();
+    }
+
+    private void flushBuffer() throws IOException {
+        output.write(buffer, 0, position);
+        position = 0;
+    }
+}
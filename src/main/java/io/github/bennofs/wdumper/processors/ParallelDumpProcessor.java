@@ -0,0 +1,635 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+import io.github.bennofs.wdumper.metrics.RunMetrics;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.RawDocumentFilter;
+import io.github.bennofs.wdumper.spec.RunEntityFilter;
+import io.github.bennofs.wdumper.spec.Shard;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Processes a JSON dump with multiple worker threads.
+ *
+ * The dump is read by a separate thread and split into batches of complete lines. Each batch is parsed and serialized
+ * by one of the workers, which own a fork of every serializer. Lines which cannot be included in any dump according
+ * to the {@link RawDocumentFilter} are skipped without parsing them. The entity filters of all dumps are evaluated
+ * once per entity with a {@link RunEntityFilter}. Batches are assigned to the workers round-robin, and
+ * the output of each batch is appended to the dumps in the order of the input. The output of a run therefore only
+ * depends on the input and the number of threads.
+ *
+ * If a run has at least as many dumps as threads, the workers only parse and match the documents. The parsed
+ * documents of each batch are then passed, in the order of the input, to a separate thread for every dump
+ * which serializes them with its own fork. Each of these threads has a bounded queue, so a slow dump blocks
+ * the processing of further batches instead of buffering an unbounded number of documents.
+ *
+ * A {@link SnapshotDumpFile} is split into batches of complete records instead of lines. Records are skipped based on
+ * the type, id and properties in their header, so only the records of entities that may be included are decoded.
+ * Records outside of the selection of the snapshot are skipped as well.
+ *
+ * If the run is split into multiple shards, only the entities of the given {@link Shard} are processed. The number
+ * of documents reported as progress still includes the documents of all shards.
+ *
+ * Dumps which only differ in the entities they include are processed as a {@link SerializerGroup}, which writes each
+ * document once for all dumps of the group. The other dumps are processed as groups with a single dump. With fan-out,
+ * each group is serialized by a single thread.
+ *
+ * The triples for complex values, property declarations and references are shared between documents, and each dump
+ * only contains them once. The forks write every document with all the shared triples it needs and only mark them
+ * in their {@link ForkBuffer}. The duplicates are dropped when the output of a batch is appended to the dump,
+ * which happens in the order of the input. Therefore the output of a run is the same for any number of threads.
+ *
+ * The time spent in each stage is recorded in the {@link RunMetrics} of the run and the {@link DumpMetrics} of each
+ * dump. The entity filters of all dumps are evaluated together, so the filter time is only available for the
+ * whole run. The serialization time of a group is split evenly between the dumps that include the document.
+ */
+public class ParallelDumpProcessor {
+    private final static Logger logger = LoggerFactory.getLogger(ParallelDumpProcessor.class);
+
+    private static final int BATCH_SIZE = 1024 * 1024;
+    private static final int QUEUE_SIZE = 4;
+
+    private final int threads;
+    private final List<FilteredRdfSerializer> serializers;
+    private final Supplier<PropertyRegister> propertyRegisterFactory;
+    private final ProgressReporter progressReporter;
+    private final RawDocumentFilter documentFilter;
+    private final RunEntityFilter entityFilter;
+    private final Shard shard;
+    private final RunMetrics runMetrics;
+    private final List<DumpMetrics> dumpMetrics;
+    /** the dumps that are serialized together, either a single dump or a {@link SerializerGroup} */
+    private final List<int[]> units;
+    private final boolean fanOut;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * @param threads number of worker threads
+     * @param serializers the serializers for all dumps of the run, must already be opened
+     * @param propertyRegisterFactory creates the property register for each thread that serializes documents,
+     *                                only called once if there is a single thread and a single serializer
+     * @param progressReporter receives the number of processed documents
+     * @param shard only the entities of this shard are processed
+     */
+    public ParallelDumpProcessor(int threads, List<FilteredRdfSerializer> serializers, Supplier<PropertyRegister> propertyRegisterFactory,
+                                 ProgressReporter progressReporter, Shard shard) {
+        this(threads, serializers, propertyRegisterFactory, progressReporter, shard, new RunMetrics(),
+                serializers.stream().map(s -> DumpMetrics.withoutOutput()).collect(Collectors.toList()));
+    }
+
+    /**
+     * @param runMetrics receives the time spent reading, parsing and filtering
+     * @param dumpMetrics receives the time spent serializing, one for each serializer
+     * @see #ParallelDumpProcessor(int, List, Supplier, ProgressReporter, Shard)
+     */
+    public ParallelDumpProcessor(int threads, List<FilteredRdfSerializer> serializers, Supplier<PropertyRegister> propertyRegisterFactory,
+                                 ProgressReporter progressReporter, Shard shard, RunMetrics runMetrics, List<DumpMetrics> dumpMetrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("number of threads must be positive, got " + threads);
+        }
+        for (FilteredRdfSerializer serializer : serializers) {
+            // the shared triples are deduplicated line by line
+            if (!serializer.getSpec().getFormat().equals(RDFFormat.NTRIPLES)) {
+                throw new IllegalArgumentException("only N-Triples output can be processed in parallel, got " + serializer.getSpec().getFormat());
+            }
+        }
+
+        this.threads = threads;
+        this.serializers = serializers;
+        this.propertyRegisterFactory = propertyRegisterFactory;
+        this.progressReporter = progressReporter;
+        this.shard = shard;
+        this.runMetrics = runMetrics;
+        this.dumpMetrics = dumpMetrics;
+
+        final List<DumpSpec> specs = serializers.stream()
+                .map(FilteredRdfSerializer::getSpec)
+                .collect(Collectors.toList());
+        this.documentFilter = RawDocumentFilter.create(specs);
+        this.entityFilter = RunEntityFilter.create(specs);
+
+        this.units = new ArrayList<>(SerializerGroup.findGroups(specs));
+        final BitSet grouped = new BitSet();
+        units.forEach(group -> Arrays.stream(group).forEach(grouped::set));
+        for (int i = grouped.nextClearBit(0); i < serializers.size(); i = grouped.nextClearBit(i + 1)) {
+            units.add(new int[]{i});
+        }
+        this.fanOut = units.size() > 1 && units.size() >= threads;
+    }
+
+    /**
+     * A batch of complete lines or snapshot records from the input dump. A batch without data marks the end of the input.
+     */
+    private static final class Batch {
+        static final Batch END = new Batch(null, 0, 0);
+
+        final byte[] data;
+        final int length;
+        /** number of the first snapshot record in the batch, unused for JSON dumps */
+        final int firstRecord;
+
+        Batch(byte[] data, int length, int firstRecord) {
+            this.data = data;
+            this.length = length;
+            this.firstRecord = firstRecord;
+        }
+    }
+
+    /**
+     * The result of a single batch. Contains either the output for each dump, or the parsed documents together with
+     * the dumps that each document matches if the documents are serialized by a separate thread for each dump.
+     */
+    private static final class BatchResult {
+        /** marks the end of the input */
+        static final BatchResult END = new BatchResult(0, 0, null, null, null);
+
+        final int documents;
+        /** number of bytes of the input in the batch */
+        final long bytes;
+        final ForkBuffer.Output[] output;
+        final EntityDocument[] parsed;
+        final BitSet[] matches;
+
+        BatchResult(int documents, long bytes, ForkBuffer.Output[] output, EntityDocument[] parsed, BitSet[] matches) {
+            this.documents = documents;
+            this.bytes = bytes;
+            this.output = output;
+            this.parsed = parsed;
+            this.matches = matches;
+        }
+    }
+
+    /**
+     * Accumulates the serialization time of each dump for a batch, so the shared metrics are only updated once per batch.
+     */
+    private final class SerializationTimer {
+        private final long[] nanos = new long[serializers.size()];
+        private final long[] documents = new long[serializers.size()];
+
+        /**
+         * Records the time spent serializing a document for a single dump or a group of dumps.
+         *
+         * @param unit the dumps that were serialized together
+         * @param matches the dumps that include the document
+         * @param elapsed time in nanoseconds
+         */
+        void record(int[] unit, BitSet matches, long elapsed) {
+            int included = 0;
+            for (int dump : unit) {
+                if (matches.get(dump)) included += 1;
+            }
+            if (included == 0) return;
+
+            for (int dump : unit) {
+                if (!matches.get(dump)) continue;
+                nanos[dump] += elapsed / included;
+                documents[dump] += 1;
+            }
+        }
+
+        void publish() {
+            for (int dump = 0; dump < nanos.length; ++dump) {
+                if (documents[dump] == 0) continue;
+                dumpMetrics.get(dump).addSerializationTime(documents[dump], nanos[dump]);
+                nanos[dump] = 0;
+                documents[dump] = 0;
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+        final BlockingQueue<Batch> input = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        final BlockingQueue<BatchResult> output = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+        private final ObjectReader documentReader = new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .with(DeserializationFeature.ACCEPT_EMPTY_ARRAY_AS_NULL_OBJECT);
+        private final SnapshotDumpFile.Decoder snapshotDecoder;
+        private final RoaringBitmap snapshotSelection;
+        private final List<ForkBuffer> buffers = new ArrayList<>();
+        private final List<SerializerGroup> groups = new ArrayList<>();
+        private final SerializationTimer serializationTimer = new SerializationTimer();
+
+        // time spent in the stages of the current batch
+        private long parsed = 0;
+        private long parseNanos = 0;
+        private long filterNanos = 0;
+
+        Worker(SnapshotDumpFile.Decoder snapshotDecoder, RoaringBitmap snapshotSelection) {
+            this.snapshotDecoder = snapshotDecoder;
+            this.snapshotSelection = snapshotSelection;
+
+            // with fan-out, the documents are serialized by the dump workers
+            if (fanOut) return;
+
+            final PropertyRegister propertyRegister = propertyRegisterFactory.get();
+            final List<FilteredRdfSerializer> forks = new ArrayList<>();
+            for (FilteredRdfSerializer serializer : serializers) {
+                final ForkBuffer buffer = new ForkBuffer();
+                forks.add(serializer.fork(buffer, propertyRegister));
+                buffers.add(buffer);
+            }
+
+            for (int[] unit : units) {
+                groups.add(new SerializerGroup(unit, Arrays.stream(unit).mapToObj(forks::get).collect(Collectors.toList()), propertyRegister));
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    final Batch batch = input.take();
+                    if (batch.data == null) break;
+
+                    output.put(fanOut ? parseBatch(batch) : processBatch(batch));
+                    publishMetrics();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Throwable e) {
+                fail(e);
+            }
+
+            try {
+                output.put(BatchResult.END);
+            } catch (InterruptedException ignored) {
+            }
+        }
+
+        private BatchResult processBatch(Batch batch) {
+            final int documents = forEachDocument(batch, (document, dumps) -> {
+                for (SerializerGroup group : groups) {
+                    final long start = System.nanoTime();
+                    group.processMatchedDocument(document, dumps);
+                    serializationTimer.record(group.getDumps(), dumps, System.nanoTime() - start);
+                }
+            });
+
+            final ForkBuffer.Output[] output = new ForkBuffer.Output[buffers.size()];
+            for (int i = 0; i < buffers.size(); ++i) {
+                output[i] = buffers.get(i).take();
+            }
+            return new BatchResult(documents, batch.length, output, null, null);
+        }
+
+        private BatchResult parseBatch(Batch batch) {
+            final List<EntityDocument> parsed = new ArrayList<>();
+            final List<BitSet> matches = new ArrayList<>();
+            final int documents = forEachDocument(batch, (document, dumps) -> {
+                parsed.add(document);
+                matches.add(dumps);
+            });
+            return new BatchResult(documents, batch.length, null, parsed.toArray(new EntityDocument[0]), matches.toArray(new BitSet[0]));
+        }
+
+        private void publishMetrics() {
+            runMetrics.addParseTime(parsed, parseNanos);
+            runMetrics.addFilterTime(filterNanos);
+            parsed = 0;
+            parseNanos = 0;
+            filterNanos = 0;
+            serializationTimer.publish();
+        }
+
+        /**
+         * Parses all documents of the batch that match some dump and passes them to the consumer.
+         *
+         * @return the number of documents in the batch, including those that were skipped
+         */
+        private int forEachDocument(Batch batch, BiConsumer<EntityDocument, BitSet> consumer) {
+            if (snapshotDecoder != null) return forEachRecord(batch, consumer);
+
+            int documents = 0;
+            for (int start = 0, end; start < batch.length; start = end + 1) {
+                end = indexOf(batch.data, (byte) '\n', start, batch.length);
+
+                // strip whitespace and the separator between entities
+                int first = start;
+                int last = end;
+                while (first < last && isWhitespace(batch.data[first])) first += 1;
+                while (last > first && isWhitespace(batch.data[last - 1])) last -= 1;
+                if (last > first && batch.data[last - 1] == ',') last -= 1;
+
+                // skip lines with the opening/closing brackets of the top-level array
+                if (last - first <= 1) continue;
+
+                documents += 1;
+                if (!shard.mayInclude(batch.data, first, last - first)) continue;
+                if (!documentFilter.mayMatch(batch.data, first, last - first)) continue;
+
+                final long parseStart = System.nanoTime();
+                final EntityDocument document = parseDocument(batch.data, first, last - first);
+                parseNanos += System.nanoTime() - parseStart;
+                parsed += 1;
+                matchDocument(document, consumer);
+            }
+            return documents;
+        }
+
+        private int forEachRecord(Batch batch, BiConsumer<EntityDocument, BitSet> consumer) {
+            final SnapshotDumpFile.Decoder decoder = snapshotDecoder;
+            final IntPredicate hasStatements = decoder::hasStatements;
+            int documents = 0;
+            for (int offset = 0, record = batch.firstRecord; offset < batch.length; ++record) {
+                offset = decoder.next(batch.data, offset);
+
+                documents += 1;
+                if (snapshotSelection != null && !snapshotSelection.contains(record)) continue;
+                if (!shard.mayInclude(decoder.getNumericId())) continue;
+                if (!documentFilter.mayMatch(decoder.getType(), hasStatements)) continue;
+
+                final long parseStart = System.nanoTime();
+                EntityDocument document;
+                try {
+                    document = documentReader.readValue(decoder.parse());
+                } catch (IOException e) {
+                    logger.warn("failed to decode snapshot record: " + e.toString());
+                    document = null;
+                }
+                parseNanos += System.nanoTime() - parseStart;
+                parsed += 1;
+                matchDocument(document, consumer);
+            }
+            return documents;
+        }
+
+        private void matchDocument(EntityDocument document, BiConsumer<EntityDocument, BitSet> consumer) {
+            if (!(document instanceof StatementDocument)) return;
+            if (!shard.includes(document.getEntityId().getId())) return;
+
+            final long filterStart = System.nanoTime();
+            final BitSet dumps = entityFilter.evaluate((StatementDocument) document);
+            filterNanos += System.nanoTime() - filterStart;
+            if (!dumps.isEmpty()) {
+                consumer.accept(document, dumps);
+            }
+        }
+
+        private EntityDocument parseDocument(byte[] data, int offset, int length) {
+            try {
+                return documentReader.readValue(data, offset, length);
+            } catch (IOException e) {
+                logger.warn("failed to parse entity document: " + e.toString());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Serializes the parsed documents for a single dump or a group of dumps, in the order of the input.
+     */
+    private final class DumpWorker implements Runnable {
+        final BlockingQueue<BatchResult> input = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+        private final int[] dumps;
+        private final List<ForkBuffer> buffers = new ArrayList<>();
+        private final SerializerGroup group;
+        private final SerializationTimer serializationTimer = new SerializationTimer();
+
+        DumpWorker(int[] dumps) {
+            this.dumps = dumps;
+
+            final PropertyRegister propertyRegister = propertyRegisterFactory.get();
+            final List<FilteredRdfSerializer> forks = new ArrayList<>();
+            for (int dump : dumps) {
+                final ForkBuffer buffer = new ForkBuffer();
+                forks.add(serializers.get(dump).fork(buffer, propertyRegister));
+                buffers.add(buffer);
+            }
+            this.group = new SerializerGroup(dumps, forks, propertyRegister);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                final BatchResult batch;
+                try {
+                    batch = input.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (batch == BatchResult.END) return;
+
+                // after a failure, keep taking batches so that the other dumps are not blocked
+                if (failure.get() != null) continue;
+                try {
+                    writeBatch(batch);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }
+        }
+
+        private void writeBatch(BatchResult batch) {
+            for (int i = 0; i < batch.parsed.length; ++i) {
+                final long start = System.nanoTime();
+                group.processMatchedDocument(batch.parsed[i], batch.matches[i]);
+                serializationTimer.record(dumps, batch.matches[i], System.nanoTime() - start);
+            }
+            serializationTimer.publish();
+
+            // only this thread writes to the serializers while the dumps are processed
+            for (int i = 0; i < dumps.length; ++i) {
+                final ForkBuffer buffer = buffers.get(i);
+                if (buffer.size() > 0) {
+                    serializers.get(dumps[i]).writeForkOutput(buffer.take());
+                }
+            }
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static int indexOf(byte[] data, byte b, int from, int to) {
+        for (int i = from; i < to; ++i) {
+            if (data[i] == b) return i;
+        }
+        return to;
+    }
+
+    private static int lastIndexOf(byte[] data, byte b, int to) {
+        for (int i = to - 1; i >= 0; --i) {
+            if (data[i] == b) return i;
+        }
+        return -1;
+    }
+
+    private void fail(Throwable e) {
+        failure.compareAndSet(null, e);
+    }
+
+    private void readBatches(MwDumpFile dumpFile, List<Worker> workers) {
+        final boolean snapshot = dumpFile instanceof SnapshotDumpFile;
+        try (InputStream input = dumpFile.getDumpFileStream()) {
+            if (input == null) {
+                throw new IOException("failed to open dump file " + dumpFile);
+            }
+
+            long sequence = 0;
+            int records = 0;
+            byte[] buffer = new byte[BATCH_SIZE];
+            int filled = 0;
+            while (true) {
+                final long readStart = System.nanoTime();
+                final int n = input.read(buffer, filled, buffer.length - filled);
+                if (n < 0) break;
+                runMetrics.addInput(n, System.nanoTime() - readStart);
+                filled += n;
+                if (filled < buffer.length) continue;
+
+                // only pass complete lines or records to the workers, the rest is carried over to the next batch
+                final int end = snapshot
+                        ? SnapshotDumpFile.completeLength(buffer, filled)
+                        : lastIndexOf(buffer, (byte) '\n', filled) + 1;
+                if (end == 0) {
+                    // line or record is longer than the buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    continue;
+                }
+
+                workers.get((int) (sequence % threads)).input.put(new Batch(buffer, end, records));
+                sequence += 1;
+                if (snapshot) {
+                    // the buffer is only read by the worker, so it can still be read here
+                    records += SnapshotDumpFile.countRecords(buffer, end);
+                }
+
+                final byte[] next = new byte[Math.max(BATCH_SIZE, filled - end + 1)];
+                System.arraycopy(buffer, end, next, 0, filled - end);
+                buffer = next;
+                filled = filled - end;
+            }
+            if (filled > 0) {
+                workers.get((int) (sequence % threads)).input.put(new Batch(buffer, filled, records));
+            }
+        } catch (InterruptedException e) {
+            return;
+        } catch (Throwable e) {
+            fail(e);
+        }
+
+        try {
+            for (Worker worker : workers) {
+                worker.input.put(Batch.END);
+            }
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * Processes all documents in the dump file and appends the output to the dumps.
+     *
+     * This method blocks until the whole dump has been processed.
+     *
+     * @param dumpFile the JSON dump or snapshot to process
+     * @throws RuntimeException if reading the dump or processing failed unexpectedly
+     */
+    public void processDump(MwDumpFile dumpFile) {
+        // make sure that data written by the serializers so far is not interleaved with batch output
+        serializers.forEach(FilteredRdfSerializer::flush);
+
+        final List<Thread> allThreads = new ArrayList<>();
+        final List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < threads; ++i) {
+            final Worker worker = new Worker(createSnapshotDecoder(dumpFile),
+                    dumpFile instanceof SnapshotDumpFile ? ((SnapshotDumpFile) dumpFile).getSelection() : null);
+            workers.add(worker);
+            allThreads.add(new Thread(worker, "dump-worker-" + i));
+        }
+        final List<DumpWorker> dumpWorkers = new ArrayList<>();
+        if (fanOut) {
+            for (int i = 0; i < units.size(); ++i) {
+                final DumpWorker dumpWorker = new DumpWorker(units.get(i));
+                dumpWorkers.add(dumpWorker);
+                allThreads.add(new Thread(dumpWorker, "dump-serializer-" + i));
+            }
+        }
+        allThreads.add(new Thread(() -> readBatches(dumpFile, workers), "dump-reader"));
+
+        allThreads.forEach(Thread::start);
+
+        try {
+            for (long sequence = 0; ; ++sequence) {
+                final BatchResult result = workers.get((int) (sequence % threads)).output.take();
+                if (result == BatchResult.END || failure.get() != null) break;
+
+                if (fanOut) {
+                    for (DumpWorker dumpWorker : dumpWorkers) {
+                        dumpWorker.input.put(result);
+                    }
+                } else {
+                    for (int i = 0; i < serializers.size(); ++i) {
+                        serializers.get(i).writeForkOutput(result.output[i]);
+                    }
+                }
+                progressReporter.addProgress(result.documents, result.bytes);
+            }
+
+            for (DumpWorker dumpWorker : dumpWorkers) {
+                dumpWorker.input.put(BatchResult.END);
+            }
+        } catch (InterruptedException e) {
+            fail(e);
+        } finally {
+            if (failure.get() != null) {
+                allThreads.forEach(Thread::interrupt);
+            }
+            joinAll(allThreads);
+        }
+
+        if (failure.get() != null) {
+            throw new RuntimeException("processing the dump failed", failure.get());
+        }
+    }
+
+    private static SnapshotDumpFile.Decoder createSnapshotDecoder(MwDumpFile dumpFile) {
+        if (!(dumpFile instanceof SnapshotDumpFile)) return null;
+
+        try {
+            return ((SnapshotDumpFile) dumpFile).createDecoder();
+        } catch (IOException e) {
+            throw new RuntimeException("failed to read the dictionary of snapshot " + dumpFile, e);
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,38 +1,121 @@
 package io.github.bennofs.wdumper.processors;
 
+import io.github.bennofs.wdumper.ext.InputProgress;
 import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
 import org.wikidata.wdtk.datamodel.interfaces.EntityDocumentDumpProcessor;
 import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
 import org.wikidata.wdtk.datamodel.interfaces.LexemeDocument;
 import org.wikidata.wdtk.datamodel.interfaces.PropertyDocument;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Periodically reports the progress of a run to a {@link RunnerStatusHandler}.
+ *
+ * Progress can be added from any thread. The reports are {@link ProgressSnapshot}s, which also contain the output
+ * of each dump of the run.
+ * After each report, the errors of the dumps are reported, see {@link FilteredRdfSerializer#flushErrors()}.
+ */
 public class ProgressReporter implements EntityDocumentDumpProcessor {
-    private int count = 0;
+    private final LongAdder entities = new LongAdder();
+    private final LongAdder inputBytes = new LongAdder();
     private final Duration delay;
     private final RunnerStatusHandler runnerStatusHandler;
+    private final List<FilteredRdfSerializer> serializers;
+    private final List<DumpMetrics> dumpMetrics;
+    private final InputProgress input;
     private Thread thread;
 
     public ProgressReporter(Duration delay, RunnerStatusHandler runnerStatusHandler) {
+        this(delay, runnerStatusHandler, List.of(), List.of());
+    }
+
+    /**
+     * @param serializers the serializers of the dumps of the run
+     * @param dumpMetrics the metrics of each dump, which provide the size of the output
+     */
+    public ProgressReporter(Duration delay, RunnerStatusHandler runnerStatusHandler, List<FilteredRdfSerializer> serializers,
+                            List<DumpMetrics> dumpMetrics) {
+        this(delay, runnerStatusHandler, serializers, dumpMetrics, null);
+    }
+
+    /**
+     * @param serializers the serializers of the dumps of the run
+     * @param dumpMetrics the metrics of each dump, which provide the size of the output
+     * @param input the position in the input file, or null if it is not known
+     */
+    public ProgressReporter(Duration delay, RunnerStatusHandler runnerStatusHandler, List<FilteredRdfSerializer> serializers,
+                            List<DumpMetrics> dumpMetrics, InputProgress input) {
+        if (serializers.size() != dumpMetrics.size()) {
+            throw new IllegalArgumentException("expected metrics for each of the " + serializers.size() + " serializers, got " + dumpMetrics.size());
+        }
+
         this.delay = delay;
         this.runnerStatusHandler = runnerStatusHandler;
+        this.serializers = serializers;
+        this.dumpMetrics = dumpMetrics;
+        this.input = input;
     }
 
     @Override
     public void processItemDocument(ItemDocument itemDocument) {
-        this.count += 1;
+        this.entities.increment();
     }
 
     @Override
     public void processPropertyDocument(PropertyDocument propertyDocument) {
-        this.count += 1;
+        this.entities.increment();
     }
 
     @Override
     public void processLexemeDocument(LexemeDocument lexemeDocument) {
-        this.count += 1;
+        this.entities.increment();
+    }
+
+    /**
+     * Adds documents that were processed without passing them to this reporter.
+     *
+     * @param documents number of processed documents
+     */
+    public void addProgress(int documents) {
+        this.entities.add(documents);
+    }
+
+    /**
+     * Adds documents that were processed without passing them to this reporter.
+     *
+     * @param documents number of processed documents
+     * @param bytes number of decompressed bytes of the input containing the documents
+     */
+    public void addProgress(int documents, long bytes) {
+        this.entities.add(documents);
+        this.inputBytes.add(bytes);
+    }
+
+    /**
+     * Reads the current progress of the run. This may be called from any thread.
+     *
+     * Each counter is read exactly once. The counters of the dumps are updated by the workers while the
+     * documents are written, so they may include some documents that are not yet counted as read.
+     */
+    public ProgressSnapshot snapshot() {
+        final List<ProgressSnapshot.DumpProgress> dumps = new ArrayList<>(serializers.size());
+        for (int i = 0; i < serializers.size(); ++i) {
+            final FilteredRdfSerializer serializer = serializers.get(i);
+            final DumpMetrics metrics = dumpMetrics.get(i);
+            dumps.add(new ProgressSnapshot.DumpProgress(serializer.getDumpId(), serializer.getEntityCount(),
+                    serializer.getStatementCount(), serializer.getFlushedTripleCount(),
+                    metrics.getUncompressedBytes(), metrics.getCompressedBytes()));
+        }
+        if (input == null) {
+            return new ProgressSnapshot(entities.sum(), inputBytes.sum(), dumps);
+        }
+        return new ProgressSnapshot(entities.sum(), inputBytes.sum(), input.getInputPosition(), input.getInputSize(), dumps);
     }
 
     @Override
@@ -45,27 +128,26 @@ public class ProgressReporter implements EntityDocumentDumpProcessor {
                     break;
                 }
 
-                runnerStatusHandler.reportProgress(count);
+                runnerStatusHandler.reportProgress(snapshot());
+                serializers.forEach(FilteredRdfSerializer::flushErrors);
             }
-        });
+        }, "progress-reporter");
+        // the runner stops the reporter, but it must never keep the process alive
+        thread.setDaemon(true);
         thread.start();
     }
 
     @Override
     public void close() {
-        // report final count
-        runnerStatusHandler.reportProgress(count);
-
-        if (thread == null) return;
-
-        thread.interrupt();
-        try {
-            thread.join();
-        } catch(InterruptedException ignored) {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch(InterruptedException ignored) {
+            }
         }
-    }
-
-    private void updateProgress() {
 
+        // report final progress, after the reporting thread is stopped so that it is always the last report
+        runnerStatusHandler.reportProgress(snapshot());
     }
 }
@@ -0,0 +1,126 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The progress of a run at a single point in time, created by {@link ProgressReporter#snapshot()}.
+ *
+ * All counts are 64 bit and only grow while a run is processed, so a later snapshot never reports less progress
+ * than an earlier one.
+ */
+public final class ProgressSnapshot {
+    /**
+     * The output written for a single dump.
+     */
+    public static final class DumpProgress {
+        private final int dumpId;
+        private final long entities;
+        private final long statements;
+        private final long triples;
+        private final long outputBytes;
+        private final long compressedBytes;
+
+        public DumpProgress(int dumpId, long entities, long statements, long triples, long outputBytes, long compressedBytes) {
+            this.dumpId = dumpId;
+            this.entities = entities;
+            this.statements = statements;
+            this.triples = triples;
+            this.outputBytes = outputBytes;
+            this.compressedBytes = compressedBytes;
+        }
+
+        public int getDumpId() {
+            return dumpId;
+        }
+
+        public long getEntities() {
+            return entities;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return number of triples written up to the last flush of the output
+         */
+        public long getTriples() {
+            return triples;
+        }
+
+        /**
+         * @return number of bytes written before compression
+         */
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+
+        /**
+         * @return number of bytes written to the dump file
+         */
+        public long getCompressedBytes() {
+            return compressedBytes;
+        }
+    }
+
+    private final long entities;
+    private final long inputBytes;
+    private final long inputPosition;
+    private final long inputSize;
+    private final List<DumpProgress> dumps;
+
+    public ProgressSnapshot(long entities, long inputBytes, List<DumpProgress> dumps) {
+        this(entities, inputBytes, 0, 0, dumps);
+    }
+
+    public ProgressSnapshot(long entities, long inputBytes, long inputPosition, long inputSize, List<DumpProgress> dumps) {
+        this.entities = entities;
+        this.inputBytes = inputBytes;
+        this.inputPosition = inputPosition;
+        this.inputSize = inputSize;
+        this.dumps = ImmutableList.copyOf(dumps);
+    }
+
+    /**
+     * @return number of entities read from the input, including the entities of other shards
+     */
+    public long getEntities() {
+        return entities;
+    }
+
+    /**
+     * @return number of decompressed bytes of the input that have been processed
+     */
+    public long getInputBytes() {
+        return inputBytes;
+    }
+
+    /**
+     * @return number of bytes of the input file that have been read, as stored on disk
+     */
+    public long getInputPosition() {
+        return inputPosition;
+    }
+
+    /**
+     * @return size of the input file in bytes, or 0 if the position in the input file is not known
+     */
+    public long getInputSize() {
+        return inputSize;
+    }
+
+    /**
+     * @return the progress of each dump of the run
+     */
+    public List<DumpProgress> getDumps() {
+        return dumps;
+    }
+
+    @Override
+    public String toString() {
+        return "ProgressSnapshot{entities=" + entities + ", inputBytes=" + inputBytes
+                + ", inputPosition=" + inputPosition + ", inputSize=" + inputSize + ", dumps=" + dumps.size() + "}";
+    }
+}
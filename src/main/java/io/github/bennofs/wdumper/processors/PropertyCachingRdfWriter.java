@@ -0,0 +1,35 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.wikidata.wdtk.rdf.RdfWriter;
+
+import java.io.OutputStream;
+
+/**
+ * RDF writer which returns cached IRIs for properties.
+ *
+ * The converters of WDTK build property IRIs as strings and turn them into IRIs with {@link #getUri(String)}.
+ * Answering those lookups from the {@link PropertyIriCache} avoids creating a new IRI for every snak, and allows
+ * the {@link NTriplesByteWriter} to use the pre-encoded form.
+ */
+class PropertyCachingRdfWriter extends RdfWriter {
+    private final PropertyIriCache propertyIris;
+
+    PropertyCachingRdfWriter(RDFWriter writer, PropertyIriCache propertyIris) {
+        super(writer);
+        this.propertyIris = propertyIris;
+    }
+
+    PropertyCachingRdfWriter(RDFFormat format, OutputStream output, PropertyIriCache propertyIris) {
+        super(format, output);
+        this.propertyIris = propertyIris;
+    }
+
+    @Override
+    public IRI getUri(String uri) {
+        final IRI cached = propertyIris.find(uri);
+        return cached != null ? cached : super.getUri(uri);
+    }
+}
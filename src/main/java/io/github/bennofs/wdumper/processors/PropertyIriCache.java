@@ -0,0 +1,166 @@
+package io.github.bennofs.wdumper.processors;
+
+import io.github.bennofs.wdumper.spec.EntityIds;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.impl.SimpleIRI;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.rdf.PropertyContext;
+import org.wikidata.wdtk.rdf.Vocabulary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of the IRIs of properties in all {@link PropertyContext}s, keyed by the numeric property id and the context.
+ *
+ * Each cached IRI also holds its N-Triples encoding, which is written as-is by {@link NTriplesByteWriter}.
+ * The IRIs are the same as those returned by {@link Vocabulary#getPropertyUri(PropertyIdValue, PropertyContext)}.
+ * Only properties with an id up to {@link #MAX_PROPERTY_ID} are cached, which is more than wikidata has, so the cache
+ * never uses more than a few megabytes. The cache is thread-safe and shared by all serializers of a run.
+ */
+public class PropertyIriCache {
+    static final int MAX_PROPERTY_ID = 1 << 16;
+
+    private static final PropertyContext[] CONTEXTS = PropertyContext.values();
+
+    /**
+     * IRI of a property which carries its encoding as N-Triples term, including the angle brackets.
+     */
+    static final class CachedIri extends SimpleIRI {
+        private static final long serialVersionUID = 1L;
+
+        final byte[] ntriples;
+
+        CachedIri(String iri) {
+            super(iri);
+            this.ntriples = ("<" + iri + ">").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /** prefix of the property IRIs for each context, ordered by decreasing length to find the longest match */
+    private final String[] prefixes;
+    private final PropertyContext[] prefixContexts;
+    /** prefix shared by all property IRIs, to quickly reject other IRIs */
+    private final String commonPrefix;
+
+    private final AtomicReferenceArray<CachedIri> iris = new AtomicReferenceArray<>(CONTEXTS.length * MAX_PROPERTY_ID);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PropertyIriCache() {
+        // derive the prefixes from WDTK, so that the cache always agrees with the vocabulary
+        final PropertyIdValue sample = Datamodel.makeWikidataPropertyIdValue("P1");
+        final PropertyContext[] contexts = CONTEXTS.clone();
+        Arrays.sort(contexts, Comparator.comparing((PropertyContext c) -> Vocabulary.getPropertyUri(sample, c).length()).reversed());
+
+        this.prefixes = new String[contexts.length];
+        this.prefixContexts = contexts;
+        for (int i = 0; i < contexts.length; ++i) {
+            final String uri = Vocabulary.getPropertyUri(sample, contexts[i]);
+            this.prefixes[i] = uri.substring(0, uri.length() - sample.getId().length());
+        }
+
+        String common = this.prefixes[0];
+        for (String prefix : this.prefixes) {
+            int length = 0;
+            while (length < common.length() && length < prefix.length() && common.charAt(length) == prefix.charAt(length)) {
+                length += 1;
+            }
+            common = common.substring(0, length);
+        }
+        this.commonPrefix = common;
+    }
+
+    /**
+     * Returns the IRI of a property in the given context.
+     *
+     * @param property the property
+     * @param context the context in which the property is used
+     * @return the IRI, equal to the IRI constructed from {@link Vocabulary#getPropertyUri(PropertyIdValue, PropertyContext)}
+     */
+    public IRI get(PropertyIdValue property, PropertyContext context) {
+        final int id = EntityIds.numericId(property.getId(), 'P');
+        if (id < 0 || id >= MAX_PROPERTY_ID) {
+            misses.increment();
+            return SimpleValueFactory.getInstance().createIRI(Vocabulary.getPropertyUri(property, context));
+        }
+
+        return lookup(id, context, property);
+    }
+
+    /**
+     * Returns the cached IRI for a property IRI given as string.
+     *
+     * @param uri the IRI of a property in any context
+     * @return the cached IRI, or null if the string is not the IRI of a property which can be cached
+     */
+    IRI find(String uri) {
+        if (!uri.startsWith(commonPrefix)) return null;
+
+        for (int i = 0; i < prefixes.length; ++i) {
+            final String prefix = prefixes[i];
+            if (!uri.startsWith(prefix)) continue;
+
+            final int id = numericId(uri, prefix.length());
+            if (id < 0 || id >= MAX_PROPERTY_ID) return null;
+
+            final CachedIri iri = lookup(id, prefixContexts[i], null);
+            // several contexts may share a prefix, so the IRI is only returned if it has the expected form
+            return iri.stringValue().equals(uri) ? iri : null;
+        }
+        return null;
+    }
+
+    private CachedIri lookup(int id, PropertyContext context, PropertyIdValue property) {
+        final int index = context.ordinal() * MAX_PROPERTY_ID + id;
+        final CachedIri cached = iris.get(index);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        if (property == null) {
+            property = Datamodel.makeWikidataPropertyIdValue("P" + id);
+        }
+        final CachedIri iri = new CachedIri(Vocabulary.getPropertyUri(property, context));
+
+        // concurrent misses create equal IRIs, so it does not matter which one ends up in the cache
+        iris.lazySet(index, iri);
+        return iri;
+    }
+
+    /**
+     * Parses the numeric id of a property IRI, starting at the "P" of the id.
+     */
+    private static int numericId(String uri, int start) {
+        if (uri.length() <= start + 1 || uri.length() > start + 10 || uri.charAt(start) != 'P') return -1;
+
+        int result = 0;
+        for (int i = start + 1; i < uri.length(); ++i) {
+            final char c = uri.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of lookups that were answered from the cache.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to construct a new IRI.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+}
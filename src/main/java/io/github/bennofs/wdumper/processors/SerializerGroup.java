@@ -0,0 +1,146 @@
+package io.github.bennofs.wdumper.processors;
+
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Writes documents once for a group of dumps which only differ in the entities they include.
+ *
+ * Dumps with the same serialization options (see {@link DumpSpec#hasSameSerialization(DumpSpec)}) produce the same
+ * triples for a document. The group writes each document with a single detached serializer and appends the output
+ * to every dump of the group that includes the document.
+ *
+ * Triples for complex values, property declarations and references are shared between documents, and a serializer
+ * only writes them the first time they are needed. Since the dumps of a group include different documents,
+ * the group writes each document with all the triples it needs, and every dump skips those shared triples that
+ * it already contains, see {@link FilteredRdfSerializer#writeSharedTriple(byte[], int, int)}.
+ *
+ * A group may also consist of a single dump. The parallel processor writes all dumps through groups, so that the
+ * shared triples of every dump are only deduplicated in the order of the input.
+ *
+ * The member serializers must only be used through the group, so that their output is not interleaved.
+ */
+final class SerializerGroup {
+    private final int[] dumps;
+    private final List<FilteredRdfSerializer> members;
+    private final FilteredRdfSerializer writer;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /** lines of the shared triples of the current document, as start and end offsets in the buffer */
+    private final List<int[]> sharedLines = new ArrayList<>();
+
+    /**
+     * @param dumps the indexes of the dumps of the group in the run
+     * @param members the serializers that the output for each dump is appended to, in the same order as the indexes
+     * @param propertyRegister property register for the group, must not be shared with other threads
+     */
+    SerializerGroup(int[] dumps, List<FilteredRdfSerializer> members, PropertyRegister propertyRegister) {
+        this.dumps = dumps;
+        this.members = members;
+        this.writer = members.get(0).detach(buffer, propertyRegister);
+    }
+
+    /**
+     * Splits the dumps of a run into groups of dumps that can share their output.
+     *
+     * @param specs the specs of all dumps of the run
+     * @return the indexes of the dumps for each group with more than one dump
+     */
+    static List<int[]> findGroups(List<DumpSpec> specs) {
+        final List<int[]> groups = new ArrayList<>();
+        final BitSet grouped = new BitSet();
+        for (int first = 0; first < specs.size(); ++first) {
+            // the shared triples are deduplicated line by line, which only works for N-Triples
+            if (grouped.get(first) || !specs.get(first).getFormat().equals(RDFFormat.NTRIPLES)) continue;
+
+            final List<Integer> group = new ArrayList<>();
+            group.add(first);
+            for (int other = first + 1; other < specs.size(); ++other) {
+                if (!grouped.get(other) && specs.get(first).hasSameSerialization(specs.get(other))) {
+                    group.add(other);
+                    grouped.set(other);
+                }
+            }
+
+            if (group.size() > 1) {
+                groups.add(group.stream().mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * @return the indexes of the dumps of the group in the run
+     */
+    int[] getDumps() {
+        return dumps;
+    }
+
+    /**
+     * Writes a document to all dumps of the group that match it and include it in their sample.
+     *
+     * @param document the document
+     * @param matches the dumps of the run whose entity filters match the document
+     */
+    void processMatchedDocument(EntityDocument document, BitSet matches) {
+        final BitSet included = new BitSet(dumps.length);
+        for (int i = 0; i < dumps.length; ++i) {
+            if (matches.get(dumps[i]) && members.get(i).getSpec().sampleDocument(document.getEntityId().getId())) {
+                included.set(i);
+            }
+        }
+        if (included.isEmpty()) return;
+
+        buffer.reset();
+        final long statements = writer.getStatementCount();
+        final int[] documentEnd = new int[1];
+        try {
+            writer.writeSelfContainedDocument(document, () -> documentEnd[0] = buffer.size());
+        } catch (Exception e) {
+            for (int i = included.nextSetBit(0); i >= 0; i = included.nextSetBit(i + 1)) {
+                members.get(i).reportDocumentError(document, e);
+            }
+            return;
+        }
+        final long documentStatements = writer.getStatementCount() - statements;
+
+        final byte[] data = buffer.toByteArray();
+        final long documentTriples = countLines(data, 0, documentEnd[0]);
+        splitSharedLines(data, documentEnd[0]);
+
+        for (int i = included.nextSetBit(0); i >= 0; i = included.nextSetBit(i + 1)) {
+            final FilteredRdfSerializer member = members.get(i);
+            member.writeSharedOutput(data, 0, documentEnd[0], documentStatements, documentTriples);
+            for (int[] range : sharedLines) {
+                member.writeSharedTriple(data, range[0], range[1] - range[0]);
+            }
+        }
+    }
+
+    private void splitSharedLines(byte[] data, int start) {
+        sharedLines.clear();
+        for (int lineStart = start; lineStart < data.length; ) {
+            int lineEnd = lineStart;
+            while (lineEnd < data.length && data[lineEnd] != '\n') lineEnd += 1;
+            if (lineEnd < data.length) lineEnd += 1;
+
+            sharedLines.add(new int[]{lineStart, lineEnd});
+            lineStart = lineEnd;
+        }
+    }
+
+    private static long countLines(byte[] data, int start, int end) {
+        long lines = 0;
+        for (int i = start; i < end; ++i) {
+            if (data[i] == '\n') lines += 1;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Property register for one thread of a parallel run, which shares the property types with the registers
+ * of all other threads.
+ *
+ * The registers of WDTK are not thread-safe, so each thread still needs its own instance. Without sharing, each
+ * instance would fetch the types of all properties from the wikidata API again. With sharing, a type is only fetched
+ * by the first thread that needs it, all other threads find it in the shared map.
+ */
+public class SharedPropertyRegister extends PropertyRegister {
+    private final ConcurrentMap<String, String> types;
+
+    private SharedPropertyRegister(ConcurrentMap<String, String> types) {
+        super("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA);
+        this.types = types;
+    }
+
+    /**
+     * @return a factory for registers of wikidata which all share the same property types
+     */
+    public static Supplier<PropertyRegister> factory() {
+        final ConcurrentMap<String, String> types = new ConcurrentHashMap<>();
+        return () -> new SharedPropertyRegister(types);
+    }
+
+    @Override
+    public String getPropertyType(PropertyIdValue propertyIdValue) {
+        final String shared = types.get(propertyIdValue.getId());
+        if (shared != null) return shared;
+
+        final String type = super.getPropertyType(propertyIdValue);
+        if (type != null) {
+            types.putIfAbsent(propertyIdValue.getId(), type);
+        }
+        return type;
+    }
+
+    @Override
+    public void setPropertyType(PropertyIdValue propertyIdValue, String datatypeIri) {
+        super.setPropertyType(propertyIdValue, datatypeIri);
+        types.put(propertyIdValue.getId(), datatypeIri);
+    }
+}
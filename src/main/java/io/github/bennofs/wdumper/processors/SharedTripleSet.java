@@ -0,0 +1,112 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Set of the shared N-Triples lines that have already been written to a dump.
+ *
+ * Lines are stored as their 128-bit murmur3 hash, so that a line is only dropped as a duplicate if its full hash
+ * matches a line that was written before. With 64-bit hashes, a collision is likely once a dump has billions of
+ * shared triples, and the colliding triple would be missing from the dump.
+ *
+ * The hashes are kept in an open-addressing table of longs, which needs far less memory per line than a set of
+ * boxed values. This class is not thread-safe.
+ */
+final class SharedTripleSet {
+    private static final HashFunction LINE_HASH = Hashing.murmur3_128();
+    private static final int INITIAL_SLOTS = 1024;
+    /** the number of slots is a power of two, and a table with this many slots needs 2^30 longs */
+    private static final int MAX_SLOTS = 1 << 29;
+
+    /** two longs per slot, a slot with two zeros is empty */
+    private long[] table = new long[2 * INITIAL_SLOTS];
+    private int size = 0;
+    /** the hash with two zeros cannot be stored in the table */
+    private boolean containsZero = false;
+
+    /**
+     * Computes the hash of a line.
+     *
+     * @param data buffer containing the line
+     * @param offset start of the line
+     * @param length length of the line, including the line break
+     * @param hash receives the two halves of the hash
+     * @param index position in the hash array where the first half is stored
+     */
+    static void hash(byte[] data, int offset, int length, long[] hash, int index) {
+        final ByteBuffer bytes = ByteBuffer.wrap(LINE_HASH.hashBytes(data, offset, length).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        hash[index] = bytes.getLong(0);
+        hash[index + 1] = bytes.getLong(8);
+    }
+
+    /**
+     * Adds a line to the set.
+     *
+     * @return true if the line was not in the set yet
+     */
+    boolean add(byte[] data, int offset, int length) {
+        final long[] hash = new long[2];
+        hash(data, offset, length, hash, 0);
+        return add(hash[0], hash[1]);
+    }
+
+    /**
+     * Adds a line to the set, given the hash computed by {@link #hash(byte[], int, int, long[], int)}.
+     *
+     * @return true if the line was not in the set yet
+     */
+    boolean add(long first, long second) {
+        if (first == 0 && second == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size += 1;
+            return true;
+        }
+
+        // keep the table at most three quarters full
+        if (4L * (size + 1) > 3L * (table.length / 2)) grow();
+        if (!insert(table, first, second)) return false;
+        size += 1;
+        return true;
+    }
+
+    /**
+     * @return the number of lines in the set
+     */
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        final int slots = table.length / 2;
+        if (slots >= MAX_SLOTS) {
+            throw new IllegalStateException("too many shared triples in a single dump: " + size);
+        }
+
+        final long[] grown = new long[4 * slots];
+        for (int slot = 0; slot < slots; ++slot) {
+            if (table[2 * slot] != 0 || table[2 * slot + 1] != 0) {
+                insert(grown, table[2 * slot], table[2 * slot + 1]);
+            }
+        }
+        table = grown;
+    }
+
+    private static boolean insert(long[] table, long first, long second) {
+        final int mask = table.length / 2 - 1;
+        for (int slot = (int) first & mask; ; slot = (slot + 1) & mask) {
+            final long storedFirst = table[2 * slot];
+            final long storedSecond = table[2 * slot + 1];
+            if (storedFirst == 0 && storedSecond == 0) {
+                table[2 * slot] = first;
+                table[2 * slot + 1] = second;
+                return true;
+            }
+            if (storedFirst == first && storedSecond == second) return false;
+        }
+    }
+}
@@ -7,19 +7,26 @@ import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
 
 import java.util.HashMap;
 import java.util.Objects;
-import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 @JsonInclude(JsonInclude.Include.NON_NULL)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class DumpSpec {
+    /** options of properties with larger ids are only kept in the map, so a spec cannot allocate a huge array */
+    static final int MAX_INDEXED_PROPERTY_ID = 1 << 16;
+
     @JsonProperty
     final private EntityFilter[] entities;
     @JsonProperty
     final private Set<StatementFilter> statements;
     final private HashMap<String, StatementOptions> statementOptions;
     private final StatementOptions statementOptionsDefault;
+    /**
+     * statement options indexed by numeric property id below {@link #MAX_INDEXED_PROPERTY_ID},
+     * null entries use the default options
+     */
+    private final StatementOptions[] statementOptionsByProperty;
     @JsonProperty
     final private Set<String> languages;
 
@@ -31,12 +38,17 @@ public class DumpSpec {
     final private boolean sitelinks;
     final private int samplingPercent;
     final private long seed;
+    final private OutputCompression compression;
 
     @JsonIgnore
     final private RDFFormat format = RDFFormat.NTRIPLES;
 
-    @JsonIgnore
-    final private Random random;
+    public DumpSpec(String version, EntityFilter[] entities, Set<StatementFilter> statements, Integer samplingPercent,
+                    Long seed, Set<String> languages, boolean labels, boolean descriptions, boolean aliases,
+                    boolean meta, boolean sitelinks) {
+        this(version, entities, statements, samplingPercent, seed, languages, labels, descriptions, aliases, meta,
+                sitelinks, null);
+    }
 
     @JsonCreator
     public DumpSpec(
@@ -50,7 +62,8 @@ public class DumpSpec {
             @JsonProperty(value = "descriptions") boolean descriptions,
             @JsonProperty(value = "aliases") boolean aliases,
             @JsonProperty(value = "meta", defaultValue = "true") boolean meta,
-            @JsonProperty(value = "sitelinks", defaultValue = "true") boolean sitelinks
+            @JsonProperty(value = "sitelinks", defaultValue = "true") boolean sitelinks,
+            @JsonProperty(value = "compression") OutputCompression compression
     ) {
         Objects.requireNonNull(entities);
         Objects.requireNonNull(statements);
@@ -65,12 +78,12 @@ public class DumpSpec {
         this.aliases = aliases;
         this.meta = meta;
         this.sitelinks = sitelinks;
+        this.compression = compression == null ? OutputCompression.GZIP : compression;
 
         if (seed == null) {
             seed = ThreadLocalRandom.current().nextLong();
         }
         this.seed = seed;
-        this.random = new Random(seed);
 
         this.statementOptions = new HashMap<>();
         this.statementOptionsDefault = statements.stream()
@@ -89,6 +102,19 @@ public class DumpSpec {
                 this.statementOptions.put(property, options);
             }
         }
+
+        final int maxPropertyId = this.statementOptions.keySet().stream()
+                .mapToInt(property -> EntityIds.numericId(property, 'P'))
+                .filter(propertyId -> propertyId < MAX_INDEXED_PROPERTY_ID)
+                .max()
+                .orElse(-1);
+        this.statementOptionsByProperty = new StatementOptions[maxPropertyId + 1];
+        this.statementOptions.forEach((property, options) -> {
+            final int propertyId = EntityIds.numericId(property, 'P');
+            if (propertyId >= 0 && propertyId < MAX_INDEXED_PROPERTY_ID) {
+                this.statementOptionsByProperty[propertyId] = options;
+            }
+        });
     }
 
 
@@ -116,6 +142,10 @@ public class DumpSpec {
         return format;
     }
 
+    public OutputCompression getCompression() {
+        return compression;
+    }
+
     public boolean includeDocument(StatementDocument doc) {
         boolean include = entities.length == 0;
         for (EntityFilter filterSpec : entities) {
@@ -124,20 +154,82 @@ public class DumpSpec {
             }
         }
 
-        include = include &&
-                (this.samplingPercent == 100 || this.random.nextInt(100) < this.samplingPercent);
+        return include && sampleDocument(doc.getEntityId().getId());
+    }
+
+    /**
+     * Decides whether a document that matches the entity filters is part of the sample.
+     *
+     * The decision only depends on the seed and the id of the entity, so it does not depend on the order in which
+     * entities are processed and can be made from multiple threads at once.
+     *
+     * @param entityId id of the entity, for example Q42
+     * @see RunEntityFilter for evaluating the entity filters of multiple specs at once
+     */
+    public boolean sampleDocument(String entityId) {
+        if (this.samplingPercent >= 100) return true;
+
+        return Long.remainderUnsigned(mix(this.seed ^ mix(hashId(entityId))), 100) < this.samplingPercent;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the id.
+     */
+    private static long hashId(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); ++i) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Finalizer of the SplitMix64 generator, which spreads the bits of the input over the whole output.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
 
-        return include;
+    EntityFilter[] getEntityFilters() {
+        return entities;
     }
 
     public StatementOptions findStatementOptions(final String property) {
-        return statementOptions.getOrDefault(property, statementOptionsDefault);
+        final int propertyId = EntityIds.numericId(property, 'P');
+        if (propertyId < 0 || propertyId >= MAX_INDEXED_PROPERTY_ID) {
+            return statementOptions.getOrDefault(property, statementOptionsDefault);
+        }
+
+        if (propertyId >= statementOptionsByProperty.length) return statementOptionsDefault;
+        final StatementOptions options = statementOptionsByProperty[propertyId];
+        return options == null ? statementOptionsDefault : options;
     }
 
     public boolean hasFullStatements() {
         return statementOptionsDefault.isStatement() || statementOptions.values().stream().anyMatch(StatementOptions::isStatement);
     }
 
+    /**
+     * Checks whether a document is written in the same way for both specs, so that a document which is included
+     * in both dumps has the same output in each of them.
+     *
+     * The specs may still differ in the entity filters, the sample and the compression.
+     */
+    public boolean hasSameSerialization(DumpSpec other) {
+        return meta == other.meta &&
+                labels == other.labels &&
+                descriptions == other.descriptions &&
+                aliases == other.aliases &&
+                sitelinks == other.sitelinks &&
+                format.equals(other.format) &&
+                Objects.equals(languages, other.languages) &&
+                statementOptionsDefault.equals(other.statementOptionsDefault) &&
+                statementOptions.equals(other.statementOptions);
+    }
+
     public boolean includeLanguage(String code) {
         if (languages == null) return true;
 
@@ -158,6 +250,7 @@ public class DumpSpec {
                 .add("aliases", aliases)
                 .add("meta", meta)
                 .add("sitelinks", sitelinks)
+                .add("compression", compression)
                 .toString();
     }
 }
@@ -2,14 +2,21 @@ package io.github.bennofs.wdumper.spec;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.Validate;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A specification for a dump contains all options and filters that control the dump generation.
@@ -22,6 +29,10 @@ import java.util.*;
 @AutoValue
 @JsonDeserialize(builder = AutoValue_DumpSpecJson.Builder.class)
 public abstract class DumpSpecJson {
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .registerModule(new Jdk8Module())
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true);
+
     /**
      * @return The version of this dump spec.
      */
@@ -92,9 +103,88 @@ public abstract class DumpSpecJson {
     @JsonProperty
     public abstract boolean meta();
 
+    /**
+     * The compression does not affect the content of the dump, only the format of the generated file.
+     *
+     * @return The compression codec of the generated dump file.
+     */
+    @JsonProperty
+    public abstract OutputCompression compression();
+
+    /**
+     * Returns an equivalent spec in a normal form, so that specs which describe the same dump are equal.
+     *
+     * Entity filters and statement filters are both combined with "or", so their order and duplicates do not
+     * matter. The seed only matters if the dump is sampled.
+     *
+     * @return the canonical form of this spec
+     */
+    public DumpSpecJson canonicalize() {
+        final Builder builder = builder()
+                .version(version())
+                .entities(sortedDistinct(entities().stream().map(filter -> EntityFilterJson.builder()
+                        .type(filter.type())
+                        .properties(ImmutableSet.copyOf(sortedDistinct(filter.properties().stream())))
+                        .build())))
+                .samplingPercent(samplingPercent())
+                .statements(sortedDistinct(statements().stream().map(filter -> {
+                    final StatementFilterJson.Builder statement = StatementFilterJson.builder()
+                            .rank(filter.rank())
+                            .simple(filter.simple())
+                            .full(filter.full())
+                            .references(filter.references())
+                            .qualifiers(filter.qualifiers());
+                    if (filter.properties() != null) {
+                        statement.properties(ImmutableSet.copyOf(sortedDistinct(filter.properties().stream())));
+                    }
+                    return statement.build();
+                })))
+                .sitelinks(sitelinks())
+                .labels(labels())
+                .descriptions(descriptions())
+                .aliases(aliases())
+                .meta(meta())
+                .compression(compression());
+        if (languages() != null) {
+            builder.languages(ImmutableSet.copyOf(sortedDistinct(languages().stream())));
+        }
+        if (samplingPercent() == 100) {
+            builder.seed(0);
+        } else {
+            seed().ifPresent(builder::seed);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Computes a hash of the canonical form of this spec, which is equal for all specs that produce the same dump file.
+     *
+     * The compression is part of the hash, since it determines the content of the generated file.
+     *
+     * @return the hex-encoded SHA-256 hash, or empty if the dump is sampled without a fixed seed and thus not reproducible
+     */
+    public Optional<String> canonicalHash() {
+        if (samplingPercent() != 100 && seed().isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(Hashing.sha256().hashBytes(CANONICAL_MAPPER.writeValueAsBytes(canonicalize())).toString());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("cannot serialize dump spec", e);
+        }
+    }
+
+    private static <T> List<T> sortedDistinct(Stream<T> items) {
+        return items.distinct()
+                .sorted(Comparator.comparing(Object::toString))
+                .collect(Collectors.toList());
+    }
+
     public static Builder builder() {
         return new AutoValue_DumpSpecJson.Builder()
-                .version(DumpSpecVersion.VERSION_1);
+                .version(DumpSpecVersion.VERSION_1)
+                .compression(OutputCompression.GZIP);
     }
 
     @AutoValue.Builder
@@ -122,6 +212,8 @@ public abstract class DumpSpecJson {
 
         public abstract Builder version(DumpSpecVersion version);
 
+        public abstract Builder compression(OutputCompression compression);
+
         abstract DumpSpecJson autoBuild();
 
         public DumpSpecJson build() {
@@ -146,6 +238,8 @@ public abstract class DumpSpecJson {
 
         public abstract Optional<DumpSpecVersion> version();
 
+        public abstract Optional<OutputCompression> compression();
+
         /**
          * Builder for deserialization from json, performing some migrations
          */
@@ -160,6 +254,11 @@ public abstract class DumpSpecJson {
                 version(DumpSpecVersion.VERSION_1);
             }
 
+            // dumps used to always be compressed with gzip
+            if (compression().isEmpty()) {
+                compression(OutputCompression.GZIP);
+            }
+
             return build();
         }
     }
@@ -33,4 +33,12 @@ public class EntityFilter {
 
         return true;
     }
+
+    EntityTypeFilter getType() {
+        return type;
+    }
+
+    List<ValueFilter> getProperties() {
+        return properties;
+    }
 }
@@ -0,0 +1,65 @@
+package io.github.bennofs.wdumper.spec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Helpers to work with the numeric part of entity ids like Q42 or P31.
+ */
+public final class EntityIds {
+    private static final byte[] ID_KEY = "\"id\":\"".getBytes(StandardCharsets.US_ASCII);
+    /** the id follows the type at the start of each entity, so only the start of the JSON needs to be searched */
+    private static final int ID_SEARCH_LENGTH = 128;
+
+    private EntityIds() {
+    }
+
+    /**
+     * Parses the numeric part of an entity id with the given prefix, without allocating.
+     *
+     * @param id the entity id, for example Q42
+     * @param prefix the expected prefix, for example 'Q'
+     * @return the numeric id, or -1 if the id does not have the given prefix or is not a simple numeric id.
+     *         Ids with leading zeros like Q05 are not simple, since they are a different id than Q5.
+     */
+    public static int numericId(String id, char prefix) {
+        final int length = id.length();
+        if (length < 2 || length > 10 || id.charAt(0) != prefix) return -1;
+        if (length > 2 && id.charAt(1) == '0') return -1;
+
+        int result = 0;
+        for (int i = 1; i < length; ++i) {
+            final char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Finds the id of an entity encoded as JSON, without parsing it.
+     *
+     * Only the start of the JSON is searched, where the compact JSON of the wikidata dumps has the id.
+     *
+     * @param data buffer containing the JSON
+     * @param offset start of the JSON in the buffer
+     * @param length length of the JSON, which may also be a prefix of the entity
+     * @return the id, or null if it could not be found at the start of the JSON
+     */
+    public static String findEntityId(byte[] data, int offset, int length) {
+        final int end = offset + length;
+        final int start = RawDocumentFilter.indexOf(data, offset, Math.min(end, offset + ID_SEARCH_LENGTH), ID_KEY);
+        if (start < 0) return null;
+
+        // only use the id if it is a key of the top-level object
+        for (int i = offset + 1; i < start; ++i) {
+            if (data[i] == '{' || data[i] == '[') return null;
+        }
+
+        final int idStart = start + ID_KEY.length;
+        int idEnd = idStart;
+        while (idEnd < end && data[idEnd] != '"' && data[idEnd] != '\\') idEnd += 1;
+        if (idEnd == end || data[idEnd] != '"') return null;
+
+        return new String(data, idStart, idEnd - idStart, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package io.github.bennofs.wdumper.spec;
+
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evaluates the entity filters of specs on a {@link PropertyBitmapIndex}, to find the entities that may be
+ * included in a dump without reading the snapshot.
+ *
+ * The selection is conservative: it contains every entity that matches one of the entity filters, but may contain
+ * entities which are rejected by {@link DumpSpec#includeDocument}. Restrictions on the rank of statements are ignored,
+ * and value filters on properties whose values are not indexed only require the property to be present.
+ */
+public final class EntityPreselection {
+    private EntityPreselection() {
+    }
+
+    /**
+     * Finds the entities that may be included in any of the dumps.
+     *
+     * @param index the index of the snapshot
+     * @param specs the specs of the dumps
+     * @return the numbers of the records of the entities in the snapshot
+     */
+    public static RoaringBitmap select(PropertyBitmapIndex index, Collection<DumpSpec> specs) {
+        final RoaringBitmap selected = new RoaringBitmap();
+        for (DumpSpec spec : specs) {
+            // a spec without entity filters includes all entities
+            if (spec.getEntityFilters().length == 0) {
+                return index.getEntities(EntityTypeFilter.ANY);
+            }
+
+            for (EntityFilter filter : spec.getEntityFilters()) {
+                selected.or(select(index, filter));
+            }
+        }
+        return selected;
+    }
+
+    private static RoaringBitmap select(PropertyBitmapIndex index, EntityFilter filter) {
+        final RoaringBitmap selected = index.getEntities(filter.getType()).clone();
+        final List<ValueFilter> properties = filter.getProperties() == null ? List.of() : filter.getProperties();
+        for (ValueFilter valueFilter : properties) {
+            final int property = EntityIds.numericId(valueFilter.getProperty(), 'P');
+            if (property < 0) continue;
+
+            final int item = valueFilter.getValue() == null ? -1 : EntityIds.numericId(valueFilter.getValue(), 'Q');
+            if (valueFilter.getType() == ValueFilter.ValueFilterType.ENTITYID && item >= 0 && index.isValueIndexed(property)) {
+                selected.and(index.getEntitiesWithValue(property, item));
+            } else {
+                selected.and(index.getEntitiesWithStatements(property));
+            }
+        }
+        return selected;
+    }
+}
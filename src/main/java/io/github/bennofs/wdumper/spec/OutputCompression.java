@@ -0,0 +1,43 @@
+package io.github.bennofs.wdumper.spec;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Compression codec of a generated dump.
+ */
+public enum OutputCompression {
+    /** gzip, compressed in blocks on multiple threads. The output is a single regular gzip stream. */
+    @JsonProperty("gzip") GZIP(".nt.gz"),
+    /** zstd, using the worker threads of the zstd library */
+    @JsonProperty("zstd") ZSTD(".nt.zst"),
+    /** uncompressed N-Triples */
+    @JsonProperty("none") NONE(".nt");
+
+    private final String extension;
+
+    OutputCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return The file extension of dumps with this compression, including the N-Triples extension.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Determines the compression of a dump from its file name.
+     *
+     * @param fileName name of the dump file
+     * @return the compression, or empty if the extension is not known
+     */
+    public static Optional<OutputCompression> fromFileName(String fileName) {
+        return Arrays.stream(values())
+                .filter(compression -> fileName.endsWith(compression.extension))
+                .findFirst();
+    }
+}
@@ -0,0 +1,230 @@
+package io.github.bennofs.wdumper.spec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filter on the raw JSON of a single entity, used to skip parsing of entities that cannot be included in any dump.
+ *
+ * The filter is conservative: it only rejects an entity if none of the entity filters of the specs can match it,
+ * but it may accept entities which are then rejected by {@link DumpSpec#includeDocument}.
+ * It relies on the compact JSON format of the wikidata dumps, where each entity starts with its type
+ * and statements are grouped under the property id as key. Lines in any other format are always accepted.
+ */
+public class RawDocumentFilter {
+    private static final Pattern ENTITY_ID = Pattern.compile("[A-Z]([0-9]+)");
+
+    private static final byte[] TYPE_PREFIX = bytes("{\"type\":\"");
+    private static final byte[] TYPE_ITEM = bytes("{\"type\":\"item\"");
+    private static final byte[] TYPE_PROPERTY = bytes("{\"type\":\"property\"");
+    private static final byte[] TYPE_LEXEME = bytes("{\"type\":\"lexeme\"");
+
+    /**
+     * Raw version of a single entity filter.
+     *
+     * For each property restriction, the JSON must contain at least one of the patterns.
+     */
+    private static final class Conjunction {
+        final EntityTypeFilter type;
+        final byte[][][] required;
+        /** numeric ids of the properties that the entity needs statements for */
+        final int[] properties;
+
+        Conjunction(EntityTypeFilter type, byte[][][] required, int[] properties) {
+            this.type = type;
+            this.required = required;
+            this.properties = properties;
+        }
+    }
+
+    private final boolean acceptAll;
+    private final Conjunction[] alternatives;
+
+    private RawDocumentFilter(boolean acceptAll, Conjunction[] alternatives) {
+        this.acceptAll = acceptAll;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * Creates a filter that accepts an entity if it may be included in any of the given dumps.
+     *
+     * @param specs the specs of all dumps
+     * @return the filter
+     */
+    public static RawDocumentFilter create(Collection<DumpSpec> specs) {
+        final List<Conjunction> alternatives = new ArrayList<>();
+        for (DumpSpec spec : specs) {
+            // a spec without entity filters includes all entities
+            if (spec.getEntityFilters().length == 0) {
+                return new RawDocumentFilter(true, new Conjunction[0]);
+            }
+
+            for (EntityFilter filter : spec.getEntityFilters()) {
+                alternatives.add(compile(filter));
+            }
+        }
+        return new RawDocumentFilter(false, alternatives.toArray(new Conjunction[0]));
+    }
+
+    private static Conjunction compile(EntityFilter filter) {
+        final List<ValueFilter> properties = filter.getProperties() == null ? List.of() : filter.getProperties();
+        final List<byte[][]> required = new ArrayList<>();
+        final int[] propertyIds = new int[properties.size()];
+
+        for (int i = 0; i < properties.size(); ++i) {
+            final ValueFilter valueFilter = properties.get(i);
+            propertyIds[i] = EntityIds.numericId(valueFilter.getProperty(), 'P');
+
+            // the statement group needs to exist for any value filter to match
+            required.add(new byte[][]{bytes("\"" + valueFilter.getProperty() + "\":[")});
+
+            if (valueFilter.getType() == ValueFilter.ValueFilterType.ENTITYID) {
+                required.add(entityIdPatterns(valueFilter.getValue()));
+            }
+        }
+
+        return new Conjunction(filter.getType(), required.toArray(new byte[0][][]), propertyIds);
+    }
+
+    /**
+     * Patterns for an entity id value. Depending on the dump format, the value may only contain the numeric id.
+     */
+    private static byte[][] entityIdPatterns(String id) {
+        final List<byte[]> patterns = new ArrayList<>();
+        patterns.add(bytes("\"id\":\"" + id + "\""));
+
+        final Matcher matcher = ENTITY_ID.matcher(id);
+        if (matcher.matches()) {
+            patterns.add(bytes("\"numeric-id\":" + matcher.group(1) + ","));
+            patterns.add(bytes("\"numeric-id\":" + matcher.group(1) + "}"));
+        }
+        return patterns.toArray(new byte[0][]);
+    }
+
+    /**
+     * Returns the types of entities that may be included in some dump.
+     *
+     * @return the entity types, containing {@link EntityTypeFilter#ANY} if entities of any type may be included
+     */
+    public Set<EntityTypeFilter> getEntityTypes() {
+        if (acceptAll) return EnumSet.of(EntityTypeFilter.ANY);
+
+        final Set<EntityTypeFilter> types = EnumSet.noneOf(EntityTypeFilter.class);
+        for (Conjunction alternative : alternatives) {
+            types.add(alternative.type);
+        }
+        return types;
+    }
+
+    /**
+     * Checks whether the entity may be included in some dump.
+     *
+     * @param data buffer containing the JSON of the entity
+     * @param offset start of the JSON in the buffer
+     * @param length length of the JSON
+     * @return false if no dump can include the entity
+     */
+    public boolean mayMatch(byte[] data, int offset, int length) {
+        if (acceptAll) return true;
+        if (!startsWith(data, offset, length, TYPE_PREFIX)) return true;
+
+        final int end = offset + length;
+        for (Conjunction alternative : alternatives) {
+            if (matches(alternative, data, offset, end)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an entity may be included in some dump, given its type and the properties it has statements for.
+     *
+     * This is used for dumps which store this information separately from the entity, so it does not depend on
+     * the JSON format.
+     *
+     * @param type the type of the entity, {@link EntityTypeFilter#ANY} if it is unknown
+     * @param hasStatements returns true for the numeric ids of the properties that the entity has statements for
+     * @return false if no dump can include the entity
+     */
+    public boolean mayMatch(EntityTypeFilter type, IntPredicate hasStatements) {
+        if (acceptAll) return true;
+
+        outer:
+        for (Conjunction alternative : alternatives) {
+            if (type != EntityTypeFilter.ANY && alternative.type != EntityTypeFilter.ANY && alternative.type != type) continue;
+
+            for (int property : alternative.properties) {
+                // properties without a numeric id cannot be checked
+                if (property >= 0 && !hasStatements.test(property)) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean matches(Conjunction conjunction, byte[] data, int offset, int end) {
+        if (!matchesType(conjunction.type, data, offset, end - offset)) return false;
+
+        for (byte[][] patterns : conjunction.required) {
+            boolean found = false;
+            for (byte[] pattern : patterns) {
+                if (indexOf(data, offset, end, pattern) >= 0) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static boolean matchesType(EntityTypeFilter type, byte[] data, int offset, int length) {
+        switch (type) {
+            case ITEM:
+                return startsWith(data, offset, length, TYPE_ITEM);
+            case PROPERTY:
+                return startsWith(data, offset, length, TYPE_PROPERTY);
+            case LEXEME:
+                return startsWith(data, offset, length, TYPE_LEXEME);
+            case ANY:
+                return true;
+        }
+
+        throw new RuntimeException("EntityFilter enum has unexpected value: " + type);
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int length, byte[] prefix) {
+        if (length < prefix.length) return false;
+
+        for (int i = 0; i < prefix.length; ++i) {
+            if (data[offset + i] != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    static int indexOf(byte[] data, int from, int to, byte[] pattern) {
+        final byte first = pattern[0];
+        final int last = to - pattern.length;
+
+        outer:
+        for (int i = from; i <= last; ++i) {
+            if (data[i] != first) continue;
+
+            for (int j = 1; j < pattern.length; ++j) {
+                if (data[i + j] != pattern[j]) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
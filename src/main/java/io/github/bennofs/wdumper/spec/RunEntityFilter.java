@@ -0,0 +1,253 @@
+package io.github.bennofs.wdumper.spec;
+
+import org.wikidata.wdtk.datamodel.interfaces.*;
+
+import java.util.*;
+
+/**
+ * Entity filters of all dumps in a run, compiled into a single structure.
+ *
+ * Instead of evaluating the entity filters of each dump separately, the property restrictions of all
+ * filters are deduplicated and grouped by property and rank. For each entity, every statement group that is used
+ * by some filter is only looked up and scanned once. Entity id values are matched by binary search on the numeric ids.
+ *
+ * The result of the evaluation is the set of dumps whose entity filters match the entity, identified by the index
+ * of the spec in the list passed to {@link #create(List)}. Sampling is not part of the filter.
+ */
+public class RunEntityFilter {
+    /**
+     * All restrictions on statements of a single property with the same rank filter.
+     * The fields contain the index of the restriction, or -1 if no such restriction exists.
+     */
+    private static final class PropertyGroup {
+        final String property;
+        final RankFilter rank;
+
+        int any = -1;
+        int anyValue = -1;
+        int someValue = -1;
+        int noValue = -1;
+
+        /** sorted numeric ids of item values, and the index of the restriction for each value */
+        int[] itemIds = new int[0];
+        int[] itemRestrictions = new int[0];
+
+        /** restrictions for values that are not items, keyed by the full entity id */
+        final Map<String, Integer> otherIds = new HashMap<>();
+
+        PropertyGroup(String property, RankFilter rank) {
+            this.property = property;
+            this.rank = rank;
+        }
+    }
+
+    private final BitSet alwaysIncluded;
+    private final PropertyGroup[] groups;
+    private final int restrictionCount;
+
+    /** for each restriction, the conjunctions (entity filters) that contain it */
+    private final int[][] restrictionConjunctions;
+
+    /** for each conjunction, the entity type, the number of restrictions and the index of the dump */
+    private final EntityTypeFilter[] conjunctionTypes;
+    private final int[] conjunctionSizes;
+    private final int[] conjunctionDumps;
+
+    private RunEntityFilter(BitSet alwaysIncluded, PropertyGroup[] groups, int[][] restrictionConjunctions,
+                            EntityTypeFilter[] conjunctionTypes, int[] conjunctionSizes, int[] conjunctionDumps) {
+        this.alwaysIncluded = alwaysIncluded;
+        this.groups = groups;
+        this.restrictionCount = restrictionConjunctions.length;
+        this.restrictionConjunctions = restrictionConjunctions;
+        this.conjunctionTypes = conjunctionTypes;
+        this.conjunctionSizes = conjunctionSizes;
+        this.conjunctionDumps = conjunctionDumps;
+    }
+
+    /**
+     * Compiles the entity filters of the given specs.
+     *
+     * @param specs specs of all dumps in the run
+     * @return the compiled filter
+     */
+    public static RunEntityFilter create(List<DumpSpec> specs) {
+        final BitSet alwaysIncluded = new BitSet(specs.size());
+        final Map<String, PropertyGroup> groups = new LinkedHashMap<>();
+        final Map<String, Integer> restrictionIds = new HashMap<>();
+        final List<List<Integer>> restrictionConjunctions = new ArrayList<>();
+        final List<EntityTypeFilter> conjunctionTypes = new ArrayList<>();
+        final List<Integer> conjunctionSizes = new ArrayList<>();
+        final List<Integer> conjunctionDumps = new ArrayList<>();
+
+        for (int dump = 0; dump < specs.size(); ++dump) {
+            final EntityFilter[] filters = specs.get(dump).getEntityFilters();
+            if (filters.length == 0) {
+                alwaysIncluded.set(dump);
+                continue;
+            }
+
+            for (EntityFilter filter : filters) {
+                final int conjunction = conjunctionTypes.size();
+                final Set<Integer> restrictions = new HashSet<>();
+                final List<ValueFilter> properties = filter.getProperties() == null ? List.of() : filter.getProperties();
+                for (ValueFilter valueFilter : properties) {
+                    final RankFilter rank = valueFilter.getRank() == null ? RankFilter.NON_DEPRECATED : valueFilter.getRank();
+                    final String key = valueFilter.getProperty() + "/" + rank + "/" + valueFilter.getType()
+                            + (valueFilter.getType() == ValueFilter.ValueFilterType.ENTITYID ? "/" + valueFilter.getValue() : "");
+
+                    final int restriction = restrictionIds.computeIfAbsent(key, k -> {
+                        final int id = restrictionConjunctions.size();
+                        restrictionConjunctions.add(new ArrayList<>());
+                        final PropertyGroup group = groups.computeIfAbsent(valueFilter.getProperty() + "/" + rank,
+                                g -> new PropertyGroup(valueFilter.getProperty(), rank));
+                        addRestriction(group, valueFilter, id);
+                        return id;
+                    });
+
+                    // the same restriction may appear multiple times in a single filter
+                    if (restrictions.add(restriction)) {
+                        restrictionConjunctions.get(restriction).add(conjunction);
+                    }
+                }
+
+                conjunctionTypes.add(filter.getType());
+                conjunctionSizes.add(restrictions.size());
+                conjunctionDumps.add(dump);
+            }
+        }
+
+        // order groups by property, so that each statement group is looked up only once
+        final PropertyGroup[] groupArray = groups.values().toArray(new PropertyGroup[0]);
+        Arrays.sort(groupArray, Comparator.comparing(g -> g.property));
+
+        return new RunEntityFilter(
+                alwaysIncluded,
+                groupArray,
+                restrictionConjunctions.stream().map(l -> l.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new),
+                conjunctionTypes.toArray(new EntityTypeFilter[0]),
+                conjunctionSizes.stream().mapToInt(Integer::intValue).toArray(),
+                conjunctionDumps.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    private static void addRestriction(PropertyGroup group, ValueFilter filter, int restriction) {
+        switch (filter.getType()) {
+            case ANY:
+                group.any = restriction;
+                break;
+            case ANY_VALUE:
+                group.anyValue = restriction;
+                break;
+            case SOME_VALUE:
+                group.someValue = restriction;
+                break;
+            case NO_VALUE:
+                group.noValue = restriction;
+                break;
+            case ENTITYID:
+                final int itemId = EntityIds.numericId(filter.getValue(), 'Q');
+                if (itemId < 0) {
+                    group.otherIds.put(filter.getValue(), restriction);
+                    break;
+                }
+
+                // keep the ids sorted, filters are only compiled once per run so insertion does not need to be fast
+                int pos = Arrays.binarySearch(group.itemIds, itemId);
+                pos = -(pos + 1);
+                group.itemIds = insert(group.itemIds, pos, itemId);
+                group.itemRestrictions = insert(group.itemRestrictions, pos, restriction);
+                break;
+        }
+    }
+
+    private static int[] insert(int[] array, int pos, int value) {
+        final int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, pos);
+        result[pos] = value;
+        System.arraycopy(array, pos, result, pos + 1, array.length - pos);
+        return result;
+    }
+
+    /**
+     * Finds all dumps whose entity filters match the given document.
+     *
+     * @param doc the document to check
+     * @return indices of all matching dumps
+     */
+    public BitSet evaluate(StatementDocument doc) {
+        final BitSet result = (BitSet) alwaysIncluded.clone();
+        if (conjunctionDumps.length == 0) return result;
+
+        final boolean[] satisfied = new boolean[restrictionCount];
+        StatementGroup sg = null;
+        String property = null;
+        for (PropertyGroup group : groups) {
+            if (!group.property.equals(property)) {
+                property = group.property;
+                sg = doc.findStatementGroup(property);
+            }
+            if (sg != null) {
+                evaluateGroup(group, sg, satisfied);
+            }
+        }
+
+        final int[] counts = new int[conjunctionDumps.length];
+        for (int restriction = 0; restriction < restrictionCount; ++restriction) {
+            if (!satisfied[restriction]) continue;
+
+            for (int conjunction : restrictionConjunctions[restriction]) {
+                counts[conjunction] += 1;
+            }
+        }
+
+        final EntityIdValue entityId = doc.getEntityId();
+        for (int conjunction = 0; conjunction < counts.length; ++conjunction) {
+            if (counts[conjunction] != conjunctionSizes[conjunction]) continue;
+            if (result.get(conjunctionDumps[conjunction])) continue;
+            if (!conjunctionTypes[conjunction].matches(entityId)) continue;
+
+            result.set(conjunctionDumps[conjunction]);
+        }
+        return result;
+    }
+
+    private static void evaluateGroup(PropertyGroup group, StatementGroup sg, boolean[] satisfied) {
+        // same rank semantics as ValueFilter.matches
+        if (group.rank == RankFilter.BEST_RANK) {
+            sg = sg.getBestStatements();
+            if (sg == null) return;
+        }
+
+        for (Statement s : sg) {
+            if (s.getRank() == StatementRank.DEPRECATED && group.rank != RankFilter.ALL) continue;
+
+            final Snak snak = s.getMainSnak();
+            setIfPresent(satisfied, group.any);
+
+            if (snak instanceof SomeValueSnak) {
+                setIfPresent(satisfied, group.someValue);
+            } else if (snak instanceof NoValueSnak) {
+                setIfPresent(satisfied, group.noValue);
+            } else if (snak instanceof ValueSnak) {
+                setIfPresent(satisfied, group.anyValue);
+
+                final Value value = ((ValueSnak) snak).getValue();
+                if (value instanceof EntityIdValue) {
+                    final String id = ((EntityIdValue) value).getId();
+                    final int itemId = EntityIds.numericId(id, 'Q');
+                    if (itemId >= 0) {
+                        final int pos = Arrays.binarySearch(group.itemIds, itemId);
+                        if (pos >= 0) satisfied[group.itemRestrictions[pos]] = true;
+                    } else {
+                        final Integer restriction = group.otherIds.get(id);
+                        if (restriction != null) satisfied[restriction] = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void setIfPresent(boolean[] satisfied, int restriction) {
+        if (restriction >= 0) satisfied[restriction] = true;
+    }
+}
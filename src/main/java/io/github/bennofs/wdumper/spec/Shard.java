@@ -0,0 +1,93 @@
+package io.github.bennofs.wdumper.spec;
+
+/**
+ * A part of the entities of a dump, used to split a run across multiple processes.
+ *
+ * Entities are assigned to shards by their numeric id modulo the number of shards, so every shard gets a similar
+ * share of the entities without knowing the range of ids in advance. Entity ids without a simple numeric id
+ * are assigned by the hash code of the id. Each shard still reads the whole input dump, but only parses and
+ * serializes its own entities.
+ */
+public final class Shard {
+    /** the only shard of a run that is not split */
+    public static final Shard ALL = new Shard(0, 1);
+
+    private final int index;
+    private final int count;
+
+    public Shard(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("invalid shard " + index + " of " + count);
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return true if the run is split into more than one shard
+     */
+    public boolean isPartial() {
+        return count > 1;
+    }
+
+    /**
+     * Checks whether the entity with the given id belongs to this shard.
+     *
+     * @param entityId id of the entity, for example Q42
+     * @return true if the entity belongs to this shard
+     */
+    public boolean includes(String entityId) {
+        if (count == 1) return true;
+        return shardOf(entityId, count) == index;
+    }
+
+    /**
+     * Checks whether the entity encoded as JSON may belong to this shard, without parsing it.
+     *
+     * If the id cannot be found at the start of the JSON, the entity is accepted, so the result needs to be
+     * checked again with {@link #includes(String)} after parsing.
+     *
+     * @param data buffer containing the JSON
+     * @param offset start of the JSON in the buffer
+     * @param length length of the JSON
+     * @return false if the entity does not belong to this shard
+     */
+    public boolean mayInclude(byte[] data, int offset, int length) {
+        if (count == 1) return true;
+
+        final String id = EntityIds.findEntityId(data, offset, length);
+        return id == null || includes(id);
+    }
+
+    /**
+     * Checks whether the entity with the given numeric id may belong to this shard.
+     *
+     * @param numericId the numeric part of the entity id, or -1 if it is not known
+     * @return false if the entity does not belong to this shard
+     */
+    public boolean mayInclude(int numericId) {
+        return count == 1 || numericId < 0 || numericId % count == index;
+    }
+
+    static int shardOf(String entityId, int count) {
+        final int numericId = entityId.isEmpty() ? -1 : EntityIds.numericId(entityId, entityId.charAt(0));
+        if (numericId >= 0) {
+            return numericId % count;
+        }
+        return Math.floorMod(entityId.hashCode(), count);
+    }
+
+    @Override
+    public String toString() {
+        return "shard " + index + " of " + count;
+    }
+}
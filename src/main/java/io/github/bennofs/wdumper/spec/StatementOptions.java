@@ -3,6 +3,8 @@ package io.github.bennofs.wdumper.spec;
 import com.google.common.base.MoreObjects;
 import org.wikidata.wdtk.datamodel.interfaces.StatementRank;
 
+import java.util.Objects;
+
 public class StatementOptions {
     private final boolean simple;
     private final boolean full;
@@ -48,6 +50,23 @@ public class StatementOptions {
         return new StatementOptions(rank.union(other.rank), simple || other.simple, full || other.full, references || other.references, qualifiers || other.qualifiers);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final StatementOptions that = (StatementOptions) o;
+        return simple == that.simple &&
+                full == that.full &&
+                references == that.references &&
+                qualifiers == that.qualifiers &&
+                rank == that.rank;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(simple, full, references, qualifiers, rank);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
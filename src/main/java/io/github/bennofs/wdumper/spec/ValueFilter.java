@@ -110,4 +110,16 @@ public class ValueFilter implements SnakVisitor<Boolean> {
     public String getProperty() {
         return property;
     }
+
+    ValueFilterType getType() {
+        return type;
+    }
+
+    String getValue() {
+        return value;
+    }
+
+    RankFilter getRank() {
+        return rank;
+    }
 }
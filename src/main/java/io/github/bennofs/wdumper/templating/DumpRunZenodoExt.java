@@ -88,7 +88,8 @@ public class DumpRunZenodoExt {
     }
 
     public Optional<Progress> processing() {
-        if (dumpRunZenodo.run == null || dumpRunZenodo.startedAt().isEmpty() || dumpRunZenodo.finishedAt().isPresent()) {
+        if (dumpRunZenodo.run == null || dumpRunZenodo.startedAt().isEmpty() || dumpRunZenodo.finishedAt().isPresent()
+                || dumpRunZenodo.failedAt().isPresent()) {
             return Optional.empty();
         }
 
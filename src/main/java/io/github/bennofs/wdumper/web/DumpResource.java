@@ -3,12 +3,18 @@ package io.github.bennofs.wdumper.web;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import io.github.bennofs.wdumper.DumpRunner;
 import io.github.bennofs.wdumper.database.Database;
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
 import io.github.bennofs.wdumper.jooq.tables.records.DB_DumpRecord;
 import io.github.bennofs.wdumper.model.Dump;
+import io.github.bennofs.wdumper.model.DumpEstimate;
 import io.github.bennofs.wdumper.model.DumpFullInfo;
 import io.github.bennofs.wdumper.model.DumpRunZenodo;
+import io.github.bennofs.wdumper.processors.DumpEstimator;
+import io.github.bennofs.wdumper.spec.DumpSpec;
 import io.github.bennofs.wdumper.spec.DumpSpecJson;
+import io.github.bennofs.wdumper.spec.EntityPreselection;
 import io.github.bennofs.wdumper.templating.TemplateLoader;
 import io.github.bennofs.wdumper.templating.UrlBuilder;
 import org.apache.commons.lang3.Range;
@@ -16,8 +22,8 @@ import org.apache.commons.lang3.Range;
 import javax.inject.Inject;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Response;
+import java.io.IOException;
 import java.net.URI;
-import java.nio.file.Files;
 import java.util.*;
 
 import static io.github.bennofs.wdumper.jooq.Tables.DUMP;
@@ -27,16 +33,22 @@ public class DumpResource {
     private final TemplateLoader template;
     private final Database db;
     private final UrlBuilder urlBuilder;
+    private final ObjectMapper mapper;
     private final ObjectWriter objectWriter;
+    private final Optional<DumpEstimator> estimator;
+    private final Optional<PropertyBitmapIndex> estimateIndex;
 
     private final static Integer LIST_LIMIT = 10;
 
     @Inject
-    public DumpResource(TemplateLoader template, Database db, UrlBuilder urlBuilder, ObjectMapper mapper) {
+    public DumpResource(TemplateLoader template, Database db, UrlBuilder urlBuilder, ObjectMapper mapper, Optional<DumpEstimator> estimator, Optional<PropertyBitmapIndex> estimateIndex) {
         this.template = template;
         this.db = db;
         this.urlBuilder = urlBuilder;
+        this.mapper = mapper;
         this.objectWriter = mapper.writer();
+        this.estimator = estimator;
+        this.estimateIndex = estimateIndex;
     }
 
 
@@ -92,6 +104,30 @@ public class DumpResource {
         return Response.created(location).build();
     }
 
+    @POST
+    @Path("/dumps/estimate")
+    @Produces("application/json")
+    @Consumes("application/json")
+    public DumpEstimate estimate(DumpSpecJson specJson) throws IOException {
+        if (estimator.isEmpty()) {
+            throw new ServiceUnavailableException("no dump sample is configured for estimates");
+        }
+
+        final DumpSpec spec;
+        try {
+            spec = mapper.convertValue(specJson, DumpSpec.class);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("invalid dump spec: " + e.getMessage());
+        }
+        final DumpEstimate estimate = estimator.get().estimate(spec);
+        if (estimateIndex.isEmpty()) {
+            return estimate;
+        }
+
+        // the preselection of a run is a superset of the matching entities, so its size bounds the entity count
+        return estimate.withMaxEntityCount(EntityPreselection.select(estimateIndex.get(), List.of(spec)).getLongCardinality());
+    }
+
     @GET
     @Produces("text/html")
     @Path("/dumps")
@@ -134,15 +170,12 @@ public class DumpResource {
 
     @GET
     @Path("/download/{id}")
-    public Response download(@PathParam("id") long id) {
-        final String fname = "wdump-" + id + ".nt.gz";
-        final java.nio.file.Path path = java.nio.file.Path.of("dumpfiles/generated/" + fname);
-        if (!Files.exists(path)) {
-            throw new NotFoundException(String.format("there is no dump file for dump with id %d", id));
-        }
+    public Response download(@PathParam("id") int id) {
+        final java.nio.file.Path path = DumpRunner.findOutputPath(java.nio.file.Path.of("dumpfiles/generated"), id)
+                .orElseThrow(() -> new NotFoundException(String.format("there is no dump file for dump with id %d", id)));
 
         return Response.ok(path.toFile())
-                .header("Content-Disposition", "attachment; filename=" + fname)
+                .header("Content-Disposition", "attachment; filename=" + path.getFileName())
                 .build();
     }
 
@@ -0,0 +1,68 @@
+package io.github.bennofs.wdumper.web;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Smoothed rate at which a run reads its input file, in bytes per second.
+ *
+ * The rate is an exponentially weighted moving average of the rates between consecutive samples of the input
+ * position. The weight of a sample depends on the time since the previous sample, so the average does not depend
+ * on how often the progress is requested: a rate measured over a time of {@link #TIME_CONSTANT} has a weight of 63%.
+ */
+final class InputRate {
+    static final Duration TIME_CONSTANT = Duration.ofMinutes(10);
+
+    private final long position;
+    private final Instant time;
+    private final double bytesPerSecond;
+
+    private InputRate(long position, Instant time, double bytesPerSecond) {
+        this.position = position;
+        this.time = time;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Starts the average with the average rate since the start of the run.
+     */
+    static InputRate initial(Instant startedAt, long position, Instant time) {
+        final double seconds = Duration.between(startedAt, time).toMillis() / 1000.0;
+        return new InputRate(position, time, seconds > 0 ? position / seconds : 0);
+    }
+
+    /**
+     * Adds a sample of the input position. Samples without a change of the position are ignored, since the
+     * position is only updated periodically by the backend.
+     *
+     * @return the updated rate
+     */
+    InputRate update(Instant startedAt, long position, Instant time) {
+        // the run was restarted
+        if (position < this.position) return initial(startedAt, position, time);
+
+        final double seconds = Duration.between(this.time, time).toMillis() / 1000.0;
+        if (position == this.position || seconds <= 0) return this;
+
+        final double current = (position - this.position) / seconds;
+        final double alpha = 1 - Math.exp(-seconds / TIME_CONSTANT.getSeconds());
+        return new InputRate(position, time, bytesPerSecond + alpha * (current - bytesPerSecond));
+    }
+
+    /**
+     * @return the estimated time until the given position is reached, or null if the rate is unknown
+     */
+    Duration remaining(long size) {
+        if (bytesPerSecond <= 0) return null;
+        final double seconds = Math.max(0, size - position) / bytesPerSecond;
+        return Duration.ofMillis((long) (seconds * 1000));
+    }
+
+    Instant getTime() {
+        return time;
+    }
+
+    double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+}
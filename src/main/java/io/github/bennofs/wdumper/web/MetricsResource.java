@@ -0,0 +1,27 @@
+package io.github.bennofs.wdumper.web;
+
+import io.github.bennofs.wdumper.metrics.MetricsRegistry;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+/**
+ * Serves the metrics of the web frontend in the text format of Prometheus.
+ */
+@Path("/metrics")
+public class MetricsResource {
+    private final MetricsRegistry metrics;
+
+    @Inject
+    public MetricsResource(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @GET
+    @Produces(MetricsRegistry.CONTENT_TYPE)
+    public String getMetrics() {
+        return metrics.scrape();
+    }
+}
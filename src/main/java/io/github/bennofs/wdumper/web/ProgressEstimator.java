@@ -6,18 +6,29 @@ import io.github.bennofs.wdumper.model.Progress;
 import io.github.bennofs.wdumper.model.RunStats;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is responsible for estimating the progress of a run
  * (what percentage is already done and how long it will take until the run is finished)
+ *
+ * If the backend reports the position in the input file, the progress is the fraction of the file that has been read
+ * and the remaining time is estimated from the smoothed rate at which the file is read, see {@link InputRate}.
+ * The rate is sampled at the time the backend stored the progress, so it does not depend on when the progress
+ * is requested.
+ * Otherwise, the progress is estimated from the number of entities and the duration of recent runs.
  */
+@Singleton
 public class ProgressEstimator {
     private RunStats statsCache;
     private Instant lastUpdate;
     private final Database db;
+    private final Map<Integer, InputRate> inputRates = new ConcurrentHashMap<>();
 
     private final Duration MAX_STALE = Duration.ofHours(2);
 
@@ -39,6 +50,29 @@ public class ProgressEstimator {
         if (r == null || r.startedAt().isEmpty()) return Optional.empty();
 
         final Instant startedAt = r.startedAt().get();
+        final Instant now = Instant.now();
+
+        // forget runs that no longer report progress
+        inputRates.values().removeIf(rate -> Duration.between(rate.getTime(), now).compareTo(MAX_STALE) > 0);
+
+        final long inputSize = r.inputSize();
+        final long inputPosition = r.inputPosition();
+        if (inputSize > 0 && inputPosition > 0) {
+            // the position was read by the backend when the progress was stored, not at the time of this request
+            final Instant sampledAt = r.progressUpdatedAt().orElse(now);
+            final InputRate rate = inputRates.compute(r.id(), (id, previous) -> previous == null
+                    ? InputRate.initial(startedAt, inputPosition, sampledAt)
+                    : previous.update(startedAt, inputPosition, sampledAt));
+            final Duration remainingAtSample = rate.remaining(inputSize);
+            if (remainingAtSample != null) {
+                final Duration sinceSample = Duration.between(sampledAt, now);
+                final Duration estimatedRemaining = remainingAtSample.compareTo(sinceSample) > 0
+                        ? remainingAtSample.minus(sinceSample)
+                        : Duration.ZERO;
+                final long percentCompleted = Math.min(inputPosition, inputSize) * 100 / inputSize;
+                return Optional.of(new Progress(startedAt, estimatedRemaining, percentCompleted));
+            }
+        }
 
         final RunStats stats = getStats();
         final long percentCompleted = r.count().longValue() * 100 / stats.entityCount;
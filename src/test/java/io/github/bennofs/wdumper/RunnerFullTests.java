@@ -5,6 +5,7 @@ import io.github.bennofs.wdumper.ext.ZstdDumpFile;
 import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
 import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
 import io.github.bennofs.wdumper.model.DumpError;
+import io.github.bennofs.wdumper.processors.ProgressSnapshot;
 import io.github.bennofs.wdumper.spec.DumpSpec;
 import io.github.bennofs.wdumper.spec.DumpSpecJson;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -36,6 +37,7 @@ import static org.assertj.core.api.Assertions.*;
 @Integration
 public class RunnerFullTests {
     DumpRunner runner;
+    int threads = 1;
     @TempDir Path tempDir;
 
     static final Logger logger = Logger.getLogger(RunnerFullTests.class.getName());
@@ -63,6 +65,16 @@ public class RunnerFullTests {
             public Duration runProgressInterval() {
                 return Duration.of(1, ChronoUnit.SECONDS);
             }
+
+            @Override
+            public int runThreads() {
+                return threads;
+            }
+
+            @Override
+            public int compressionThreads() {
+                return threads;
+            }
         }, dump);
     }
 
@@ -127,8 +139,8 @@ public class RunnerFullTests {
             }
 
             @Override
-            public void reportProgress(int count) {
-                System.out.println(count);
+            public void reportProgress(ProgressSnapshot progress) {
+                System.out.println(progress.getEntities());
             }
 
             @Override
@@ -162,6 +174,17 @@ public class RunnerFullTests {
 
     @Test
     void testParallel() throws IOException {
+        runDump("examples/humans.json");
+        final Path sequential = tempDir.resolve("humans-sequential.nt.gz");
+        Files.move(tempDir.resolve("humans.nt.gz"), sequential);
+
+        threads = 4;
+        initRunner();
+        runDump("examples/humans.json");
 
+        // the output does not depend on the number of threads
+        final Path parallel = tempDir.resolve("humans.nt.gz");
+        assertThat(openFileStream(parallel)).hasSameContentAs(openFileStream(sequential));
+        Files.delete(sequential);
     }
 }
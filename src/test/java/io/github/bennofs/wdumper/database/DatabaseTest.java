@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import static io.github.bennofs.wdumper.jooq.Tables.RUN;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,6 +62,11 @@ public class DatabaseTest {
         public Duration maxDumpRequestAge() {
             return Duration.of(20, ChronoUnit.MINUTES);
         }
+
+        @Override
+        public Duration shardTimeout() {
+            return Duration.of(30, ChronoUnit.MINUTES);
+        }
     }, TEST_BUILD_CONFIG, DATA_SOURCE);
 
     private static final String SPEC = "{\"sitelinks\":false,\"version\":\"1\",\"aliases\":false,\"entities\":" +
@@ -318,6 +324,48 @@ public class DatabaseTest {
         assertThat(r.finishedAt().get()).isBetween(before, after);
     }
 
+    @Test
+    void testFailRun() {
+        assertThat(db.failRun(2, "test")).isTrue();
+        assertThat(db.getRun(2).get().failedAt()).isPresent();
+        assertThat(db.failRun(2, "test")).isFalse();
+
+        // a failed run is never finished
+        db.finishRun(2);
+        assertThat(db.getRun(2).get().finishedAt()).isEmpty();
+
+        // finished runs cannot fail anymore
+        assertThat(db.failRun(1, "test")).isFalse();
+        assertThat(db.getRun(1).get().failedAt()).isEmpty();
+    }
+
+    @Test
+    void testFailedRunShards() {
+        final int runId = db.createRun("20200101", 2).get().runId;
+        final ShardTask shard = db.claimShard("20200101").get();
+        assertThat(shard.runId).isEqualTo(runId);
+
+        db.failRun(runId, "test");
+        assertThat(db.claimShard("20200101")).isEmpty();
+        assertThat(db.finishShard(runId, shard.shard)).isFalse();
+    }
+
+    @Test
+    void testGetReusableDumps() {
+        final int runId = db.createRun("20200601").get().runId;
+        db.claimShard("20200601");
+
+        // run 1 is finished, but was created by a different version
+        assertThat(db.getReusableDumps(runId)).isEmpty();
+
+        db.context().update(RUN)
+                .set(RUN.TOOL_VERSION, TEST_BUILD_CONFIG.toolVersion())
+                .set(RUN.WDTK_VERSION, TEST_BUILD_CONFIG.wdtkVersion())
+                .where(RUN.ID.eq(RUN_1.id()))
+                .execute();
+        assertThat(db.getReusableDumps(runId)).contains(new DumpTask(DUMP_1.id(), DUMP_1.spec()));
+    }
+
     @Test
     void testGetDumpWithFullInfo() {
         final DumpFullInfo dump1 = db.getDumpWithFullInfo(1).get();
@@ -0,0 +1,122 @@
+package io.github.bennofs.wdumper.database;
+
+import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class StatisticsWriterTest {
+    // the batches are taken directly, so the writer never accesses the database
+    private final StatisticsWriter writer = new StatisticsWriter(null, Duration.ofMinutes(1));
+
+    @Test
+    void testCombinesStatistics() {
+        writer.addDumpStatistics(1, 10, 20, 30);
+        writer.addDumpStatistics(2, 1, 1, 1);
+        writer.addDumpStatistics(1, 5, 5, 5);
+        writer.addDumpCompressionStatistics(1, 100, Duration.ofMillis(7));
+
+        final StatisticsWriter.Batch batch = writer.takeBatch();
+        assertThat(batch.statistics).containsOnlyKeys(1, 2);
+        final StatisticsWriter.DumpStatistics dump = batch.statistics.get(1);
+        assertThat(dump.entityCount).isEqualTo(15);
+        assertThat(dump.statementCount).isEqualTo(25);
+        assertThat(dump.tripleCount).isEqualTo(35);
+        assertThat(dump.compressedSize).isEqualTo(100);
+        assertThat(dump.compressionMillis).isEqualTo(7);
+
+        assertThat(writer.takeBatch().isEmpty()).isTrue();
+    }
+
+    @Test
+    void testKeepsLatestProgress() {
+        writer.setShardProgress(1, 0, 10, 100, 1000);
+        writer.setShardProgress(1, 1, 5, 50, 1000);
+        writer.setShardProgress(1, 0, 20, 200, 1000);
+
+        final StatisticsWriter.Batch batch = writer.takeBatch();
+        assertThat(batch.progress).hasSize(2);
+        assertThat(batch.progress.get(0).count).isEqualTo(20);
+        assertThat(batch.progress.get(0).inputPosition).isEqualTo(200);
+    }
+
+    @Test
+    void testSuppressesMessages() {
+        final int count = StatisticsWriter.MAX_MESSAGES_PER_DUMP + 5;
+        for (int i = 0; i < count; ++i) {
+            writer.logDumpMessage(1, 2, DumpStatusHandler.ErrorLevel.ERROR, "error " + i);
+        }
+        writer.logDumpMessage(1, 3, DumpStatusHandler.ErrorLevel.ERROR, "other dump");
+
+        final StatisticsWriter.Batch batch = writer.takeBatch();
+        assertThat(batch.messages.stream().map(m -> m.message).collect(Collectors.toList()))
+                .hasSize(StatisticsWriter.MAX_MESSAGES_PER_DUMP + 2)
+                .contains("error 0", "other dump", "5 similar messages suppressed")
+                .doesNotContain("error " + StatisticsWriter.MAX_MESSAGES_PER_DUMP);
+
+        // the limit starts again with the next batch
+        writer.logDumpMessage(1, 2, DumpStatusHandler.ErrorLevel.ERROR, "later");
+        assertThat(writer.takeBatch().messages).hasSize(1);
+    }
+
+    @Test
+    void testCountsSuppressedOccurrences() {
+        for (int i = 0; i < StatisticsWriter.MAX_MESSAGES_PER_DUMP; ++i) {
+            writer.logDumpMessage(1, 2, DumpStatusHandler.ErrorLevel.ERROR, "error " + i);
+        }
+        writer.logDumpMessage(1, 2, DumpStatusHandler.ErrorLevel.ERROR, "combined error", 100);
+        writer.logDumpMessage(1, 2, DumpStatusHandler.ErrorLevel.ERROR, "single error");
+
+        assertThat(writer.takeBatch().messages.stream().map(m -> m.message))
+                .contains("101 similar messages suppressed")
+                .doesNotContain("combined error", "single error");
+    }
+
+    @Test
+    void testRestoresFailedBatch() {
+        writer.addDumpStatistics(1, 10, 0, 0);
+        writer.setShardProgress(1, 0, 10, 100, 1000);
+        writer.logDumpMessage(1, 1, DumpStatusHandler.ErrorLevel.WARNING, "first");
+        final StatisticsWriter.Batch failed = writer.takeBatch();
+
+        // updates made while the batch was written
+        writer.addDumpStatistics(1, 5, 0, 0);
+        writer.setShardProgress(1, 0, 20, 200, 1000);
+        writer.logDumpMessage(1, 1, DumpStatusHandler.ErrorLevel.WARNING, "second");
+        writer.restoreBatch(failed);
+
+        final StatisticsWriter.Batch batch = writer.takeBatch();
+        assertThat(batch.statistics.get(1).entityCount).isEqualTo(15);
+        assertThat(batch.progress).hasSize(1);
+        assertThat(batch.progress.get(0).count).isEqualTo(20);
+        assertThat(batch.messages.stream().map(m -> m.message)).containsExactly("first", "second");
+    }
+
+    @Test
+    void testCloseWritesOnce() {
+        final List<StatisticsWriter.Batch> written = new ArrayList<>();
+        final Database db = new Database(null, null, null) {
+            @Override
+            void writeStatistics(StatisticsWriter.Batch batch) {
+                written.add(batch);
+            }
+        };
+        final StatisticsWriter closing = new StatisticsWriter(db, Duration.ofMinutes(1));
+        closing.open();
+        closing.addDumpStatistics(1, 10, 0, 0);
+
+        closing.close();
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0).statistics.get(1).entityCount).isEqualTo(10);
+
+        // later calls do nothing, even with new updates
+        closing.addDumpStatistics(1, 5, 0, 0);
+        closing.close();
+        assertThat(written).hasSize(1);
+    }
+}
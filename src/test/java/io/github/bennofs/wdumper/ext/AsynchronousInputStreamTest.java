@@ -0,0 +1,62 @@
+package io.github.bennofs.wdumper.ext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AsynchronousInputStreamTest {
+    @Test
+    void testReadsAllData() throws IOException {
+        final byte[] data = new byte[5 * 1024 * 1024 + 123];
+        new Random(42).nextBytes(data);
+
+        try (AsynchronousInputStream stream = new AsynchronousInputStream(new ByteArrayInputStream(data))) {
+            assertThat(stream).hasBinaryContent(data);
+            assertThat(stream.getBytesRead()).isEqualTo(data.length);
+        }
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        try (AsynchronousInputStream stream = new AsynchronousInputStream(new ByteArrayInputStream(new byte[0]))) {
+            assertThat(stream.read()).isEqualTo(-1);
+            assertThat(stream.read(new byte[10])).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void testPropagatesError() {
+        final InputStream failing = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        };
+
+        final AsynchronousInputStream stream = new AsynchronousInputStream(failing);
+        assertThatThrownBy(() -> stream.read(new byte[10]))
+                .isInstanceOf(IOException.class)
+                .hasRootCauseMessage("broken");
+    }
+
+    @Test
+    void testPropagatesUncheckedError() {
+        final InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("corrupt");
+            }
+        };
+
+        final AsynchronousInputStream stream = new AsynchronousInputStream(failing);
+        assertThatThrownBy(() -> stream.read(new byte[10]))
+                .isInstanceOf(IOException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("corrupt");
+    }
+}
@@ -0,0 +1,107 @@
+package io.github.bennofs.wdumper.ext;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AsynchronousOutputStreamTest {
+    @Test
+    void testWritesAllData() throws IOException {
+        final byte[] data = new byte[5 * 1024 * 1024 + 123];
+        new Random(42).nextBytes(data);
+
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        try (AsynchronousOutputStream stream = new AsynchronousOutputStream(sink)) {
+            stream.write(data, 0, 1000);
+            stream.write(data[1000]);
+            stream.flush();
+            stream.write(data, 1001, data.length - 1001);
+        }
+
+        assertThat(sink.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    void testClosesSink() throws IOException {
+        final boolean[] closed = {false};
+        final OutputStream sink = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        new AsynchronousOutputStream(sink).close();
+        assertThat(closed[0]).isTrue();
+    }
+
+    @Test
+    void testPropagatesError() {
+        final OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("broken");
+            }
+        };
+
+        final AsynchronousOutputStream stream = new AsynchronousOutputStream(failing);
+        assertThatThrownBy(() -> {
+            final byte[] chunk = new byte[64 * 1024];
+            for (int i = 0; i < 1000; ++i) {
+                stream.write(chunk);
+            }
+            stream.close();
+        })
+                .isInstanceOf(IOException.class)
+                .hasRootCauseMessage("broken");
+    }
+
+    @Test
+    void testPropagatesUncheckedError() {
+        final OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) {
+                throw new IllegalStateException("compressor failed");
+            }
+        };
+
+        // more data than fits into the chunks, so this blocks forever if the chunks are not recycled
+        final AsynchronousOutputStream stream = new AsynchronousOutputStream(failing);
+        assertThatThrownBy(() -> {
+            final byte[] chunk = new byte[64 * 1024];
+            for (int i = 0; i < 1000; ++i) {
+                stream.write(chunk);
+            }
+            stream.close();
+        })
+                .isInstanceOf(IOException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class)
+                .hasRootCauseMessage("compressor failed");
+    }
+
+    @Test
+    void testAbort() throws IOException {
+        final boolean[] closed = {false};
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        final AsynchronousOutputStream stream = new AsynchronousOutputStream(sink);
+        stream.write(new byte[1000]);
+        stream.abort();
+
+        // the data of the current chunk was never passed to the writing thread
+        assertThat(closed[0]).isTrue();
+        assertThat(sink.size()).isZero();
+        assertThatThrownBy(() -> stream.write(1)).isInstanceOf(IOException.class);
+        stream.close();
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.github.luben.zstd.Zstd;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DumpIndexTest {
+    @TempDir Path tempDir;
+
+    private static List<String> entityLines() {
+        final List<String> lines = new ArrayList<>();
+        for (int i = 1; i <= 300; ++i) {
+            lines.add("{\"type\":\"item\",\"id\":\"Q" + i + "\",\"labels\":{\"en\":{\"language\":\"en\",\"value\":\"item " + i + "\"}}},");
+            // the properties are only in a small part of the dump
+            if (i >= 140 && i < 150) {
+                lines.add("{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P" + i + "\",\"labels\":{}},");
+            }
+        }
+        return lines;
+    }
+
+    private static byte[] dumpJson(List<String> lines) {
+        return ("[\n" + String.join("\n", lines) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compresses the data as a sequence of frames, which do not end at line boundaries.
+     */
+    private Path writeFrames(byte[] data, int frameSize) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (int offset = 0; offset < data.length; offset += frameSize) {
+            compressed.write(Zstd.compress(Arrays.copyOfRange(data, offset, Math.min(data.length, offset + frameSize)), 3));
+        }
+        final Path path = tempDir.resolve("dump.json.zst");
+        Files.write(path, compressed.toByteArray());
+        return path;
+    }
+
+    private static List<String> readLines(InputStream stream) throws IOException {
+        try (stream) {
+            final String content = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+            assertThat(content).endsWith("\n");
+            return Arrays.asList(content.split("\n"));
+        }
+    }
+
+    @Test
+    void testSelectAll() throws IOException {
+        final byte[] data = dumpJson(entityLines());
+        final DumpIndex index = DumpIndex.build(writeFrames(data, 1000));
+        assertThat(index.getEntries()).hasSize((data.length + 999) / 1000);
+
+        try (InputStream stream = index.openSelected(entry -> true)) {
+            assertThat(stream).hasBinaryContent(data);
+        }
+    }
+
+    @Test
+    void testSelectProperties() throws IOException {
+        final List<String> lines = entityLines();
+        final DumpIndex index = DumpIndex.build(writeFrames(dumpJson(lines), 1000));
+
+        final List<String> selected = readLines(index.openSelected(entry -> entry.mayContain(EntityTypeFilter.PROPERTY)));
+
+        // only complete lines are returned, without duplicates
+        assertThat(lines).containsAll(selected);
+        assertThat(selected).doesNotHaveDuplicates();
+        assertThat(selected.size()).isLessThan(lines.size() / 2);
+        assertThat(selected).containsAll(lines.stream().filter(line -> line.contains("\"property\"")).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSelectIdRange() throws IOException {
+        final List<String> lines = entityLines();
+        final DumpIndex index = DumpIndex.build(writeFrames(dumpJson(lines), 700));
+
+        final List<String> selected = readLines(index.openSelected(entry -> entry.getMinId() <= 20));
+        assertThat(selected).startsWith("[");
+        assertThat(selected).contains(lines.get(0), lines.get(19));
+        assertThat(selected.size()).isLessThan(lines.size() / 2);
+    }
+
+    @Test
+    void testSingleFrame() throws IOException {
+        final byte[] data = dumpJson(entityLines());
+        final DumpIndex index = DumpIndex.build(writeFrames(data, data.length));
+        assertThat(index.getEntries()).hasSize(1);
+
+        // a single frame cannot be skipped
+        try (InputStream stream = index.openSelected(entry -> entry.mayContain(EntityTypeFilter.LEXEME))) {
+            assertThat(stream).hasBinaryContent(data);
+        }
+    }
+
+    @Test
+    void testStoredIndex() throws IOException {
+        final byte[] data = dumpJson(entityLines());
+        final Path dump = writeFrames(data, 1000);
+
+        assertThat(DumpIndex.load(dump)).isEmpty();
+
+        final DumpIndex built = DumpIndex.loadOrBuild(dump);
+        assertThat(DumpIndex.getIndexPath(dump)).exists();
+        // the temporary file is moved to the index
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactlyInAnyOrder(dump, DumpIndex.getIndexPath(dump));
+        }
+
+        final DumpIndex loaded = DumpIndex.load(dump).orElseThrow();
+        assertThat(loaded.getEntries()).hasSameSizeAs(built.getEntries());
+        try (InputStream stream = loaded.openSelected(entry -> true)) {
+            assertThat(stream).hasBinaryContent(data);
+        }
+    }
+
+    @Test
+    void testInputPosition() throws IOException {
+        final byte[] data = dumpJson(entityLines());
+        final Path dump = writeFrames(data, 1000);
+        final ZstdDumpFile dumpFile = new ZstdDumpFile(dump.toString());
+
+        try (InputStream stream = dumpFile.getDumpFileStream()) {
+            assertThat(dumpFile.getInputSize()).isEqualTo(Files.size(dump));
+            assertThat(stream).hasBinaryContent(data);
+        }
+        assertThat(dumpFile.getInputPosition()).isEqualTo(Files.size(dump));
+
+        // with a selection, the skipped frames before the selected ones count as read
+        DumpIndex.loadOrBuild(dump);
+        dumpFile.restrictSelection(entry -> entry.mayContain(EntityTypeFilter.PROPERTY));
+        try (InputStream stream = dumpFile.getDumpFileStream()) {
+            stream.readAllBytes();
+        }
+        assertThat(dumpFile.getInputPosition()).isGreaterThan(0).isLessThanOrEqualTo(Files.size(dump));
+    }
+
+    @Test
+    void testSelectionWithoutIndex() throws IOException {
+        final byte[] data = dumpJson(entityLines());
+        final Path dump = writeFrames(data, 1000);
+        final ZstdDumpFile dumpFile = new ZstdDumpFile(dump.toString());
+
+        // the index is never built while reading the dump, so the whole dump is read
+        dumpFile.restrictSelection(entry -> entry.mayContain(EntityTypeFilter.PROPERTY));
+        try (InputStream stream = dumpFile.getDumpFileStream()) {
+            assertThat(stream).hasBinaryContent(data);
+        }
+        assertThat(DumpIndex.getIndexPath(dump)).doesNotExist();
+    }
+}
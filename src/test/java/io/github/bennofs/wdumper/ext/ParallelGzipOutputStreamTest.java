@@ -0,0 +1,106 @@
+package io.github.bennofs.wdumper.ext;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ParallelGzipOutputStreamTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void createExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] triples(int size) {
+        final Random random = new Random(42);
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < size) {
+            builder.append("<http://www.wikidata.org/entity/Q").append(random.nextInt(100000))
+                    .append("> <http://www.w3.org/2000/01/rdf-schema#label> \"label\"@en .\n");
+        }
+        return builder.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testRoundtrip() throws IOException {
+        final byte[] data = triples(3 * 1024 * 1024 + 17);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+
+        // write in uneven chunks with some flushes in between, so that blocks have varying sizes
+        final Random random = new Random(1);
+        try (ParallelGzipOutputStream stream = new ParallelGzipOutputStream(compressed, executor, 1, 8)) {
+            for (int offset = 0; offset < data.length; ) {
+                final int n = Math.min(data.length - offset, 1 + random.nextInt(300000));
+                stream.write(data, offset, n);
+                offset += n;
+                if (random.nextInt(4) == 0) stream.flush();
+            }
+        }
+
+        assertThat(decompress(compressed.toByteArray())).isEqualTo(data);
+        assertThat(compressed.size()).isLessThan(data.length / 4);
+    }
+
+    @Test
+    void testCompressionTime() throws IOException {
+        final ParallelGzipOutputStream stream = new ParallelGzipOutputStream(new ByteArrayOutputStream(), executor, 1, 8);
+        assertThat(stream.getCompressionTime().toNanos()).isZero();
+
+        stream.write(triples(1024 * 1024));
+        stream.close();
+        assertThat(stream.getCompressionTime().toNanos()).isPositive();
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed, executor, 1, 1).close();
+
+        assertThat(decompress(compressed.toByteArray())).isEmpty();
+    }
+
+    @Test
+    void testSingleBytes() throws IOException {
+        final byte[] data = triples(1000);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream stream = new ParallelGzipOutputStream(compressed, executor, 6, 2)) {
+            for (byte b : data) {
+                stream.write(b);
+            }
+        }
+
+        assertThat(decompress(compressed.toByteArray())).isEqualTo(data);
+    }
+
+    @Test
+    void testWriteAfterClose() throws IOException {
+        final ParallelGzipOutputStream stream = new ParallelGzipOutputStream(new ByteArrayOutputStream(), executor, 1, 1);
+        stream.close();
+
+        assertThatThrownBy(() -> stream.write(1)).isInstanceOf(IOException.class);
+    }
+}
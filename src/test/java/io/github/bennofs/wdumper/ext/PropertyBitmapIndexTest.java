@@ -0,0 +1,79 @@
+package io.github.bennofs.wdumper.ext;
+
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PropertyBitmapIndexTest {
+    @TempDir Path tempDir;
+
+    static String item(String id, String... statements) {
+        final StringBuilder claims = new StringBuilder();
+        for (int i = 0; i < statements.length; i += 2) {
+            if (claims.length() > 0) claims.append(",");
+            claims.append("\"").append(statements[i]).append("\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"")
+                    .append(statements[i]).append("\",\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":")
+                    .append(statements[i + 1].substring(1)).append(",\"id\":\"").append(statements[i + 1])
+                    .append("\"},\"type\":\"wikibase-entityid\"}},\"type\":\"statement\",\"rank\":\"normal\"}]");
+        }
+        return "{\"type\":\"item\",\"id\":\"" + id + "\",\"claims\":{" + claims + "}}";
+    }
+
+    static SnapshotDumpFile snapshot(Path directory) throws IOException {
+        final List<String> entities = List.of(
+                item("Q1", "P31", "Q5"),
+                item("Q2", "P31", "Q5", "P106", "Q36180"),
+                item("Q3", "P31", "Q6", "P106", "Q36180"),
+                "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P10\",\"claims\":{}}"
+        );
+        final byte[] dump = ("[\n" + String.join(",\n", entities) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+        final Path path = directory.resolve("wikidata-20200101-all.json.wdsnap");
+        SnapshotWriter.convert(new ByteArrayInputStream(dump), path);
+        return new SnapshotDumpFile(path.toString());
+    }
+
+    @Test
+    void testBuild() throws IOException {
+        final PropertyBitmapIndex index = PropertyBitmapIndex.build(snapshot(tempDir), Set.of(31));
+
+        assertThat(index.getEntityCount()).isEqualTo(4);
+        assertThat(index.getEntities(EntityTypeFilter.ITEM)).isEqualTo(RoaringBitmap.bitmapOf(0, 1, 2));
+        assertThat(index.getEntities(EntityTypeFilter.PROPERTY)).isEqualTo(RoaringBitmap.bitmapOf(3));
+        assertThat(index.getEntities(EntityTypeFilter.ANY)).isEqualTo(RoaringBitmap.bitmapOf(0, 1, 2, 3));
+
+        assertThat(index.getEntitiesWithStatements(106)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+        assertThat(index.getEntitiesWithStatements(569).isEmpty()).isTrue();
+
+        assertThat(index.isValueIndexed(31)).isTrue();
+        assertThat(index.getEntitiesWithValue(31, 5)).isEqualTo(RoaringBitmap.bitmapOf(0, 1));
+        assertThat(index.getEntitiesWithValue(31, 7).isEmpty()).isTrue();
+        assertThat(index.isValueIndexed(106)).isFalse();
+        assertThatThrownBy(() -> index.getEntitiesWithValue(106, 36180)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testStoredIndex() throws IOException {
+        final SnapshotDumpFile snapshot = snapshot(tempDir);
+        assertThat(PropertyBitmapIndex.load(snapshot.getPath())).isEmpty();
+
+        PropertyBitmapIndex.loadOrBuild(snapshot);
+        assertThat(PropertyBitmapIndex.getIndexPath(snapshot.getPath())).exists();
+
+        final Optional<PropertyBitmapIndex> loaded = PropertyBitmapIndex.load(snapshot.getPath());
+        assertThat(loaded).isPresent();
+        assertThat(loaded.get().getEntityCount()).isEqualTo(4);
+        assertThat(loaded.get().getEntitiesWithValue(31, 5)).isEqualTo(RoaringBitmap.bitmapOf(0, 1));
+        assertThat(loaded.get().getEntitiesWithStatements(106)).isEqualTo(RoaringBitmap.bitmapOf(1, 2));
+    }
+}
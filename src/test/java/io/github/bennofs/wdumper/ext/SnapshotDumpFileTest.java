@@ -0,0 +1,169 @@
+package io.github.bennofs.wdumper.ext;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.github.bennofs.wdumper.spec.EntityTypeFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SnapshotDumpFileTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"labels\":{\"en\":{\"language\":\"en\",\"value\":\"Douglas Adams \\u00e9\"}},"
+            + "\"descriptions\":{},\"aliases\":{},\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\","
+            + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"},"
+            + "\"datatype\":\"wikibase-item\"},\"type\":\"statement\",\"id\":\"Q42$1\",\"rank\":\"normal\"}],"
+            + "\"P625\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P625\",\"datavalue\":{\"value\":{\"latitude\":51.5,"
+            + "\"longitude\":-0.125,\"altitude\":null,\"precision\":1.0E-5,\"globe\":\"http://www.wikidata.org/entity/Q2\"},"
+            + "\"type\":\"globecoordinate\"},\"datatype\":\"globe-coordinate\"},\"type\":\"statement\",\"id\":\"Q42$2\",\"rank\":\"preferred\"}]},"
+            + "\"sitelinks\":{\"enwiki\":{\"site\":\"enwiki\",\"title\":\"Douglas Adams\",\"badges\":[]}},\"lastrevid\":1234567890}";
+    private static final String PROPERTY = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"labels\":{},"
+            + "\"descriptions\":{},\"aliases\":{},\"claims\":[],\"lastrevid\":42}";
+
+    @TempDir Path tempDir;
+
+    private SnapshotDumpFile convert(List<String> entities) throws IOException {
+        final byte[] dump = ("[\n" + String.join(",\n", entities) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+        final Path path = tempDir.resolve("wikidata-20200101-all.json.wdsnap");
+        assertThat(SnapshotWriter.convert(new ByteArrayInputStream(dump), path)).isEqualTo(entities.size());
+        return new SnapshotDumpFile(path.toString());
+    }
+
+    private static byte[] readRecords(SnapshotDumpFile dumpFile) throws IOException {
+        try (InputStream stream = dumpFile.getDumpFileStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Test
+    void testSameTokensAsJson() throws IOException {
+        final List<String> entities = List.of(HUMAN, PROPERTY);
+        final SnapshotDumpFile dumpFile = convert(entities);
+        final byte[] records = readRecords(dumpFile);
+        assertThat(SnapshotDumpFile.completeLength(records, records.length)).isEqualTo(records.length);
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final SnapshotDumpFile.Decoder decoder = dumpFile.createDecoder();
+        int offset = 0;
+        for (String entity : entities) {
+            offset = decoder.next(records, offset);
+            assertThat(mapper.readTree(decoder.parse())).isEqualTo(mapper.readTree(entity));
+        }
+        assertThat(offset).isEqualTo(records.length);
+    }
+
+    @Test
+    void testSameDocumentsAsJson() throws IOException {
+        final ObjectReader reader = new DatamodelMapper(Datamodel.SITE_WIKIDATA).readerFor(EntityDocumentImpl.class);
+        final SnapshotDumpFile dumpFile = convert(List.of(HUMAN));
+        final byte[] records = readRecords(dumpFile);
+
+        final SnapshotDumpFile.Decoder decoder = dumpFile.createDecoder();
+        decoder.next(records, 0);
+        final EntityDocument expected = reader.readValue(HUMAN);
+        final EntityDocument actual = reader.readValue(decoder.parse());
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    void testHeader() throws IOException {
+        final SnapshotDumpFile dumpFile = convert(List.of(HUMAN, PROPERTY, "{\"type\":\"other\",\"id\":\"X\"}"));
+        final byte[] records = readRecords(dumpFile);
+        final SnapshotDumpFile.Decoder decoder = dumpFile.createDecoder();
+
+        int offset = decoder.next(records, 0);
+        assertThat(decoder.getType()).isEqualTo(EntityTypeFilter.ITEM);
+        assertThat(decoder.getNumericId()).isEqualTo(42);
+        assertThat(decoder.hasStatements(31)).isTrue();
+        assertThat(decoder.hasStatements(625)).isTrue();
+        assertThat(decoder.hasStatements(569)).isFalse();
+        assertThat(decoder.hasStatements(100000)).isFalse();
+
+        offset = decoder.next(records, offset);
+        assertThat(decoder.getType()).isEqualTo(EntityTypeFilter.PROPERTY);
+        assertThat(decoder.getNumericId()).isEqualTo(31);
+        assertThat(decoder.hasStatements(31)).isFalse();
+
+        decoder.next(records, offset);
+        assertThat(decoder.getType()).isEqualTo(EntityTypeFilter.ANY);
+        assertThat(decoder.getNumericId()).isEqualTo(-1);
+    }
+
+    @Test
+    void testCompleteLength() throws IOException {
+        final SnapshotDumpFile dumpFile = convert(List.of(HUMAN, PROPERTY));
+        final byte[] records = readRecords(dumpFile);
+        final int first = dumpFile.createDecoder().next(records, 0);
+
+        assertThat(SnapshotDumpFile.completeLength(records, records.length - 1)).isEqualTo(first);
+        assertThat(SnapshotDumpFile.completeLength(records, first)).isEqualTo(first);
+        assertThat(SnapshotDumpFile.completeLength(records, 1)).isEqualTo(0);
+    }
+
+    @Test
+    void testFailedConversion() throws IOException {
+        final Path path = tempDir.resolve("wikidata-20200101-all.json.wdsnap");
+        final byte[] truncated = ("[\n" + HUMAN + ",\n" + PROPERTY.substring(0, PROPERTY.length() / 2)).getBytes(StandardCharsets.UTF_8);
+        final byte[] invalid = ("[\n" + HUMAN + ",\n{\"type\":\"item\",]\n]\n").getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> SnapshotWriter.convert(new ByteArrayInputStream(truncated), path)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> SnapshotWriter.convert(new ByteArrayInputStream(invalid), path)).isInstanceOf(IOException.class);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void testFailedConversionKeepsSnapshot() throws IOException {
+        final SnapshotDumpFile dumpFile = convert(List.of(HUMAN, PROPERTY));
+        final byte[] records = readRecords(dumpFile);
+
+        final byte[] truncated = ("[\n" + HUMAN + ",\n" + PROPERTY.substring(0, PROPERTY.length() / 2)).getBytes(StandardCharsets.UTF_8);
+        assertThatThrownBy(() -> SnapshotWriter.convert(new ByteArrayInputStream(truncated), dumpFile.getPath()))
+                .isInstanceOf(IOException.class);
+        assertThat(readRecords(new SnapshotDumpFile(dumpFile.getPath().toString()))).isEqualTo(records);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(dumpFile.getPath());
+        }
+    }
+
+    @Test
+    void testConvertedFrom() throws IOException {
+        final Path dump = tempDir.resolve("wikidata-20200101-all.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(dump))) {
+            output.write(("[\n" + HUMAN + ",\n" + PROPERTY + "\n]\n").getBytes(StandardCharsets.UTF_8));
+        }
+        final Path path = SnapshotDumpFile.getSnapshotPath(dump);
+        assertThat(SnapshotWriter.convert(dump, path)).isEqualTo(2);
+        final SnapshotDumpFile dumpFile = new SnapshotDumpFile(path.toString());
+        assertThat(dumpFile.isConvertedFrom(dump)).isTrue();
+        assertThat(readRecords(dumpFile)).isEqualTo(readRecords(convert(List.of(HUMAN, PROPERTY))));
+
+        // a newer dump at the same path
+        Files.setLastModifiedTime(dump, FileTime.fromMillis(Files.getLastModifiedTime(dump).toMillis() + 1000));
+        assertThat(dumpFile.isConvertedFrom(dump)).isFalse();
+    }
+
+    @Test
+    void testUnknownSource() throws IOException {
+        final Path dump = tempDir.resolve("wikidata-20200101-all.json.gz");
+        Files.write(dump, new byte[0]);
+        assertThat(convert(List.of(HUMAN)).isConvertedFrom(dump)).isFalse();
+    }
+}
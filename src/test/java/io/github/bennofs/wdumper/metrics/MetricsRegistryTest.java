@@ -0,0 +1,56 @@
+package io.github.bennofs.wdumper.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MetricsRegistryTest {
+    @Test
+    void testScrapeFormat() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_bytes_total", "Bytes written", Map.of("dump", "2", "run", "1"), () -> 1024);
+        registry.counter("test_bytes_total", "Bytes written", Map.of("dump", "3", "run", "1"), () -> 2048);
+        registry.gauge("test_seconds", "Time spent", Map.of(), () -> 1.5);
+
+        assertThat(registry.scrape()).isEqualTo(
+                "# HELP test_bytes_total Bytes written\n"
+                        + "# TYPE test_bytes_total counter\n"
+                        + "test_bytes_total{dump=\"2\",run=\"1\"} 1024\n"
+                        + "test_bytes_total{dump=\"3\",run=\"1\"} 2048\n"
+                        + "# HELP test_seconds Time spent\n"
+                        + "# TYPE test_seconds gauge\n"
+                        + "test_seconds 1.5\n");
+    }
+
+    @Test
+    void testEscapesLabelValues() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.gauge("test_value", "Value", Map.of("name", "a\"b\\c\nd"), () -> 1);
+
+        assertThat(registry.scrape()).contains("test_value{name=\"a\\\"b\\\\c\\nd\"} 1\n");
+    }
+
+    @Test
+    void testRemoveLabeled() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_run_total", "Run metric", Map.of("run", "1"), () -> 1);
+        registry.counter("test_dump_total", "Dump metric", Map.of("dump", "2", "run", "1"), () -> 2);
+        registry.gauge("test_jvm", "JVM metric", Map.of("area", "heap"), () -> 3);
+
+        registry.removeLabeled("run");
+        assertThat(registry.scrape())
+                .doesNotContain("test_run_total")
+                .doesNotContain("test_dump_total")
+                .contains("test_jvm{area=\"heap\"} 3\n");
+    }
+
+    @Test
+    void testRejectsConflictingTypes() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_total", "Counter", Map.of(), () -> 1);
+        assertThatThrownBy(() -> registry.gauge("test_total", "Gauge", Map.of(), () -> 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.model.DumpEstimate;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.DumpSpecJson;
+import io.github.bennofs.wdumper.spec.OutputCompression;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DumpEstimatorTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"labels\":{},\"descriptions\":{},\"aliases\":{},"
+            + "\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":"
+            + "{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"},"
+            + "\"type\":\"statement\",\"id\":\"Q42$1\",\"rank\":\"normal\"}]},\"sitelinks\":{},\"lastrevid\":1}";
+    private static final String OTHER_HUMAN = HUMAN.replace("Q42", "Q43");
+    private static final String PROPERTY = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"labels\":{},"
+            + "\"descriptions\":{},\"aliases\":{},\"claims\":{},\"lastrevid\":2}";
+
+    @TempDir Path tempDir;
+
+    private DumpSample sample(int rate) throws IOException {
+        final byte[] dump = ("[\n" + String.join(",\n", List.of(PROPERTY, HUMAN, OTHER_HUMAN)) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+        final Path path = tempDir.resolve("dump.json.sample.zst");
+        DumpSample.create(new ByteArrayInputStream(dump), path, rate);
+        return DumpSample.load(path);
+    }
+
+    private static DumpSpec readSpec(String path) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final DumpSpecJson specJson = mapper.readValue(Path.of(path).toFile(), DumpSpecJson.class);
+        return mapper.convertValue(specJson, DumpSpec.class);
+    }
+
+    @Test
+    void testSample() throws IOException {
+        final DumpSample sample = sample(2);
+        assertThat(sample.getProperties()).hasSize(1);
+        assertThat(sample.getEntities()).hasSize(1);
+        assertThat(sample.getEntities().get(0).getEntityId().getId()).isEqualTo("Q42");
+        assertThat(sample.getTotalEntities()).isEqualTo(2);
+        assertThat(sample.getWeight()).isEqualTo(2.0);
+    }
+
+    @Test
+    void testFindId() {
+        assertThat(DumpSample.findId(HUMAN)).isEqualTo("Q42");
+        assertThat(DumpSample.findId("[")).isNull();
+    }
+
+    @Test
+    void testEstimate() throws IOException {
+        final DumpEstimator estimator = new DumpEstimator(sample(2), new SitesImpl());
+        final DumpEstimate estimate = estimator.estimate(readSpec("examples/humans.json"));
+
+        // the property is not part of the dump, and the sampled human stands for both humans
+        assertThat(estimate.entityCount).isEqualTo(2);
+        assertThat(estimate.statementCount).isEqualTo(2);
+        assertThat(estimate.tripleCount).isGreaterThan(estimate.statementCount);
+        assertThat(estimate.compressedSize).isGreaterThan(0);
+        assertThat(estimate.sampledEntities).isEqualTo(1);
+
+        // estimates do not change the state of the estimator
+        final DumpEstimate again = estimator.estimate(readSpec("examples/humans.json"));
+        assertThat(again.tripleCount).isEqualTo(estimate.tripleCount);
+    }
+
+    @Test
+    void testCompressionSample() throws IOException {
+        final byte[] data = "<http://www.wikidata.org/entity/Q42> <http://www.wikidata.org/prop/direct/P31> <http://www.wikidata.org/entity/Q5> .\n"
+                .repeat(1000).getBytes(StandardCharsets.UTF_8);
+
+        final DumpEstimator.CompressionSample none = new DumpEstimator.CompressionSample(OutputCompression.NONE, 100);
+        none.write(data);
+        none.close();
+        assertThat(none.getRatio()).isEqualTo(1.0);
+
+        // only the start of the output is compressed
+        final DumpEstimator.CompressionSample zstd = new DumpEstimator.CompressionSample(OutputCompression.ZSTD, data.length);
+        zstd.write(data);
+        zstd.write(new byte[data.length]);
+        zstd.close();
+        assertThat(zstd.getRatio()).isLessThan(0.1);
+        assertThat(zstd.getRatio()).isEqualTo((double) zstd.getCompressed() / data.length);
+
+        final DumpEstimator.CompressionSample empty = new DumpEstimator.CompressionSample(OutputCompression.GZIP, 100);
+        empty.close();
+        assertThat(empty.getRatio()).isEqualTo(1.0);
+    }
+}
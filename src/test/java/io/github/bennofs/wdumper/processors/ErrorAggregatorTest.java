@@ -0,0 +1,84 @@
+package io.github.bennofs.wdumper.processors;
+
+import io.github.bennofs.wdumper.interfaces.DumpStatusHandler;
+import org.apache.commons.lang3.NotImplementedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ErrorAggregatorTest {
+    private static final class Report {
+        final String message;
+        final int count;
+
+        Report(String message, int count) {
+            this.message = message;
+            this.count = count;
+        }
+    }
+
+    private final List<Report> reports = new ArrayList<>();
+    private final DumpStatusHandler handler = new DumpStatusHandler() {
+        @Override
+        public void reportError(ErrorLevel level, String message) {
+            reportError(level, message, 1);
+        }
+
+        @Override
+        public void reportError(ErrorLevel level, String message, int count) {
+            reports.add(new Report(message, count));
+        }
+    };
+
+    @Test
+    void testTemplate() {
+        assertThat(ErrorAggregator.template("no value for Q42 in statement Q42$abc at index 12"))
+                .isEqualTo("no value for <id> in statement <id>$abc at index <n>");
+        assertThat(ErrorAggregator.template("unknown form L7-F3")).isEqualTo("unknown form <id>");
+        assertThat(ErrorAggregator.template(null)).isEmpty();
+    }
+
+    @Test
+    void testCombinesErrors() {
+        final ErrorAggregator errors = new ErrorAggregator();
+        for (int i = 1; i <= 100; ++i) {
+            errors.add("failed to process documents", "L" + i, new NotImplementedException("serialization of lexemes not implemented yet"));
+        }
+        errors.add("failed to process documents", "Q1", new IllegalArgumentException("invalid value for P31"));
+        errors.add("failed to process documents", "Q2", new IllegalArgumentException("invalid value for P279"));
+
+        errors.flush(handler);
+        assertThat(reports).hasSize(2);
+        assertThat(reports).anySatisfy(report -> {
+            assertThat(report.count).isEqualTo(100);
+            assertThat(report.message)
+                    .contains(NotImplementedException.class.getName())
+                    .contains("serialization of lexemes not implemented yet")
+                    .contains("L1, L2, L3, L4, L5")
+                    .doesNotContain("L6");
+        });
+        assertThat(reports).anySatisfy(report -> {
+            assertThat(report.count).isEqualTo(2);
+            assertThat(report.message).contains("invalid value for <id>").contains("Q1, Q2");
+        });
+    }
+
+    @Test
+    void testOnlyReportsNewErrors() {
+        final ErrorAggregator errors = new ErrorAggregator();
+        errors.add("writing to the output stream failed", null, new IllegalStateException("closed"));
+        errors.flush(handler);
+        errors.flush(handler);
+        assertThat(reports).hasSize(1);
+
+        errors.add("writing to the output stream failed", null, new IllegalStateException("closed"));
+        errors.add("writing to the output stream failed", null, new IllegalStateException("closed"));
+        errors.flush(handler);
+        assertThat(reports).hasSize(2);
+        assertThat(reports.get(1).count).isEqualTo(2);
+        assertThat(reports.get(1).message).isEqualTo("writing to the output stream failed: java.lang.IllegalStateException: closed");
+    }
+}
@@ -0,0 +1,138 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.DumpSpecJson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class IncrementalDumpTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"labels\":{},\"descriptions\":{},\"aliases\":{},"
+            + "\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":"
+            + "{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"},"
+            + "\"type\":\"statement\",\"id\":\"Q42$1\",\"rank\":\"normal\"}]},\"sitelinks\":{},\"lastrevid\":1}";
+    private static final String PROPERTY = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"labels\":{},"
+            + "\"descriptions\":{},\"aliases\":{},\"claims\":{},\"lastrevid\":2}";
+
+    @TempDir Path tempDir;
+
+    private static String human(String id) {
+        return HUMAN.replace("Q42", id);
+    }
+
+    private static String subject(String id) {
+        return "<http://www.wikidata.org/entity/" + id + ">";
+    }
+
+    private IncrementalDump createDump() throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final DumpSpecJson specJson = mapper.readValue(Path.of("examples/humans.json").toFile(), DumpSpecJson.class);
+        final DumpSpec spec = mapper.convertValue(specJson, DumpSpec.class);
+
+        // the property is not part of the dump, so its type needs to be known without fetching it
+        final PropertyRegister propertyRegister = new PropertyRegister("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"), DatatypeIdValue.DT_ITEM);
+
+        return new IncrementalDump(tempDir.resolve("segments"), spec, new SitesImpl(), propertyRegister, (level, message) -> fail(message));
+    }
+
+    private static InputStream json(List<String> entities) {
+        return new ByteArrayInputStream(("[\n" + String.join(",\n", entities) + "\n]\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String readOutput(IncrementalDump dump) throws IOException {
+        final Path output = tempDir.resolve("dump.nt.gz");
+        dump.writeOutput(output);
+        try (InputStream input = new GZIPInputStream(Files.newInputStream(output))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testSegmentOf() {
+        assertThat(IncrementalDump.segmentOf("Q42")).isEqualTo("Q0");
+        assertThat(IncrementalDump.segmentOf("Q" + (3 << 20))).isEqualTo("Q3");
+        assertThat(IncrementalDump.segmentOf("P31")).isEqualTo("P0");
+        assertThat(IncrementalDump.segmentOf("L1-F1")).startsWith("X");
+    }
+
+    @Test
+    void testBuild() throws IOException {
+        final IncrementalDump dump = createDump();
+        assertThat(dump.exists()).isFalse();
+        dump.build(json(List.of(PROPERTY, human("Q42"), human("Q" + (2 << 20)))));
+        assertThat(dump.exists()).isTrue();
+        assertThat(dump.listSegments()).containsExactly("Q0", "Q2");
+
+        final String output = readOutput(dump);
+        assertThat(output).contains(subject("Q42"), subject("Q" + (2 << 20)));
+        assertThat(output).doesNotContain(subject("P31") + " <http://www.w3.org/1999/02/22-rdf-syntax-ns#type>");
+    }
+
+    @Test
+    void testUpdate() throws IOException {
+        final IncrementalDump dump = createDump();
+        dump.build(json(List.of(PROPERTY, human("Q42"), human("Q43"), human("Q" + (2 << 20)))));
+        final String before = readOutput(dump);
+
+        // Q42 is no longer a human, Q43 is deleted and Q44 is new
+        final int segments = dump.update(json(List.of(
+                human("Q42").replace("\"numeric-id\":5,\"id\":\"Q5\"", "\"numeric-id\":6,\"id\":\"Q6\""),
+                "{\"id\":\"Q43\"}",
+                human("Q44")
+        )));
+        assertThat(segments).isEqualTo(1);
+
+        final String output = readOutput(dump);
+        assertThat(output).doesNotContain(subject("Q42"), subject("Q43"));
+        assertThat(output).contains(subject("Q44"), subject("Q" + (2 << 20)));
+
+        // changing an entity back restores the previous output
+        dump.update(json(List.of(human("Q42"), human("Q43"), "{\"id\":\"Q44\"}")));
+        assertThat(readOutput(dump).lines().sorted().collect(Collectors.toList()))
+                .isEqualTo(before.lines().sorted().collect(Collectors.toList()));
+
+        // the data files of replaced versions are removed
+        try (Stream<Path> files = Files.list(tempDir.resolve("segments"))) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("header.nt.gz", "segment-Q0.idx", "segment-Q0-2.nt.gz", "segment-Q2.idx", "segment-Q2-0.nt.gz");
+        }
+    }
+
+    @Test
+    void testFailedBuild() throws IOException {
+        final IncrementalDump dump = createDump();
+        dump.build(json(List.of(PROPERTY, human("Q42"))));
+
+        final InputStream failing = new SequenceInputStream(json(List.of(PROPERTY, human("Q43"))), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("broken");
+            }
+        });
+        assertThatThrownBy(() -> dump.build(failing)).isInstanceOf(IOException.class);
+
+        // the previous dump is gone, so a partial build must never be used
+        assertThat(dump.exists()).isFalse();
+        assertThatThrownBy(() -> dump.update(json(List.of(human("Q44"))))).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class NTriplesByteWriterTest {
+    private static final ValueFactory factory = SimpleValueFactory.getInstance();
+
+    private static byte[] write(RDFWriter writer, ByteArrayOutputStream output, List<Statement> statements) {
+        writer.startRDF();
+        writer.handleComment("comment");
+        for (Statement statement : statements) {
+            writer.handleStatement(statement);
+        }
+        writer.endRDF();
+        return output.toByteArray();
+    }
+
+    private static void assertSameOutput(List<Statement> statements) {
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        assertThat(write(new NTriplesByteWriter(actual), actual, statements))
+                .isEqualTo(write(Rio.createWriter(RDFFormat.NTRIPLES, expected), expected, statements));
+    }
+
+    @Test
+    void testSameOutputAsRdf4j() {
+        final IRI item = factory.createIRI("http://www.wikidata.org/entity/Q42");
+        final IRI statement = factory.createIRI("http://www.wikidata.org/entity/statement/Q42-F078E5B3-F9A8-480E-B7AC-D97778CBBEF9");
+        final IRI label = factory.createIRI("http://www.w3.org/2000/01/rdf-schema#label");
+        final IRI direct = factory.createIRI("http://www.wikidata.org/prop/direct/P569");
+        final IRI qualifier = factory.createIRI("http://www.wikidata.org/prop/qualifier/value/P580");
+
+        final List<Statement> statements = new ArrayList<>();
+        statements.add(factory.createStatement(item, label, factory.createLiteral("Douglas Adams", "en")));
+        statements.add(factory.createStatement(item, label, factory.createLiteral("\u30C0\u30B0\u30E9\u30B9\u30FB\u30A2\u30C0\u30E0\u30BA", "ja")));
+        statements.add(factory.createStatement(item, label, factory.createLiteral("emoji \uD83D\uDE00 and unpaired \uD83D", "en")));
+        statements.add(factory.createStatement(item, label, factory.createLiteral("quote \" backslash \\ newline \n tab \t bell \u0007 del \u007f")));
+        statements.add(factory.createStatement(item, direct, factory.createLiteral("1952-03-11T00:00:00Z", XMLSchema.DATETIME)));
+        statements.add(factory.createStatement(item, direct, factory.createLiteral("plain", XMLSchema.STRING)));
+        statements.add(factory.createStatement(item, direct, factory.createLiteral("+42", XMLSchema.DECIMAL)));
+        statements.add(factory.createStatement(statement, qualifier, factory.createIRI("http://www.wikidata.org/value/0ad9dd7ef1d2ed2f6f7e9bfb0f68d4ac")));
+        statements.add(factory.createStatement(statement, qualifier, factory.createBNode("some-value")));
+        statements.add(factory.createStatement(factory.createBNode(), direct, item));
+        statements.add(factory.createStatement(factory.createIRI("https://en.wikipedia.org/wiki/\"Quoted\""), direct, item));
+        statements.add(factory.createStatement(factory.createIRI("http://www.wikidata.org/"), direct, factory.createIRI("http://example.org/")));
+
+        assertSameOutput(statements);
+    }
+
+    @Test
+    void testLongLiteral() {
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100000; ++i) {
+            text.append(i % 7 == 0 ? "\u00E9" : "a");
+        }
+
+        assertSameOutput(List.of(factory.createStatement(factory.createIRI("http://www.wikidata.org/entity/Q1"),
+                factory.createIRI("http://schema.org/description"), factory.createLiteral(text.toString(), "fr"))));
+    }
+}
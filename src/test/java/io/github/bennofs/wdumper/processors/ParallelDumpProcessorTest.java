@@ -0,0 +1,245 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
+import io.github.bennofs.wdumper.ext.SnapshotWriter;
+import io.github.bennofs.wdumper.ext.ZstdDumpFile;
+import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import io.github.bennofs.wdumper.spec.Shard;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.dumpfiles.MwDumpFile;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ParallelDumpProcessorTest {
+    /** enough items for several batches, so that every worker processes some of them */
+    private static final int ITEMS = 12000;
+
+    private static final RunnerStatusHandler NO_STATUS = new RunnerStatusHandler() {
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void reportProgress(ProgressSnapshot progress) {
+        }
+
+        @Override
+        public void done() {
+        }
+    };
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PropertyIriCache propertyIris = new PropertyIriCache();
+
+    @TempDir Path tempDir;
+
+    private static PropertyRegister createPropertyRegister() {
+        final PropertyRegister propertyRegister = new PropertyRegister("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"), DatatypeIdValue.DT_ITEM);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P248"), DatatypeIdValue.DT_ITEM);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P1082"), DatatypeIdValue.DT_QUANTITY);
+        return propertyRegister;
+    }
+
+    /**
+     * Items share their references, values and property declarations with many other items.
+     */
+    private static String item(int id) {
+        final String classId = id % 2 == 0 ? "Q5" : "Q6";
+        return "{\"type\":\"item\",\"id\":\"Q" + id + "\",\"labels\":{\"en\":{\"language\":\"en\",\"value\":\"item " + id + "\"}},"
+                + "\"descriptions\":{},\"aliases\":{},\"claims\":{"
+                + "\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":"
+                + "{\"entity-type\":\"item\",\"numeric-id\":" + classId.substring(1) + ",\"id\":\"" + classId + "\"},"
+                + "\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"},\"type\":\"statement\",\"id\":\"Q" + id + "$1\","
+                + "\"rank\":\"normal\",\"references\":[{\"hash\":\"ref" + (id % 10) + "\",\"snaks\":{\"P248\":[{\"snaktype\":\"value\","
+                + "\"property\":\"P248\",\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":" + (36578 + id % 10) + ","
+                + "\"id\":\"Q" + (36578 + id % 10) + "\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"}]},"
+                + "\"snaks-order\":[\"P248\"]}]}],"
+                + "\"P1082\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P1082\",\"datavalue\":{\"value\":"
+                + "{\"amount\":\"+" + (id % 50) + "\",\"unit\":\"1\"},\"type\":\"quantity\"},\"datatype\":\"quantity\"},"
+                + "\"type\":\"statement\",\"id\":\"Q" + id + "$2\",\"rank\":\"normal\"}]},"
+                + "\"sitelinks\":{},\"lastrevid\":" + id + "}";
+    }
+
+    private static byte[] dumpJson() {
+        final List<String> items = new ArrayList<>();
+        for (int id = 1; id <= ITEMS; ++id) {
+            items.add(item(id));
+        }
+        return ("[\n" + String.join(",\n", items) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private MwDumpFile writeDump(byte[] json) throws IOException {
+        final Path path = tempDir.resolve("wikidata-20200101-all.json.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(path))) {
+            output.write(json);
+        }
+        return new ZstdDumpFile(path.toString());
+    }
+
+    private ObjectNode humansNode() throws IOException {
+        return mapper.readValue(Path.of("examples/humans.json").toFile(), ObjectNode.class);
+    }
+
+    /**
+     * All items with all statements, including references.
+     */
+    private ObjectNode allItemsNode() throws IOException {
+        final ObjectNode node = humansNode();
+        node.set("entities", mapper.createArrayNode());
+        node.set("statements", mapper.createArrayNode().add(mapper.createObjectNode()
+                .put("full", true)
+                .put("simple", true)
+                .put("references", true)
+                .put("qualifiers", true)
+                .put("rank", "all")));
+        return node;
+    }
+
+    private DumpSpec spec(ObjectNode node) {
+        return mapper.convertValue(node, DumpSpec.class);
+    }
+
+    private DumpSpec allItems() throws IOException {
+        return spec(allItemsNode());
+    }
+
+    /**
+     * Only items with P31 = Q5, with the same output options as {@link #allItems()} so both form a group.
+     */
+    private DumpSpec humans() throws IOException {
+        final ObjectNode node = allItemsNode();
+        node.set("entities", humansNode().get("entities"));
+        return spec(node);
+    }
+
+    private DumpSpec withoutLabels() throws IOException {
+        return spec(allItemsNode().put("labels", false));
+    }
+
+    private List<byte[]> process(MwDumpFile dumpFile, int threads, List<DumpSpec> specs, ProgressReporter progress) {
+        final List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        final List<FilteredRdfSerializer> serializers = new ArrayList<>();
+        for (int i = 0; i < specs.size(); ++i) {
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final FilteredRdfSerializer serializer = new FilteredRdfSerializer(specs.get(i), i, output, new SitesImpl(),
+                    createPropertyRegister(), propertyIris, (level, message) -> fail(message));
+            serializer.open();
+            outputs.add(output);
+            serializers.add(serializer);
+        }
+
+        new ParallelDumpProcessor(threads, serializers, ParallelDumpProcessorTest::createPropertyRegister, progress, Shard.ALL)
+                .processDump(dumpFile);
+        serializers.forEach(FilteredRdfSerializer::close);
+
+        final List<byte[]> result = new ArrayList<>();
+        for (ByteArrayOutputStream output : outputs) {
+            result.add(output.toByteArray());
+        }
+        return result;
+    }
+
+    private List<byte[]> process(MwDumpFile dumpFile, int threads, List<DumpSpec> specs) {
+        return process(dumpFile, threads, specs, new ProgressReporter(Duration.ofHours(1), NO_STATUS));
+    }
+
+    @Test
+    void testSameOutputForAnyNumberOfThreads() throws IOException {
+        final MwDumpFile dumpFile = writeDump(dumpJson());
+        final List<DumpSpec> specs = List.of(allItems());
+
+        final byte[] sequential = process(dumpFile, 1, specs).get(0);
+        final byte[] parallel = process(dumpFile, 4, specs).get(0);
+        assertThat(parallel).isEqualTo(sequential);
+
+        // the shared triples are only written once
+        final List<String> lines = new String(parallel, StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        final Set<String> unique = new HashSet<>(lines);
+        assertThat(lines).hasSameSizeAs(unique);
+        assertThat(lines).contains("<http://www.wikidata.org/entity/Q" + ITEMS + "> <http://www.wikidata.org/prop/direct/P31> "
+                + "<http://www.wikidata.org/entity/Q5> .");
+    }
+
+    @Test
+    void testMultipleDumps() throws IOException {
+        final MwDumpFile dumpFile = writeDump(dumpJson());
+        final List<DumpSpec> specs = List.of(allItems(), withoutLabels(), humans());
+
+        final List<byte[]> expected = new ArrayList<>();
+        for (DumpSpec spec : specs) {
+            expected.add(process(dumpFile, 1, List.of(spec)).get(0));
+        }
+
+        // with a single thread, the two units are serialized by separate threads
+        for (int threads : new int[]{1, 2, 4}) {
+            final List<byte[]> outputs = process(dumpFile, threads, specs);
+            for (int i = 0; i < specs.size(); ++i) {
+                assertThat(outputs.get(i)).as("dump %d with %d threads", i, threads).isEqualTo(expected.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testSnapshot() throws IOException {
+        final byte[] json = dumpJson();
+        final MwDumpFile dumpFile = writeDump(json);
+        final Path snapshotPath = tempDir.resolve("wikidata-20200101-all.json.wdsnap");
+        try (InputStream input = dumpFile.getDumpFileStream()) {
+            assertThat(SnapshotWriter.convert(input, snapshotPath)).isEqualTo(ITEMS);
+        }
+
+        final List<DumpSpec> specs = List.of(allItems());
+        final byte[] expected = process(dumpFile, 1, specs).get(0);
+        assertThat(process(new SnapshotDumpFile(snapshotPath.toString()), 4, specs).get(0)).isEqualTo(expected);
+    }
+
+    @Test
+    void testProgress() throws IOException {
+        final MwDumpFile dumpFile = writeDump(dumpJson());
+        final ProgressReporter progress = new ProgressReporter(Duration.ofHours(1), NO_STATUS);
+        process(dumpFile, 4, List.of(humans()), progress);
+        assertThat(progress.snapshot().getEntities()).isEqualTo(ITEMS);
+    }
+
+    @Test
+    void testTruncatedDump() throws IOException {
+        final byte[] json = dumpJson();
+        final Path path = tempDir.resolve("wikidata-20200101-all.json.gz");
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream output = new GZIPOutputStream(compressed)) {
+            output.write(json);
+        }
+        final byte[] data = compressed.toByteArray();
+        Files.write(path, Arrays.copyOf(data, data.length / 2));
+
+        assertThatThrownBy(() -> process(new ZstdDumpFile(path.toString()), 4, List.of(allItems())))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessageContaining("processing the dump failed");
+    }
+}
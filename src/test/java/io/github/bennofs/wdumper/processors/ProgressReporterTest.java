@@ -0,0 +1,89 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.interfaces.RunnerStatusHandler;
+import io.github.bennofs.wdumper.metrics.DumpMetrics;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import org.junit.jupiter.api.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.ItemDocument;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ProgressReporterTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"labels\":{},\"descriptions\":{},\"aliases\":{},"
+            + "\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":"
+            + "{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"},"
+            + "\"type\":\"statement\",\"id\":\"Q42$1\",\"rank\":\"normal\"}]},\"sitelinks\":{},\"lastrevid\":1}";
+
+    private static final class RecordingHandler implements RunnerStatusHandler {
+        final List<ProgressSnapshot> reports = new ArrayList<>();
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public synchronized void reportProgress(ProgressSnapshot progress) {
+            reports.add(progress);
+        }
+
+        @Override
+        public void done() {
+        }
+    }
+
+    @Test
+    void testSnapshot() throws IOException {
+        final PropertyRegister propertyRegister = new PropertyRegister("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"), DatatypeIdValue.DT_ITEM);
+        final DumpSpec spec = new ObjectMapper().readValue(Path.of("examples/humans.json").toFile(), DumpSpec.class);
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, 7, output, new SitesImpl(),
+                propertyRegister, new PropertyIriCache(), (level, message) -> fail(message));
+        final DumpMetrics metrics = new DumpMetrics(output::size, () -> 0, () -> 0);
+
+        final RecordingHandler handler = new RecordingHandler();
+        final ProgressReporter reporter = new ProgressReporter(Duration.ofHours(1), handler, List.of(serializer), List.of(metrics));
+        reporter.open();
+        serializer.open();
+
+        final ItemDocument human = new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .readValue(HUMAN);
+        serializer.processItemDocument(human);
+        reporter.addProgress(3, 1000);
+        reporter.addProgress(Integer.MAX_VALUE, 0);
+        reporter.addProgress(Integer.MAX_VALUE, 0);
+
+        final ProgressSnapshot beforeFlush = reporter.snapshot();
+        assertThat(beforeFlush.getEntities()).isEqualTo(3 + 2L * Integer.MAX_VALUE);
+        assertThat(beforeFlush.getInputBytes()).isEqualTo(1000);
+        assertThat(beforeFlush.getDumps()).hasSize(1);
+        assertThat(beforeFlush.getDumps().get(0).getDumpId()).isEqualTo(7);
+        assertThat(beforeFlush.getDumps().get(0).getEntities()).isEqualTo(1);
+        assertThat(beforeFlush.getDumps().get(0).getStatements()).isEqualTo(1);
+        assertThat(beforeFlush.getDumps().get(0).getTriples()).isLessThan(serializer.getTripleCount());
+
+        serializer.close();
+        reporter.close();
+
+        assertThat(handler.reports).hasSize(1);
+        final ProgressSnapshot.DumpProgress done = handler.reports.get(0).getDumps().get(0);
+        assertThat(done.getTriples()).isEqualTo(serializer.getTripleCount());
+        assertThat(done.getOutputBytes()).isEqualTo(output.size());
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.PropertyIdValue;
+import org.wikidata.wdtk.rdf.PropertyContext;
+import org.wikidata.wdtk.rdf.Vocabulary;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PropertyIriCacheTest {
+    @Test
+    void testSameIrisAsVocabulary() {
+        final PropertyIriCache cache = new PropertyIriCache();
+        for (String id : new String[]{"P31", "P1", "P12345", "P" + PropertyIriCache.MAX_PROPERTY_ID}) {
+            final PropertyIdValue property = Datamodel.makeWikidataPropertyIdValue(id);
+            for (PropertyContext context : PropertyContext.values()) {
+                final String expected = Vocabulary.getPropertyUri(property, context);
+                final IRI iri = cache.get(property, context);
+                assertThat(iri.stringValue()).isEqualTo(expected);
+                if (iri instanceof PropertyIriCache.CachedIri) {
+                    assertThat(new String(((PropertyIriCache.CachedIri) iri).ntriples, StandardCharsets.UTF_8))
+                            .isEqualTo("<" + expected + ">");
+                }
+            }
+        }
+    }
+
+    @Test
+    void testHitsAndMisses() {
+        final PropertyIriCache cache = new PropertyIriCache();
+        final PropertyIdValue property = Datamodel.makeWikidataPropertyIdValue("P569");
+
+        final IRI first = cache.get(property, PropertyContext.DIRECT);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(0);
+
+        assertThat(cache.get(property, PropertyContext.DIRECT)).isSameAs(first);
+        assertThat(cache.get(property, PropertyContext.STATEMENT)).isNotEqualTo(first);
+        assertThat(cache.getMisses()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        // properties beyond the bound are not cached
+        final PropertyIdValue large = Datamodel.makeWikidataPropertyIdValue("P" + PropertyIriCache.MAX_PROPERTY_ID);
+        cache.get(large, PropertyContext.DIRECT);
+        cache.get(large, PropertyContext.DIRECT);
+        assertThat(cache.getMisses()).isEqualTo(4);
+    }
+
+    @Test
+    void testFind() {
+        final PropertyIriCache cache = new PropertyIriCache();
+        final PropertyIdValue property = Datamodel.makeWikidataPropertyIdValue("P580");
+        for (PropertyContext context : PropertyContext.values()) {
+            final String uri = Vocabulary.getPropertyUri(property, context);
+            final IRI found = cache.find(uri);
+            assertThat(found).isNotNull();
+            assertThat(found.stringValue()).isEqualTo(uri);
+            assertThat(cache.find(uri)).isSameAs(found);
+        }
+
+        assertThat(cache.find("http://www.wikidata.org/entity/Q42")).isNull();
+        assertThat(cache.find("http://www.wikidata.org/entity/P31")).isNull();
+        assertThat(cache.find("http://www.wikidata.org/prop/direct/P031")).isNull();
+        assertThat(cache.find("http://www.wikidata.org/prop/direct/Q31")).isNull();
+        assertThat(cache.find("http://www.wikidata.org/prop/direct/P")).isNull();
+        assertThat(cache.find("http://example.org/")).isNull();
+    }
+
+    @Test
+    void testWrittenLikeOtherIris() {
+        final ValueFactory factory = SimpleValueFactory.getInstance();
+        final PropertyIriCache cache = new PropertyIriCache();
+        final IRI property = cache.get(Datamodel.makeWikidataPropertyIdValue("P31"), PropertyContext.DIRECT);
+        assertThat(property).isEqualTo(factory.createIRI("http://www.wikidata.org/prop/direct/P31"));
+
+        final Statement statement = factory.createStatement(factory.createIRI("http://www.wikidata.org/entity/Q42"),
+                property, factory.createIRI("http://www.wikidata.org/entity/Q5"));
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for (RDFWriter writer : List.of(Rio.createWriter(RDFFormat.NTRIPLES, expected), new NTriplesByteWriter(actual))) {
+            writer.startRDF();
+            writer.handleStatement(statement);
+            writer.endRDF();
+        }
+        assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+    }
+}
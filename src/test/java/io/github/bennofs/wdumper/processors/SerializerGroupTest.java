@@ -0,0 +1,118 @@
+package io.github.bennofs.wdumper.processors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.github.bennofs.wdumper.spec.DumpSpec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.implementation.SitesImpl;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.datamodel.interfaces.EntityDocument;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+import org.wikidata.wdtk.wikibaseapi.BasicApiConnection;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SerializerGroupTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"labels\":{},\"descriptions\":{},\"aliases\":{},"
+            + "\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\",\"datavalue\":{\"value\":"
+            + "{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"},\"datatype\":\"wikibase-item\"},"
+            + "\"type\":\"statement\",\"id\":\"Q42$1\",\"rank\":\"normal\"}]},\"sitelinks\":{},\"lastrevid\":1}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final PropertyIriCache propertyIris = new PropertyIriCache();
+    private PropertyRegister propertyRegister;
+
+    @BeforeEach
+    void createPropertyRegister() {
+        propertyRegister = new PropertyRegister("P1921", BasicApiConnection.getWikidataApiConnection(), Datamodel.SITE_WIKIDATA);
+        propertyRegister.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"), DatatypeIdValue.DT_ITEM);
+    }
+
+    private ObjectNode humansSpec() throws IOException {
+        return mapper.readValue(Path.of("examples/humans.json").toFile(), ObjectNode.class);
+    }
+
+    private DumpSpec spec(ObjectNode node) {
+        return mapper.convertValue(node, DumpSpec.class);
+    }
+
+    private static EntityDocument human(String id) throws IOException {
+        return new DatamodelMapper(Datamodel.SITE_WIKIDATA)
+                .readerFor(EntityDocumentImpl.class)
+                .readValue(HUMAN.replace("Q42", id));
+    }
+
+    private FilteredRdfSerializer serializer(DumpSpec spec, ByteArrayOutputStream output) {
+        final FilteredRdfSerializer serializer = new FilteredRdfSerializer(spec, 0, output, new SitesImpl(),
+                propertyRegister, propertyIris, (level, message) -> fail(message));
+        serializer.open();
+        serializer.flush();
+        return serializer;
+    }
+
+    private static List<String> sortedLines(ByteArrayOutputStream output) {
+        return output.toString(StandardCharsets.UTF_8).lines().sorted().collect(Collectors.toList());
+    }
+
+    private static BitSet dumps(int... indexes) {
+        final BitSet dumps = new BitSet();
+        for (int index : indexes) dumps.set(index);
+        return dumps;
+    }
+
+    @Test
+    void testFindGroups() throws IOException {
+        final ObjectNode allItems = humansSpec();
+        allItems.set("entities", mapper.createArrayNode());
+        final DumpSpec noLabels = spec(humansSpec().put("labels", false));
+
+        final List<int[]> groups = SerializerGroup.findGroups(List.of(spec(humansSpec()), noLabels, spec(allItems)));
+        assertThat(groups).hasSize(1);
+        assertThat(groups.get(0)).containsExactly(0, 2);
+    }
+
+    @Test
+    void testProcessMatchedDocument() throws IOException {
+        final DumpSpec spec = spec(humansSpec());
+        final ByteArrayOutputStream first = new ByteArrayOutputStream();
+        final ByteArrayOutputStream second = new ByteArrayOutputStream();
+        final List<FilteredRdfSerializer> members = List.of(serializer(spec, first), serializer(spec, second));
+        final SerializerGroup group = new SerializerGroup(new int[]{3, 5}, members, propertyRegister);
+
+        // the first dump does not see Q42, so it needs the shared triples again for Q43
+        group.processMatchedDocument(human("Q42"), dumps(5));
+        group.processMatchedDocument(human("Q43"), dumps(3, 5));
+        group.processMatchedDocument(human("Q44"), dumps(1));
+
+        final ByteArrayOutputStream expectedFirst = new ByteArrayOutputStream();
+        final FilteredRdfSerializer onlyQ43 = serializer(spec, expectedFirst);
+        onlyQ43.processMatchedDocument(human("Q43"));
+        onlyQ43.flush();
+
+        final ByteArrayOutputStream expectedSecond = new ByteArrayOutputStream();
+        final FilteredRdfSerializer both = serializer(spec, expectedSecond);
+        both.processMatchedDocument(human("Q42"));
+        both.processMatchedDocument(human("Q43"));
+        both.flush();
+
+        assertThat(sortedLines(first)).isEqualTo(sortedLines(expectedFirst));
+        assertThat(sortedLines(second)).isEqualTo(sortedLines(expectedSecond));
+
+        assertThat(members.get(0).getEntityCount()).isEqualTo(1);
+        assertThat(members.get(1).getEntityCount()).isEqualTo(2);
+        assertThat(members.get(1).getStatementCount()).isEqualTo(both.getStatementCount());
+        assertThat(members.get(1).getTripleCount()).isEqualTo(both.getTripleCount());
+    }
+}
@@ -0,0 +1,30 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.junit.jupiter.api.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.interfaces.DatatypeIdValue;
+import org.wikidata.wdtk.rdf.PropertyRegister;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SharedPropertyRegisterTest {
+    @Test
+    void testSharesTypes() {
+        final Supplier<PropertyRegister> factory = SharedPropertyRegister.factory();
+        final PropertyRegister first = factory.get();
+        final PropertyRegister second = factory.get();
+        assertThat(first).isNotSameAs(second);
+
+        // the type is known to the other register without fetching it
+        first.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"), DatatypeIdValue.DT_ITEM);
+        assertThat(second.getPropertyType(Datamodel.makeWikidataPropertyIdValue("P31"))).isEqualTo(DatatypeIdValue.DT_ITEM);
+
+        // registers of another factory do not share the types
+        final PropertyRegister other = SharedPropertyRegister.factory().get();
+        other.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P18"), DatatypeIdValue.DT_COMMONS_MEDIA);
+        second.setPropertyType(Datamodel.makeWikidataPropertyIdValue("P18"), DatatypeIdValue.DT_STRING);
+        assertThat(first.getPropertyType(Datamodel.makeWikidataPropertyIdValue("P18"))).isEqualTo(DatatypeIdValue.DT_STRING);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bennofs.wdumper.processors;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SharedTripleSetTest {
+    private static byte[] line(int i) {
+        return ("<http://www.wikidata.org/reference/" + i + "> <http://www.wikidata.org/prop/reference/P248> "
+                + "<http://www.wikidata.org/entity/Q36578> .\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testAdd() {
+        final SharedTripleSet set = new SharedTripleSet();
+        final byte[] data = line(1);
+        assertThat(set.add(data, 0, data.length)).isTrue();
+        assertThat(set.add(data, 0, data.length)).isFalse();
+        assertThat(set.add(line(1), 0, data.length)).isFalse();
+
+        // only the given range of the buffer is hashed
+        assertThat(set.add(data, 1, data.length - 1)).isTrue();
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testGrow() {
+        final SharedTripleSet set = new SharedTripleSet();
+        for (int i = 0; i < 100000; ++i) {
+            final byte[] data = line(i);
+            assertThat(set.add(data, 0, data.length)).isTrue();
+        }
+        for (int i = 0; i < 100000; ++i) {
+            final byte[] data = line(i);
+            assertThat(set.add(data, 0, data.length)).isFalse();
+        }
+        assertThat(set.size()).isEqualTo(100000);
+    }
+
+    @Test
+    void testHashHalves() {
+        final SharedTripleSet set = new SharedTripleSet();
+
+        // lines whose hashes only differ in one half are different lines
+        assertThat(set.add(1, 2)).isTrue();
+        assertThat(set.add(1, 3)).isTrue();
+        assertThat(set.add(4, 2)).isTrue();
+        assertThat(set.add(1, 2)).isFalse();
+
+        // the hash with two zeros cannot be stored in the table, but is still a member of the set
+        assertThat(set.add(0, 0)).isTrue();
+        assertThat(set.add(0, 0)).isFalse();
+        assertThat(set.size()).isEqualTo(4);
+    }
+}
@@ -93,6 +93,11 @@ public class DumpSpecTest {
 
         final var nodeNoSampling = origNode.deepCopy().without(List.of("seed", "samplingPercent"));
         assertEquals(100, mapper.convertValue(nodeNoSampling, DumpSpecJson.class).samplingPercent());
+
+        assertEquals(OutputCompression.GZIP, spec.compression());
+        final var nodeZstd = origNode.deepCopy().put("compression", "zstd");
+        assertEquals(OutputCompression.ZSTD, mapper.convertValue(nodeZstd, DumpSpecJson.class).compression());
+        assertEquals(OutputCompression.ZSTD, mapper.convertValue(nodeZstd, DumpSpec.class).getCompression());
     }
 
     @Test
@@ -110,4 +115,102 @@ public class DumpSpecTest {
         final var specWithoutSeed = mapper.convertValue(origNode, DumpSpecJson.class);
         assertEquals(specWithoutSeed, mapper.readValue(mapper.writeValueAsBytes(specWithoutSeed), DumpSpecJson.class));
     }
+
+    private static DumpSpec samplingSpec(int samplingPercent, long seed) {
+        final StatementFilter statements = new StatementFilter(null, RankFilter.BEST_RANK, true, false, false, false);
+        return new DumpSpec("1", new EntityFilter[0], Set.of(statements), samplingPercent, seed, null,
+                true, true, true, true, true);
+    }
+
+    @Test
+    public void samplingIsDeterministicTest() {
+        final DumpSpec spec = samplingSpec(30, 1234L);
+        final DumpSpec sameSeed = samplingSpec(30, 1234L);
+        final DumpSpec otherSeed = samplingSpec(30, 4321L);
+
+        int included = 0;
+        int differentFromOtherSeed = 0;
+        for (int i = 1; i <= 10000; ++i) {
+            final String id = "Q" + i;
+            final boolean sampled = spec.sampleDocument(id);
+
+            // the decision is a pure function of seed and id, independent of previous calls
+            assertEquals(sampled, spec.sampleDocument(id));
+            assertEquals(sampled, sameSeed.sampleDocument(id));
+
+            if (sampled) included += 1;
+            if (sampled != otherSeed.sampleDocument(id)) differentFromOtherSeed += 1;
+        }
+
+        assertTrue(included > 2700 && included < 3300, "sample size " + included + " too far from 30%");
+        assertTrue(differentFromOtherSeed > 0, "different seeds should select different entities");
+    }
+
+    @Test
+    public void statementOptionsTest() {
+        final StatementFilter defaults = new StatementFilter(null, RankFilter.BEST_RANK, true, false, false, false);
+        final StatementFilter full = new StatementFilter(Set.of("P31", "P999999999"), RankFilter.ALL, false, true, false, false);
+        final DumpSpec spec = new DumpSpec("1", new EntityFilter[0], Set.of(defaults, full), 100, 1L, null,
+                true, true, true, true, true);
+
+        assertTrue(spec.findStatementOptions("P31").isFull());
+        assertFalse(spec.findStatementOptions("P279").isFull());
+        // ids above the indexed range do not allocate a huge array, but are still found
+        assertTrue(spec.findStatementOptions("P999999999").isFull());
+        assertFalse(spec.findStatementOptions("P999999998").isFull());
+        // an id with leading zeros is a different property
+        assertFalse(spec.findStatementOptions("P031").isFull());
+    }
+
+    @Test
+    public void samplingFullAndEmptyTest() {
+        final DumpSpec all = samplingSpec(100, 1L);
+        final DumpSpec none = samplingSpec(0, 1L);
+        for (int i = 1; i <= 1000; ++i) {
+            assertTrue(all.sampleDocument("Q" + i));
+            assertFalse(none.sampleDocument("Q" + i));
+        }
+    }
+
+    @Test
+    public void canonicalHashTest() throws IOException {
+        final ObjectMapper mapper = createObjectMapper();
+        final InputStream stream = getClass().getResourceAsStream("/simple-spec.json");
+        final ObjectNode origNode = mapper.readValue(stream, ObjectNode.class);
+        final DumpSpecJson spec = mapper.convertValue(origNode, DumpSpecJson.class);
+        assertTrue(spec.canonicalHash().isPresent());
+        assertEquals(spec.canonicalHash(), spec.canonicalize().canonicalHash());
+
+        // the order and duplicates of filters do not change the dump
+        final StatementFilterJson labels = StatementFilterJson.builder()
+                .properties(Set.of("P31", "P279"))
+                .rank(RankFilter.BEST_RANK)
+                .simple(true)
+                .full(false)
+                .references(false)
+                .qualifiers(false)
+                .build();
+        final ObjectNode reordered = origNode.deepCopy();
+        reordered.set("statements", mapper.valueToTree(List.of(labels, spec.statements().get(0), labels)));
+        final ObjectNode ordered = origNode.deepCopy();
+        ordered.set("statements", mapper.valueToTree(List.of(spec.statements().get(0), labels)));
+        assertEquals(
+                mapper.convertValue(ordered, DumpSpecJson.class).canonicalHash(),
+                mapper.convertValue(reordered, DumpSpecJson.class).canonicalHash());
+
+        // the seed is irrelevant if the dump is not sampled
+        final ObjectNode full = origNode.deepCopy().put("samplingPercent", 100);
+        assertEquals(
+                mapper.convertValue(full, DumpSpecJson.class).canonicalHash(),
+                mapper.convertValue(full.deepCopy().put("seed", 7), DumpSpecJson.class).canonicalHash());
+
+        // the seed and the compression change the generated file
+        assertNotEquals(spec.canonicalHash(), mapper.convertValue(origNode.deepCopy().put("seed", 7), DumpSpecJson.class).canonicalHash());
+        assertNotEquals(spec.canonicalHash(), mapper.convertValue(origNode.deepCopy().put("compression", "zstd"), DumpSpecJson.class).canonicalHash());
+
+        // random samples are not reproducible
+        final ObjectNode randomSample = origNode.deepCopy();
+        randomSample.remove("seed");
+        assertTrue(mapper.convertValue(randomSample, DumpSpecJson.class).canonicalHash().isEmpty());
+    }
 }
@@ -0,0 +1,19 @@
+package io.github.bennofs.wdumper.spec;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class EntityIdsTest {
+    @Test
+    void testNumericId() {
+        assertThat(EntityIds.numericId("Q5", 'Q')).isEqualTo(5);
+        assertThat(EntityIds.numericId("Q123456789", 'Q')).isEqualTo(123456789);
+        assertThat(EntityIds.numericId("P31", 'P')).isEqualTo(31);
+        assertThat(EntityIds.numericId("P31", 'Q')).isEqualTo(-1);
+        assertThat(EntityIds.numericId("Q", 'Q')).isEqualTo(-1);
+        assertThat(EntityIds.numericId("L1-F2", 'L')).isEqualTo(-1);
+        assertThat(EntityIds.numericId("Q05", 'Q')).isEqualTo(-1);
+        assertThat(EntityIds.numericId("P0031", 'P')).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.bennofs.wdumper.spec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bennofs.wdumper.ext.PropertyBitmapIndex;
+import io.github.bennofs.wdumper.ext.SnapshotDumpFile;
+import io.github.bennofs.wdumper.ext.SnapshotWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class EntityPreselectionTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\","
+            + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"}}}]}}";
+    private static final String PAINTING = "{\"type\":\"item\",\"id\":\"Q12418\",\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\","
+            + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":3305213,\"id\":\"Q3305213\"},\"type\":\"wikibase-entityid\"}}}]}}";
+    private static final String PROPERTY = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"claims\":{}}";
+
+    @TempDir Path tempDir;
+
+    private static DumpSpec readSpec(String path) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final DumpSpecJson specJson = mapper.readValue(Path.of(path).toFile(), DumpSpecJson.class);
+        return mapper.convertValue(specJson, DumpSpec.class);
+    }
+
+    private PropertyBitmapIndex index(Set<Integer> valueProperties) throws IOException {
+        final byte[] dump = ("[\n" + String.join(",\n", List.of(HUMAN, PAINTING, PROPERTY)) + "\n]\n").getBytes(StandardCharsets.UTF_8);
+        final Path path = tempDir.resolve("dump.json.wdsnap");
+        SnapshotWriter.convert(new ByteArrayInputStream(dump), path);
+        return PropertyBitmapIndex.build(new SnapshotDumpFile(path.toString()), valueProperties);
+    }
+
+    @Test
+    void testIndexedValue() throws IOException {
+        final RoaringBitmap selected = EntityPreselection.select(index(Set.of(31)), List.of(readSpec("examples/humans.json")));
+        assertThat(selected).isEqualTo(RoaringBitmap.bitmapOf(0));
+    }
+
+    @Test
+    void testValueNotIndexed() throws IOException {
+        // without the values, all items with the property may match
+        final RoaringBitmap selected = EntityPreselection.select(index(Set.of()), List.of(readSpec("examples/humans.json")));
+        assertThat(selected).isEqualTo(RoaringBitmap.bitmapOf(0, 1));
+    }
+
+    @Test
+    void testSpecWithoutFilters() throws IOException {
+        final RoaringBitmap selected = EntityPreselection.select(index(Set.of(31)), List.of(
+                readSpec("examples/humans.json"),
+                readSpec("examples/nothing.json")
+        ));
+        assertThat(selected).isEqualTo(RoaringBitmap.bitmapOf(0, 1, 2));
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.bennofs.wdumper.spec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RawDocumentFilterTest {
+    private static final String HUMAN = "{\"type\":\"item\",\"id\":\"Q42\",\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\","
+            + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":5,\"id\":\"Q5\"},\"type\":\"wikibase-entityid\"}}}]}}";
+    private static final String PAINTING = "{\"type\":\"item\",\"id\":\"Q12418\",\"claims\":{\"P31\":[{\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"P31\","
+            + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":3305213,\"id\":\"Q3305213\"},\"type\":\"wikibase-entityid\"}}}]}}";
+    private static final String PROPERTY = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"claims\":{}}";
+
+    private static DumpSpec readSpec(String path) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final DumpSpecJson specJson = mapper.readValue(Path.of(path).toFile(), DumpSpecJson.class);
+        return mapper.convertValue(specJson, DumpSpec.class);
+    }
+
+    private static boolean mayMatch(RawDocumentFilter filter, String json) {
+        final byte[] data = ("  " + json + ",\n").getBytes(StandardCharsets.UTF_8);
+        return filter.mayMatch(data, 2, data.length - 4);
+    }
+
+    @Test
+    void testEntityIdFilter() throws IOException {
+        final RawDocumentFilter filter = RawDocumentFilter.create(List.of(readSpec("examples/humans.json")));
+
+        assertThat(mayMatch(filter, HUMAN)).isTrue();
+        assertThat(mayMatch(filter, PAINTING)).isFalse();
+        assertThat(mayMatch(filter, PROPERTY)).isFalse();
+    }
+
+    @Test
+    void testUnionOfSpecs() throws IOException {
+        final RawDocumentFilter filter = RawDocumentFilter.create(List.of(
+                readSpec("examples/humans.json"),
+                readSpec("examples/nothing.json")
+        ));
+
+        // nothing.json has no entity filters, so all entities need to be parsed
+        assertThat(mayMatch(filter, HUMAN)).isTrue();
+        assertThat(mayMatch(filter, PAINTING)).isTrue();
+        assertThat(mayMatch(filter, PROPERTY)).isTrue();
+    }
+
+    @Test
+    void testUnknownFormatIsAccepted() throws IOException {
+        final RawDocumentFilter filter = RawDocumentFilter.create(List.of(readSpec("examples/humans.json")));
+
+        assertThat(mayMatch(filter, "{ \"type\": \"item\", \"id\": \"Q12418\" }")).isTrue();
+    }
+
+    @Test
+    void testTypeAndProperties() throws IOException {
+        final RawDocumentFilter filter = RawDocumentFilter.create(List.of(readSpec("examples/humans.json")));
+
+        assertThat(filter.mayMatch(EntityTypeFilter.ITEM, property -> property == 31)).isTrue();
+        assertThat(filter.mayMatch(EntityTypeFilter.ITEM, property -> false)).isFalse();
+        assertThat(filter.mayMatch(EntityTypeFilter.PROPERTY, property -> property == 31)).isFalse();
+        // entities of unknown type may match any filter
+        assertThat(filter.mayMatch(EntityTypeFilter.ANY, property -> property == 31)).isTrue();
+    }
+}
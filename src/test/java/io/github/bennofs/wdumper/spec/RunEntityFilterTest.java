@@ -0,0 +1,71 @@
+package io.github.bennofs.wdumper.spec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.wikidata.wdtk.datamodel.helpers.Datamodel;
+import org.wikidata.wdtk.datamodel.helpers.DatamodelMapper;
+import org.wikidata.wdtk.datamodel.implementation.EntityDocumentImpl;
+import org.wikidata.wdtk.datamodel.interfaces.StatementDocument;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RunEntityFilterTest {
+    private static DumpSpec readSpec(String path) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        final DumpSpecJson specJson = mapper.readValue(Path.of(path).toFile(), DumpSpecJson.class);
+        return mapper.convertValue(specJson, DumpSpec.class);
+    }
+
+    private static String statement(String subject, String property, String rank, String valueId) {
+        return "{\"type\":\"statement\",\"id\":\"" + subject + "$" + property + valueId + "\",\"rank\":\"" + rank + "\","
+                + "\"mainsnak\":{\"snaktype\":\"value\",\"property\":\"" + property + "\",\"datatype\":\"wikibase-item\","
+                + "\"datavalue\":{\"value\":{\"entity-type\":\"item\",\"numeric-id\":" + valueId.substring(1) + ",\"id\":\"" + valueId + "\"},"
+                + "\"type\":\"wikibase-entityid\"}}}";
+    }
+
+    private static StatementDocument item(String id, String claims) throws IOException {
+        final String json = "{\"type\":\"item\",\"id\":\"" + id + "\",\"labels\":{},\"descriptions\":{},\"aliases\":{},"
+                + "\"sitelinks\":{},\"claims\":{" + claims + "}}";
+        return new DatamodelMapper(Datamodel.SITE_WIKIDATA).readerFor(EntityDocumentImpl.class).readValue(json);
+    }
+
+    private static BitSet bits(int... indices) {
+        final BitSet result = new BitSet();
+        for (int index : indices) result.set(index);
+        return result;
+    }
+
+    @Test
+    void testMatchesSameAsSpecs() throws IOException {
+        final List<DumpSpec> specs = List.of(
+                readSpec("examples/humans.json"),
+                readSpec("examples/nothing.json"),
+                readSpec("examples/politicians.json")
+        );
+        final RunEntityFilter filter = RunEntityFilter.create(specs);
+
+        final StatementDocument human = item("Q42", "\"P31\":[" + statement("Q42", "P31", "normal", "Q5") + "]");
+        final StatementDocument painting = item("Q12418", "\"P31\":[" + statement("Q12418", "P31", "normal", "Q3305213") + "]");
+        final StatementDocument deprecated = item("Q1", "\"P31\":[" + statement("Q1", "P31", "deprecated", "Q5") + "]");
+
+        assertThat(filter.evaluate(human)).isEqualTo(bits(0, 1));
+        assertThat(filter.evaluate(painting)).isEqualTo(bits(1));
+        assertThat(filter.evaluate(deprecated)).isEqualTo(bits(1));
+    }
+
+    @Test
+    void testMultipleValuesForSameProperty() throws IOException {
+        final DumpSpec humans = readSpec("examples/humans.json");
+        final RunEntityFilter filter = RunEntityFilter.create(List.of(humans, humans));
+
+        final StatementDocument human = item("Q42", "\"P31\":["
+                + statement("Q42", "P31", "normal", "Q215627") + ","
+                + statement("Q42", "P31", "normal", "Q5") + "]");
+        assertThat(filter.evaluate(human)).isEqualTo(bits(0, 1));
+    }
+}
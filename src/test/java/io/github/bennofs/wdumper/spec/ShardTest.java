@@ -0,0 +1,58 @@
+package io.github.bennofs.wdumper.spec;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ShardTest {
+    private static boolean mayInclude(Shard shard, String json) {
+        final byte[] data = ("  " + json + ",\n").getBytes(StandardCharsets.UTF_8);
+        return shard.mayInclude(data, 2, data.length - 4);
+    }
+
+    @Test
+    void testEveryEntityInExactlyOneShard() {
+        final int count = 3;
+        for (String id : new String[]{"Q1", "Q42", "Q12418", "P31", "L7", "L7-F1", "M123", "X"}) {
+            int included = 0;
+            for (int index = 0; index < count; ++index) {
+                if (new Shard(index, count).includes(id)) included += 1;
+            }
+            assertThat(included).as(id).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testShardByNumericId() {
+        assertThat(Shard.shardOf("Q42", 4)).isEqualTo(2);
+        assertThat(Shard.shardOf("P42", 4)).isEqualTo(2);
+        assertThat(Shard.shardOf("Q43", 4)).isEqualTo(3);
+        assertThat(Shard.shardOf("L7-F1", 4)).isBetween(0, 3);
+        assertThat(Shard.ALL.includes("Q42")).isTrue();
+        assertThat(Shard.ALL.isPartial()).isFalse();
+    }
+
+    @Test
+    void testMayInclude() {
+        final String human = "{\"type\":\"item\",\"id\":\"Q42\",\"claims\":{}}";
+        final String property = "{\"type\":\"property\",\"datatype\":\"wikibase-item\",\"id\":\"P31\",\"claims\":{}}";
+
+        assertThat(mayInclude(new Shard(0, 2), human)).isTrue();
+        assertThat(mayInclude(new Shard(1, 2), human)).isFalse();
+        assertThat(mayInclude(new Shard(1, 2), property)).isTrue();
+        assertThat(mayInclude(new Shard(0, 2), property)).isFalse();
+
+        // an id of a nested object is not used, the entity is checked after parsing instead
+        final String nested = "{\"claims\":{\"P31\":[{\"id\":\"Q1$abc\"}]},\"type\":\"item\",\"id\":\"Q42\"}";
+        assertThat(mayInclude(new Shard(0, 2), nested)).isTrue();
+        assertThat(mayInclude(new Shard(1, 2), nested)).isTrue();
+    }
+
+    @Test
+    void testInvalidShard() {
+        assertThatThrownBy(() -> new Shard(2, 2)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new Shard(0, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bennofs.wdumper.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class InputRateTest {
+    private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+    @Test
+    void testInitialRate() {
+        final InputRate rate = InputRate.initial(START, 1000, START.plusSeconds(10));
+        assertThat(rate.getBytesPerSecond()).isEqualTo(100.0);
+        assertThat(rate.remaining(3000)).isEqualTo(Duration.ofSeconds(20));
+    }
+
+    @Test
+    void testConvergesToCurrentRate() {
+        InputRate rate = InputRate.initial(START, 1000, START.plusSeconds(10));
+        long position = 1000;
+        Instant time = START.plusSeconds(10);
+        for (int i = 0; i < 120; ++i) {
+            position += 60 * 10;
+            time = time.plusSeconds(60);
+            rate = rate.update(START, position, time);
+        }
+        assertThat(rate.getBytesPerSecond()).isCloseTo(10.0, within(0.1));
+    }
+
+    @Test
+    void testWeightDependsOnTime() {
+        final InputRate initial = InputRate.initial(START, 1000, START.plusSeconds(10));
+
+        // one sample after two minutes has the same effect as two samples after one minute each
+        final InputRate once = initial.update(START, 1000 + 120 * 50, START.plusSeconds(130));
+        final InputRate twice = initial
+                .update(START, 1000 + 60 * 50, START.plusSeconds(70))
+                .update(START, 1000 + 120 * 50, START.plusSeconds(130));
+        assertThat(once.getBytesPerSecond()).isCloseTo(twice.getBytesPerSecond(), within(1e-9));
+    }
+
+    @Test
+    void testUnchangedPosition() {
+        final InputRate rate = InputRate.initial(START, 1000, START.plusSeconds(10));
+        assertThat(rate.update(START, 1000, START.plusSeconds(100))).isSameAs(rate);
+    }
+
+    @Test
+    void testRestart() {
+        final InputRate rate = InputRate.initial(START, 1000, START.plusSeconds(10))
+                .update(START, 500, START.plusSeconds(20));
+        assertThat(rate.getBytesPerSecond()).isEqualTo(25.0);
+    }
+}
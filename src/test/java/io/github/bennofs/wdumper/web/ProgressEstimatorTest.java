@@ -0,0 +1,43 @@
+package io.github.bennofs.wdumper.web;
+
+import io.github.bennofs.wdumper.model.Progress;
+import io.github.bennofs.wdumper.model.Run;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ProgressEstimatorTest {
+    private static Run run(Instant startedAt, long inputPosition, Instant progressUpdatedAt) {
+        return Run.builder()
+                .id(1)
+                .count(0)
+                .toolVersion("test")
+                .wdtkVersion("test")
+                .dumpDate("20200101")
+                .startedAt(startedAt)
+                .inputPosition(inputPosition)
+                .inputSize(20000L)
+                .progressUpdatedAt(progressUpdatedAt)
+                .build();
+    }
+
+    @Test
+    void testSampledAtProgressUpdate() {
+        // the input is only used for runs that report their position, so the database is never queried
+        final ProgressEstimator estimator = new ProgressEstimator(null);
+        final Instant now = Instant.now();
+        final Instant startedAt = now.minusSeconds(100);
+
+        // 100 bytes per second between the stored samples, however often the progress is requested
+        estimator.estimate(run(startedAt, 1000, now.minusSeconds(90)));
+        estimator.estimate(run(startedAt, 7000, now.minusSeconds(30)));
+        final Progress progress = estimator.estimate(run(startedAt, 7000, now.minusSeconds(30))).orElseThrow();
+
+        // 130 seconds were left when the progress was stored, 30 seconds ago
+        assertThat(progress.estimatedRemaining).isBetween(Duration.ofSeconds(95), Duration.ofSeconds(100));
+        assertThat(progress.completedPercent).isEqualTo(35);
+    }
+}